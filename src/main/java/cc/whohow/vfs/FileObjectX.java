@@ -2,6 +2,8 @@ package cc.whohow.vfs;
 
 import cc.whohow.vfs.io.ReadableChannel;
 import cc.whohow.vfs.io.WritableChannel;
+import cc.whohow.vfs.operations.FileObjectBatchRemove;
+import cc.whohow.vfs.operations.Remove;
 import cc.whohow.vfs.path.URIBuilder;
 import cc.whohow.vfs.tree.FileObjectTree;
 import cc.whohow.vfs.tree.FileObjectTreeIterator;
@@ -14,10 +16,12 @@ import org.apache.commons.vfs2.FileSystemException;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.io.UncheckedIOException;
 import java.nio.file.DirectoryStream;
 import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
+import java.util.concurrent.Executor;
 import java.util.stream.StreamSupport;
 
 /**
@@ -115,26 +119,41 @@ public interface FileObjectX extends FileObjectImpl, FileContentImpl {
         return new MapIterator<>(new FileObjectTreeIterator(this), fileObject -> fileObject);
     }
 
+    /**
+     * 删除目录树中所有文件，默认在共用的有界删除线程池中多个批次并行删除；支持批量删除的文件系统使用自身线程池
+     */
+    default Remove.Result removeAll() throws FileSystemException {
+        return removeAll(FileObjectBatchRemove.getDefaultExecutor(), FileObjectBatchRemove.DEFAULT_MAX_IN_FLIGHT_BATCHES);
+    }
+
+    /**
+     * 删除目录树中所有文件，多个批次在指定线程池中并行删除
+     *
+     * @param executor           删除线程池，null表示在调用线程中执行；删除为阻塞操作，不宜使用 ForkJoinPool.commonPool()
+     * @param maxInFlightBatches 同时删除的批次数
+     */
+    default Remove.Result removeAll(Executor executor, int maxInFlightBatches) throws FileSystemException {
+        if (!isFolder()) {
+            long start = System.currentTimeMillis();
+            return new Remove.Result(delete() ? 1 : 0, 0, System.currentTimeMillis() - start);
+        }
+        try {
+            return new FileObjectBatchRemove(this, (executor == null) ? 1 : maxInFlightBatches, executor).get();
+        } catch (UncheckedIOException e) {
+            if (e.getCause() instanceof FileSystemException) {
+                throw (FileSystemException) e.getCause();
+            }
+            throw new FileSystemException(e.getCause());
+        }
+    }
+
     @Override
     default int deleteAll() throws FileSystemException {
-        if (isFolder()) {
-            try (DirectoryStream<FileObjectX> list = list()) {
-                int n = 0;
-                for (FileObjectX fileObject : list) {
-                    if (fileObject.isFolder()) {
-                        n += fileObject.deleteAll();
-                    } else {
-                        n += fileObject.delete() ? 1 : 0;
-                    }
-                }
-                return n;
-            } catch (FileSystemException e) {
-                throw e;
-            } catch (IOException e) {
-                throw new FileSystemException(e);
-            }
-        } else {
-            return delete() ? 1 : 0;
+        Remove.Result result = removeAll();
+        if (result.getFailed() > 0) {
+            throw new FileSystemException("vfs.provider/delete.error",
+                    new IOException(result.toString()), this);
         }
+        return (int) result.getDeleted();
     }
 }
@@ -2,7 +2,9 @@ package cc.whohow.vfs;
 
 import cc.whohow.vfs.io.ReadableChannel;
 import cc.whohow.vfs.io.WritableChannel;
+import cc.whohow.vfs.provider.s3.ListingCursor;
 import cc.whohow.vfs.serialize.Serializer;
+import cc.whohow.vfs.tree.ParallelFileObjectTree;
 import org.apache.commons.vfs2.FileContent;
 import org.apache.commons.vfs2.FileNotFoundException;
 import org.apache.commons.vfs2.FileObject;
@@ -82,6 +84,16 @@ public class FileObjects {
 
     public static long getSize(FileObjectX fileObject) {
         try {
+            if (fileObject instanceof ListingCursor.Source && fileObject.isFolder()) {
+                // 直接累加列举项大小，不创建文件对象
+                try (ListingCursor cursor = ((ListingCursor.Source) fileObject).newListingCursor()) {
+                    long size = 0;
+                    while (cursor.advance()) {
+                        size += cursor.size();
+                    }
+                    return size;
+                }
+            }
             if (fileObject.isFolder()) {
                 try (DirectoryStream<FileObjectX> list = fileObject.listRecursively()) {
                     return StreamSupport.stream(list.spliterator(), false)
@@ -141,6 +153,16 @@ public class FileObjects {
         }
     }
 
+    /**
+     * 按目录并行列举目录树，适用于不支持原生递归列举的文件系统
+     */
+    public static DirectoryStream<FileObjectX> listRecursively(FileObjectX fileObject, int parallelism) {
+        if (!isFolder(fileObject)) {
+            throw new UncheckedIOException(new FileSystemException("vfs.provider/list-children-not-folder.error", fileObject));
+        }
+        return new ParallelFileObjectTree(fileObject, parallelism);
+    }
+
     public static InputStream getInputStream(FileObjectX fileObject) {
         try {
             return fileObject.getInputStream();
@@ -157,6 +179,9 @@ public class FileObjects {
         }
     }
 
+    /**
+     * 读取全部内容，默认为堆内存快照；本地文件系统配置 mapOnReadAll 时大文件返回只读内存映射
+     */
     public static ByteBuffer read(FileObjectX fileObject) {
         try (ReadableChannel channel = fileObject.getReadableChannel()) {
             return channel.readAll();
@@ -205,6 +230,14 @@ public class FileObjects {
         }
     }
 
+    public static boolean delete(FileObject fileObject) {
+        try {
+            return fileObject.delete();
+        } catch (FileSystemException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
     public static void deleteAll(FileObject fileObject) {
         try {
             fileObject.deleteAll();
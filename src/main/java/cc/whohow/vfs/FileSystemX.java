@@ -31,6 +31,12 @@ public interface FileSystemX extends FileSystemImpl, VfsComponent {
         return resolveFile(name.getURI());
     }
 
+    /**
+     * 文件被修改、删除，使文件属性缓存失效，默认无缓存
+     */
+    default void invalidate(FileObjectX fileObject) {
+    }
+
     @Override
     default boolean hasCapability(Capability capability) {
         return getFileSystemProvider().getCapabilities().contains(capability);
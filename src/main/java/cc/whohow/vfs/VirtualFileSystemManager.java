@@ -1,6 +1,7 @@
 package cc.whohow.vfs;
 
 import cc.whohow.vfs.operations.DefaultFileOperations;
+import cc.whohow.vfs.path.PrefixIndex;
 import cc.whohow.vfs.provider.kv.KeyValueFileObject;
 import cc.whohow.vfs.provider.uri.UriFileName;
 import cc.whohow.vfs.serialize.TextSerializer;
@@ -20,6 +21,7 @@ import java.net.URI;
 import java.net.URLStreamHandlerFactory;
 import java.nio.file.DirectoryStream;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentSkipListMap;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
@@ -33,6 +35,8 @@ public class VirtualFileSystemManager implements VirtualFileSystem {
     protected DefaultFileOperations operations = new DefaultFileOperations();
     protected ScheduledExecutorService executor;
     protected PollingFileWatchService watchService;
+    protected int resolveCacheSize = 4096;
+    private volatile Resolver resolver;
 
     public VirtualFileSystemManager() {
         vfs.put("/", this);
@@ -42,6 +46,7 @@ public class VirtualFileSystemManager implements VirtualFileSystem {
         providers.put("vfs", this);
         providers.put("vfm", this);
         providers.put("conf", this);
+        resolver = new Resolver(vfs);
         executor = Executors.newScheduledThreadPool(2);
         watchService = new PollingFileWatchService(executor);
     }
@@ -76,23 +81,37 @@ public class VirtualFileSystemManager implements VirtualFileSystem {
 
     @Override
     public FileObjectX resolveFile(String name) throws FileSystemException {
-        return resolveFile(URI.create(name));
+        Resolver r = resolver;
+        Resolved resolved = r.get(name);
+        if (resolved == null) {
+            resolved = r.put(name, r.resolve(URI.create(name)));
+        }
+        return resolveFile(resolved);
     }
 
     @Override
     public FileObjectX resolveFile(URI u) throws FileSystemException {
-        URI uri = u.normalize();
-        String s = uri.toString();
-        for (Map.Entry<String, FileObjectX> e : vfs.entrySet()) {
-            if (s.startsWith(e.getKey())) {
-                return e.getValue().resolveFile(s.substring(e.getKey().length()));
-            }
+        Resolver r = resolver;
+        String name = u.toString();
+        Resolved resolved = r.get(name);
+        if (resolved == null) {
+            resolved = r.put(name, r.resolve(u));
+        }
+        return resolveFile(resolved);
+    }
+
+    /**
+     * 每次新建文件对象，调用方之间不共享可变实例
+     */
+    private FileObjectX resolveFile(Resolved resolved) throws FileSystemException {
+        if (resolved.junction != null) {
+            return resolved.junction.getValue().resolveFile(resolved.name.substring(resolved.junction.getKey().length()));
         }
-        FileSystemProviderX fileSystemProvider = providers.get(uri.getScheme());
+        FileSystemProviderX fileSystemProvider = providers.get(resolved.uri.getScheme());
         if (fileSystemProvider == null) {
             return null;
         }
-        return fileSystemProvider.getFileObject(uri);
+        return fileSystemProvider.getFileObject(resolved.uri);
     }
 
     @Override
@@ -138,6 +157,10 @@ public class VirtualFileSystemManager implements VirtualFileSystem {
                 }
                 providers.putIfAbsent(fileSystemProvider.getScheme(), fileSystemProvider);
             }
+            // 与 addJunction 同一把锁重建，避免覆盖并发添加的挂载点
+            synchronized (this) {
+                resolver = new Resolver(vfs);
+            }
         } catch (FileSystemException e) {
             throw e;
         } catch (Exception e) {
@@ -146,8 +169,9 @@ public class VirtualFileSystemManager implements VirtualFileSystem {
     }
 
     @Override
-    public void addJunction(String junction, FileObject file) throws FileSystemException {
+    public synchronized void addJunction(String junction, FileObject file) throws FileSystemException {
         vfs.put(junction, (FileObjectX) file);
+        resolver = new Resolver(vfs);
     }
 
     @Override
@@ -202,4 +226,52 @@ public class VirtualFileSystemManager implements VirtualFileSystem {
     public PollingFileWatchService getWatchService() {
         return watchService;
     }
-}
\ No newline at end of file
+
+    /**
+     * 挂载点前缀索引及解析缓存（无锁，满时清空），挂载点变化时整体替换
+     */
+    private class Resolver {
+        final PrefixIndex<FileObjectX> junctions;
+        final Map<String, Resolved> resolved = new ConcurrentHashMap<>();
+
+        Resolver(Map<String, FileObjectX> junctions) {
+            this.junctions = new PrefixIndex<>(junctions);
+        }
+
+        /**
+         * 规范化并匹配挂载点
+         */
+        Resolved resolve(URI u) {
+            URI uri = u.normalize();
+            String s = uri.toString();
+            return new Resolved(uri, s, junctions.match(s));
+        }
+
+        Resolved get(String name) {
+            return resolved.get(name);
+        }
+
+        Resolved put(String name, Resolved value) {
+            if (resolved.size() >= resolveCacheSize) {
+                resolved.clear();
+            }
+            resolved.put(name, value);
+            return value;
+        }
+    }
+
+    /**
+     * 解析缓存项：只缓存规范化 URI 及匹配的挂载点，不缓存文件对象
+     */
+    private static class Resolved {
+        final URI uri;
+        final String name;
+        final Map.Entry<String, FileObjectX> junction;
+
+        Resolved(URI uri, String name, Map.Entry<String, FileObjectX> junction) {
+            this.uri = uri;
+            this.name = name;
+            this.junction = junction;
+        }
+    }
+}
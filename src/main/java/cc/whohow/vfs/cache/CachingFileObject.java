@@ -0,0 +1,241 @@
+package cc.whohow.vfs.cache;
+
+import cc.whohow.vfs.FileObjectX;
+import cc.whohow.vfs.FileSystemX;
+import cc.whohow.vfs.io.ReadableChannel;
+import cc.whohow.vfs.io.WritableChannel;
+import cc.whohow.vfs.io.WritableChannelWrapper;
+import cc.whohow.vfs.operations.Copy;
+import cc.whohow.vfs.operations.Remove;
+import cc.whohow.vfs.operations.ServerSideCopy;
+import cc.whohow.vfs.util.MapIterator;
+import cc.whohow.vfs.version.FileVersion;
+import cc.whohow.vfs.version.FileVersionProvider;
+import org.apache.commons.vfs2.FileContentInfo;
+import org.apache.commons.vfs2.FileName;
+import org.apache.commons.vfs2.FileSystemException;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.DirectoryStream;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.Executor;
+
+/**
+ * 本地缓存文件对象，读取时校验版本（ETag），版本一致读取本地缓存，可通过addJunction挂载
+ * <pre>
+ * vfs.addJunction("cache:/conf/", new CachingFileObject(vfs.resolveFile("cos://bucket/conf/"), cache, new S3FileVersionProvider()));
+ * </pre>
+ */
+public class CachingFileObject implements FileObjectX, ServerSideCopy {
+    protected final FileObjectX fileObject;
+    protected final FileContentCache cache;
+    protected final FileVersionProvider<?> versionProvider;
+
+    public CachingFileObject(FileObjectX fileObject, FileContentCache cache, FileVersionProvider<?> versionProvider) {
+        this.fileObject = fileObject;
+        this.cache = cache;
+        this.versionProvider = versionProvider;
+    }
+
+    public FileObjectX getFileObject() {
+        return fileObject;
+    }
+
+    public FileContentCache getCache() {
+        return cache;
+    }
+
+    protected CachingFileObject wrap(FileObjectX fileObject) {
+        return new CachingFileObject(fileObject, cache, versionProvider);
+    }
+
+    protected void invalidate() {
+        if (fileObject.getName().getURI().endsWith("/")) {
+            cache.invalidatePrefix(fileObject.getName().getURI());
+        } else {
+            cache.invalidate(fileObject.getName().getURI());
+        }
+    }
+
+    @Override
+    public FileSystemX getFileSystem() {
+        return fileObject.getFileSystem();
+    }
+
+    @Override
+    public FileName getName() {
+        return fileObject.getName();
+    }
+
+    @Override
+    public boolean exists() throws FileSystemException {
+        return fileObject.exists();
+    }
+
+    @Override
+    public void createFile() throws FileSystemException {
+        fileObject.createFile();
+    }
+
+    @Override
+    public void createFolder() throws FileSystemException {
+        fileObject.createFolder();
+    }
+
+    @Override
+    public boolean delete() throws FileSystemException {
+        try {
+            return fileObject.delete();
+        } finally {
+            invalidate();
+        }
+    }
+
+    @Override
+    public int deleteAll() throws FileSystemException {
+        try {
+            return fileObject.deleteAll();
+        } finally {
+            invalidate();
+        }
+    }
+
+    @Override
+    public Remove.Result removeAll() throws FileSystemException {
+        try {
+            return fileObject.removeAll();
+        } finally {
+            invalidate();
+        }
+    }
+
+    @Override
+    public Remove.Result removeAll(Executor executor, int maxInFlightBatches) throws FileSystemException {
+        try {
+            return fileObject.removeAll(executor, maxInFlightBatches);
+        } finally {
+            invalidate();
+        }
+    }
+
+    @Override
+    public DirectoryStream<FileObjectX> list() throws FileSystemException {
+        return wrap(fileObject.list());
+    }
+
+    @Override
+    public DirectoryStream<FileObjectX> listRecursively() throws FileSystemException {
+        return wrap(fileObject.listRecursively());
+    }
+
+    /**
+     * 版本一致读取本地缓存，无版本直接读取；下载后重新校验版本，避免旧版本下缓存新内容
+     */
+    @Override
+    public ReadableChannel getReadableChannel() throws FileSystemException {
+        String version;
+        try {
+            version = getVersion();
+        } catch (UncheckedIOException e) {
+            throw new FileSystemException(e.getCause());
+        }
+        if (version == null) {
+            return fileObject.getReadableChannel();
+        }
+        try {
+            return cache.open(fileObject, version, this::getVersion);
+        } catch (UncheckedIOException e) {
+            throw new FileSystemException(e.getCause());
+        } catch (FileSystemException e) {
+            throw e;
+        } catch (IOException e) {
+            throw new FileSystemException(e);
+        }
+    }
+
+    private String getVersion() {
+        FileVersion<?> fileVersion = versionProvider.getVersion(fileObject);
+        if (fileVersion == null || fileVersion.getVersion() == null) {
+            return null;
+        }
+        return fileVersion.getVersion().toString();
+    }
+
+    @Override
+    public WritableChannel getWritableChannel() throws FileSystemException {
+        invalidate();
+        return new WritableChannelWrapper(fileObject.getWritableChannel(), this::invalidate);
+    }
+
+    @Override
+    public OutputStream getOutputStream(boolean bAppend) throws FileSystemException {
+        if (bAppend) {
+            invalidate();
+            return fileObject.getOutputStream(true);
+        }
+        return getWritableChannel();
+    }
+
+    @Override
+    public Map<String, Object> getAttributes() throws FileSystemException {
+        return fileObject.getAttributes();
+    }
+
+    @Override
+    public long getSize() throws FileSystemException {
+        return fileObject.getSize();
+    }
+
+    @Override
+    public long getLastModifiedTime() throws FileSystemException {
+        return fileObject.getLastModifiedTime();
+    }
+
+    @Override
+    public FileContentInfo getContentInfo() throws FileSystemException {
+        return fileObject.getContentInfo();
+    }
+
+    @Override
+    public FileObjectX resolveFile(String path) throws FileSystemException {
+        return wrap(fileObject.resolveFile(path));
+    }
+
+    @Override
+    public Copy.Result copyTo(FileObjectX destination) throws FileSystemException {
+        if (!(fileObject instanceof ServerSideCopy)) {
+            return null;
+        }
+        if (destination instanceof CachingFileObject) {
+            CachingFileObject target = (CachingFileObject) destination;
+            try {
+                return ((ServerSideCopy) fileObject).copyTo(target.fileObject);
+            } finally {
+                target.invalidate();
+            }
+        }
+        return ((ServerSideCopy) fileObject).copyTo(destination);
+    }
+
+    @Override
+    public String toString() {
+        return fileObject.toString();
+    }
+
+    private DirectoryStream<FileObjectX> wrap(DirectoryStream<FileObjectX> list) {
+        return new DirectoryStream<FileObjectX>() {
+            @Override
+            public Iterator<FileObjectX> iterator() {
+                return new MapIterator<>(list.iterator(), CachingFileObject.this::wrap);
+            }
+
+            @Override
+            public void close() throws IOException {
+                list.close();
+            }
+        };
+    }
+}
@@ -0,0 +1,207 @@
+package cc.whohow.vfs.cache;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * 文件属性缓存：容量上限、LRU淘汰、过期时间，缓存不存在的文件（null）
+ * <p>
+ * 列举结果只包含部分属性（大小、修改时间、ETag），作为摘要缓存，获取完整属性时重新加载
+ * <p>
+ * 加载期间该文件被失效时丢弃加载结果，只影响被失效的文件
+ *
+ * @param <V> 文件属性（ObjectMetadata）
+ */
+public class FileAttributeCache<V> {
+    private final int maxSize;
+    private final long ttl;
+    private final long negativeTtl;
+    private final LinkedHashMap<String, Entry<V>> cache;
+    // 加载中的文件及加载标记，失效时移除
+    private final Map<String, Object> loading = new HashMap<>();
+    private final LongAdder hit = new LongAdder();
+    private final LongAdder miss = new LongAdder();
+    private final LongAdder eviction = new LongAdder();
+
+    /**
+     * @param maxSize     最大缓存数
+     * @param ttl         过期时间（毫秒）
+     * @param negativeTtl 不存在的文件过期时间（毫秒）
+     */
+    public FileAttributeCache(int maxSize, long ttl, long negativeTtl) {
+        this.maxSize = maxSize;
+        this.ttl = ttl;
+        this.negativeTtl = negativeTtl;
+        this.cache = new LinkedHashMap<String, Entry<V>>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry<V>> eldest) {
+                if (size() > FileAttributeCache.this.maxSize) {
+                    eviction.increment();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * 不缓存
+     */
+    public static <V> FileAttributeCache<V> disabled() {
+        return new FileAttributeCache<>(0, 0, 0);
+    }
+
+    public boolean isEnabled() {
+        return maxSize > 0 && (ttl > 0 || negativeTtl > 0);
+    }
+
+    /**
+     * 获取完整属性，不存在返回null
+     */
+    public V get(String key, Function<String, V> loader) {
+        return get(key, false, loader);
+    }
+
+    /**
+     * 获取属性摘要（完整属性或列举摘要），不存在返回null
+     */
+    public V getSummary(String key, Function<String, V> loader) {
+        return get(key, true, loader);
+    }
+
+    private V get(String key, boolean summary, Function<String, V> loader) {
+        if (!isEnabled()) {
+            return loader.apply(key);
+        }
+        Entry<V> entry;
+        synchronized (cache) {
+            entry = cache.get(key);
+        }
+        if (entry != null && entry.expireTime > System.currentTimeMillis() && (summary || !entry.summary)) {
+            hit.increment();
+            return entry.value;
+        }
+        miss.increment();
+        Object token = new Object();
+        synchronized (cache) {
+            loading.put(key, token);
+        }
+        V value;
+        try {
+            value = loader.apply(key);
+        } catch (RuntimeException | Error e) {
+            synchronized (cache) {
+                loading.remove(key, token);
+            }
+            throw e;
+        }
+        Entry<V> loaded = newEntry(value, false);
+        synchronized (cache) {
+            // 加载期间已失效（或有更新的加载），丢弃
+            if (loading.remove(key, token) && loaded != null) {
+                cache.put(key, loaded);
+            }
+        }
+        return value;
+    }
+
+    /**
+     * 缓存完整属性，null表示不存在；进行中的加载结果作废；不缓存时移除旧值（如不缓存不存在的文件时删除文件）
+     */
+    public void put(String key, V value) {
+        Entry<V> entry = newEntry(value, false);
+        synchronized (cache) {
+            loading.remove(key);
+            if (entry != null) {
+                cache.put(key, entry);
+            } else {
+                cache.remove(key);
+            }
+        }
+    }
+
+    /**
+     * 缓存列举摘要
+     */
+    public void putSummary(String key, V value) {
+        Entry<V> entry = newEntry(value, true);
+        if (entry != null) {
+            synchronized (cache) {
+                cache.put(key, entry);
+            }
+        }
+    }
+
+    private Entry<V> newEntry(V value, boolean summary) {
+        long t = (value == null) ? negativeTtl : ttl;
+        if (maxSize <= 0 || t <= 0) {
+            return null;
+        }
+        return new Entry<>(value, summary, System.currentTimeMillis() + t);
+    }
+
+    public void invalidate(String key) {
+        synchronized (cache) {
+            loading.remove(key);
+            cache.remove(key);
+        }
+    }
+
+    /**
+     * 失效目录下所有文件
+     */
+    public void invalidatePrefix(String prefix) {
+        synchronized (cache) {
+            loading.keySet().removeIf(key -> key.startsWith(prefix));
+            cache.keySet().removeIf(key -> key.startsWith(prefix));
+        }
+    }
+
+    public void invalidateAll() {
+        synchronized (cache) {
+            loading.clear();
+            cache.clear();
+        }
+    }
+
+    public int size() {
+        synchronized (cache) {
+            return cache.size();
+        }
+    }
+
+    public long getHitCount() {
+        return hit.longValue();
+    }
+
+    public long getMissCount() {
+        return miss.longValue();
+    }
+
+    public long getEvictionCount() {
+        return eviction.longValue();
+    }
+
+    @Override
+    public String toString() {
+        return "Size: " + size() + "\n" +
+                "Hit: " + getHitCount() + "\n" +
+                "Miss: " + getMissCount() + "\n" +
+                "Eviction: " + getEvictionCount() + "\n";
+    }
+
+    private static class Entry<V> {
+        final V value;
+        final boolean summary;
+        final long expireTime;
+
+        Entry(V value, boolean summary, long expireTime) {
+            this.value = value;
+            this.summary = summary;
+            this.expireTime = expireTime;
+        }
+    }
+}
@@ -0,0 +1,288 @@
+package cc.whohow.vfs.cache;
+
+import cc.whohow.vfs.FileObjectX;
+import cc.whohow.vfs.io.ReadableChannel;
+import cc.whohow.vfs.provider.local.LocalReadableChannel;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * 文件内容本地磁盘缓存：按URI+版本（ETag）缓存，按总字节数LRU淘汰，同一文件并发未命中只下载一次
+ */
+public class FileContentCache {
+    private static final String SUFFIX = ".cache";
+
+    private final Path directory;
+    private final long maxBytes;
+    private final LinkedHashMap<String, Entry> cache = new LinkedHashMap<>(16, 0.75f, true);
+    private final ConcurrentMap<String, CompletableFuture<Entry>> loading = new ConcurrentHashMap<>();
+    private final LongAdder hit = new LongAdder();
+    private final LongAdder miss = new LongAdder();
+    private final LongAdder eviction = new LongAdder();
+    private long bytes;
+
+    /**
+     * @param directory 缓存目录，启动时清理残留缓存文件
+     * @param maxBytes  缓存总字节数
+     */
+    public FileContentCache(Path directory, long maxBytes) throws IOException {
+        if (maxBytes <= 0) {
+            throw new IllegalArgumentException("Illegal max bytes: " + maxBytes);
+        }
+        this.directory = Files.createDirectories(directory);
+        this.maxBytes = maxBytes;
+        try (DirectoryStream<Path> list = Files.newDirectoryStream(this.directory, "*{" + SUFFIX + ",.tmp}")) {
+            for (Path path : list) {
+                Files.deleteIfExists(path);
+            }
+        }
+    }
+
+    public Path getDirectory() {
+        return directory;
+    }
+
+    public long getMaxBytes() {
+        return maxBytes;
+    }
+
+    /**
+     * 打开缓存内容，未命中时从文件下载
+     *
+     * @param fileObject 源文件
+     * @param version    文件版本（ETag）
+     */
+    public ReadableChannel open(FileObjectX fileObject, String version) throws IOException {
+        return open(fileObject, version, () -> version);
+    }
+
+    /**
+     * 打开缓存内容，未命中时从文件下载，下载后重新校验版本，版本已变化则不缓存
+     *
+     * @param fileObject 源文件
+     * @param version    文件版本（ETag）
+     * @param revalidate 下载完成后的当前版本
+     */
+    public ReadableChannel open(FileObjectX fileObject, String version, Supplier<String> revalidate) throws IOException {
+        String uri = fileObject.getName().getURI();
+        ReadableChannel channel = openCached(uri, version);
+        if (channel != null) {
+            hit.increment();
+            return channel;
+        }
+        miss.increment();
+        if (fileObject.getSize() > maxBytes) {
+            // 超出缓存容量，不缓存
+            return fileObject.getReadableChannel();
+        }
+        String key = uri + "\n" + version;
+        CompletableFuture<Entry> future = new CompletableFuture<>();
+        CompletableFuture<Entry> running = loading.putIfAbsent(key, future);
+        if (running == null) {
+            try {
+                future.complete(load(fileObject, uri, version, revalidate));
+            } catch (IOException | RuntimeException e) {
+                future.completeExceptionally(e);
+                throw e;
+            } finally {
+                loading.remove(key, future);
+            }
+        } else {
+            await(running);
+        }
+        channel = openCached(uri, version);
+        if (channel != null) {
+            return channel;
+        }
+        // 下载期间版本变化，或下载完成后已被淘汰、失效，直接读取
+        return fileObject.getReadableChannel();
+    }
+
+    private ReadableChannel openCached(String uri, String version) throws IOException {
+        synchronized (cache) {
+            Entry entry = cache.get(uri);
+            if (entry == null) {
+                return null;
+            }
+            if (!entry.version.equals(version)) {
+                remove(uri);
+                return null;
+            }
+            try {
+                // 本地缓存文件只会被原子替换，readAll 大文件可安全内存映射
+                return new LocalReadableChannel(FileChannel.open(entry.path, StandardOpenOption.READ), true);
+            } catch (IOException e) {
+                // 缓存文件被外部删除
+                remove(uri);
+                return null;
+            }
+        }
+    }
+
+    private Entry load(FileObjectX fileObject, String uri, String version, Supplier<String> revalidate) throws IOException {
+        Path tmp = Files.createTempFile(directory, null, ".tmp");
+        try {
+            long size;
+            try (ReadableChannel channel = fileObject.getReadableChannel();
+                 OutputStream stream = Files.newOutputStream(tmp)) {
+                size = channel.transferTo(stream);
+            }
+            if (!version.equals(revalidate.get())) {
+                // 下载期间文件被更新，内容可能不属于该版本
+                return null;
+            }
+            Path path = directory.resolve(
+                    UUID.nameUUIDFromBytes((uri + "\n" + version).getBytes(StandardCharsets.UTF_8)) + SUFFIX);
+            Entry entry = new Entry(version, path, size);
+            synchronized (cache) {
+                remove(uri);
+                Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING);
+                cache.put(uri, entry);
+                bytes += size;
+                evict();
+            }
+            return entry;
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    private void await(CompletableFuture<Entry> future) throws IOException {
+        try {
+            future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IOException(cause);
+        }
+    }
+
+    private void evict() {
+        Iterator<Entry> iterator = cache.values().iterator();
+        while (bytes > maxBytes && iterator.hasNext()) {
+            Entry entry = iterator.next();
+            iterator.remove();
+            delete(entry);
+            eviction.increment();
+        }
+    }
+
+    private void remove(String uri) {
+        Entry entry = cache.remove(uri);
+        if (entry != null) {
+            delete(entry);
+        }
+    }
+
+    private void delete(Entry entry) {
+        bytes -= entry.size;
+        try {
+            // 已打开的读取流不受影响（POSIX）
+            Files.deleteIfExists(entry.path);
+        } catch (IOException ignore) {
+        }
+    }
+
+    public void invalidate(String uri) {
+        synchronized (cache) {
+            remove(uri);
+        }
+    }
+
+    /**
+     * 失效目录下所有文件
+     */
+    public void invalidatePrefix(String prefix) {
+        synchronized (cache) {
+            Iterator<Map.Entry<String, Entry>> iterator = cache.entrySet().iterator();
+            while (iterator.hasNext()) {
+                Map.Entry<String, Entry> e = iterator.next();
+                if (e.getKey().startsWith(prefix)) {
+                    iterator.remove();
+                    delete(e.getValue());
+                }
+            }
+        }
+    }
+
+    public void invalidateAll() {
+        synchronized (cache) {
+            for (Entry entry : cache.values()) {
+                delete(entry);
+            }
+            cache.clear();
+        }
+    }
+
+    public int size() {
+        synchronized (cache) {
+            return cache.size();
+        }
+    }
+
+    public long getBytes() {
+        synchronized (cache) {
+            return bytes;
+        }
+    }
+
+    public long getHitCount() {
+        return hit.longValue();
+    }
+
+    public long getMissCount() {
+        return miss.longValue();
+    }
+
+    public long getEvictionCount() {
+        return eviction.longValue();
+    }
+
+    @Override
+    public String toString() {
+        return "Size: " + size() + "\n" +
+                "Bytes: " + getBytes() + "\n" +
+                "Hit: " + getHitCount() + "\n" +
+                "Miss: " + getMissCount() + "\n" +
+                "Eviction: " + getEvictionCount() + "\n";
+    }
+
+    private static class Entry {
+        final String version;
+        final Path path;
+        final long size;
+
+        Entry(String version, Path path, long size) {
+            this.version = version;
+            this.path = path;
+            this.size = size;
+        }
+    }
+}
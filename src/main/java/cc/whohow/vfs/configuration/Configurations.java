@@ -0,0 +1,45 @@
+package cc.whohow.vfs.configuration;
+
+import cc.whohow.vfs.FileObjectX;
+import cc.whohow.vfs.VirtualFileSystem;
+import cc.whohow.vfs.serialize.TextSerializer;
+
+import java.io.IOException;
+
+/**
+ * 读取 conf:/ 下的配置项
+ */
+public class Configurations {
+    /**
+     * 整数配置，不存在时返回默认值
+     */
+    public static int getInt(VirtualFileSystem vfs, String uri, int defaultValue) throws IOException {
+        FileObjectX value = vfs.resolveFile(uri);
+        if (value.exists()) {
+            return Integer.parseInt(TextSerializer.utf8().deserialize(value).trim());
+        }
+        return defaultValue;
+    }
+
+    /**
+     * 长整数配置（如字节数），不存在时返回默认值
+     */
+    public static long getLong(VirtualFileSystem vfs, String uri, long defaultValue) throws IOException {
+        FileObjectX value = vfs.resolveFile(uri);
+        if (value.exists()) {
+            return Long.parseLong(TextSerializer.utf8().deserialize(value).trim());
+        }
+        return defaultValue;
+    }
+
+    /**
+     * 布尔配置，不存在时返回默认值
+     */
+    public static boolean getBoolean(VirtualFileSystem vfs, String uri, boolean defaultValue) throws IOException {
+        FileObjectX value = vfs.resolveFile(uri);
+        if (value.exists()) {
+            return Boolean.parseBoolean(TextSerializer.utf8().deserialize(value).trim());
+        }
+        return defaultValue;
+    }
+}
@@ -0,0 +1,83 @@
+package cc.whohow.vfs.io;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 固定大小堆内存块缓冲池，有界、线程安全，池空时新分配，池满时丢弃归还的块
+ */
+public class ByteBufferPool {
+    public static final int DEFAULT_CHUNK_SIZE = 64 * 1024;
+    public static final int DEFAULT_MAX_POOLED = 256;
+    private static final ByteBufferPool INSTANCE = new ByteBufferPool(DEFAULT_CHUNK_SIZE, DEFAULT_MAX_POOLED);
+
+    private final int chunkSize;
+    private final BlockingQueue<ByteBuffer> pool;
+    private final LongAdder hit = new LongAdder();
+    private final LongAdder miss = new LongAdder();
+
+    public ByteBufferPool(int chunkSize, int maxPooled) {
+        if (chunkSize <= 0) {
+            throw new IllegalArgumentException("chunkSize: " + chunkSize);
+        }
+        this.chunkSize = chunkSize;
+        this.pool = new ArrayBlockingQueue<>(Integer.max(maxPooled, 1));
+    }
+
+    public static ByteBufferPool get() {
+        return INSTANCE;
+    }
+
+    public int getChunkSize() {
+        return chunkSize;
+    }
+
+    /**
+     * 获取一个已清空的块（写入模式）
+     */
+    public ByteBuffer acquire() {
+        ByteBuffer buffer = pool.poll();
+        if (buffer == null) {
+            miss.increment();
+            return ByteBuffer.allocate(chunkSize);
+        }
+        hit.increment();
+        buffer.clear();
+        return buffer;
+    }
+
+    /**
+     * 归还块，归还后调用方不得再使用
+     */
+    public void release(ByteBuffer buffer) {
+        if (buffer == null || buffer.capacity() != chunkSize || buffer.isDirect() || buffer.isReadOnly()) {
+            return;
+        }
+        buffer.clear();
+        pool.offer(buffer);
+    }
+
+    public int size() {
+        return pool.size();
+    }
+
+    public long getHitCount() {
+        return hit.longValue();
+    }
+
+    public long getMissCount() {
+        return miss.longValue();
+    }
+
+    @Override
+    public String toString() {
+        return "ByteBufferPool{" +
+                "chunkSize=" + chunkSize +
+                ", size=" + pool.size() +
+                ", hit=" + hit +
+                ", miss=" + miss +
+                '}';
+    }
+}
@@ -1,65 +1,162 @@
 package cc.whohow.vfs.io;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
 
+/**
+ * 内存写入流：先写入预分配的首块，写满后从缓冲池取块追加，不复制已写内容，读取时一次合并
+ * <p>
+ * 默认首块很小，小数据不占用池化块
+ */
 public class ByteBufferWritableChannel extends WritableChannel {
+    public static final int DEFAULT_INITIAL_SIZE = 32;
+    protected final ByteBufferPool pool;
+    // 首块（非池化，写入模式）
     protected ByteBuffer byteBuffer;
+    // 后续池化块（写入模式）
+    protected final List<ByteBuffer> chunks = new ArrayList<>();
 
     public ByteBufferWritableChannel() {
-        this(32);
+        this(DEFAULT_INITIAL_SIZE);
     }
 
+    /**
+     * @param size 预估大小
+     */
     public ByteBufferWritableChannel(int size) {
-        this.byteBuffer = ByteBuffer.allocate(size);
+        this(ByteBuffer.allocate(size));
     }
 
+    /**
+     * @param byteBuffer 首块，从当前位置继续写入
+     */
+    public ByteBufferWritableChannel(ByteBuffer byteBuffer) {
+        this(byteBuffer, ByteBufferPool.get());
+    }
+
+    public ByteBufferWritableChannel(ByteBuffer byteBuffer, ByteBufferPool pool) {
+        this.byteBuffer = byteBuffer;
+        this.pool = pool;
+    }
+
+    /**
+     * 已写入长度
+     */
+    public int size() {
+        int size = byteBuffer.position();
+        for (ByteBuffer chunk : chunks) {
+            size += chunk.position();
+        }
+        return size;
+    }
+
+    /**
+     * 已写入内容（写入模式，position 为已写入长度）
+     */
     public ByteBuffer getByteBuffer() {
+        merge();
         return byteBuffer;
     }
 
-    private void ensureByteBufferRemaining(int minRemaining) {
-        if (byteBuffer.remaining() < minRemaining) {
-            int growth = byteBuffer.capacity();
-            if (growth < minRemaining) {
-                growth = minRemaining;
-            }
-            byteBuffer = copyOf(byteBuffer, byteBuffer.capacity() + growth);
-        }
+    /**
+     * 已写入内容（读取模式）
+     */
+    public ByteBuffer toByteBuffer() {
+        merge();
+        ByteBuffer buffer = byteBuffer.duplicate();
+        buffer.flip();
+        return buffer;
     }
 
-    private ByteBuffer copyOf(ByteBuffer byteBuffer, int capacity) {
+    /**
+     * 合并为一个大小精确的块，归还池化块
+     */
+    private void merge() {
+        if (chunks.isEmpty()) {
+            return;
+        }
+        ByteBuffer merged = ByteBuffer.allocate(size());
         byteBuffer.flip();
-        return ByteBuffer.allocate(capacity).put(byteBuffer);
+        merged.put(byteBuffer);
+        for (ByteBuffer chunk : chunks) {
+            chunk.flip();
+            merged.put(chunk);
+            pool.release(chunk);
+        }
+        chunks.clear();
+        byteBuffer = merged;
+    }
+
+    /**
+     * 当前可写入的块，写满时取新块
+     */
+    private ByteBuffer current() {
+        ByteBuffer current = chunks.isEmpty() ? byteBuffer : chunks.get(chunks.size() - 1);
+        if (current.hasRemaining()) {
+            return current;
+        }
+        current = pool.acquire();
+        chunks.add(current);
+        return current;
     }
 
     public int write(ByteBuffer b) {
         int n = b.remaining();
-        ensureByteBufferRemaining(n);
-        byteBuffer.put(b);
+        while (b.hasRemaining()) {
+            ByteBuffer current = current();
+            if (b.remaining() <= current.remaining()) {
+                current.put(b);
+            } else {
+                ByteBuffer src = b.duplicate();
+                src.limit(src.position() + current.remaining());
+                b.position(src.limit());
+                current.put(src);
+            }
+        }
         return n;
     }
 
     @Override
     public void write(byte[] b, int off, int len) {
-        ensureByteBufferRemaining(len);
-        byteBuffer.put(b, off, len);
+        while (len > 0) {
+            ByteBuffer current = current();
+            int n = Integer.min(len, current.remaining());
+            current.put(b, off, n);
+            off += n;
+            len -= n;
+        }
     }
 
     @Override
     public void write(int b) {
-        ensureByteBufferRemaining(1);
-        byteBuffer.put((byte) b);
+        current().put((byte) b);
+    }
+
+    /**
+     * 直接读入块中，不经过中间缓冲区
+     */
+    @Override
+    public long transferFrom(InputStream stream) throws IOException {
+        long transferred = 0L;
+        while (true) {
+            ByteBuffer current = current();
+            if (!current.hasArray()) {
+                return transferred + super.transferFrom(stream);
+            }
+            int n = stream.read(current.array(), current.arrayOffset() + current.position(), current.remaining());
+            if (n < 0) {
+                return transferred;
+            }
+            current.position(current.position() + n);
+            transferred += n;
+        }
     }
 
     @Override
     public boolean isOpen() {
         return true;
     }
-
-    // TODO
-//    @Override
-//    public long transferFrom(InputStream stream) throws IOException {
-//        assert byteBuffer.hasArray();
-//        return -1;
-//    }
 }
@@ -4,7 +4,6 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.nio.ByteBuffer;
-import java.util.Arrays;
 import java.util.Collection;
 
 public class IO {
@@ -39,27 +38,37 @@ public class IO {
         }
     }
 
+    /**
+     * 读取全部，按 available() 预分配
+     */
     public static ByteBuffer read(InputStream input) throws IOException {
-        return read(input, BUFFER_SIZE);
+        int available = input.available();
+        return read(input, available > 0 ? available : BUFFER_SIZE);
     }
 
+    /**
+     * 读取全部，按预估大小一次分配；预估不足时后续内容写入池化块，最后合并一次，不反复扩容复制
+     */
     public static ByteBuffer read(InputStream input, int bufferSize) throws IOException {
         byte[] buffer = new byte[bufferSize];
         int offset = 0;
-        int length = buffer.length;
-        while (true) {
-            int n = input.read(buffer, offset, length);
+        while (offset < buffer.length) {
+            int n = input.read(buffer, offset, buffer.length - offset);
             if (n < 0) {
                 return ByteBuffer.wrap(buffer, 0, offset);
-            } else if (n > 0) {
-                offset += n;
-                length -= n;
-                if (length == 0) {
-                    buffer = Arrays.copyOf(buffer, buffer.length * 2);
-                    length = buffer.length - offset;
-                }
             }
+            offset += n;
+        }
+        int b = input.read();
+        if (b < 0) {
+            return ByteBuffer.wrap(buffer);
         }
+        ByteBuffer head = ByteBuffer.wrap(buffer);
+        head.position(offset);
+        ByteBufferWritableChannel channel = new ByteBufferWritableChannel(head);
+        channel.write(b);
+        channel.transferFrom(input);
+        return channel.toByteBuffer();
     }
 
     public static int read(InputStream input, ByteBuffer buffer) throws IOException {
@@ -73,18 +82,13 @@ public class IO {
             }
             return n;
         } else {
-            int n = buffer.remaining();
-            while (buffer.hasRemaining()) {
-                int b = input.read();
-                if (b < 0) {
-                    if (buffer.remaining() == n) {
-                        return b;
-                    }
-                    break;
-                }
-                buffer.put((byte) b);
+            // 堆外缓冲区，经小块数组批量复制
+            byte[] bytes = new byte[Integer.min(buffer.remaining(), BUFFER_SIZE)];
+            int n = input.read(bytes, 0, bytes.length);
+            if (n > 0) {
+                buffer.put(bytes, 0, n);
             }
-            return n - buffer.remaining();
+            return n;
         }
     }
 
@@ -97,8 +101,12 @@ public class IO {
             stream.write(buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.remaining());
             buffer.position(buffer.limit());
         } else {
+            // 堆外（内存映射）缓冲区，分块复制
+            byte[] bytes = new byte[Integer.min(n, BUFFER_SIZE)];
             while (buffer.hasRemaining()) {
-                stream.write(buffer.get());
+                int length = Integer.min(buffer.remaining(), bytes.length);
+                buffer.get(bytes, 0, length);
+                stream.write(bytes, 0, length);
             }
         }
         return n;
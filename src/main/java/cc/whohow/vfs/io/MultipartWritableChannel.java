@@ -0,0 +1,319 @@
+package cc.whohow.vfs.io;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * 分片上传写入流，写满的分片提交到上传线程池，多个分片同时上传，按分片号收集结果
+ *
+ * @param <P> 分片上传结果（PartETag）
+ */
+public abstract class MultipartWritableChannel<P> extends WritableChannel {
+    protected final int partSize;
+    protected final int maxInFlightParts;
+    protected final Executor executor;
+    private final Semaphore inFlight;
+    private final Queue<byte[]> buffers = new ConcurrentLinkedQueue<>();
+    private final List<CompletableFuture<P>> parts = new ArrayList<>();
+    private final AtomicReference<Throwable> failure = new AtomicReference<>();
+    private boolean initiated;
+    private boolean open;
+    private byte[] buffer;
+    private int length;
+    private long position;
+
+    /**
+     * 同步上传，每个分片在写入线程上传
+     */
+    protected MultipartWritableChannel(int partSize) {
+        this(partSize, 1, Runnable::run);
+    }
+
+    /**
+     * 并行上传，最多maxInFlightParts个分片同时上传
+     */
+    protected MultipartWritableChannel(int partSize, int maxInFlightParts, Executor executor) {
+        if (partSize <= 0) {
+            throw new IllegalArgumentException("Illegal part size: " + partSize);
+        }
+        if (maxInFlightParts <= 0) {
+            throw new IllegalArgumentException("Illegal max in-flight parts: " + maxInFlightParts);
+        }
+        this.partSize = partSize;
+        this.maxInFlightParts = maxInFlightParts;
+        this.executor = executor;
+        this.inFlight = new Semaphore(maxInFlightParts);
+        this.open = true;
+    }
+
+    /**
+     * 初始化分片上传
+     */
+    protected abstract void initiate();
+
+    /**
+     * 上传分片，在上传线程调用
+     */
+    protected abstract P uploadPart(int partNumber, byte[] buffer, int offset, int length, boolean last);
+
+    /**
+     * 完成分片上传，分片结果按分片号排序
+     */
+    protected abstract void complete(List<P> parts);
+
+    /**
+     * 取消分片上传
+     */
+    protected abstract void abort();
+
+    /**
+     * 小文件（不足一个分片）直接上传
+     */
+    protected abstract void putObject(byte[] buffer, int offset, int length);
+
+    public int getPartSize() {
+        return partSize;
+    }
+
+    public int getMaxInFlightParts() {
+        return maxInFlightParts;
+    }
+
+    public long getPosition() {
+        return position;
+    }
+
+    @Override
+    public synchronized void write(int b) throws IOException {
+        ensureOpen();
+        if (buffer == null) {
+            buffer = acquireBuffer();
+            length = 0;
+        }
+        buffer[length++] = (byte) b;
+        position++;
+        if (length == partSize) {
+            flushBuffer(false);
+        }
+    }
+
+    @Override
+    public void write(byte[] b) throws IOException {
+        write(b, 0, b.length);
+    }
+
+    @Override
+    public synchronized void write(byte[] b, int off, int len) throws IOException {
+        ensureOpen();
+        while (len > 0) {
+            if (buffer == null) {
+                ensureOpen();
+                buffer = acquireBuffer();
+                length = 0;
+            }
+            int n = Integer.min(len, partSize - length);
+            System.arraycopy(b, off, buffer, length, n);
+            length += n;
+            position += n;
+            off += n;
+            len -= n;
+            if (length == partSize) {
+                flushBuffer(false);
+            }
+        }
+    }
+
+    /**
+     * 直接复制到分片缓冲区，支持堆外缓冲区
+     */
+    @Override
+    public synchronized int write(ByteBuffer src) throws IOException {
+        ensureOpen();
+        int total = src.remaining();
+        while (src.hasRemaining()) {
+            if (buffer == null) {
+                ensureOpen();
+                buffer = acquireBuffer();
+                length = 0;
+            }
+            int n = Integer.min(src.remaining(), partSize - length);
+            src.get(buffer, length, n);
+            length += n;
+            position += n;
+            if (length == partSize) {
+                flushBuffer(false);
+            }
+        }
+        return total;
+    }
+
+    @Override
+    public synchronized long transferFrom(InputStream stream) throws IOException {
+        ensureOpen();
+        long transferred = 0L;
+        while (true) {
+            if (buffer == null) {
+                ensureOpen();
+                buffer = acquireBuffer();
+                length = 0;
+            }
+            int n = stream.read(buffer, length, partSize - length);
+            if (n < 0) {
+                return transferred;
+            }
+            length += n;
+            position += n;
+            transferred += n;
+            if (length == partSize) {
+                flushBuffer(false);
+            }
+        }
+    }
+
+    /**
+     * 整体写入，不足一个分片直接上传
+     */
+    @Override
+    public synchronized int writeAll(ByteBuffer buffer) throws IOException {
+        ensureOpen();
+        int n = buffer.remaining();
+        if (position > 0 || n > partSize || !buffer.hasArray()) {
+            return write(buffer);
+        }
+        putObject(buffer.array(), buffer.arrayOffset() + buffer.position(), n);
+        buffer.position(buffer.limit());
+        position = n;
+        open = false;
+        return n;
+    }
+
+    @Override
+    public synchronized boolean isOpen() {
+        return open;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (!open) {
+            return;
+        }
+        open = false;
+        try {
+            if (initiated) {
+                if (length > 0) {
+                    flushBuffer(true);
+                }
+                complete(awaitParts());
+            } else {
+                putObject(buffer == null ? new byte[0] : buffer, 0, length);
+            }
+        } catch (IOException | RuntimeException e) {
+            if (initiated) {
+                abortQuietly(e);
+            }
+            throw e;
+        } finally {
+            buffer = null;
+            buffers.clear();
+        }
+    }
+
+    private void ensureOpen() throws IOException {
+        if (!open) {
+            throw new IOException("closed");
+        }
+        Throwable e = failure.get();
+        if (e != null) {
+            // 分片上传失败，立即取消
+            open = false;
+            IOException error = new IOException(e);
+            if (initiated) {
+                abortQuietly(error);
+            }
+            throw error;
+        }
+    }
+
+    private void checkFailure() throws IOException {
+        Throwable e = failure.get();
+        if (e != null) {
+            throw new IOException(e);
+        }
+    }
+
+    private byte[] acquireBuffer() {
+        byte[] b = buffers.poll();
+        return (b == null) ? new byte[partSize] : b;
+    }
+
+    private void flushBuffer(boolean last) throws IOException {
+        if (!initiated) {
+            initiate();
+            initiated = true;
+        }
+        try {
+            inFlight.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException();
+        }
+        byte[] b = buffer;
+        int len = length;
+        int partNumber = parts.size() + 1;
+        buffer = null;
+        length = 0;
+        CompletableFuture<P> part;
+        try {
+            part = CompletableFuture.supplyAsync(() -> uploadPart(partNumber, b, 0, len, last), executor);
+        } catch (RuntimeException e) {
+            inFlight.release();
+            throw e;
+        }
+        part.whenComplete((r, e) -> {
+            if (e != null) {
+                failure.compareAndSet(null, e instanceof CompletionException ? e.getCause() : e);
+            }
+            buffers.offer(b);
+            inFlight.release();
+        });
+        parts.add(part);
+    }
+
+    private List<P> awaitParts() throws IOException {
+        List<P> result = new ArrayList<>(parts.size());
+        for (CompletableFuture<P> part : parts) {
+            try {
+                result.add(part.join());
+            } catch (CompletionException e) {
+                failure.compareAndSet(null, e.getCause());
+            }
+        }
+        checkFailure();
+        return result;
+    }
+
+    private void abortQuietly(Exception cause) {
+        for (CompletableFuture<P> part : parts) {
+            try {
+                part.join();
+            } catch (CompletionException ignore) {
+            }
+        }
+        try {
+            abort();
+        } catch (RuntimeException e) {
+            cause.addSuppressed(e);
+        }
+    }
+}
@@ -0,0 +1,356 @@
+package cc.whohow.vfs.io;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+
+/**
+ * 分段并行读取流，按Range并行下载，按顺序读取
+ */
+public abstract class ParallelRangeReadableChannel extends ReadableChannel {
+    public static final String CONTENT_RANGE = "Content-Range";
+
+    protected final long size;
+    protected final int rangeSize;
+    protected final int parallelism;
+    protected final Executor executor;
+    private final ArrayDeque<CompletableFuture<byte[]>> ranges;
+    private final Queue<byte[]> buffers = new ConcurrentLinkedQueue<>();
+    private final Set<InputStream> streams = ConcurrentHashMap.newKeySet();
+    private volatile boolean open;
+    private boolean started;
+    private InputStream head;
+    private long headRemaining;
+    private long offset;
+    private long position;
+    private byte[] buffer;
+    private int bufferPosition;
+
+    protected ParallelRangeReadableChannel(long size, int rangeSize, int parallelism, Executor executor) {
+        this(null, 0L, size, rangeSize, parallelism, executor);
+    }
+
+    /**
+     * @param head       已打开的首段流，从0开始，长度headLength
+     * @param headLength 首段长度
+     */
+    protected ParallelRangeReadableChannel(InputStream head, long headLength, long size, int rangeSize, int parallelism, Executor executor) {
+        if (rangeSize <= 0) {
+            throw new IllegalArgumentException("Illegal range size: " + rangeSize);
+        }
+        if (parallelism <= 0) {
+            throw new IllegalArgumentException("Illegal parallelism: " + parallelism);
+        }
+        if (headLength < 0 || headLength > size) {
+            throw new IllegalArgumentException("Illegal head length: " + headLength);
+        }
+        this.size = size;
+        this.rangeSize = rangeSize;
+        this.parallelism = parallelism;
+        this.executor = executor;
+        this.ranges = new ArrayDeque<>(parallelism);
+        this.open = true;
+        this.head = head;
+        this.headRemaining = headLength;
+        this.offset = headLength;
+    }
+
+    /**
+     * 解析Content-Range中的对象总长度，如 bytes 0-99/1000，未知返回-1
+     */
+    public static long getInstanceLength(Map<String, ?> headers) {
+        if (headers == null) {
+            return -1L;
+        }
+        Object contentRange = headers.get(CONTENT_RANGE);
+        if (contentRange == null) {
+            for (Map.Entry<String, ?> e : headers.entrySet()) {
+                if (CONTENT_RANGE.equalsIgnoreCase(e.getKey())) {
+                    contentRange = e.getValue();
+                    break;
+                }
+            }
+        }
+        if (contentRange == null) {
+            return -1L;
+        }
+        String value = contentRange.toString();
+        int slash = value.lastIndexOf('/');
+        if (slash < 0 || value.endsWith("*")) {
+            return -1L;
+        }
+        try {
+            return Long.parseLong(value.substring(slash + 1).trim());
+        } catch (NumberFormatException e) {
+            return -1L;
+        }
+    }
+
+    /**
+     * 打开Range流，[first, last]
+     */
+    protected abstract InputStream openRange(long first, long last) throws IOException;
+
+    /**
+     * 关闭时中止正在下载的Range流，默认直接关闭
+     */
+    protected void abortRange(InputStream stream) throws IOException {
+        stream.close();
+    }
+
+    public long getSize() {
+        return size;
+    }
+
+    public long getPosition() {
+        return position;
+    }
+
+    @Override
+    public synchronized int read() throws IOException {
+        ensureOpen();
+        if (head == null && buffer != null && bufferPosition < buffer.length) {
+            position++;
+            return buffer[bufferPosition++] & 0xff;
+        }
+        byte[] b = new byte[1];
+        int n = read(b, 0, 1);
+        return (n < 0) ? -1 : b[0] & 0xff;
+    }
+
+    @Override
+    public synchronized int read(byte[] b, int off, int len) throws IOException {
+        ensureOpen();
+        start();
+        if (len == 0) {
+            return 0;
+        }
+        if (head != null) {
+            if (headRemaining > 0) {
+                int n = head.read(b, off, (int) Long.min(len, headRemaining));
+                if (n < 0) {
+                    throw new EOFException("range 0-" + (offset - 1) + " truncated at " + position);
+                }
+                headRemaining -= n;
+                position += n;
+                return n;
+            }
+            closeHead();
+        }
+        if (!ensureBuffer()) {
+            return -1;
+        }
+        int n = Integer.min(len, buffer.length - bufferPosition);
+        System.arraycopy(buffer, bufferPosition, b, off, n);
+        bufferPosition += n;
+        position += n;
+        return n;
+    }
+
+    @Override
+    public synchronized int available() throws IOException {
+        if (head != null) {
+            return (int) Long.min(head.available(), headRemaining);
+        }
+        return (buffer == null) ? 0 : buffer.length - bufferPosition;
+    }
+
+    @Override
+    public synchronized ByteBuffer readAll() throws IOException {
+        long remaining = size - position;
+        if (remaining > Integer.MAX_VALUE - 8) {
+            throw new IOException("too large: " + remaining);
+        }
+        byte[] bytes = new byte[(int) remaining];
+        int n = 0;
+        while (n < bytes.length) {
+            int r = read(bytes, n, bytes.length - n);
+            if (r < 0) {
+                throw new EOFException();
+            }
+            n += r;
+        }
+        return ByteBuffer.wrap(bytes);
+    }
+
+    @Override
+    public synchronized long transferTo(OutputStream stream) throws IOException {
+        ensureOpen();
+        start();
+        long transferred = 0L;
+        if (head != null) {
+            byte[] b = new byte[IO.BUFFER_SIZE];
+            while (head != null) {
+                int n = read(b, 0, b.length);
+                if (n < 0) {
+                    return transferred;
+                }
+                stream.write(b, 0, n);
+                transferred += n;
+            }
+        }
+        while (ensureBuffer()) {
+            int n = buffer.length - bufferPosition;
+            stream.write(buffer, bufferPosition, n);
+            bufferPosition += n;
+            position += n;
+            transferred += n;
+        }
+        return transferred;
+    }
+
+    @Override
+    public boolean isOpen() {
+        return open;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (!open) {
+            return;
+        }
+        open = false;
+        for (CompletableFuture<byte[]> range : ranges) {
+            range.cancel(false);
+        }
+        ranges.clear();
+        // 中止下载中的Range流，避免读完整个分段
+        for (InputStream stream : streams) {
+            try {
+                abortRange(stream);
+            } catch (IOException ignore) {
+            }
+        }
+        streams.clear();
+        buffers.clear();
+        buffer = null;
+        closeHead();
+    }
+
+    private void ensureOpen() throws IOException {
+        if (!open) {
+            throw new IOException("closed");
+        }
+    }
+
+    private void closeHead() throws IOException {
+        if (head != null) {
+            try {
+                head.close();
+            } finally {
+                head = null;
+            }
+        }
+    }
+
+    /**
+     * 首次读取时开始预取，子类构造完成后才会调用 openRange
+     */
+    private void start() {
+        if (!started) {
+            started = true;
+            fill();
+        }
+    }
+
+    /**
+     * 当前缓冲区读完后，切换到下一段，返回是否还有数据
+     */
+    private boolean ensureBuffer() throws IOException {
+        while (buffer == null || bufferPosition == buffer.length) {
+            if (buffer != null) {
+                if (buffer.length == rangeSize) {
+                    buffers.offer(buffer);
+                }
+                buffer = null;
+            }
+            CompletableFuture<byte[]> range = ranges.poll();
+            if (range == null) {
+                return false;
+            }
+            buffer = join(range);
+            bufferPosition = 0;
+            // 当前分段完成后再补充，保证同时下载不超过parallelism个
+            fill();
+        }
+        return true;
+    }
+
+    /**
+     * 预取后续分段，最多parallelism个分段同时下载
+     */
+    private void fill() {
+        while (open && ranges.size() < parallelism && offset < size) {
+            long first = offset;
+            int length = (int) Long.min(rangeSize, size - first);
+            offset += length;
+            ranges.offer(CompletableFuture.supplyAsync(() -> fetch(first, length), executor));
+        }
+    }
+
+    private byte[] fetch(long first, int length) {
+        if (!open) {
+            throw new CancellationException();
+        }
+        byte[] b = null;
+        if (length == rangeSize) {
+            b = buffers.poll();
+        }
+        if (b == null) {
+            b = new byte[length];
+        }
+        try (InputStream stream = openRange(first, first + length - 1)) {
+            streams.add(stream);
+            if (!open) {
+                throw new CancellationException();
+            }
+            try {
+                int n = 0;
+                while (n < length) {
+                    int r = stream.read(b, n, length - n);
+                    if (r < 0) {
+                        throw new EOFException("range " + first + "-" + (first + length - 1) + " truncated at " + (first + n));
+                    }
+                    n += r;
+                }
+                return b;
+            } finally {
+                streams.remove(stream);
+            }
+        } catch (IOException e) {
+            if (!open) {
+                throw new CancellationException();
+            }
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private byte[] join(CompletableFuture<byte[]> range) throws IOException {
+        try {
+            return range.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof UncheckedIOException) {
+                throw ((UncheckedIOException) cause).getCause();
+            }
+            throw new IOException(cause);
+        }
+    }
+}
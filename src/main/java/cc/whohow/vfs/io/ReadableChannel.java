@@ -4,14 +4,43 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.nio.ByteBuffer;
-import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.ScatteringByteChannel;
 
-public abstract class ReadableChannel extends InputStream implements ReadableByteChannel {
+public abstract class ReadableChannel extends InputStream implements ScatteringByteChannel {
     @Override
     public int read(ByteBuffer dst) throws IOException {
         return IO.read(this, dst);
     }
 
+    /**
+     * 依次读入多个缓冲区，前一个未读满即返回
+     */
+    @Override
+    public long read(ByteBuffer[] dsts, int offset, int length) throws IOException {
+        long total = 0L;
+        for (int i = offset; i < offset + length; i++) {
+            ByteBuffer dst = dsts[i];
+            if (!dst.hasRemaining()) {
+                continue;
+            }
+            int remaining = dst.remaining();
+            int n = read(dst);
+            if (n < 0) {
+                return (total == 0L) ? -1L : total;
+            }
+            total += n;
+            if (n < remaining) {
+                break;
+            }
+        }
+        return total;
+    }
+
+    @Override
+    public long read(ByteBuffer[] dsts) throws IOException {
+        return read(dsts, 0, dsts.length);
+    }
+
     public ByteBuffer readAll() throws IOException {
         return IO.read(this);
     }
@@ -2,13 +2,21 @@ package cc.whohow.vfs.io;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
 
 public class ReadableChannelAdapter extends ReadableChannel {
     protected final InputStream stream;
+    // 预期大小（如 Content-Length），未知为 -1
+    protected final long size;
     protected volatile boolean open;
 
     public ReadableChannelAdapter(InputStream stream) {
+        this(stream, -1L);
+    }
+
+    public ReadableChannelAdapter(InputStream stream, long size) {
         this.stream = stream;
+        this.size = size;
         this.open = true;
     }
 
@@ -37,6 +45,17 @@ public class ReadableChannelAdapter extends ReadableChannel {
         return stream.available();
     }
 
+    /**
+     * 已知大小时按大小预分配
+     */
+    @Override
+    public ByteBuffer readAll() throws IOException {
+        if (size >= 0 && size < Integer.MAX_VALUE - 8) {
+            return IO.read(this, (int) size);
+        }
+        return super.readAll();
+    }
+
     @Override
     public boolean isOpen() {
         return open;
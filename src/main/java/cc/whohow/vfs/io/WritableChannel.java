@@ -4,14 +4,31 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.nio.ByteBuffer;
-import java.nio.channels.WritableByteChannel;
+import java.nio.channels.GatheringByteChannel;
 
-public abstract class WritableChannel extends OutputStream implements WritableByteChannel {
+public abstract class WritableChannel extends OutputStream implements GatheringByteChannel {
     @Override
     public int write(ByteBuffer src) throws IOException {
         return IO.write(this, src);
     }
 
+    /**
+     * 依次写出多个缓冲区（如协议头+内容），无需先合并
+     */
+    @Override
+    public long write(ByteBuffer[] srcs, int offset, int length) throws IOException {
+        long total = 0L;
+        for (int i = offset; i < offset + length; i++) {
+            total += write(srcs[i]);
+        }
+        return total;
+    }
+
+    @Override
+    public long write(ByteBuffer[] srcs) throws IOException {
+        return write(srcs, 0, srcs.length);
+    }
+
     public int writeAll(ByteBuffer buffer) throws IOException {
         return write(buffer);
     }
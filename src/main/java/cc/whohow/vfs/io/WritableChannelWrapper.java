@@ -0,0 +1,72 @@
+package cc.whohow.vfs.io;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * 写入流包装，关闭后执行回调
+ */
+public class WritableChannelWrapper extends WritableChannel {
+    protected final WritableChannel channel;
+    protected final Runnable onClose;
+
+    public WritableChannelWrapper(WritableChannel channel, Runnable onClose) {
+        this.channel = channel;
+        this.onClose = onClose;
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        channel.write(b);
+    }
+
+    @Override
+    public void write(byte[] b) throws IOException {
+        channel.write(b);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        channel.write(b, off, len);
+    }
+
+    @Override
+    public int write(ByteBuffer src) throws IOException {
+        return channel.write(src);
+    }
+
+    @Override
+    public long write(ByteBuffer[] srcs, int offset, int length) throws IOException {
+        return channel.write(srcs, offset, length);
+    }
+
+    @Override
+    public int writeAll(ByteBuffer buffer) throws IOException {
+        return channel.writeAll(buffer);
+    }
+
+    @Override
+    public long transferFrom(InputStream stream) throws IOException {
+        return channel.transferFrom(stream);
+    }
+
+    @Override
+    public void flush() throws IOException {
+        channel.flush();
+    }
+
+    @Override
+    public boolean isOpen() {
+        return channel.isOpen();
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            channel.close();
+        } finally {
+            onClose.run();
+        }
+    }
+}
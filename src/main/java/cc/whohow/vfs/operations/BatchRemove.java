@@ -0,0 +1,125 @@
+package cc.whohow.vfs.operations;
+
+import cc.whohow.vfs.io.IO;
+
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * 批量删除，边列举边删除，多个批次同时删除，删除失败的对象按批重试
+ *
+ * @param <K> 待删除对象（键或文件对象）
+ */
+public abstract class BatchRemove<K> implements Supplier<Remove.Result> {
+    protected final int batchSize;
+    protected final int maxInFlightBatches;
+    protected final int maxRetries;
+    protected final Executor executor;
+    protected long retryInterval = 100;
+
+    protected BatchRemove(int batchSize, int maxInFlightBatches, int maxRetries, Executor executor) {
+        if (batchSize <= 0) {
+            throw new IllegalArgumentException("Illegal batch size: " + batchSize);
+        }
+        if (maxInFlightBatches <= 0) {
+            throw new IllegalArgumentException("Illegal max in-flight batches: " + maxInFlightBatches);
+        }
+        this.batchSize = batchSize;
+        this.maxInFlightBatches = maxInFlightBatches;
+        this.maxRetries = maxRetries;
+        this.executor = (executor == null) ? Runnable::run : executor;
+    }
+
+    /**
+     * 待删除对象，返回 AutoCloseable 时删除完成后关闭
+     */
+    protected abstract Iterator<K> list();
+
+    /**
+     * 删除一批，删除失败的对象放入 failed，返回删除数；抛出异常视为整批失败
+     */
+    protected abstract int delete(List<K> batch, List<K> failed) throws Exception;
+
+    @Override
+    public Remove.Result get() {
+        long start = System.currentTimeMillis();
+        AtomicLong deleted = new AtomicLong();
+        AtomicLong failed = new AtomicLong();
+        Semaphore inFlight = new Semaphore(maxInFlightBatches);
+        Iterator<K> iterator = list();
+        try {
+            List<K> batch = new ArrayList<>(batchSize);
+            while (iterator.hasNext()) {
+                batch.add(iterator.next());
+                if (batch.size() == batchSize) {
+                    submit(batch, inFlight, deleted, failed);
+                    batch = new ArrayList<>(batchSize);
+                }
+            }
+            if (!batch.isEmpty()) {
+                submit(batch, inFlight, deleted, failed);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new UncheckedIOException(new InterruptedIOException());
+        } finally {
+            // 等待已提交的批次
+            inFlight.acquireUninterruptibly(maxInFlightBatches);
+            if (iterator instanceof AutoCloseable) {
+                IO.close((AutoCloseable) iterator);
+            }
+        }
+        return new Remove.Result(deleted.get(), failed.get(), System.currentTimeMillis() - start);
+    }
+
+    private void submit(List<K> batch, Semaphore inFlight, AtomicLong deleted, AtomicLong failed) throws InterruptedException {
+        inFlight.acquire();
+        try {
+            executor.execute(() -> {
+                try {
+                    deleteWithRetry(batch, deleted, failed);
+                } finally {
+                    inFlight.release();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            inFlight.release();
+            throw e;
+        }
+    }
+
+    private void deleteWithRetry(List<K> batch, AtomicLong deleted, AtomicLong failed) {
+        List<K> remaining = batch;
+        for (int retry = 0; ; retry++) {
+            List<K> errors = new ArrayList<>();
+            try {
+                deleted.addAndGet(delete(remaining, errors));
+            } catch (Exception e) {
+                errors = remaining;
+            }
+            if (errors.isEmpty()) {
+                return;
+            }
+            if (retry >= maxRetries) {
+                failed.addAndGet(errors.size());
+                return;
+            }
+            remaining = errors;
+            try {
+                Thread.sleep(retryInterval * (retry + 1));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                failed.addAndGet(remaining.size());
+                return;
+            }
+        }
+    }
+}
@@ -7,6 +7,54 @@ import java.util.Collections;
 import java.util.Map;
 
 public interface Copy extends FileOperationX<Copy.Options, Object> {
+    /**
+     * 复制方式
+     */
+    enum Method {
+        /**
+         * 服务端复制
+         */
+        SERVER_SIDE,
+        /**
+         * 服务端分片复制
+         */
+        SERVER_SIDE_MULTIPART,
+        /**
+         * 本地文件零拷贝（FileChannel.transferTo）
+         */
+        ZERO_COPY,
+        /**
+         * 本地读取写入
+         */
+        STREAMING
+    }
+
+    /**
+     * 复制结果：复制方式、文件大小
+     */
+    class Result {
+        private final Method method;
+        private final long size;
+
+        public Result(Method method, long size) {
+            this.method = method;
+            this.size = size;
+        }
+
+        public Method getMethod() {
+            return method;
+        }
+
+        public long getSize() {
+            return size;
+        }
+
+        @Override
+        public String toString() {
+            return method + " " + size;
+        }
+    }
+
     class Options {
         private final FileObjectX source;
         private final FileObjectX destination;
@@ -1,18 +1,31 @@
 package cc.whohow.vfs.operations;
 
+import cc.whohow.vfs.FileObjectX;
 import cc.whohow.vfs.io.ReadableChannel;
 import cc.whohow.vfs.io.WritableChannel;
 
 import java.io.IOException;
 import java.io.UncheckedIOException;
 
+/**
+ * 复制文件，同一服务商优先服务端复制，否则本地读取写入，返回复制方式及大小
+ */
 public class DefaultCopyOperation extends AbstractFileOperation<Copy.Options, Object> implements Copy {
     @Override
-    public Object apply(Options options) {
-        try (ReadableChannel src = options.getSource().getReadableChannel();
-             WritableChannel dst = options.getDestination().getWritableChannel()) {
-            dst.transferFrom(src);
-            return null;
+    public Result apply(Options options) {
+        FileObjectX source = options.getSource();
+        FileObjectX destination = options.getDestination();
+        try {
+            if (source instanceof ServerSideCopy) {
+                Result result = ((ServerSideCopy) source).copyTo(destination);
+                if (result != null) {
+                    return result;
+                }
+            }
+            try (ReadableChannel src = source.getReadableChannel();
+                 WritableChannel dst = destination.getWritableChannel()) {
+                return new Result(Method.STREAMING, dst.transferFrom(src));
+            }
         } catch (IOException e) {
             throw new UncheckedIOException(e);
         }
@@ -15,8 +15,8 @@ public class DefaultMoveOperation extends AbstractFileOperation<Move.Options, Ob
 
     @Override
     public Object apply(Options options) {
-        copy.apply(new Copy.Options(options.getSource(), options.getDestination(), options.getOptions()));
+        Object method = copy.apply(new Copy.Options(options.getSource(), options.getDestination(), options.getOptions()));
         remove.apply(options.getSource());
-        return null;
+        return method;
     }
 }
@@ -0,0 +1,76 @@
+package cc.whohow.vfs.operations;
+
+import cc.whohow.vfs.FileObjectX;
+import cc.whohow.vfs.util.CloseableIterator;
+import cc.whohow.vfs.util.ThreadPools;
+import org.apache.commons.vfs2.FileSystemException;
+import org.apache.commons.vfs2.FileType;
+
+import java.io.UncheckedIOException;
+import java.nio.file.DirectoryStream;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.stream.StreamSupport;
+
+/**
+ * 不支持批量删除的文件系统：递归列举文件，逐个删除，多个批次同时删除
+ */
+public class FileObjectBatchRemove extends BatchRemove<FileObjectX> {
+    public static final int DEFAULT_BATCH_SIZE = 100;
+    public static final int DEFAULT_MAX_IN_FLIGHT_BATCHES = 4;
+
+    protected final FileObjectX fileObject;
+
+    public FileObjectBatchRemove(FileObjectX fileObject, int maxInFlightBatches, Executor executor) {
+        this(fileObject, DEFAULT_BATCH_SIZE, maxInFlightBatches, 3, executor);
+    }
+
+    public FileObjectBatchRemove(FileObjectX fileObject, int batchSize, int maxInFlightBatches, int maxRetries, Executor executor) {
+        super(batchSize, maxInFlightBatches, maxRetries, executor);
+        this.fileObject = fileObject;
+    }
+
+    /**
+     * 默认删除线程池，各文件系统共用，线程数有界，空闲回收
+     */
+    public static Executor getDefaultExecutor() {
+        return DefaultExecutor.INSTANCE;
+    }
+
+    /**
+     * 按列举结果的文件名区分文件、目录，不逐个查询文件类型
+     */
+    @Override
+    protected Iterator<FileObjectX> list() {
+        try {
+            DirectoryStream<FileObjectX> list = fileObject.listRecursively();
+            Iterator<FileObjectX> files = StreamSupport.stream(list.spliterator(), false)
+                    .filter(f -> f.getName().getType() == FileType.FILE)
+                    .iterator();
+            return new CloseableIterator.Adapter<>(files, list);
+        } catch (FileSystemException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    protected int delete(List<FileObjectX> batch, List<FileObjectX> failed) {
+        int n = 0;
+        for (FileObjectX file : batch) {
+            try {
+                if (file.delete()) {
+                    n++;
+                }
+            } catch (FileSystemException e) {
+                failed.add(file);
+            }
+        }
+        return n;
+    }
+
+    private static class DefaultExecutor {
+        static final ExecutorService INSTANCE = ThreadPools.newBoundedThreadPool("vfs-remove", 8);
+    }
+}
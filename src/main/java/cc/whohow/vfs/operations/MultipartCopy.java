@@ -0,0 +1,138 @@
+package cc.whohow.vfs.operations;
+
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+
+/**
+ * 服务端复制，不超过单次复制上限直接复制，否则分片复制，多个分片同时复制
+ *
+ * @param <P> 分片复制结果（PartETag）
+ */
+public abstract class MultipartCopy<P> implements Supplier<Copy.Result> {
+    public static final int MAX_PARTS = 10000;
+
+    protected final long maxCopySize;
+    protected final long partSize;
+    protected final int maxInFlightParts;
+    protected final Executor executor;
+
+    protected MultipartCopy(long maxCopySize, long partSize, int maxInFlightParts, Executor executor) {
+        if (partSize <= 0) {
+            throw new IllegalArgumentException("Illegal part size: " + partSize);
+        }
+        if (maxInFlightParts <= 0) {
+            throw new IllegalArgumentException("Illegal max in-flight parts: " + maxInFlightParts);
+        }
+        this.maxCopySize = maxCopySize;
+        this.partSize = partSize;
+        this.maxInFlightParts = maxInFlightParts;
+        this.executor = (executor == null) ? Runnable::run : executor;
+    }
+
+    /**
+     * 源文件大小
+     */
+    protected abstract long getSize();
+
+    /**
+     * 单次复制
+     */
+    protected abstract void copyObject();
+
+    /**
+     * 初始化分片上传
+     */
+    protected abstract void initiate();
+
+    /**
+     * 复制分片，[first, last]
+     */
+    protected abstract P copyPart(int partNumber, long first, long last);
+
+    /**
+     * 完成分片上传，分片结果按分片号排序
+     */
+    protected abstract void complete(List<P> parts);
+
+    /**
+     * 取消分片上传
+     */
+    protected abstract void abort();
+
+    @Override
+    public Copy.Result get() {
+        long size = getSize();
+        if (size <= maxCopySize) {
+            copyObject();
+            return new Copy.Result(Copy.Method.SERVER_SIDE, size);
+        }
+        // 分片数不超过上限
+        long n = Long.max(partSize, (size + MAX_PARTS - 1) / MAX_PARTS);
+        initiate();
+        Semaphore inFlight = new Semaphore(maxInFlightParts);
+        List<CompletableFuture<P>> parts = new ArrayList<>();
+        // 任一分片失败后不再提交新分片
+        AtomicBoolean failed = new AtomicBoolean();
+        try {
+            for (long offset = 0; offset < size; offset += n) {
+                long first = offset;
+                long last = Long.min(offset + n, size) - 1;
+                int partNumber = parts.size() + 1;
+                inFlight.acquire();
+                if (failed.get()) {
+                    inFlight.release();
+                    break;
+                }
+                CompletableFuture<P> part = CompletableFuture.supplyAsync(() -> copyPart(partNumber, first, last), executor);
+                part.whenComplete((r, e) -> {
+                    if (e != null) {
+                        failed.set(true);
+                    }
+                    inFlight.release();
+                });
+                parts.add(part);
+            }
+            List<P> result = new ArrayList<>(parts.size());
+            for (CompletableFuture<P> part : parts) {
+                result.add(part.join());
+            }
+            complete(result);
+            return new Copy.Result(Copy.Method.SERVER_SIDE_MULTIPART, size);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            abortQuietly(parts, e);
+            throw new UncheckedIOException(new InterruptedIOException());
+        } catch (CompletionException e) {
+            abortQuietly(parts, e);
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        } catch (RuntimeException e) {
+            abortQuietly(parts, e);
+            throw e;
+        }
+    }
+
+    private void abortQuietly(List<CompletableFuture<P>> parts, Exception cause) {
+        for (CompletableFuture<P> part : parts) {
+            try {
+                part.join();
+            } catch (CompletionException ignore) {
+            }
+        }
+        try {
+            abort();
+        } catch (RuntimeException e) {
+            cause.addSuppressed(e);
+        }
+    }
+}
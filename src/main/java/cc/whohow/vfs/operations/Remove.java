@@ -4,4 +4,38 @@ import cc.whohow.vfs.FileObjectX;
 import cc.whohow.vfs.FileOperationX;
 
 public interface Remove extends FileOperationX<FileObjectX, Boolean> {
+    /**
+     * 批量删除结果：删除数、失败数、耗时
+     */
+    class Result {
+        private final long deleted;
+        private final long failed;
+        private final long elapsed;
+
+        public Result(long deleted, long failed, long elapsed) {
+            this.deleted = deleted;
+            this.failed = failed;
+            this.elapsed = elapsed;
+        }
+
+        public long getDeleted() {
+            return deleted;
+        }
+
+        public long getFailed() {
+            return failed;
+        }
+
+        /**
+         * 耗时（毫秒）
+         */
+        public long getElapsed() {
+            return elapsed;
+        }
+
+        @Override
+        public String toString() {
+            return "deleted " + deleted + ", failed " + failed + ", " + elapsed + "ms";
+        }
+    }
 }
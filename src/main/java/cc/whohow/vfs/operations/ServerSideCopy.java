@@ -0,0 +1,14 @@
+package cc.whohow.vfs.operations;
+
+import cc.whohow.vfs.FileObjectX;
+import org.apache.commons.vfs2.FileSystemException;
+
+/**
+ * 服务端复制，同一服务商、同一账号的文件直接在服务端复制，不经过本地
+ */
+public interface ServerSideCopy {
+    /**
+     * 复制到目标文件，不支持返回null
+     */
+    Copy.Result copyTo(FileObjectX destination) throws FileSystemException;
+}
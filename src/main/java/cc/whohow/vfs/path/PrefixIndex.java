@@ -0,0 +1,98 @@
+package cc.whohow.vfs.path;
+
+import java.util.AbstractMap;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * 前缀树，不可变，最长前缀匹配，查询无锁、无内存分配
+ *
+ * @param <V> 值
+ */
+public class PrefixIndex<V> {
+    private static final char[] NO_KEYS = new char[0];
+
+    private final Node<V> root;
+    private final int size;
+
+    public PrefixIndex(Map<String, V> prefixes) {
+        Builder<V> builder = new Builder<>();
+        for (Map.Entry<String, V> e : prefixes.entrySet()) {
+            Builder<V> node = builder;
+            String prefix = e.getKey();
+            for (int i = 0; i < prefix.length(); i++) {
+                node = node.children.computeIfAbsent(prefix.charAt(i), c -> new Builder<>());
+            }
+            node.entry = new AbstractMap.SimpleImmutableEntry<>(prefix, e.getValue());
+        }
+        this.root = builder.build();
+        this.size = prefixes.size();
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * 最长前缀匹配，无匹配返回null
+     *
+     * @return 前缀及对应值
+     */
+    public Map.Entry<String, V> match(CharSequence s) {
+        Node<V> node = root;
+        Map.Entry<String, V> matched = node.entry;
+        for (int i = 0; i < s.length(); i++) {
+            node = node.child(s.charAt(i));
+            if (node == null) {
+                break;
+            }
+            if (node.entry != null) {
+                matched = node.entry;
+            }
+        }
+        return matched;
+    }
+
+    private static class Node<V> {
+        final char[] keys;
+        final Node<V>[] children;
+        final Map.Entry<String, V> entry;
+
+        Node(char[] keys, Node<V>[] children, Map.Entry<String, V> entry) {
+            this.keys = keys;
+            this.children = children;
+            this.entry = entry;
+        }
+
+        Node<V> child(char c) {
+            int i = Arrays.binarySearch(keys, c);
+            return (i < 0) ? null : children[i];
+        }
+    }
+
+    private static class Builder<V> {
+        final TreeMap<Character, Builder<V>> children = new TreeMap<>();
+        Map.Entry<String, V> entry;
+
+        Node<V> build() {
+            if (children.isEmpty()) {
+                return new Node<>(NO_KEYS, newNodes(0), entry);
+            }
+            char[] keys = new char[children.size()];
+            Node<V>[] nodes = newNodes(children.size());
+            int i = 0;
+            for (Map.Entry<Character, Builder<V>> e : children.entrySet()) {
+                keys[i] = e.getKey();
+                nodes[i] = e.getValue().build();
+                i++;
+            }
+            return new Node<>(keys, nodes, entry);
+        }
+
+        @SuppressWarnings("unchecked")
+        private static <V> Node<V>[] newNodes(int length) {
+            return (Node<V>[]) new Node<?>[length];
+        }
+    }
+}
@@ -51,6 +51,31 @@ public class URIBuilder {
                 !uri.getPath().startsWith(FileName.SEPARATOR);
     }
 
+    /**
+     * 按 URI 路径规则编码，与 new URI(scheme, userInfo, host, port, path, query, fragment) 编码结果一致；
+     * 无需编码时直接返回，不创建 URI
+     */
+    public static String encodePath(String path) {
+        for (int i = 0; i < path.length(); i++) {
+            if (!isPathChar(path.charAt(i))) {
+                try {
+                    return new URI(null, null, "/" + path, null).getRawPath().substring(1);
+                } catch (URISyntaxException e) {
+                    throw new IllegalArgumentException(path, e);
+                }
+            }
+        }
+        return path;
+    }
+
+    private static boolean isPathChar(char c) {
+        if (c < 0x80) {
+            return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9') ||
+                    "-_.!~*'();/:@&=+$,".indexOf(c) >= 0;
+        }
+        return !Character.isSpaceChar(c) && !Character.isISOControl(c);
+    }
+
     public URIBuilder setURI(String uri) {
         return setURI(URI.create(uri));
     }
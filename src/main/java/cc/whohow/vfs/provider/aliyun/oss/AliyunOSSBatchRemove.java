@@ -0,0 +1,52 @@
+package cc.whohow.vfs.provider.aliyun.oss;
+
+import cc.whohow.vfs.operations.BatchRemove;
+import cc.whohow.vfs.util.ConcatIterator;
+import cc.whohow.vfs.util.MapIterator;
+import com.aliyun.oss.OSS;
+import com.aliyun.oss.model.DeleteObjectsRequest;
+import com.aliyun.oss.model.OSSObjectSummary;
+import com.aliyun.oss.model.ObjectListing;
+
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Executor;
+
+/**
+ * 阿里云批量删除，每批最多1000个键，按响应中未删除的键重试
+ */
+public class AliyunOSSBatchRemove extends BatchRemove<String> {
+    public static final int MAX_BATCH_SIZE = 1000;
+
+    protected final OSS oss;
+    protected final String bucketName;
+    protected final Iterator<ObjectListing> listings;
+
+    public AliyunOSSBatchRemove(OSS oss, String bucketName, Iterator<ObjectListing> listings, int maxInFlightBatches, Executor executor) {
+        super(MAX_BATCH_SIZE, maxInFlightBatches, 3, executor);
+        this.oss = oss;
+        this.bucketName = bucketName;
+        this.listings = listings;
+    }
+
+    @Override
+    protected Iterator<String> list() {
+        return new ConcatIterator<>(new MapIterator<ObjectListing, Iterator<String>>(listings,
+                objectListing -> new MapIterator<>(objectListing.getObjectSummaries().iterator(), OSSObjectSummary::getKey)));
+    }
+
+    @Override
+    protected int delete(List<String> batch, List<String> failed) {
+        DeleteObjectsRequest request = new DeleteObjectsRequest(bucketName).withKeys(batch);
+        request.setQuiet(false);
+        Set<String> deleted = new HashSet<>(oss.deleteObjects(request).getDeletedObjects());
+        for (String key : batch) {
+            if (!deleted.contains(key)) {
+                failed.add(key);
+            }
+        }
+        return batch.size() - failed.size();
+    }
+}
@@ -2,14 +2,17 @@ package cc.whohow.vfs.provider.aliyun.oss;
 
 import cc.whohow.vfs.FileObjectX;
 import cc.whohow.vfs.io.ReadableChannel;
-import cc.whohow.vfs.io.ReadableChannelAdapter;
 import cc.whohow.vfs.io.WritableChannel;
+import cc.whohow.vfs.io.WritableChannelWrapper;
+import cc.whohow.vfs.operations.Copy;
+import cc.whohow.vfs.operations.Remove;
+import cc.whohow.vfs.operations.ServerSideCopy;
+import cc.whohow.vfs.provider.s3.ListingCursor;
 import cc.whohow.vfs.provider.s3.S3FileAttributes;
 import cc.whohow.vfs.provider.s3.S3FileName;
 import com.aliyun.oss.OSS;
-import com.aliyun.oss.model.DeleteObjectsRequest;
-import com.aliyun.oss.model.OSSObjectSummary;
-import com.aliyun.oss.model.ObjectListing;
+import com.aliyun.oss.OSSErrorCode;
+import com.aliyun.oss.OSSException;
 import com.aliyun.oss.model.ObjectMetadata;
 import org.apache.commons.vfs2.FileSystemException;
 
@@ -21,14 +24,12 @@ import java.net.URL;
 import java.nio.file.DirectoryStream;
 import java.time.Duration;
 import java.util.Date;
-import java.util.List;
 import java.util.Map;
-import java.util.stream.Collectors;
 
 /**
  * 阿里云文件对象
  */
-public class AliyunOSSFileObject implements FileObjectX {
+public class AliyunOSSFileObject implements FileObjectX, ServerSideCopy, ListingCursor.Source {
     protected final AliyunOSSFileSystem fileSystem;
     protected final S3FileName name;
 
@@ -67,6 +68,7 @@ public class AliyunOSSFileObject implements FileObjectX {
     public boolean delete() throws FileSystemException {
         if (isFile()) {
             getOSS().deleteObject(getBucketName(), getKey());
+            invalidate();
             return true;
         } else {
             return false;
@@ -78,7 +80,10 @@ public class AliyunOSSFileObject implements FileObjectX {
      */
     public boolean exists() throws FileSystemException {
         if (isFile()) {
-            return getOSS().doesObjectExist(getBucketName(), getKey());
+            if (fileSystem == null) {
+                return getOSS().doesObjectExist(getBucketName(), getKey());
+            }
+            return fileSystem.getAttributeCache().getSummary(getKey(), this::loadObjectMetadata) != null;
         } else {
             return true;
         }
@@ -101,11 +106,68 @@ public class AliyunOSSFileObject implements FileObjectX {
 
     @Override
     public DirectoryStream<FileObjectX> listRecursively() throws FileSystemException {
-        return new AliyunOSSFileObjectList(this, true);
+        return getFileSystem().getFileSystemProvider().newRecursiveFileObjectList(this);
+    }
+
+    /**
+     * 递归列举游标，只在需要时创建文件对象
+     */
+    @Override
+    public ListingCursor newListingCursor() throws FileSystemException {
+        if (!isFolder()) {
+            throw new FileSystemException("vfs.provider/list-children-not-folder.error", this);
+        }
+        return getFileSystem().getFileSystemProvider().newListingCursor(this);
     }
 
-    protected ObjectMetadata getObjectMetadata() {
-        return getOSS().getObjectMetadata(getBucketName(), getKey());
+    /**
+     * 文件属性，优先从缓存获取
+     */
+    protected ObjectMetadata getObjectMetadata() throws FileSystemException {
+        ObjectMetadata objectMetadata = (fileSystem == null) ?
+                loadObjectMetadata(getKey()) :
+                fileSystem.getAttributeCache().get(getKey(), this::loadObjectMetadata);
+        if (objectMetadata == null) {
+            throw new FileSystemException("vfs.provider/get-attributes-no-exist.error", this);
+        }
+        return objectMetadata;
+    }
+
+    /**
+     * 文件属性摘要（大小、修改时间、ETag），可使用列举结果
+     */
+    protected ObjectMetadata getObjectSummary() throws FileSystemException {
+        if (fileSystem == null) {
+            return getObjectMetadata();
+        }
+        ObjectMetadata objectMetadata = fileSystem.getAttributeCache().getSummary(getKey(), this::loadObjectMetadata);
+        if (objectMetadata == null) {
+            throw new FileSystemException("vfs.provider/get-attributes-no-exist.error", this);
+        }
+        return objectMetadata;
+    }
+
+    /**
+     * 读取文件属性，不存在返回null
+     */
+    protected ObjectMetadata loadObjectMetadata(String key) {
+        try {
+            return getOSS().getObjectMetadata(getBucketName(), key);
+        } catch (OSSException e) {
+            if (OSSErrorCode.NO_SUCH_KEY.equals(e.getErrorCode())) {
+                return null;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * 文件被修改、删除，使属性缓存失效
+     */
+    protected void invalidate() {
+        if (fileSystem != null) {
+            fileSystem.invalidate(this);
+        }
     }
 
     @Override
@@ -114,6 +176,16 @@ public class AliyunOSSFileObject implements FileObjectX {
         return new S3FileAttributes(objectMetadata.getRawMetadata(), objectMetadata.getUserMetadata());
     }
 
+    @Override
+    public long getSize() throws FileSystemException {
+        return getObjectSummary().getContentLength();
+    }
+
+    @Override
+    public long getLastModifiedTime() throws FileSystemException {
+        return getObjectSummary().getLastModified().getTime();
+    }
+
     @Override
     public InputStream getInputStream() throws FileSystemException {
         return getOSS().getObject(getBucketName(), getKey()).getObjectContent();
@@ -122,20 +194,26 @@ public class AliyunOSSFileObject implements FileObjectX {
     @Override
     public OutputStream getOutputStream(boolean bAppend) throws FileSystemException {
         if (bAppend) {
-            return new AliyunOSSWritableChannel(getOSS(), getBucketName(), getKey(), getSize());
+            // 追加写入
+            long position = getSize();
+            invalidate();
+            return new WritableChannelWrapper(new AliyunOSSWritableChannel(getOSS(), getBucketName(), getKey(), position), this::invalidate);
         } else {
-            return new AliyunOSSWritableChannel(getOSS(), getBucketName(), getKey());
+            return getWritableChannel();
         }
     }
 
     @Override
     public ReadableChannel getReadableChannel() throws FileSystemException {
-        return new ReadableChannelAdapter(getInputStream());
+        return getFileSystem().getFileSystemProvider().newReadableChannel(getOSS(), getBucketName(), getKey());
     }
 
     @Override
     public WritableChannel getWritableChannel() throws FileSystemException {
-        return new AliyunOSSWritableChannel(getOSS(), getBucketName(), getKey());
+        invalidate();
+        return new WritableChannelWrapper(
+                getFileSystem().getFileSystemProvider().newWritableChannel(getOSS(), getBucketName(), getKey()),
+                this::invalidate);
     }
 
     /**
@@ -170,31 +248,50 @@ public class AliyunOSSFileObject implements FileObjectX {
         }
     }
 
+    /**
+     * 服务端复制，同一账号、同一地域的OSS文件之间直接复制
+     */
+    @Override
+    public Copy.Result copyTo(FileObjectX destination) throws FileSystemException {
+        if (fileSystem == null || !isFile() || !(destination instanceof AliyunOSSFileObject)) {
+            return null;
+        }
+        AliyunOSSFileObject target = (AliyunOSSFileObject) destination;
+        if (target.fileSystem == null ||
+                target.fileSystem.getFileSystemProvider() != fileSystem.getFileSystemProvider() ||
+                !fileSystem.getFileSystemProvider().isServerSideCopyable(getName(), target.getName())) {
+            return null;
+        }
+        try {
+            return fileSystem.getFileSystemProvider()
+                    .newCopy(target.getOSS(), getBucketName(), getKey(), target.getBucketName(), target.getKey())
+                    .get();
+        } finally {
+            target.invalidate();
+        }
+    }
+
     @Override
     public String toString() {
         return name.toString();
     }
 
+    /**
+     * 批量删除，多个批次同时删除
+     */
     @Override
-    public int deleteAll() throws FileSystemException {
+    public Remove.Result removeAll() throws FileSystemException {
         if (isFile()) {
+            long start = System.currentTimeMillis();
             getOSS().deleteObject(getBucketName(), getKey());
-            return 1;
-        } else {
-            int n = 0;
-            AliyunOSSObjectListingIterator iterator = new AliyunOSSObjectListingIterator(getOSS(), getBucketName(), getKey());
-            while (iterator.hasNext()) {
-                ObjectListing objectListing = iterator.next();
-                if (!objectListing.getObjectSummaries().isEmpty()) {
-                    List<String> keys = objectListing.getObjectSummaries().stream()
-                            .map(OSSObjectSummary::getKey)
-                            .collect(Collectors.toList());
-                    getOSS().deleteObjects(new DeleteObjectsRequest(getBucketName()).withKeys(keys));
-                }
-                n += objectListing.getCommonPrefixes().size();
-                n += objectListing.getObjectSummaries().size();
-            }
-            return n;
+            invalidate();
+            return new Remove.Result(1, 0, System.currentTimeMillis() - start);
+        }
+        invalidate();
+        try {
+            return getFileSystem().getFileSystemProvider().newBatchRemove(getOSS(), getBucketName(), getKey()).get();
+        } finally {
+            invalidate();
         }
     }
 }
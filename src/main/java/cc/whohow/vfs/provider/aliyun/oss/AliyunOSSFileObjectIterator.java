@@ -25,9 +25,8 @@ public class AliyunOSSFileObjectIterator implements Iterator<FileObjectX> {
 
     public AliyunOSSFileObjectIterator(AliyunOSSFileObject base, boolean recursively) {
         this.base = base;
-        this.objectListingIterator = recursively ?
-                new AliyunOSSObjectListingIterator(base.getOSS(), base.getBucketName(), base.getKey()) :
-                new AliyunOSSObjectListingIterator(base.getOSS(), base.getBucketName(), base.getKey(), "/");
+        this.objectListingIterator = base.getFileSystem().getFileSystemProvider().newObjectListingIterator(
+                base.getOSS(), base.getBucketName(), base.getKey(), recursively ? null : "/");
         this.files = Collections.emptyIterator();
     }
 
@@ -1,5 +1,10 @@
 package cc.whohow.vfs.provider.aliyun.oss;
 
+import cc.whohow.vfs.FileObjectX;
+import cc.whohow.vfs.io.ReadableChannel;
+import cc.whohow.vfs.io.ReadableChannelAdapter;
+import cc.whohow.vfs.io.WritableChannel;
+import cc.whohow.vfs.operations.Copy;
 import cc.whohow.vfs.provider.s3.S3FileName;
 import com.aliyun.oss.ClientConfiguration;
 import com.aliyun.oss.OSS;
@@ -7,6 +12,8 @@ import com.aliyun.oss.OSSClient;
 import com.aliyun.oss.common.auth.DefaultCredentialProvider;
 import org.apache.commons.vfs2.FileSystemException;
 
+import java.util.Objects;
+
 public class AliyunOSSFileObjectX extends AliyunOSSFileObject {
     protected final OSSClient oss;
 
@@ -26,6 +33,29 @@ public class AliyunOSSFileObjectX extends AliyunOSSFileObject {
         return oss;
     }
 
+    @Override
+    public ReadableChannel getReadableChannel() throws FileSystemException {
+        return new ReadableChannelAdapter(getInputStream());
+    }
+
+    @Override
+    public WritableChannel getWritableChannel() throws FileSystemException {
+        return new AliyunOSSMultipartWritableChannel(getOSS(), getBucketName(), getKey());
+    }
+
+    @Override
+    public Copy.Result copyTo(FileObjectX destination) throws FileSystemException {
+        if (!isFile() || !(destination instanceof AliyunOSSFileObjectX)) {
+            return null;
+        }
+        AliyunOSSFileObjectX target = (AliyunOSSFileObjectX) destination;
+        if (!Objects.equals(getName().getAccessKeyId(), target.getName().getAccessKeyId()) ||
+                !Objects.equals(getName().getEndpoint(), target.getName().getEndpoint())) {
+            return null;
+        }
+        return new AliyunOSSMultipartCopy(target.getOSS(), getBucketName(), getKey(), target.getBucketName(), target.getKey()).get();
+    }
+
     @Override
     public void close() throws FileSystemException {
         try {
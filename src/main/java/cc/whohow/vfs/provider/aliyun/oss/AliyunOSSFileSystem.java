@@ -1,9 +1,12 @@
 package cc.whohow.vfs.provider.aliyun.oss;
 
+import cc.whohow.vfs.FileObjectX;
 import cc.whohow.vfs.FileSystemX;
 import cc.whohow.vfs.VirtualFileSystem;
+import cc.whohow.vfs.cache.FileAttributeCache;
 import cc.whohow.vfs.provider.s3.S3FileName;
 import com.aliyun.oss.OSS;
+import com.aliyun.oss.model.ObjectMetadata;
 import org.apache.commons.vfs2.FileName;
 import org.apache.commons.vfs2.FileSystemException;
 import org.apache.commons.vfs2.provider.AbstractVfsComponent;
@@ -12,6 +15,7 @@ public class AliyunOSSFileSystem extends AbstractVfsComponent implements FileSys
     private final AliyunOSSFileSystemProvider fileSystemProvider;
     private final S3FileName root;
     private final OSS oss;
+    private volatile FileAttributeCache<ObjectMetadata> attributeCache = FileAttributeCache.disabled();
 
     public AliyunOSSFileSystem(AliyunOSSFileSystemProvider fileSystemProvider,
                                String bucketName,
@@ -35,6 +39,29 @@ public class AliyunOSSFileSystem extends AbstractVfsComponent implements FileSys
         return new AliyunOSSFileObject(this, new S3FileName(root.toURI().resolve(name).toString()));
     }
 
+    /**
+     * 文件属性缓存
+     */
+    public FileAttributeCache<ObjectMetadata> getAttributeCache() {
+        return attributeCache;
+    }
+
+    public void setAttributeCache(FileAttributeCache<ObjectMetadata> attributeCache) {
+        this.attributeCache = attributeCache;
+    }
+
+    @Override
+    public void invalidate(FileObjectX fileObject) {
+        if (fileObject instanceof AliyunOSSFileObject) {
+            String key = ((AliyunOSSFileObject) fileObject).getKey();
+            if (key.isEmpty() || key.endsWith("/")) {
+                attributeCache.invalidatePrefix(key);
+            } else {
+                attributeCache.invalidate(key);
+            }
+        }
+    }
+
     @Override
     public FileName getRootName() {
         return root;
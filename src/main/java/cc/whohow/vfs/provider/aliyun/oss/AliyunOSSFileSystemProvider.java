@@ -1,16 +1,25 @@
 package cc.whohow.vfs.provider.aliyun.oss;
 
 import cc.whohow.vfs.*;
+import cc.whohow.vfs.cache.FileAttributeCache;
+import cc.whohow.vfs.configuration.Configurations;
+import cc.whohow.vfs.io.ParallelRangeReadableChannel;
+import cc.whohow.vfs.io.ReadableChannel;
+import cc.whohow.vfs.io.ReadableChannelAdapter;
 import cc.whohow.vfs.log.LogProxy;
 import cc.whohow.vfs.provider.s3.S3FileName;
 import cc.whohow.vfs.provider.s3.S3Uri;
 import cc.whohow.vfs.serialize.YamlSerializer;
+import cc.whohow.vfs.util.ThreadPools;
 import com.aliyun.oss.ClientConfiguration;
 import com.aliyun.oss.OSS;
 import com.aliyun.oss.OSSClient;
 import com.aliyun.oss.common.auth.DefaultCredentialProvider;
 import com.aliyun.oss.common.auth.DefaultCredentials;
 import com.aliyun.oss.model.Bucket;
+import com.aliyun.oss.model.GetObjectRequest;
+import com.aliyun.oss.model.ListObjectsRequest;
+import com.aliyun.oss.model.OSSObject;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.qcloud.cos.utils.StringUtils;
 import org.apache.commons.vfs2.Capability;
@@ -22,6 +31,7 @@ import java.io.IOException;
 import java.nio.file.DirectoryStream;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
 import java.util.stream.Collectors;
 
 public class AliyunOSSFileSystemProvider extends AbstractVfsComponent implements FileSystemProviderX {
@@ -43,6 +53,24 @@ public class AliyunOSSFileSystemProvider extends AbstractVfsComponent implements
     protected Map<String, S3Uri> buckets = new TreeMap<>();
     protected Map<S3Uri, OSSClient> clients = new ConcurrentHashMap<>();
     protected Map<String, AliyunOSSFileSystem> fileSystems = new ConcurrentHashMap<>();
+    protected int partSize = AliyunOSSMultipartWritableChannel.DEFAULT_PART_SIZE;
+    protected int maxInFlightParts = 4;
+    protected int rangeSize = 4 * 1024 * 1024;
+    protected int maxInFlightRanges = 4;
+    protected long copyPartSize = AliyunOSSMultipartCopy.DEFAULT_PART_SIZE;
+    protected int listPageSize = AliyunOSSObjectListingIterator.MAX_PAGE_SIZE;
+    protected int listPrefetch = 1;
+    // 默认串行列举；并行列举需配置 list/concurrency 开启，且必须 close() 列举流以释放工作线程
+    protected int listConcurrency = 1;
+    protected int deleteConcurrency = 4;
+    protected int attributeCacheSize = 10000;
+    // 默认不缓存，配置 cache/ttl 开启；不存在的文件默认不缓存
+    protected int attributeCacheTtl = 0;
+    protected int attributeCacheNegativeTtl = 0;
+    protected int executorThreads = 32;
+    protected int listExecutorThreads = 16;
+    protected ExecutorService executor;
+    protected ExecutorService listExecutor;
 
     @Override
     public String getScheme() {
@@ -92,6 +120,7 @@ public class AliyunOSSFileSystemProvider extends AbstractVfsComponent implements
                 fileSystem = fileSystems.get(uri.getBucketName());
                 if (fileSystem == null) {
                     fileSystem = newFileSystem(uri);
+                    fileSystem.setAttributeCache(newAttributeCache());
                     fileSystem.setContext(getContext());
                     fileSystem.init();
                 }
@@ -127,6 +156,105 @@ public class AliyunOSSFileSystemProvider extends AbstractVfsComponent implements
         return CAPABILITIES;
     }
 
+    /**
+     * 文件属性缓存，每个Bucket一个，ttl、negativeTtl 均为 0 时不缓存
+     */
+    protected <V> FileAttributeCache<V> newAttributeCache() {
+        return new FileAttributeCache<>(attributeCacheSize, attributeCacheTtl, attributeCacheNegativeTtl);
+    }
+
+    /**
+     * 分片并行上传写入流
+     */
+    public AliyunOSSMultipartWritableChannel newWritableChannel(OSS oss, String bucketName, String key) {
+        if (maxInFlightParts <= 1) {
+            return new AliyunOSSMultipartWritableChannel(oss, bucketName, key, partSize);
+        }
+        return new AliyunOSSMultipartWritableChannel(oss, bucketName, key, partSize, maxInFlightParts, executor);
+    }
+
+    /**
+     * Range并行下载读取流，首段请求同时获取文件大小，小文件直接单连接读取
+     */
+    public ReadableChannel newReadableChannel(OSS oss, String bucketName, String key) {
+        if (maxInFlightRanges <= 1) {
+            OSSObject object = oss.getObject(bucketName, key);
+            return new ReadableChannelAdapter(object.getObjectContent(), object.getObjectMetadata().getContentLength());
+        }
+        GetObjectRequest getObjectRequest = new GetObjectRequest(bucketName, key);
+        getObjectRequest.setRange(0, rangeSize - 1);
+        OSSObject object = oss.getObject(getObjectRequest);
+        long size = ParallelRangeReadableChannel.getInstanceLength(object.getObjectMetadata().getRawMetadata());
+        if (size <= rangeSize) {
+            return new ReadableChannelAdapter(object.getObjectContent(), size);
+        }
+        return new AliyunOSSReadableChannel(oss, bucketName, key, object.getObjectMetadata().getETag(),
+                object.getObjectContent(), rangeSize, size, rangeSize, maxInFlightRanges, executor);
+    }
+
+    /**
+     * 分页遍历，后台预取后续页
+     */
+    public AliyunOSSObjectListingIterator newObjectListingIterator(OSS oss, String bucketName, String prefix, String delimiter) {
+        ListObjectsRequest listObjectsRequest = new ListObjectsRequest(bucketName, prefix, null, delimiter, listPageSize);
+        if (listPrefetch <= 0 || executor == null) {
+            return new AliyunOSSObjectListingIterator(oss, listObjectsRequest);
+        }
+        return new AliyunOSSObjectListingIterator(oss, listObjectsRequest, executor, listPrefetch);
+    }
+
+    /**
+     * 递归列举游标，后台预取后续页
+     */
+    public AliyunOSSListingCursor newListingCursor(AliyunOSSFileObject base) {
+        return new AliyunOSSListingCursor(base, newObjectListingIterator(base.getOSS(), base.getBucketName(), base.getKey(), null));
+    }
+
+    /**
+     * 批量删除前缀下所有对象，边列举边删除，多个批次同时删除
+     */
+    public AliyunOSSBatchRemove newBatchRemove(OSS oss, String bucketName, String prefix) {
+        return new AliyunOSSBatchRemove(oss, bucketName, newObjectListingIterator(oss, bucketName, prefix, null), deleteConcurrency, executor);
+    }
+
+    /**
+     * 递归列举，按键序输出；配置 list/concurrency 大于 1 时，超过一页按子目录分区并行列举
+     */
+    public DirectoryStream<FileObjectX> newRecursiveFileObjectList(AliyunOSSFileObject base) {
+        if (listConcurrency <= 1 || listExecutor == null) {
+            return new AliyunOSSFileObjectList(base, true);
+        }
+        return new AliyunOSSParallelFileObjectList(base, listExecutor, listConcurrency, true);
+    }
+
+    /**
+     * 服务端复制，超过单次复制上限分片并行复制
+     */
+    public AliyunOSSMultipartCopy newCopy(OSS oss, String sourceBucketName, String sourceKey, String bucketName, String key) {
+        return new AliyunOSSMultipartCopy(oss, sourceBucketName, sourceKey, bucketName, key,
+                AliyunOSSMultipartCopy.MAX_COPY_SIZE, copyPartSize, maxInFlightParts, executor);
+    }
+
+    /**
+     * 是否可以服务端复制：同一账号、同一地域
+     */
+    public boolean isServerSideCopyable(S3Uri source, S3Uri destination) {
+        S3Uri s = getBucketUri(source);
+        S3Uri d = getBucketUri(destination);
+        return s != null && d != null &&
+                Objects.equals(s.getAccessKeyId(), d.getAccessKeyId()) &&
+                Objects.equals(s.getEndpoint(), d.getEndpoint());
+    }
+
+    protected S3Uri getBucketUri(S3Uri uri) {
+        if (StringUtils.isNullOrEmpty(uri.getAccessKeyId()) ||
+                StringUtils.isNullOrEmpty(uri.getSecretAccessKey()) ||
+                StringUtils.isNullOrEmpty(uri.getEndpoint())) {
+            return buckets.get(uri.getBucketName());
+        }
+        return uri;
+    }
+
     @Override
     public FileOperationsX getFileOperations() throws FileSystemException {
         return null;
@@ -151,6 +279,30 @@ public class AliyunOSSFileSystemProvider extends AbstractVfsComponent implements
         // clientConfiguration
         clientConfiguration = new ClientConfiguration();
 
+        // upload, download, copy, list, cache
+        try {
+            partSize = Configurations.getInt(vfs, "conf:/providers/aliyun-oss/upload/partSize", partSize);
+            maxInFlightParts = Configurations.getInt(vfs, "conf:/providers/aliyun-oss/upload/maxInFlightParts", maxInFlightParts);
+            rangeSize = Configurations.getInt(vfs, "conf:/providers/aliyun-oss/download/rangeSize", rangeSize);
+            maxInFlightRanges = Configurations.getInt(vfs, "conf:/providers/aliyun-oss/download/maxInFlightRanges", maxInFlightRanges);
+            copyPartSize = Configurations.getLong(vfs, "conf:/providers/aliyun-oss/copy/partSize", copyPartSize);
+            listPageSize = Integer.min(Configurations.getInt(vfs, "conf:/providers/aliyun-oss/list/pageSize", listPageSize), AliyunOSSObjectListingIterator.MAX_PAGE_SIZE);
+            listPrefetch = Configurations.getInt(vfs, "conf:/providers/aliyun-oss/list/prefetch", listPrefetch);
+            listConcurrency = Configurations.getInt(vfs, "conf:/providers/aliyun-oss/list/concurrency", listConcurrency);
+            deleteConcurrency = Configurations.getInt(vfs, "conf:/providers/aliyun-oss/delete/concurrency", deleteConcurrency);
+            attributeCacheSize = Configurations.getInt(vfs, "conf:/providers/aliyun-oss/cache/maxSize", attributeCacheSize);
+            attributeCacheTtl = Configurations.getInt(vfs, "conf:/providers/aliyun-oss/cache/ttl", attributeCacheTtl);
+            attributeCacheNegativeTtl = Configurations.getInt(vfs, "conf:/providers/aliyun-oss/cache/negativeTtl", attributeCacheNegativeTtl);
+            executorThreads = Configurations.getInt(vfs, "conf:/providers/aliyun-oss/executor/threads", executorThreads);
+            listExecutorThreads = Configurations.getInt(vfs, "conf:/providers/aliyun-oss/executor/listThreads", listExecutorThreads);
+        } catch (IOException e) {
+            throw new FileSystemException(e);
+        }
+        // 分片上传、Range下载、预取、批量删除、分片复制：任务只做一次请求，不等待同池其他任务
+        executor = ThreadPools.newBoundedThreadPool("aliyun-oss", executorThreads);
+        // 并行列举：工作线程等待消费者取数据，与请求任务分池，消费慢时不占用请求线程
+        listExecutor = ThreadPools.newBoundedThreadPool("aliyun-oss-list", listExecutorThreads);
+
         // buckets
         for (DefaultCredentials credential : credentials) {
             OSSClient cos = new OSSClient(AliyunOSSEndpoints.getDefaultEndpoint(), new DefaultCredentialProvider(credential), clientConfiguration);
@@ -168,6 +320,12 @@ public class AliyunOSSFileSystemProvider extends AbstractVfsComponent implements
 
     @Override
     public void close() {
+        if (executor != null) {
+            executor.shutdown();
+        }
+        if (listExecutor != null) {
+            listExecutor.shutdown();
+        }
         for (OSSClient oss : clients.values()) {
             try {
                 oss.shutdown();
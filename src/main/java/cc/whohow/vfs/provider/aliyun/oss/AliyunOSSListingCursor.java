@@ -0,0 +1,79 @@
+package cc.whohow.vfs.provider.aliyun.oss;
+
+import cc.whohow.vfs.FileObjectX;
+import cc.whohow.vfs.provider.s3.ListingCursor;
+import cc.whohow.vfs.provider.s3.S3FileName;
+import com.aliyun.oss.model.OSSObjectSummary;
+import com.aliyun.oss.model.ObjectListing;
+
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * 阿里云列举游标，直接遍历列举页中的对象摘要
+ */
+public class AliyunOSSListingCursor implements ListingCursor {
+    protected final AliyunOSSFileObject base;
+    protected final String prefix;
+    protected final Iterator<ObjectListing> listings;
+    private List<OSSObjectSummary> page = Collections.emptyList();
+    private int index = -1;
+    private OSSObjectSummary current;
+
+    public AliyunOSSListingCursor(AliyunOSSFileObject base, Iterator<ObjectListing> listings) {
+        this.base = base;
+        this.prefix = base.getKey();
+        this.listings = listings;
+    }
+
+    @Override
+    public boolean advance() {
+        while (true) {
+            while (++index < page.size()) {
+                OSSObjectSummary objectSummary = page.get(index);
+                // 跳过目录（含前缀自身）
+                if (!objectSummary.getKey().endsWith("/")) {
+                    current = objectSummary;
+                    return true;
+                }
+            }
+            if (!listings.hasNext()) {
+                current = null;
+                return false;
+            }
+            page = listings.next().getObjectSummaries();
+            index = -1;
+        }
+    }
+
+    @Override
+    public String prefix() {
+        return prefix;
+    }
+
+    @Override
+    public String key() {
+        return current.getKey();
+    }
+
+    @Override
+    public long size() {
+        return current.getSize();
+    }
+
+    @Override
+    public String etag() {
+        return current.getETag();
+    }
+
+    @Override
+    public long lastModified() {
+        return current.getLastModified().getTime();
+    }
+
+    @Override
+    public FileObjectX toFileObject() {
+        return new AliyunOSSListingFileObject(base.getFileSystem(), new S3FileName(base.getName(), current.getKey()), current);
+    }
+}
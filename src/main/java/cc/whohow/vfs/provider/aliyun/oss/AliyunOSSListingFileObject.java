@@ -3,6 +3,7 @@ package cc.whohow.vfs.provider.aliyun.oss;
 import cc.whohow.vfs.provider.s3.S3FileName;
 import com.aliyun.oss.internal.OSSHeaders;
 import com.aliyun.oss.model.OSSObjectSummary;
+import com.aliyun.oss.model.ObjectMetadata;
 import org.apache.commons.vfs2.FileSystemException;
 
 
@@ -12,6 +13,14 @@ public class AliyunOSSListingFileObject extends AliyunOSSFileObject {
     public AliyunOSSListingFileObject(AliyunOSSFileSystem fileSystem, S3FileName name, OSSObjectSummary objectSummary) {
         super(fileSystem, name);
         this.objectSummary = objectSummary;
+        // 列举结果预填充属性缓存
+        if (fileSystem != null && fileSystem.getAttributeCache().isEnabled()) {
+            ObjectMetadata objectMetadata = new ObjectMetadata();
+            objectMetadata.setContentLength(objectSummary.getSize());
+            objectMetadata.setLastModified(objectSummary.getLastModified());
+            objectMetadata.setHeader(OSSHeaders.ETAG, objectSummary.getETag());
+            fileSystem.getAttributeCache().putSummary(getKey(), objectMetadata);
+        }
     }
 
     @Override
@@ -0,0 +1,74 @@
+package cc.whohow.vfs.provider.aliyun.oss;
+
+import cc.whohow.vfs.operations.MultipartCopy;
+import com.aliyun.oss.OSS;
+import com.aliyun.oss.model.*;
+
+import java.util.List;
+import java.util.concurrent.Executor;
+
+/**
+ * OSS服务端复制，超过1GB通过分片复制（UploadPartCopy）实现
+ */
+public class AliyunOSSMultipartCopy extends MultipartCopy<PartETag> {
+    public static final long MAX_COPY_SIZE = 1024L * 1024 * 1024;
+    public static final long DEFAULT_PART_SIZE = 128L * 1024 * 1024;
+
+    private final OSS oss;
+    private final String sourceBucketName;
+    private final String sourceKey;
+    private final String bucketName;
+    private final String key;
+    private volatile String uploadId;
+
+    public AliyunOSSMultipartCopy(OSS oss, String sourceBucketName, String sourceKey, String bucketName, String key) {
+        this(oss, sourceBucketName, sourceKey, bucketName, key, MAX_COPY_SIZE, DEFAULT_PART_SIZE, 1, null);
+    }
+
+    public AliyunOSSMultipartCopy(OSS oss, String sourceBucketName, String sourceKey, String bucketName, String key,
+                                  long maxCopySize, long partSize, int maxInFlightParts, Executor executor) {
+        super(maxCopySize, partSize, maxInFlightParts, executor);
+        this.oss = oss;
+        this.sourceBucketName = sourceBucketName;
+        this.sourceKey = sourceKey;
+        this.bucketName = bucketName;
+        this.key = key;
+    }
+
+    public String getUploadId() {
+        return uploadId;
+    }
+
+    @Override
+    protected long getSize() {
+        return oss.getObjectMetadata(sourceBucketName, sourceKey).getContentLength();
+    }
+
+    @Override
+    protected void copyObject() {
+        oss.copyObject(sourceBucketName, sourceKey, bucketName, key);
+    }
+
+    @Override
+    protected void initiate() {
+        uploadId = oss.initiateMultipartUpload(new InitiateMultipartUploadRequest(bucketName, key))
+                .getUploadId();
+    }
+
+    @Override
+    protected PartETag copyPart(int partNumber, long first, long last) {
+        return oss.uploadPartCopy(new UploadPartCopyRequest(
+                sourceBucketName, sourceKey, bucketName, key, uploadId, partNumber, first, last - first + 1))
+                .getPartETag();
+    }
+
+    @Override
+    protected void complete(List<PartETag> partETags) {
+        oss.completeMultipartUpload(new CompleteMultipartUploadRequest(bucketName, key, uploadId, partETags));
+    }
+
+    @Override
+    protected void abort() {
+        oss.abortMultipartUpload(new AbortMultipartUploadRequest(bucketName, key, uploadId));
+    }
+}
@@ -0,0 +1,101 @@
+package cc.whohow.vfs.provider.aliyun.oss;
+
+import cc.whohow.vfs.io.MultipartWritableChannel;
+import com.aliyun.oss.OSS;
+import com.aliyun.oss.model.*;
+
+import java.io.ByteArrayInputStream;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+/**
+ * OSS写入流，通过MultipartUpload实现
+ */
+public class AliyunOSSMultipartWritableChannel extends MultipartWritableChannel<PartETag> {
+    public static final int MIN_PART_SIZE = 100 * 1024;
+    public static final int DEFAULT_PART_SIZE = 2 * 1024 * 1024;
+
+    private final OSS oss;
+    private final String bucketName;
+    private final String key;
+    private volatile String uploadId;
+
+    public AliyunOSSMultipartWritableChannel(OSS oss, String bucketName, String key) {
+        this(oss, bucketName, key, DEFAULT_PART_SIZE);
+    }
+
+    public AliyunOSSMultipartWritableChannel(OSS oss, String bucketName, String key, int partSize) {
+        super(checkPartSize(partSize));
+        this.oss = oss;
+        this.bucketName = bucketName;
+        this.key = key;
+    }
+
+    /**
+     * 并行上传，最多maxInFlightParts个分片同时上传
+     */
+    public AliyunOSSMultipartWritableChannel(OSS oss, String bucketName, String key, int partSize, int maxInFlightParts, Executor executor) {
+        super(checkPartSize(partSize), maxInFlightParts, executor);
+        this.oss = oss;
+        this.bucketName = bucketName;
+        this.key = key;
+    }
+
+    private static int checkPartSize(int partSize) {
+        if (partSize < MIN_PART_SIZE) {
+            throw new IllegalArgumentException("Illegal part size: " + partSize);
+        }
+        return partSize;
+    }
+
+    public OSS getOSS() {
+        return oss;
+    }
+
+    public String getBucketName() {
+        return bucketName;
+    }
+
+    public String getKey() {
+        return key;
+    }
+
+    public String getUploadId() {
+        return uploadId;
+    }
+
+    @Override
+    protected void initiate() {
+        uploadId = oss.initiateMultipartUpload(new InitiateMultipartUploadRequest(bucketName, key))
+                .getUploadId();
+    }
+
+    @Override
+    protected PartETag uploadPart(int partNumber, byte[] buffer, int offset, int length, boolean last) {
+        UploadPartRequest uploadPartRequest = new UploadPartRequest();
+        uploadPartRequest.setBucketName(bucketName);
+        uploadPartRequest.setKey(key);
+        uploadPartRequest.setUploadId(uploadId);
+        uploadPartRequest.setPartNumber(partNumber);
+        uploadPartRequest.setInputStream(new ByteArrayInputStream(buffer, offset, length));
+        uploadPartRequest.setPartSize(length);
+        return oss.uploadPart(uploadPartRequest).getPartETag();
+    }
+
+    @Override
+    protected void complete(List<PartETag> partETags) {
+        oss.completeMultipartUpload(new CompleteMultipartUploadRequest(bucketName, key, uploadId, partETags));
+    }
+
+    @Override
+    protected void abort() {
+        oss.abortMultipartUpload(new AbortMultipartUploadRequest(bucketName, key, uploadId));
+    }
+
+    @Override
+    protected void putObject(byte[] buffer, int offset, int length) {
+        ObjectMetadata objectMetadata = new ObjectMetadata();
+        objectMetadata.setContentLength(length);
+        oss.putObject(bucketName, key, new ByteArrayInputStream(buffer, offset, length), objectMetadata);
+    }
+}
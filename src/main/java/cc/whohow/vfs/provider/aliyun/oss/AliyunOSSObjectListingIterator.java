@@ -1,25 +1,27 @@
 package cc.whohow.vfs.provider.aliyun.oss;
 
+import cc.whohow.vfs.util.PrefetchingPageIterator;
 import com.aliyun.oss.OSS;
 import com.aliyun.oss.model.ListObjectsRequest;
 import com.aliyun.oss.model.ObjectListing;
 
-import java.util.Iterator;
+import java.util.concurrent.Executor;
 
 /**
- * OSS原始对象遍历器
+ * OSS原始对象遍历器，可后台预取后续页
  */
-public class AliyunOSSObjectListingIterator implements Iterator<ObjectListing> {
+public class AliyunOSSObjectListingIterator extends PrefetchingPageIterator<ObjectListing> {
+    public static final int MAX_PAGE_SIZE = 1000;
+
     private final OSS oss;
     private final ListObjectsRequest listObjectsRequest;
-    private ObjectListing objectListing;
 
     public AliyunOSSObjectListingIterator(OSS oss, String bucketName, String prefix) {
-        this(oss, new ListObjectsRequest(bucketName, prefix, null, null, 1000));
+        this(oss, new ListObjectsRequest(bucketName, prefix, null, null, MAX_PAGE_SIZE));
     }
 
     public AliyunOSSObjectListingIterator(OSS oss, String bucketName, String prefix, String delimiter) {
-        this(oss, new ListObjectsRequest(bucketName, prefix, null, delimiter, 1000));
+        this(oss, new ListObjectsRequest(bucketName, prefix, null, delimiter, MAX_PAGE_SIZE));
     }
 
     public AliyunOSSObjectListingIterator(OSS oss, ListObjectsRequest listObjectsRequest) {
@@ -27,6 +29,15 @@ public class AliyunOSSObjectListingIterator implements Iterator<ObjectListing> {
         this.listObjectsRequest = listObjectsRequest;
     }
 
+    /**
+     * @param prefetch 预取页数
+     */
+    public AliyunOSSObjectListingIterator(OSS oss, ListObjectsRequest listObjectsRequest, Executor executor, int prefetch) {
+        super(executor, prefetch);
+        this.oss = oss;
+        this.listObjectsRequest = listObjectsRequest;
+    }
+
     public OSS getOSS() {
         return oss;
     }
@@ -40,20 +51,23 @@ public class AliyunOSSObjectListingIterator implements Iterator<ObjectListing> {
     }
 
     @Override
-    public boolean hasNext() {
-        if (objectListing == null) {
-            objectListing = oss.listObjects(listObjectsRequest);
-            return true;
-        }
-        if (objectListing.isTruncated()) {
-            objectListing = oss.listObjects(listObjectsRequest.withMarker(objectListing.getNextMarker()));
-            return true;
-        }
-        return false;
+    protected ObjectListing first() {
+        return oss.listObjects(listObjectsRequest);
     }
 
+    /**
+     * 每页新建请求，预取线程不共享可变请求
+     */
     @Override
-    public ObjectListing next() {
-        return objectListing;
+    protected ObjectListing next(ObjectListing previous) {
+        if (!previous.isTruncated()) {
+            return null;
+        }
+        return oss.listObjects(new ListObjectsRequest(
+                listObjectsRequest.getBucketName(),
+                listObjectsRequest.getPrefix(),
+                previous.getNextMarker(),
+                listObjectsRequest.getDelimiter(),
+                listObjectsRequest.getMaxKeys()));
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,75 @@
+package cc.whohow.vfs.provider.aliyun.oss;
+
+import cc.whohow.vfs.FileObjectX;
+import cc.whohow.vfs.provider.s3.S3FileName;
+import cc.whohow.vfs.provider.s3.S3ParallelFileObjectList;
+import cc.whohow.vfs.util.ConcatIterator;
+import cc.whohow.vfs.util.MapIterator;
+import com.aliyun.oss.model.OSSObjectSummary;
+import com.aliyun.oss.model.ListObjectsRequest;
+import com.aliyun.oss.model.ObjectListing;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+/**
+ * OSS并行递归列举
+ */
+public class AliyunOSSParallelFileObjectList extends S3ParallelFileObjectList {
+    protected final AliyunOSSFileObject base;
+
+    public AliyunOSSParallelFileObjectList(AliyunOSSFileObject base, Executor executor, int concurrency, boolean ordered) {
+        super(base.getKey(), executor, concurrency, ordered);
+        this.base = base;
+    }
+
+    private AliyunOSSFileSystemProvider getFileSystemProvider() {
+        return base.getFileSystem().getFileSystemProvider();
+    }
+
+    @Override
+    protected Iterator<FileObjectX> listSinglePage(String prefix) {
+        ObjectListing objectListing = base.getOSS().listObjects(new ListObjectsRequest(
+                base.getBucketName(), prefix, null, null, getFileSystemProvider().listPageSize));
+        if (objectListing.isTruncated()) {
+            return null;
+        }
+        List<FileObjectX> files = new ArrayList<>(objectListing.getObjectSummaries().size());
+        for (OSSObjectSummary object : objectListing.getObjectSummaries()) {
+            if (!object.getKey().equals(base.getKey())) {
+                files.add(newFile(object));
+            }
+        }
+        return files.iterator();
+    }
+
+    @Override
+    protected void listLevel(String prefix, List<String> folders, List<FileObjectX> files) {
+        AliyunOSSObjectListingIterator iterator = getFileSystemProvider()
+                .newObjectListingIterator(base.getOSS(), base.getBucketName(), prefix, "/");
+        while (iterator.hasNext()) {
+            ObjectListing objectListing = iterator.next();
+            folders.addAll(objectListing.getCommonPrefixes());
+            for (OSSObjectSummary object : objectListing.getObjectSummaries()) {
+                if (!object.getKey().equals(base.getKey())) {
+                    files.add(newFile(object));
+                }
+            }
+        }
+    }
+
+    @Override
+    protected Iterator<FileObjectX> listAll(String prefix) {
+        // 列举线程中同步分页，不向同一线程池提交预取任务
+        AliyunOSSObjectListingIterator iterator = new AliyunOSSObjectListingIterator(base.getOSS(), new ListObjectsRequest(
+                base.getBucketName(), prefix, null, null, getFileSystemProvider().listPageSize));
+        return new ConcatIterator<>(new MapIterator<ObjectListing, Iterator<FileObjectX>>(iterator,
+                objectListing -> new MapIterator<>(objectListing.getObjectSummaries().iterator(), this::newFile)));
+    }
+
+    private FileObjectX newFile(OSSObjectSummary object) {
+        return new AliyunOSSListingFileObject(base.getFileSystem(), new S3FileName(base.getName(), object.getKey()), object);
+    }
+}
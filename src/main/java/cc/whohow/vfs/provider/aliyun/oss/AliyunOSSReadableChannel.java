@@ -0,0 +1,61 @@
+package cc.whohow.vfs.provider.aliyun.oss;
+
+import cc.whohow.vfs.io.ParallelRangeReadableChannel;
+import com.aliyun.oss.OSS;
+import com.aliyun.oss.model.GetObjectRequest;
+
+import java.io.InputStream;
+import java.util.Collections;
+import java.util.concurrent.Executor;
+
+/**
+ * OSS读取流，通过Range并行下载实现
+ */
+public class AliyunOSSReadableChannel extends ParallelRangeReadableChannel {
+    private final OSS oss;
+    private final String bucketName;
+    private final String key;
+    private final String eTag;
+
+    public AliyunOSSReadableChannel(OSS oss, String bucketName, String key, String eTag,
+                                    long size, int rangeSize, int parallelism, Executor executor) {
+        super(size, rangeSize, parallelism, executor);
+        this.oss = oss;
+        this.bucketName = bucketName;
+        this.key = key;
+        this.eTag = eTag;
+    }
+
+    public AliyunOSSReadableChannel(OSS oss, String bucketName, String key, String eTag,
+                                    InputStream head, long headLength,
+                                    long size, int rangeSize, int parallelism, Executor executor) {
+        super(head, headLength, size, rangeSize, parallelism, executor);
+        this.oss = oss;
+        this.bucketName = bucketName;
+        this.key = key;
+        this.eTag = eTag;
+    }
+
+    public OSS getOSS() {
+        return oss;
+    }
+
+    public String getBucketName() {
+        return bucketName;
+    }
+
+    public String getKey() {
+        return key;
+    }
+
+    @Override
+    protected InputStream openRange(long first, long last) {
+        GetObjectRequest getObjectRequest = new GetObjectRequest(bucketName, key);
+        getObjectRequest.setRange(first, last);
+        if (eTag != null) {
+            // 保证各分段来自同一版本
+            getObjectRequest.setMatchingETagConstraints(Collections.singletonList(eTag));
+        }
+        return oss.getObject(getObjectRequest).getObjectContent();
+    }
+}
@@ -9,15 +9,22 @@ import com.aliyun.oss.model.AppendObjectRequest;
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.SequenceInputStream;
 import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 
 /**
- * OSS写入流，通过appendObject实现
+ * OSS追加写入流，通过appendObject实现，每次write都是一次请求，仅用于追加写入
+ *
+ * @see AliyunOSSMultipartWritableChannel
  */
 public class AliyunOSSWritableChannel extends WritableChannel {
     private final OSS oss;
     private final String bucketName;
     private final String key;
+    private final byte[] single = new byte[1];
     private long position;
 
     public AliyunOSSWritableChannel(OSS oss, String bucketName, String key) {
@@ -48,8 +55,9 @@ public class AliyunOSSWritableChannel extends WritableChannel {
     }
 
     @Override
-    public void write(int b) throws IOException {
-        write(new byte[]{(byte) b});
+    public synchronized void write(int b) throws IOException {
+        single[0] = (byte) b;
+        write(single, 0, 1);
     }
 
     @Override
@@ -62,8 +70,40 @@ public class AliyunOSSWritableChannel extends WritableChannel {
         if (len == 0) {
             return;
         }
+        append(new ByteArrayInputStream(b, off, len));
+    }
+
+    @Override
+    public synchronized int write(ByteBuffer src) throws IOException {
+        int n = src.remaining();
+        if (n > 0) {
+            append(new ByteBufferReadableChannel(src));
+        }
+        return n;
+    }
+
+    /**
+     * 多个缓冲区合为一次追加请求
+     */
+    @Override
+    public synchronized long write(ByteBuffer[] srcs, int offset, int length) throws IOException {
+        List<InputStream> streams = new ArrayList<>(length);
+        long n = 0L;
+        for (int i = offset; i < offset + length; i++) {
+            if (srcs[i].hasRemaining()) {
+                n += srcs[i].remaining();
+                streams.add(new ByteBufferReadableChannel(srcs[i]));
+            }
+        }
+        if (n > 0) {
+            append(new SequenceInputStream(Collections.enumeration(streams)));
+        }
+        return n;
+    }
+
+    private void append(InputStream stream) {
         position = oss.appendObject(
-                new AppendObjectRequest(bucketName, key, new ByteArrayInputStream(b, off, len))
+                new AppendObjectRequest(bucketName, key, stream)
                         .withPosition(position)).getNextPosition();
     }
 
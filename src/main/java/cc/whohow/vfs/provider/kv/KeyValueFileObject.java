@@ -127,8 +127,7 @@ public class KeyValueFileObject<T> extends AbstractVfsComponent implements FileO
         return new ByteBufferWritableChannel() {
             @Override
             public void close() throws IOException {
-                byteBuffer.flip();
-                data.put(getKey(), type.deserialize(byteBuffer));
+                data.put(getKey(), type.deserialize(toByteBuffer()));
             }
         };
     }
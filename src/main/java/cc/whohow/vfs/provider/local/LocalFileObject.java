@@ -0,0 +1,298 @@
+package cc.whohow.vfs.provider.local;
+
+import cc.whohow.vfs.FileObjectX;
+import cc.whohow.vfs.io.ReadableChannel;
+import cc.whohow.vfs.io.WritableChannel;
+import cc.whohow.vfs.operations.Copy;
+import cc.whohow.vfs.operations.Remove;
+import cc.whohow.vfs.operations.ServerSideCopy;
+import cc.whohow.vfs.provider.uri.UriFileName;
+import cc.whohow.vfs.util.MapIterator;
+import org.apache.commons.vfs2.FileSystemException;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryNotEmptyException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.stream.Stream;
+
+/**
+ * 本地文件对象
+ */
+public class LocalFileObject implements FileObjectX, ServerSideCopy {
+    protected final LocalFileSystem fileSystem;
+    protected final UriFileName name;
+    protected final Path path;
+
+    public LocalFileObject(LocalFileSystem fileSystem, UriFileName name) {
+        this.fileSystem = fileSystem;
+        this.name = name;
+        this.path = Paths.get(name.toURI());
+    }
+
+    public Path getPath() {
+        return path;
+    }
+
+    @Override
+    public LocalFileSystem getFileSystem() {
+        return fileSystem;
+    }
+
+    @Override
+    public UriFileName getName() {
+        return name;
+    }
+
+    @Override
+    public boolean exists() throws FileSystemException {
+        return isFolder() ? Files.isDirectory(path) : Files.isRegularFile(path);
+    }
+
+    @Override
+    public void createFile() throws FileSystemException {
+        try {
+            Files.createDirectories(path.getParent());
+            if (!Files.exists(path)) {
+                Files.createFile(path);
+            }
+        } catch (IOException e) {
+            throw new FileSystemException(e);
+        }
+    }
+
+    @Override
+    public void createFolder() throws FileSystemException {
+        try {
+            Files.createDirectories(path);
+        } catch (IOException e) {
+            throw new FileSystemException(e);
+        }
+    }
+
+    /**
+     * 删除文件或空目录
+     */
+    @Override
+    public boolean delete() throws FileSystemException {
+        try {
+            return Files.deleteIfExists(path);
+        } catch (DirectoryNotEmptyException e) {
+            return false;
+        } catch (IOException e) {
+            throw new FileSystemException(e);
+        }
+    }
+
+    private LocalFileObject newFileObject(Path child) {
+        return new LocalFileObject(fileSystem, new UriFileName(
+                LocalFileSystemProvider.toURI(child, Files.isDirectory(child))));
+    }
+
+    @Override
+    public DirectoryStream<FileObjectX> list() throws FileSystemException {
+        if (!isFolder()) {
+            throw new FileSystemException("vfs.provider/list-children-not-folder.error", this);
+        }
+        try {
+            DirectoryStream<Path> list = Files.newDirectoryStream(path);
+            return new DirectoryStream<FileObjectX>() {
+                @Override
+                public Iterator<FileObjectX> iterator() {
+                    return new MapIterator<>(list.iterator(), LocalFileObject.this::newFileObject);
+                }
+
+                @Override
+                public void close() throws IOException {
+                    list.close();
+                }
+            };
+        } catch (IOException e) {
+            throw new FileSystemException(e);
+        }
+    }
+
+    /**
+     * 流式遍历目录树，只返回文件
+     */
+    @Override
+    public DirectoryStream<FileObjectX> listRecursively() throws FileSystemException {
+        if (!isFolder()) {
+            throw new FileSystemException("vfs.provider/list-children-not-folder.error", this);
+        }
+        try {
+            Stream<Path> walk = Files.walk(path).filter(Files::isRegularFile);
+            return new DirectoryStream<FileObjectX>() {
+                @Override
+                public Iterator<FileObjectX> iterator() {
+                    return new MapIterator<>(walk.iterator(), LocalFileObject.this::newFileObject);
+                }
+
+                @Override
+                public void close() {
+                    walk.close();
+                }
+            };
+        } catch (IOException e) {
+            throw new FileSystemException(e);
+        }
+    }
+
+    @Override
+    public Map<String, Object> getAttributes() throws FileSystemException {
+        try {
+            Map<String, Object> attributes = new LinkedHashMap<>();
+            for (Map.Entry<String, Object> e : Files.readAttributes(path, "*").entrySet()) {
+                Object value = e.getValue();
+                if (value instanceof FileTime) {
+                    value = new Date(((FileTime) value).toMillis());
+                }
+                attributes.put(e.getKey(), value);
+            }
+            return attributes;
+        } catch (IOException e) {
+            throw new FileSystemException("vfs.provider/get-attributes-no-exist.error", e, this);
+        }
+    }
+
+    @Override
+    public long getSize() throws FileSystemException {
+        try {
+            return Files.size(path);
+        } catch (IOException e) {
+            throw new FileSystemException("vfs.provider/get-size.error", e, this);
+        }
+    }
+
+    @Override
+    public long getLastModifiedTime() throws FileSystemException {
+        try {
+            return Files.getLastModifiedTime(path).toMillis();
+        } catch (IOException e) {
+            throw new FileSystemException("vfs.provider/get-last-modified.error", e, this);
+        }
+    }
+
+    @Override
+    public void setLastModifiedTime(long modTime) throws FileSystemException {
+        try {
+            Files.setLastModifiedTime(path, FileTime.fromMillis(modTime));
+        } catch (IOException e) {
+            throw new FileSystemException("vfs.provider/set-last-modified.error", e, this);
+        }
+    }
+
+    @Override
+    public ReadableChannel getReadableChannel() throws FileSystemException {
+        try {
+            return new LocalReadableChannel(FileChannel.open(path, StandardOpenOption.READ),
+                    fileSystem.getFileSystemProvider().isMapOnReadAll());
+        } catch (IOException e) {
+            throw new FileSystemException("vfs.provider/read.error", e, this);
+        }
+    }
+
+    @Override
+    public WritableChannel getWritableChannel() throws FileSystemException {
+        return newWritableChannel(StandardOpenOption.TRUNCATE_EXISTING);
+    }
+
+    @Override
+    public OutputStream getOutputStream(boolean bAppend) throws FileSystemException {
+        if (bAppend) {
+            return newWritableChannel(StandardOpenOption.APPEND);
+        }
+        return getWritableChannel();
+    }
+
+    private LocalWritableChannel newWritableChannel(StandardOpenOption option) throws FileSystemException {
+        try {
+            Files.createDirectories(path.getParent());
+            return new LocalWritableChannel(FileChannel.open(path,
+                    StandardOpenOption.CREATE, StandardOpenOption.WRITE, option));
+        } catch (IOException e) {
+            throw new FileSystemException("vfs.provider/write.error", e, this);
+        }
+    }
+
+    /**
+     * 本地文件之间零拷贝复制
+     */
+    @Override
+    public Copy.Result copyTo(FileObjectX destination) throws FileSystemException {
+        if (!isFile() || !(destination instanceof LocalFileObject)) {
+            return null;
+        }
+        try (LocalReadableChannel src = (LocalReadableChannel) getReadableChannel();
+             LocalWritableChannel dst = ((LocalFileObject) destination).newWritableChannel(StandardOpenOption.TRUNCATE_EXISTING)) {
+            return new Copy.Result(Copy.Method.ZERO_COPY, src.transferTo(dst.getChannel()));
+        } catch (IOException e) {
+            throw new FileSystemException(e);
+        }
+    }
+
+    @Override
+    public int deleteAll() throws FileSystemException {
+        if (isFile()) {
+            return delete() ? 1 : 0;
+        }
+        if (!Files.isDirectory(path)) {
+            return 0;
+        }
+        // 先删除子孙，再删除目录
+        int[] n = {0};
+        try {
+            Files.walkFileTree(path, new SimpleFileVisitor<Path>() {
+                @Override
+                public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+                    if (Files.deleteIfExists(file)) {
+                        n[0]++;
+                    }
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult postVisitDirectory(Path dir, IOException e) throws IOException {
+                    if (e != null) {
+                        throw e;
+                    }
+                    if (Files.deleteIfExists(dir)) {
+                        n[0]++;
+                    }
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+            return n[0];
+        } catch (IOException e) {
+            throw new FileSystemException(e);
+        }
+    }
+
+    /**
+     * 本地删除无需批量，按 deleteAll 计数
+     */
+    @Override
+    public Remove.Result removeAll() throws FileSystemException {
+        long start = System.currentTimeMillis();
+        int n = deleteAll();
+        return new Remove.Result(n, 0, System.currentTimeMillis() - start);
+    }
+
+    @Override
+    public String toString() {
+        return name.toString();
+    }
+}
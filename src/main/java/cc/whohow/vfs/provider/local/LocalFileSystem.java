@@ -0,0 +1,73 @@
+package cc.whohow.vfs.provider.local;
+
+import cc.whohow.vfs.FileObjectX;
+import cc.whohow.vfs.FileSystemX;
+import cc.whohow.vfs.VirtualFileSystem;
+import cc.whohow.vfs.provider.uri.UriFileName;
+import cc.whohow.vfs.watch.PollingFileWatchable;
+import org.apache.commons.vfs2.FileListener;
+import org.apache.commons.vfs2.FileName;
+import org.apache.commons.vfs2.FileObject;
+import org.apache.commons.vfs2.FileSystemException;
+import org.apache.commons.vfs2.provider.AbstractVfsComponent;
+
+import java.io.UncheckedIOException;
+
+/**
+ * 本地文件系统，文件监听使用操作系统 WatchService
+ */
+public class LocalFileSystem extends AbstractVfsComponent implements FileSystemX {
+    private final LocalFileSystemProvider fileSystemProvider;
+    private final UriFileName root = new UriFileName("file:///");
+
+    public LocalFileSystem(LocalFileSystemProvider fileSystemProvider) {
+        this.fileSystemProvider = fileSystemProvider;
+    }
+
+    @Override
+    public LocalFileSystemProvider getFileSystemProvider() {
+        return fileSystemProvider;
+    }
+
+    @Override
+    public LocalFileObject resolveFile(String name) throws FileSystemException {
+        return fileSystemProvider.getFileObject(root.toURI().resolve(name).toString());
+    }
+
+    @Override
+    public FileName getRootName() {
+        return root;
+    }
+
+    @Override
+    public VirtualFileSystem getFileSystemManager() {
+        return (VirtualFileSystem) getContext().getFileSystemManager();
+    }
+
+    @Override
+    public void addListener(FileObject file, FileListener listener) {
+        try {
+            fileSystemProvider.getWatchService().addListener(newWatchable(file), listener);
+        } catch (FileSystemException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public void removeListener(FileObject file, FileListener listener) {
+        try {
+            fileSystemProvider.getWatchService().removeListener(newWatchable(file), listener);
+        } catch (FileSystemException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private PollingFileWatchable<?> newWatchable(FileObject file) {
+        return new PollingFileWatchable<>((FileObjectX) file, fileSystemProvider.getFileVersionProvider());
+    }
+
+    @Override
+    public String toString() {
+        return root.toString();
+    }
+}
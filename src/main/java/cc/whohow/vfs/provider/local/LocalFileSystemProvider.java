@@ -0,0 +1,174 @@
+package cc.whohow.vfs.provider.local;
+
+import cc.whohow.vfs.FileOperationsX;
+import cc.whohow.vfs.FileSystemProviderX;
+import cc.whohow.vfs.VirtualFileSystem;
+import cc.whohow.vfs.configuration.Configurations;
+import cc.whohow.vfs.provider.uri.UriFileName;
+import cc.whohow.vfs.watch.EventDrivenFileWatchService;
+import org.apache.commons.vfs2.Capability;
+import org.apache.commons.vfs2.FileSystemException;
+import org.apache.commons.vfs2.provider.AbstractVfsComponent;
+
+import java.io.IOException;
+import java.net.URI;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+
+/**
+ * 本地文件，基于 java.nio.file
+ */
+public class LocalFileSystemProvider extends AbstractVfsComponent implements FileSystemProviderX {
+    private static final Set<Capability> CAPABILITIES = Collections.unmodifiableSet(EnumSet.of(
+            Capability.READ_CONTENT,
+            Capability.WRITE_CONTENT,
+            Capability.APPEND_CONTENT,
+            Capability.ATTRIBUTES,
+            Capability.LAST_MODIFIED,
+            Capability.GET_LAST_MODIFIED,
+            Capability.SET_LAST_MODIFIED_FILE,
+            Capability.CREATE,
+            Capability.DELETE,
+            Capability.RENAME,
+            Capability.GET_TYPE,
+            Capability.LIST_CHILDREN,
+            Capability.URI));
+    protected final LocalFileSystem fileSystem = new LocalFileSystem(this);
+    protected int reconcileInterval = 300000;
+    // readAll 大文件是否返回内存映射，默认读入堆内存快照；文件只会被原子替换时可开启
+    protected boolean mapOnReadAll = false;
+    protected ScheduledExecutorService executor;
+    protected volatile EventDrivenFileWatchService watchService;
+
+    /**
+     * 本地路径URI，目录以 "/" 结尾
+     */
+    public static String toURI(Path path, boolean folder) {
+        String uri = path.toUri().toString();
+        if (folder && !uri.endsWith("/")) {
+            return uri + "/";
+        }
+        return uri;
+    }
+
+    @Override
+    public String getScheme() {
+        return "file";
+    }
+
+    public boolean isMapOnReadAll() {
+        return mapOnReadAll;
+    }
+
+    public void setMapOnReadAll(boolean mapOnReadAll) {
+        this.mapOnReadAll = mapOnReadAll;
+    }
+
+    @Override
+    public LocalFileSystem getFileSystem(String uri) {
+        return fileSystem;
+    }
+
+    @Override
+    public LocalFileSystem findFileSystem(String uri) {
+        return fileSystem;
+    }
+
+    @Override
+    public UriFileName getFileName(String uri) throws FileSystemException {
+        try {
+            Path path = Paths.get(URI.create(uri)).toAbsolutePath().normalize();
+            return new UriFileName(toURI(path, uri.endsWith("/")));
+        } catch (IllegalArgumentException e) {
+            throw new FileSystemException("vfs.provider/invalid-absolute-uri.error", e, uri);
+        }
+    }
+
+    @Override
+    public LocalFileObject getFileObject(String uri) throws FileSystemException {
+        return new LocalFileObject(fileSystem, getFileName(uri));
+    }
+
+    @Override
+    public Collection<Capability> getCapabilities() {
+        return CAPABILITIES;
+    }
+
+    @Override
+    public FileOperationsX getFileOperations() throws FileSystemException {
+        return ((VirtualFileSystem) getContext().getFileSystemManager()).getFileOperations();
+    }
+
+    /**
+     * 操作系统文件监听，低频对账兜底
+     */
+    public EventDrivenFileWatchService getWatchService() throws FileSystemException {
+        EventDrivenFileWatchService ws = watchService;
+        if (ws == null) {
+            synchronized (this) {
+                ws = watchService;
+                if (ws == null) {
+                    try {
+                        if (executor == null) {
+                            executor = Executors.newSingleThreadScheduledExecutor(r -> {
+                                Thread thread = new Thread(r, "local-file-reconcile");
+                                thread.setDaemon(true);
+                                return thread;
+                            });
+                        }
+                        ws = new EventDrivenFileWatchService(executor, new LocalWatchEventSource(),
+                                Duration.ofMillis(reconcileInterval)).start();
+                    } catch (IOException e) {
+                        throw new FileSystemException(e);
+                    }
+                    watchService = ws;
+                }
+            }
+        }
+        return ws;
+    }
+
+    @Override
+    public void init() throws FileSystemException {
+        if (getContext() == null) {
+            return;
+        }
+        VirtualFileSystem vfs = (VirtualFileSystem) getContext().getFileSystemManager();
+        fileSystem.setContext(getContext());
+        fileSystem.init();
+        try {
+            reconcileInterval = Configurations.getInt(vfs, "conf:/providers/local/watch/reconcileInterval", reconcileInterval);
+            mapOnReadAll = Configurations.getBoolean(vfs, "conf:/providers/local/read/mapOnReadAll", mapOnReadAll);
+        } catch (IOException e) {
+            throw new FileSystemException(e);
+        }
+    }
+
+    @Override
+    public void close() {
+        try {
+            if (watchService != null) {
+                watchService.close();
+            }
+        } catch (IOException e) {
+            if (getLogger() != null) {
+                getLogger().debug("close local file watch service", e);
+            }
+        }
+        if (executor != null) {
+            executor.shutdown();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return fileSystem.toString();
+    }
+}
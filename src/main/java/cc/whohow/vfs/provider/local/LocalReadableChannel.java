@@ -0,0 +1,185 @@
+package cc.whohow.vfs.provider.local;
+
+import cc.whohow.vfs.io.ReadableChannel;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * 本地文件读取流，基于 FileChannel，transferTo 零拷贝，map 显式内存映射
+ */
+public class LocalReadableChannel extends ReadableChannel {
+    /**
+     * 允许 readAll 映射时，小于此大小仍读入堆内存，映射的建立和回收开销不划算
+     */
+    public static final int MAP_THRESHOLD = 1024 * 1024;
+    public static final int MAX_MAP_SIZE = Integer.MAX_VALUE;
+
+    private final FileChannel channel;
+    private final ByteBuffer single = ByteBuffer.allocate(1);
+    private final boolean mapOnReadAll;
+
+    public LocalReadableChannel(FileChannel channel) {
+        this(channel, false);
+    }
+
+    /**
+     * @param mapOnReadAll readAll 大文件是否返回内存映射，仅用于不会被原地修改的文件（如原子替换的缓存文件），
+     *                     否则映射内容会随文件修改、截断而变化
+     */
+    public LocalReadableChannel(FileChannel channel, boolean mapOnReadAll) {
+        this.channel = channel;
+        this.mapOnReadAll = mapOnReadAll;
+    }
+
+    public FileChannel getChannel() {
+        return channel;
+    }
+
+    @Override
+    public int read() throws IOException {
+        single.clear();
+        int n = channel.read(single);
+        if (n <= 0) {
+            return -1;
+        }
+        return single.get(0) & 0xff;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+        return channel.read(ByteBuffer.wrap(b, off, len));
+    }
+
+    @Override
+    public int read(ByteBuffer dst) throws IOException {
+        return channel.read(dst);
+    }
+
+    @Override
+    public long read(ByteBuffer[] dsts, int offset, int length) throws IOException {
+        return channel.read(dsts, offset, length);
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+        if (n <= 0) {
+            return 0;
+        }
+        long position = channel.position();
+        long skip = Long.min(n, Long.max(channel.size() - position, 0));
+        channel.position(position + skip);
+        return skip;
+    }
+
+    @Override
+    public int available() throws IOException {
+        return (int) Long.min(Long.max(channel.size() - channel.position(), 0), Integer.MAX_VALUE);
+    }
+
+    /**
+     * 读取全部：按剩余大小一次分配堆内存读取，返回快照；允许映射时大文件只读内存映射，由调用方持有
+     */
+    @Override
+    public ByteBuffer readAll() throws IOException {
+        long remaining = Long.max(channel.size() - channel.position(), 0);
+        if (mapOnReadAll && remaining >= MAP_THRESHOLD) {
+            return map();
+        }
+        return readHeap(remaining);
+    }
+
+    private ByteBuffer readHeap(long remaining) throws IOException {
+        if (remaining > Integer.MAX_VALUE - 8) {
+            throw new IOException("file too large to read as one buffer, use map(chunkSize): " + remaining);
+        }
+        ByteBuffer buffer = ByteBuffer.allocate((int) remaining);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer) < 0) {
+                break;
+            }
+        }
+        buffer.flip();
+        return buffer;
+    }
+
+    /**
+     * 从当前位置只读映射剩余内容，映射内容随文件修改而变化
+     */
+    public MappedByteBuffer map() throws IOException {
+        long position = channel.position();
+        long remaining = Long.max(channel.size() - position, 0);
+        if (remaining > MAX_MAP_SIZE) {
+            throw new IOException("file too large to map as one buffer, use map(chunkSize): " + remaining);
+        }
+        MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, position, remaining);
+        channel.position(position + remaining);
+        return buffer;
+    }
+
+    /**
+     * 从当前位置分块只读映射剩余内容，用于超过 2GB 的文件
+     */
+    public MappedByteBuffer[] map(int chunkSize) throws IOException {
+        if (chunkSize <= 0) {
+            throw new IllegalArgumentException("chunkSize: " + chunkSize);
+        }
+        long position = channel.position();
+        long size = channel.size();
+        long remaining = Long.max(size - position, 0);
+        MappedByteBuffer[] buffers = new MappedByteBuffer[(int) ((remaining + chunkSize - 1) / chunkSize)];
+        for (int i = 0; i < buffers.length; i++) {
+            long offset = position + (long) i * chunkSize;
+            buffers[i] = channel.map(FileChannel.MapMode.READ_ONLY, offset, Long.min(chunkSize, size - offset));
+        }
+        channel.position(position + remaining);
+        return buffers;
+    }
+
+    @Override
+    public long transferTo(OutputStream stream) throws IOException {
+        if (stream instanceof LocalWritableChannel) {
+            return transferTo(((LocalWritableChannel) stream).getChannel());
+        }
+        if (stream instanceof WritableByteChannel) {
+            return transferTo((WritableByteChannel) stream);
+        }
+        return transferTo(Channels.newChannel(stream));
+    }
+
+    /**
+     * 从当前位置传输到目标通道，目标为文件时由操作系统直接复制
+     */
+    public long transferTo(WritableByteChannel target) throws IOException {
+        long position = channel.position();
+        long size = channel.size();
+        long transferred = 0L;
+        while (position + transferred < size) {
+            long n = channel.transferTo(position + transferred, size - position - transferred, target);
+            if (n <= 0) {
+                break;
+            }
+            transferred += n;
+        }
+        channel.position(position + transferred);
+        return transferred;
+    }
+
+    @Override
+    public boolean isOpen() {
+        return channel.isOpen();
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
@@ -0,0 +1,291 @@
+package cc.whohow.vfs.provider.local;
+
+import cc.whohow.vfs.watch.FileDiffEntry;
+import cc.whohow.vfs.watch.FileEventKind;
+import cc.whohow.vfs.watch.FileEventSource;
+import cc.whohow.vfs.watch.FileWatchable;
+
+import java.io.IOException;
+import java.net.URI;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * 本地文件变化通知源，基于操作系统 WatchService
+ * <p>
+ * WatchService 只监听单层目录，监听目录时递归注册所有子目录，新建的子目录自动注册；监听文件时注册所在目录
+ * <p>
+ * 记录每个注册目录下已知的文件及子目录，子目录被删除时补发其下所有文件的删除通知
+ */
+public class LocalWatchEventSource implements FileEventSource, Runnable {
+    private final WatchService watchService;
+    // 监听根目录（文件）及引用计数
+    private final Map<Path, Integer> roots = new ConcurrentHashMap<>();
+    private final Map<WatchKey, Path> directories = new ConcurrentHashMap<>();
+    // 注册目录下已知的文件及子目录
+    private final Map<Path, Set<Path>> entries = new ConcurrentHashMap<>();
+    private volatile Consumer<? super FileDiffEntry<String>> consumer;
+    private volatile boolean closed;
+    private Thread thread;
+
+    public LocalWatchEventSource() throws IOException {
+        this(FileSystems.getDefault().newWatchService());
+    }
+
+    public LocalWatchEventSource(WatchService watchService) {
+        this.watchService = watchService;
+    }
+
+    @Override
+    public synchronized void start(Consumer<? super FileDiffEntry<String>> consumer) {
+        if (thread != null) {
+            throw new IllegalStateException();
+        }
+        this.consumer = consumer;
+        this.thread = new Thread(this, "local-file-watch");
+        this.thread.setDaemon(true);
+        this.thread.start();
+    }
+
+    @Override
+    public synchronized void register(FileWatchable watchable) throws IOException {
+        if (closed) {
+            return;
+        }
+        String uri = watchable.getFileObject().getName().getURI();
+        Path path = Paths.get(URI.create(uri));
+        boolean folder = uri.endsWith("/");
+        roots.merge(path, 1, Integer::sum);
+        if (folder) {
+            registerAll(path);
+        } else if (path.getParent() != null && Files.isDirectory(path.getParent())) {
+            register(path.getParent());
+        }
+    }
+
+    @Override
+    public synchronized void unregister(FileWatchable watchable) {
+        Path path = Paths.get(URI.create(watchable.getFileObject().getName().getURI()));
+        roots.computeIfPresent(path, (k, v) -> (v <= 1) ? null : v - 1);
+        Iterator<Map.Entry<WatchKey, Path>> iterator = directories.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<WatchKey, Path> e = iterator.next();
+            if (!isWatched(e.getValue())) {
+                e.getKey().cancel();
+                entries.remove(e.getValue());
+                iterator.remove();
+            }
+        }
+    }
+
+    /**
+     * 目录是否仍需监听：在某个监听目录下，或为某个监听文件的所在目录
+     */
+    private boolean isWatched(Path directory) {
+        for (Path root : roots.keySet()) {
+            if (directory.startsWith(root) || directory.equals(root.getParent())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 是否在监听目录下（需递归注册）
+     */
+    private boolean isRecursive(Path directory) {
+        for (Path root : roots.keySet()) {
+            if (directory.startsWith(root) && Files.isDirectory(root)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void register(Path directory) throws IOException {
+        if (directories.containsValue(directory)) {
+            return;
+        }
+        WatchKey key = directory.register(watchService,
+                StandardWatchEventKinds.ENTRY_CREATE,
+                StandardWatchEventKinds.ENTRY_DELETE,
+                StandardWatchEventKinds.ENTRY_MODIFY);
+        directories.put(key, directory);
+        entries.putIfAbsent(directory, ConcurrentHashMap.newKeySet());
+    }
+
+    /**
+     * 记录目录下的文件或子目录
+     */
+    private void addEntry(Path path) {
+        Set<Path> set = entries.get(path.getParent());
+        if (set != null) {
+            set.add(path);
+        }
+    }
+
+    private void registerAll(Path root) throws IOException {
+        if (!Files.isDirectory(root)) {
+            return;
+        }
+        Files.walkFileTree(root, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
+                register(dir);
+                addEntry(dir);
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                addEntry(file);
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+
+    /**
+     * 新建目录注册后，补发目录中已有文件的创建通知
+     */
+    private void created(Path directory) throws IOException {
+        synchronized (this) {
+            registerAll(directory);
+        }
+        try (Stream<Path> walk = Files.walk(directory)) {
+            walk.filter(Files::isRegularFile).forEach(p -> notify(FileEventKind.CREATE, p, false));
+        }
+    }
+
+    /**
+     * 删除通知：已知子目录被删除时，取消其下所有目录的监听，补发其下所有文件的删除通知
+     */
+    private void deleted(Path path) {
+        List<Path> files = new ArrayList<>();
+        synchronized (this) {
+            Set<Path> parent = entries.get(path.getParent());
+            if (parent != null) {
+                parent.remove(path);
+            }
+            if (entries.containsKey(path)) {
+                removeAll(path, files);
+            } else {
+                files.add(path);
+            }
+        }
+        for (Path file : files) {
+            notify(FileEventKind.DELETE, file, false);
+        }
+    }
+
+    private void removeAll(Path directory, List<Path> files) {
+        Set<Path> children = entries.remove(directory);
+        Iterator<Map.Entry<WatchKey, Path>> iterator = directories.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<WatchKey, Path> e = iterator.next();
+            if (e.getValue().equals(directory)) {
+                e.getKey().cancel();
+                iterator.remove();
+            }
+        }
+        if (children == null) {
+            return;
+        }
+        for (Path child : children) {
+            if (entries.containsKey(child)) {
+                removeAll(child, files);
+            } else {
+                files.add(child);
+            }
+        }
+    }
+
+    /**
+     * 监听失效（目录被删除或移走）：上级目录仍在监听时由其删除通知处理，否则直接补发删除通知
+     */
+    private void invalidated(WatchKey key) {
+        List<Path> files = new ArrayList<>();
+        synchronized (this) {
+            Path directory = directories.remove(key);
+            if (directory == null || entries.containsKey(directory.getParent())) {
+                return;
+            }
+            removeAll(directory, files);
+        }
+        for (Path file : files) {
+            notify(FileEventKind.DELETE, file, false);
+        }
+    }
+
+    private void notify(FileEventKind kind, Path path, boolean folder) {
+        try {
+            consumer.accept(FileDiffEntry.create(kind, LocalFileSystemProvider.toURI(path, folder)));
+        } catch (RuntimeException ignore) {
+        }
+    }
+
+    @Override
+    public void run() {
+        try {
+            while (!closed) {
+                WatchKey key = watchService.take();
+                Path directory = directories.get(key);
+                if (directory != null) {
+                    for (WatchEvent<?> event : key.pollEvents()) {
+                        if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                            // 事件丢失，由对账兜底
+                            continue;
+                        }
+                        Path path = directory.resolve((Path) event.context());
+                        boolean folder = Files.isDirectory(path);
+                        if (event.kind() == StandardWatchEventKinds.ENTRY_CREATE) {
+                            if (folder && isRecursive(path)) {
+                                try {
+                                    created(path);
+                                } catch (IOException ignore) {
+                                }
+                            } else if (!folder) {
+                                addEntry(path);
+                                notify(FileEventKind.CREATE, path, false);
+                            }
+                        } else if (event.kind() == StandardWatchEventKinds.ENTRY_DELETE) {
+                            deleted(path);
+                        } else if (!folder) {
+                            notify(FileEventKind.MODIFY, path, false);
+                        }
+                    }
+                }
+                if (!key.reset()) {
+                    invalidated(key);
+                }
+            }
+        } catch (InterruptedException | ClosedWatchServiceException ignore) {
+        }
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        closed = true;
+        roots.clear();
+        directories.clear();
+        entries.clear();
+        watchService.close();
+    }
+}
@@ -0,0 +1,79 @@
+package cc.whohow.vfs.provider.local;
+
+import cc.whohow.vfs.io.WritableChannel;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * 本地文件写入流，基于 FileChannel，来源为本地文件时零拷贝
+ */
+public class LocalWritableChannel extends WritableChannel {
+    private final FileChannel channel;
+    private final ByteBuffer single = ByteBuffer.allocate(1);
+
+    public LocalWritableChannel(FileChannel channel) {
+        this.channel = channel;
+    }
+
+    public FileChannel getChannel() {
+        return channel;
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        single.clear();
+        single.put((byte) b).flip();
+        write(single);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        write(ByteBuffer.wrap(b, off, len));
+    }
+
+    @Override
+    public int write(ByteBuffer src) throws IOException {
+        int n = src.remaining();
+        while (src.hasRemaining()) {
+            channel.write(src);
+        }
+        return n;
+    }
+
+    /**
+     * 聚集写入，由操作系统一次写出多个缓冲区
+     */
+    @Override
+    public long write(ByteBuffer[] srcs, int offset, int length) throws IOException {
+        long total = 0L;
+        for (int i = offset; i < offset + length; i++) {
+            total += srcs[i].remaining();
+        }
+        long n = 0L;
+        while (n < total) {
+            n += channel.write(srcs, offset, length);
+        }
+        return n;
+    }
+
+    @Override
+    public long transferFrom(InputStream stream) throws IOException {
+        if (stream instanceof LocalReadableChannel) {
+            return ((LocalReadableChannel) stream).transferTo(channel);
+        }
+        return super.transferFrom(stream);
+    }
+
+    @Override
+    public boolean isOpen() {
+        return channel.isOpen();
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
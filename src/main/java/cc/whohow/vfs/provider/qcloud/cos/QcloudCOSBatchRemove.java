@@ -0,0 +1,55 @@
+package cc.whohow.vfs.provider.qcloud.cos;
+
+import cc.whohow.vfs.operations.BatchRemove;
+import cc.whohow.vfs.util.ConcatIterator;
+import cc.whohow.vfs.util.MapIterator;
+import com.qcloud.cos.COS;
+import com.qcloud.cos.exception.MultiObjectDeleteException;
+import com.qcloud.cos.model.COSObjectSummary;
+import com.qcloud.cos.model.DeleteObjectsRequest;
+import com.qcloud.cos.model.ObjectListing;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+/**
+ * 腾讯云批量删除，每批最多1000个键，按响应中的删除错误重试
+ */
+public class QcloudCOSBatchRemove extends BatchRemove<String> {
+    public static final int MAX_BATCH_SIZE = 1000;
+
+    protected final COS cos;
+    protected final String bucketName;
+    protected final Iterator<ObjectListing> listings;
+
+    public QcloudCOSBatchRemove(COS cos, String bucketName, Iterator<ObjectListing> listings, int maxInFlightBatches, Executor executor) {
+        super(MAX_BATCH_SIZE, maxInFlightBatches, 3, executor);
+        this.cos = cos;
+        this.bucketName = bucketName;
+        this.listings = listings;
+    }
+
+    @Override
+    protected Iterator<String> list() {
+        return new ConcatIterator<>(new MapIterator<ObjectListing, Iterator<String>>(listings,
+                objectListing -> new MapIterator<>(objectListing.getObjectSummaries().iterator(), COSObjectSummary::getKey)));
+    }
+
+    @Override
+    protected int delete(List<String> batch, List<String> failed) {
+        List<DeleteObjectsRequest.KeyVersion> keys = new ArrayList<>(batch.size());
+        for (String key : batch) {
+            keys.add(new DeleteObjectsRequest.KeyVersion(key));
+        }
+        try {
+            return cos.deleteObjects(new DeleteObjectsRequest(bucketName).withKeys(keys)).getDeletedObjects().size();
+        } catch (MultiObjectDeleteException e) {
+            for (MultiObjectDeleteException.DeleteError error : e.getErrors()) {
+                failed.add(error.getKey());
+            }
+            return e.getDeletedObjects().size();
+        }
+    }
+}
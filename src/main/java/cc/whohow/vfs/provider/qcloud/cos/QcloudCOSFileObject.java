@@ -2,14 +2,16 @@ package cc.whohow.vfs.provider.qcloud.cos;
 
 import cc.whohow.vfs.FileObjectX;
 import cc.whohow.vfs.io.ReadableChannel;
-import cc.whohow.vfs.io.ReadableChannelAdapter;
 import cc.whohow.vfs.io.WritableChannel;
+import cc.whohow.vfs.io.WritableChannelWrapper;
+import cc.whohow.vfs.operations.Copy;
+import cc.whohow.vfs.operations.Remove;
+import cc.whohow.vfs.operations.ServerSideCopy;
+import cc.whohow.vfs.provider.s3.ListingCursor;
 import cc.whohow.vfs.provider.s3.S3FileAttributes;
 import cc.whohow.vfs.provider.s3.S3FileName;
 import com.qcloud.cos.COS;
-import com.qcloud.cos.model.COSObjectSummary;
-import com.qcloud.cos.model.DeleteObjectsRequest;
-import com.qcloud.cos.model.ObjectListing;
+import com.qcloud.cos.exception.CosServiceException;
 import com.qcloud.cos.model.ObjectMetadata;
 import org.apache.commons.vfs2.FileContentInfo;
 import org.apache.commons.vfs2.FileSystemException;
@@ -18,11 +20,9 @@ import org.apache.commons.vfs2.impl.DefaultFileContentInfo;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.nio.file.DirectoryStream;
-import java.util.List;
 import java.util.Map;
-import java.util.stream.Collectors;
 
-public class QcloudCOSFileObject implements FileObjectX {
+public class QcloudCOSFileObject implements FileObjectX, ServerSideCopy, ListingCursor.Source {
     protected final QcloudCOSFileSystem fileSystem;
     protected final S3FileName name;
 
@@ -57,6 +57,7 @@ public class QcloudCOSFileObject implements FileObjectX {
     public boolean delete() throws FileSystemException {
         if (isFile()) {
             getCOS().deleteObject(getBucketName(), getKey());
+            invalidate();
             return true;
         } else {
             return false;
@@ -66,7 +67,10 @@ public class QcloudCOSFileObject implements FileObjectX {
     @Override
     public boolean exists() throws FileSystemException {
         if (isFile()) {
-            return getCOS().doesObjectExist(getBucketName(), getKey());
+            if (fileSystem == null) {
+                return getCOS().doesObjectExist(getBucketName(), getKey());
+            }
+            return fileSystem.getAttributeCache().getSummary(getKey(), this::loadObjectMetadata) != null;
         } else {
             return true;
         }
@@ -89,7 +93,18 @@ public class QcloudCOSFileObject implements FileObjectX {
 
     @Override
     public DirectoryStream<FileObjectX> listRecursively() throws FileSystemException {
-        return new QcloudCOSFileObjectList(this, true);
+        return getFileSystem().getFileSystemProvider().newRecursiveFileObjectList(this);
+    }
+
+    /**
+     * 递归列举游标，只在需要时创建文件对象
+     */
+    @Override
+    public ListingCursor newListingCursor() throws FileSystemException {
+        if (!isFolder()) {
+            throw new FileSystemException("vfs.provider/list-children-not-folder.error", this);
+        }
+        return getFileSystem().getFileSystemProvider().newListingCursor(this);
     }
 
     @Override
@@ -107,16 +122,65 @@ public class QcloudCOSFileObject implements FileObjectX {
 
     @Override
     public ReadableChannel getReadableChannel() throws FileSystemException {
-        return new ReadableChannelAdapter(getInputStream());
+        return getFileSystem().getFileSystemProvider().newReadableChannel(getCOS(), getBucketName(), getKey());
     }
 
     @Override
     public WritableChannel getWritableChannel() throws FileSystemException {
-        return new QcloudCOSWritableChannel(getCOS(), getBucketName(), getKey());
+        invalidate();
+        return new WritableChannelWrapper(
+                fileSystem.getFileSystemProvider().newWritableChannel(getCOS(), getBucketName(), getKey()),
+                this::invalidate);
+    }
+
+    /**
+     * 文件属性，优先从缓存获取
+     */
+    protected ObjectMetadata getObjectMetadata() throws FileSystemException {
+        ObjectMetadata objectMetadata = (fileSystem == null) ?
+                loadObjectMetadata(getKey()) :
+                fileSystem.getAttributeCache().get(getKey(), this::loadObjectMetadata);
+        if (objectMetadata == null) {
+            throw new FileSystemException("vfs.provider/get-attributes-no-exist.error", this);
+        }
+        return objectMetadata;
+    }
+
+    /**
+     * 文件属性摘要（大小、修改时间、ETag），可使用列举结果
+     */
+    protected ObjectMetadata getObjectSummary() throws FileSystemException {
+        if (fileSystem == null) {
+            return getObjectMetadata();
+        }
+        ObjectMetadata objectMetadata = fileSystem.getAttributeCache().getSummary(getKey(), this::loadObjectMetadata);
+        if (objectMetadata == null) {
+            throw new FileSystemException("vfs.provider/get-attributes-no-exist.error", this);
+        }
+        return objectMetadata;
+    }
+
+    /**
+     * 读取文件属性，不存在返回null
+     */
+    protected ObjectMetadata loadObjectMetadata(String key) {
+        try {
+            return getCOS().getObjectMetadata(getBucketName(), key);
+        } catch (CosServiceException e) {
+            if (e.getStatusCode() == 404) {
+                return null;
+            }
+            throw e;
+        }
     }
 
-    protected ObjectMetadata getObjectMetadata() {
-        return getCOS().getObjectMetadata(getBucketName(), getKey());
+    /**
+     * 文件被修改、删除，使属性缓存失效
+     */
+    protected void invalidate() {
+        if (fileSystem != null) {
+            fileSystem.invalidate(this);
+        }
     }
 
     @Override
@@ -127,12 +191,12 @@ public class QcloudCOSFileObject implements FileObjectX {
 
     @Override
     public long getSize() throws FileSystemException {
-        return getObjectMetadata().getContentLength();
+        return getObjectSummary().getContentLength();
     }
 
     @Override
     public long getLastModifiedTime() throws FileSystemException {
-        return getObjectMetadata().getLastModified().getTime();
+        return getObjectSummary().getLastModified().getTime();
     }
 
     @Override
@@ -158,32 +222,50 @@ public class QcloudCOSFileObject implements FileObjectX {
         return new QcloudCOSFileObject(fileSystem, new S3FileName(getName(), getKey() + name));
     }
 
+    /**
+     * 服务端复制，同一账号、同一地域的COS文件之间直接复制
+     */
+    @Override
+    public Copy.Result copyTo(FileObjectX destination) throws FileSystemException {
+        if (fileSystem == null || !isFile() || !(destination instanceof QcloudCOSFileObject)) {
+            return null;
+        }
+        QcloudCOSFileObject target = (QcloudCOSFileObject) destination;
+        if (target.fileSystem == null ||
+                target.fileSystem.getFileSystemProvider() != fileSystem.getFileSystemProvider() ||
+                !fileSystem.getFileSystemProvider().isServerSideCopyable(getName(), target.getName())) {
+            return null;
+        }
+        try {
+            return fileSystem.getFileSystemProvider()
+                    .newCopy(target.getCOS(), getBucketName(), getKey(), target.getBucketName(), target.getKey())
+                    .get();
+        } finally {
+            target.invalidate();
+        }
+    }
+
     @Override
     public String toString() {
         return name.toString();
     }
 
+    /**
+     * 批量删除，多个批次同时删除
+     */
     @Override
-    public int deleteAll() throws FileSystemException {
+    public Remove.Result removeAll() throws FileSystemException {
         if (isFile()) {
+            long start = System.currentTimeMillis();
             getCOS().deleteObject(getBucketName(), getKey());
-            return 1;
-        } else {
-            int n = 0;
-            QcloudCOSObjectListingIterator iterator = new QcloudCOSObjectListingIterator(getCOS(), getBucketName(), getKey());
-            while (iterator.hasNext()) {
-                ObjectListing objectListing = iterator.next();
-                if (!objectListing.getObjectSummaries().isEmpty()) {
-                    List<DeleteObjectsRequest.KeyVersion> keys = objectListing.getObjectSummaries().stream()
-                            .map(COSObjectSummary::getKey)
-                            .map(DeleteObjectsRequest.KeyVersion::new)
-                            .collect(Collectors.toList());
-                    getCOS().deleteObjects(new DeleteObjectsRequest(getBucketName()).withKeys(keys));
-                }
-                n += objectListing.getCommonPrefixes().size();
-                n += objectListing.getObjectSummaries().size();
-            }
-            return n;
+            invalidate();
+            return new Remove.Result(1, 0, System.currentTimeMillis() - start);
+        }
+        invalidate();
+        try {
+            return getFileSystem().getFileSystemProvider().newBatchRemove(getCOS(), getBucketName(), getKey()).get();
+        } finally {
+            invalidate();
         }
     }
 }
@@ -21,9 +21,8 @@ public class QcloudCOSFileObjectIterator implements Iterator<FileObjectX> {
 
     public QcloudCOSFileObjectIterator(QcloudCOSFileObject base, boolean recursively) {
         this.base = base;
-        this.objectListingIterator = recursively ?
-                new QcloudCOSObjectListingIterator(base.getCOS(), base.getBucketName(), base.getKey()) :
-                new QcloudCOSObjectListingIterator(base.getCOS(), base.getBucketName(), base.getKey(), "/");
+        this.objectListingIterator = base.getFileSystem().getFileSystemProvider().newObjectListingIterator(
+                base.getCOS(), base.getBucketName(), base.getKey(), recursively ? null : "/");
         this.files = Collections.emptyIterator();
     }
 
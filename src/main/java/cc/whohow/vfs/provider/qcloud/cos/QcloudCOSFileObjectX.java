@@ -1,5 +1,10 @@
 package cc.whohow.vfs.provider.qcloud.cos;
 
+import cc.whohow.vfs.FileObjectX;
+import cc.whohow.vfs.io.ReadableChannel;
+import cc.whohow.vfs.io.ReadableChannelAdapter;
+import cc.whohow.vfs.io.WritableChannel;
+import cc.whohow.vfs.operations.Copy;
 import cc.whohow.vfs.provider.s3.S3FileName;
 import com.qcloud.cos.COS;
 import com.qcloud.cos.COSClient;
@@ -8,6 +13,8 @@ import com.qcloud.cos.auth.BasicCOSCredentials;
 import com.qcloud.cos.region.Region;
 import org.apache.commons.vfs2.FileSystemException;
 
+import java.util.Objects;
+
 public class QcloudCOSFileObjectX extends QcloudCOSFileObject {
     protected final COSClient cos;
 
@@ -25,6 +32,29 @@ public class QcloudCOSFileObjectX extends QcloudCOSFileObject {
         return cos;
     }
 
+    @Override
+    public ReadableChannel getReadableChannel() throws FileSystemException {
+        return new ReadableChannelAdapter(getInputStream());
+    }
+
+    @Override
+    public WritableChannel getWritableChannel() throws FileSystemException {
+        return new QcloudCOSWritableChannel(getCOS(), getBucketName(), getKey());
+    }
+
+    @Override
+    public Copy.Result copyTo(FileObjectX destination) throws FileSystemException {
+        if (!isFile() || !(destination instanceof QcloudCOSFileObjectX)) {
+            return null;
+        }
+        QcloudCOSFileObjectX target = (QcloudCOSFileObjectX) destination;
+        if (!Objects.equals(getName().getAccessKeyId(), target.getName().getAccessKeyId()) ||
+                !Objects.equals(getName().getEndpoint(), target.getName().getEndpoint())) {
+            return null;
+        }
+        return new QcloudCOSMultipartCopy(target.getCOS(), getBucketName(), getKey(), target.getBucketName(), target.getKey()).get();
+    }
+
     @Override
     public void close() throws FileSystemException {
         try {
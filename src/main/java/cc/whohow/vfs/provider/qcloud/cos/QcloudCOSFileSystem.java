@@ -1,11 +1,12 @@
 package cc.whohow.vfs.provider.qcloud.cos;
 
 import cc.whohow.vfs.FileObjectX;
-import cc.whohow.vfs.FileSystemProviderX;
 import cc.whohow.vfs.FileSystemX;
 import cc.whohow.vfs.VirtualFileSystem;
+import cc.whohow.vfs.cache.FileAttributeCache;
 import cc.whohow.vfs.provider.s3.S3FileName;
 import com.qcloud.cos.COS;
+import com.qcloud.cos.model.ObjectMetadata;
 import org.apache.commons.vfs2.FileName;
 import org.apache.commons.vfs2.FileSystemException;
 import org.apache.commons.vfs2.provider.AbstractVfsComponent;
@@ -14,6 +15,7 @@ public class QcloudCOSFileSystem extends AbstractVfsComponent implements FileSys
     protected final QcloudCOSFileSystemProvider fileSystemProvider;
     protected final S3FileName root;
     protected final COS cos;
+    protected volatile FileAttributeCache<ObjectMetadata> attributeCache = FileAttributeCache.disabled();
 
     public QcloudCOSFileSystem(QcloudCOSFileSystemProvider fileSystemProvider, String bucketName, COS cos) {
         this.fileSystemProvider = fileSystemProvider;
@@ -26,7 +28,7 @@ public class QcloudCOSFileSystem extends AbstractVfsComponent implements FileSys
     }
 
     @Override
-    public FileSystemProviderX getFileSystemProvider() {
+    public QcloudCOSFileSystemProvider getFileSystemProvider() {
         return fileSystemProvider;
     }
 
@@ -35,6 +37,29 @@ public class QcloudCOSFileSystem extends AbstractVfsComponent implements FileSys
         return new QcloudCOSFileObject(this, new S3FileName(root.toURI().resolve(name).toString()));
     }
 
+    /**
+     * 文件属性缓存
+     */
+    public FileAttributeCache<ObjectMetadata> getAttributeCache() {
+        return attributeCache;
+    }
+
+    public void setAttributeCache(FileAttributeCache<ObjectMetadata> attributeCache) {
+        this.attributeCache = attributeCache;
+    }
+
+    @Override
+    public void invalidate(FileObjectX fileObject) {
+        if (fileObject instanceof QcloudCOSFileObject) {
+            String key = ((QcloudCOSFileObject) fileObject).getKey();
+            if (key.isEmpty() || key.endsWith("/")) {
+                attributeCache.invalidatePrefix(key);
+            } else {
+                attributeCache.invalidate(key);
+            }
+        }
+    }
+
     @Override
     public FileName getRootName() {
         return root;
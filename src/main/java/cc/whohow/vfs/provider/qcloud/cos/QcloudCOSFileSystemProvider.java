@@ -1,17 +1,27 @@
 package cc.whohow.vfs.provider.qcloud.cos;
 
 import cc.whohow.vfs.*;
+import cc.whohow.vfs.cache.FileAttributeCache;
+import cc.whohow.vfs.configuration.Configurations;
+import cc.whohow.vfs.io.ParallelRangeReadableChannel;
+import cc.whohow.vfs.io.ReadableChannel;
+import cc.whohow.vfs.io.ReadableChannelAdapter;
 import cc.whohow.vfs.log.LogProxy;
 import cc.whohow.vfs.provider.s3.S3FileName;
 import cc.whohow.vfs.provider.s3.S3Uri;
 import cc.whohow.vfs.serialize.YamlSerializer;
+import cc.whohow.vfs.util.ThreadPools;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.qcloud.cos.COS;
 import com.qcloud.cos.COSClient;
 import com.qcloud.cos.ClientConfig;
 import com.qcloud.cos.auth.BasicCOSCredentials;
 import com.qcloud.cos.auth.COSCredentials;
+import com.qcloud.cos.exception.CosServiceException;
 import com.qcloud.cos.model.Bucket;
+import com.qcloud.cos.model.COSObject;
+import com.qcloud.cos.model.GetObjectRequest;
+import com.qcloud.cos.model.ListObjectsRequest;
 import com.qcloud.cos.region.Region;
 import com.qcloud.cos.utils.StringUtils;
 import org.apache.commons.vfs2.Capability;
@@ -23,6 +33,7 @@ import java.io.IOException;
 import java.nio.file.DirectoryStream;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
 import java.util.stream.Collectors;
 
 public class QcloudCOSFileSystemProvider extends AbstractVfsComponent implements FileSystemProviderX {
@@ -42,6 +53,24 @@ public class QcloudCOSFileSystemProvider extends AbstractVfsComponent implements
     protected Map<String, S3Uri> buckets = new TreeMap<>();
     protected Map<S3Uri, COSClient> clients = new ConcurrentHashMap<>();
     protected Map<String, QcloudCOSFileSystem> fileSystems = new ConcurrentHashMap<>();
+    protected int partSize = QcloudCOSWritableChannel.DEFAULT_PART_SIZE;
+    protected int maxInFlightParts = 4;
+    protected int rangeSize = 4 * 1024 * 1024;
+    protected int maxInFlightRanges = 4;
+    protected long copyPartSize = QcloudCOSMultipartCopy.DEFAULT_PART_SIZE;
+    protected int listPageSize = QcloudCOSObjectListingIterator.MAX_PAGE_SIZE;
+    protected int listPrefetch = 1;
+    // 默认串行列举；并行列举需配置 list/concurrency 开启，且必须 close() 列举流以释放工作线程
+    protected int listConcurrency = 1;
+    protected int deleteConcurrency = 4;
+    protected int attributeCacheSize = 10000;
+    // 默认不缓存，配置 cache/ttl 开启；不存在的文件默认不缓存
+    protected int attributeCacheTtl = 0;
+    protected int attributeCacheNegativeTtl = 0;
+    protected int executorThreads = 32;
+    protected int listExecutorThreads = 16;
+    protected ExecutorService executor;
+    protected ExecutorService listExecutor;
 
     @Override
     public String getScheme() {
@@ -88,6 +117,7 @@ public class QcloudCOSFileSystemProvider extends AbstractVfsComponent implements
                 fileSystem = fileSystems.get(uri.getBucketName());
                 if (fileSystem == null) {
                     fileSystem = newFileSystem(uri);
+                    fileSystem.setAttributeCache(newAttributeCache());
                     fileSystem.setContext(getContext());
                     fileSystem.init();
                 }
@@ -118,6 +148,114 @@ public class QcloudCOSFileSystemProvider extends AbstractVfsComponent implements
         return new QcloudCOSFileObject(getFileSystem(fileName), fileName);
     }
 
+    /**
+     * 文件属性缓存，每个Bucket一个，ttl、negativeTtl 均为 0 时不缓存
+     */
+    protected <V> FileAttributeCache<V> newAttributeCache() {
+        return new FileAttributeCache<>(attributeCacheSize, attributeCacheTtl, attributeCacheNegativeTtl);
+    }
+
+    /**
+     * 分片并行上传写入流
+     */
+    public QcloudCOSWritableChannel newWritableChannel(COS cos, String bucketName, String key) {
+        if (maxInFlightParts <= 1) {
+            return new QcloudCOSWritableChannel(cos, bucketName, key, partSize);
+        }
+        return new QcloudCOSWritableChannel(cos, bucketName, key, partSize, maxInFlightParts, executor);
+    }
+
+    /**
+     * Range并行下载读取流，首段请求同时获取文件大小，小文件直接单连接读取
+     */
+    public ReadableChannel newReadableChannel(COS cos, String bucketName, String key) {
+        if (maxInFlightRanges <= 1) {
+            COSObject object = cos.getObject(bucketName, key);
+            return new ReadableChannelAdapter(object.getObjectContent(), object.getObjectMetadata().getContentLength());
+        }
+        GetObjectRequest getObjectRequest = new GetObjectRequest(bucketName, key);
+        getObjectRequest.setRange(0, rangeSize - 1);
+        COSObject object;
+        try {
+            object = cos.getObject(getObjectRequest);
+        } catch (CosServiceException e) {
+            if (e.getStatusCode() == 416) {
+                // 空文件
+                return new ReadableChannelAdapter(cos.getObject(bucketName, key).getObjectContent());
+            }
+            throw e;
+        }
+        long size = ParallelRangeReadableChannel.getInstanceLength(object.getObjectMetadata().getRawMetadata());
+        if (size <= rangeSize) {
+            return new ReadableChannelAdapter(object.getObjectContent(), size);
+        }
+        return new QcloudCOSReadableChannel(cos, bucketName, key, object.getObjectMetadata().getETag(),
+                object.getObjectContent(), rangeSize, size, rangeSize, maxInFlightRanges, executor);
+    }
+
+    /**
+     * 分页遍历，后台预取后续页
+     */
+    public QcloudCOSObjectListingIterator newObjectListingIterator(COS cos, String bucketName, String prefix, String delimiter) {
+        ListObjectsRequest listObjectsRequest = new ListObjectsRequest(bucketName, prefix, null, delimiter, listPageSize);
+        if (listPrefetch <= 0 || executor == null) {
+            return new QcloudCOSObjectListingIterator(cos, listObjectsRequest);
+        }
+        return new QcloudCOSObjectListingIterator(cos, listObjectsRequest, executor, listPrefetch);
+    }
+
+    /**
+     * 递归列举游标，后台预取后续页
+     */
+    public QcloudCOSListingCursor newListingCursor(QcloudCOSFileObject base) {
+        return new QcloudCOSListingCursor(base, newObjectListingIterator(base.getCOS(), base.getBucketName(), base.getKey(), null));
+    }
+
+    /**
+     * 批量删除前缀下所有对象，边列举边删除，多个批次同时删除
+     */
+    public QcloudCOSBatchRemove newBatchRemove(COS cos, String bucketName, String prefix) {
+        return new QcloudCOSBatchRemove(cos, bucketName, newObjectListingIterator(cos, bucketName, prefix, null), deleteConcurrency, executor);
+    }
+
+    /**
+     * 递归列举，按键序输出；配置 list/concurrency 大于 1 时，超过一页按子目录分区并行列举
+     */
+    public DirectoryStream<FileObjectX> newRecursiveFileObjectList(QcloudCOSFileObject base) {
+        if (listConcurrency <= 1 || listExecutor == null) {
+            return new QcloudCOSFileObjectList(base, true);
+        }
+        return new QcloudCOSParallelFileObjectList(base, listExecutor, listConcurrency, true);
+    }
+
+    /**
+     * 服务端复制，超过单次复制上限分片并行复制
+     */
+    public QcloudCOSMultipartCopy newCopy(COS cos, String sourceBucketName, String sourceKey, String bucketName, String key) {
+        return new QcloudCOSMultipartCopy(cos, sourceBucketName, sourceKey, bucketName, key,
+                QcloudCOSMultipartCopy.MAX_COPY_SIZE, copyPartSize, maxInFlightParts, executor);
+    }
+
+    /**
+     * 是否可以服务端复制：同一账号、同一地域
+     */
+    public boolean isServerSideCopyable(S3Uri source, S3Uri destination) {
+        S3Uri s = getBucketUri(source);
+        S3Uri d = getBucketUri(destination);
+        return s != null && d != null &&
+                Objects.equals(s.getAccessKeyId(), d.getAccessKeyId()) &&
+                Objects.equals(s.getEndpoint(), d.getEndpoint());
+    }
+
+    protected S3Uri getBucketUri(S3Uri uri) {
+        if (StringUtils.isNullOrEmpty(uri.getAccessKeyId()) ||
+                StringUtils.isNullOrEmpty(uri.getSecretAccessKey()) ||
+                StringUtils.isNullOrEmpty(uri.getEndpoint())) {
+            return buckets.get(uri.getBucketName());
+        }
+        return uri;
+    }
+
     @Override
     public FileOperationsX getFileOperations() throws FileSystemException {
         return null;
@@ -144,6 +282,30 @@ public class QcloudCOSFileSystemProvider extends AbstractVfsComponent implements
             throw new FileSystemException(e);
         }
 
+        // upload, download, copy, list, cache
+        try {
+            partSize = Configurations.getInt(vfs, "conf:/providers/qcloud-cos/upload/partSize", partSize);
+            maxInFlightParts = Configurations.getInt(vfs, "conf:/providers/qcloud-cos/upload/maxInFlightParts", maxInFlightParts);
+            rangeSize = Configurations.getInt(vfs, "conf:/providers/qcloud-cos/download/rangeSize", rangeSize);
+            maxInFlightRanges = Configurations.getInt(vfs, "conf:/providers/qcloud-cos/download/maxInFlightRanges", maxInFlightRanges);
+            copyPartSize = Configurations.getLong(vfs, "conf:/providers/qcloud-cos/copy/partSize", copyPartSize);
+            listPageSize = Integer.min(Configurations.getInt(vfs, "conf:/providers/qcloud-cos/list/pageSize", listPageSize), QcloudCOSObjectListingIterator.MAX_PAGE_SIZE);
+            listPrefetch = Configurations.getInt(vfs, "conf:/providers/qcloud-cos/list/prefetch", listPrefetch);
+            listConcurrency = Configurations.getInt(vfs, "conf:/providers/qcloud-cos/list/concurrency", listConcurrency);
+            deleteConcurrency = Configurations.getInt(vfs, "conf:/providers/qcloud-cos/delete/concurrency", deleteConcurrency);
+            attributeCacheSize = Configurations.getInt(vfs, "conf:/providers/qcloud-cos/cache/maxSize", attributeCacheSize);
+            attributeCacheTtl = Configurations.getInt(vfs, "conf:/providers/qcloud-cos/cache/ttl", attributeCacheTtl);
+            attributeCacheNegativeTtl = Configurations.getInt(vfs, "conf:/providers/qcloud-cos/cache/negativeTtl", attributeCacheNegativeTtl);
+            executorThreads = Configurations.getInt(vfs, "conf:/providers/qcloud-cos/executor/threads", executorThreads);
+            listExecutorThreads = Configurations.getInt(vfs, "conf:/providers/qcloud-cos/executor/listThreads", listExecutorThreads);
+        } catch (IOException e) {
+            throw new FileSystemException(e);
+        }
+        // 分片上传、Range下载、预取、批量删除、分片复制：任务只做一次请求，不等待同池其他任务
+        executor = ThreadPools.newBoundedThreadPool("qcloud-cos", executorThreads);
+        // 并行列举：工作线程等待消费者取数据，与请求任务分池，消费慢时不占用请求线程
+        listExecutor = ThreadPools.newBoundedThreadPool("qcloud-cos-list", listExecutorThreads);
+
         // buckets
         for (COSCredentials credential : credentials) {
             COSClient cos = new COSClient(credential, new ClientConfig());
@@ -161,6 +323,12 @@ public class QcloudCOSFileSystemProvider extends AbstractVfsComponent implements
 
     @Override
     public void close() {
+        if (executor != null) {
+            executor.shutdown();
+        }
+        if (listExecutor != null) {
+            listExecutor.shutdown();
+        }
         for (COSClient cos : clients.values()) {
             try {
                 cos.shutdown();
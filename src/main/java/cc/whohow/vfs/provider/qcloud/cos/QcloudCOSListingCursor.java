@@ -0,0 +1,79 @@
+package cc.whohow.vfs.provider.qcloud.cos;
+
+import cc.whohow.vfs.FileObjectX;
+import cc.whohow.vfs.provider.s3.ListingCursor;
+import cc.whohow.vfs.provider.s3.S3FileName;
+import com.qcloud.cos.model.COSObjectSummary;
+import com.qcloud.cos.model.ObjectListing;
+
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * 腾讯云列举游标，直接遍历列举页中的对象摘要
+ */
+public class QcloudCOSListingCursor implements ListingCursor {
+    protected final QcloudCOSFileObject base;
+    protected final String prefix;
+    protected final Iterator<ObjectListing> listings;
+    private List<COSObjectSummary> page = Collections.emptyList();
+    private int index = -1;
+    private COSObjectSummary current;
+
+    public QcloudCOSListingCursor(QcloudCOSFileObject base, Iterator<ObjectListing> listings) {
+        this.base = base;
+        this.prefix = base.getKey();
+        this.listings = listings;
+    }
+
+    @Override
+    public boolean advance() {
+        while (true) {
+            while (++index < page.size()) {
+                COSObjectSummary objectSummary = page.get(index);
+                // 跳过目录（含前缀自身）
+                if (!objectSummary.getKey().endsWith("/")) {
+                    current = objectSummary;
+                    return true;
+                }
+            }
+            if (!listings.hasNext()) {
+                current = null;
+                return false;
+            }
+            page = listings.next().getObjectSummaries();
+            index = -1;
+        }
+    }
+
+    @Override
+    public String prefix() {
+        return prefix;
+    }
+
+    @Override
+    public String key() {
+        return current.getKey();
+    }
+
+    @Override
+    public long size() {
+        return current.getSize();
+    }
+
+    @Override
+    public String etag() {
+        return current.getETag();
+    }
+
+    @Override
+    public long lastModified() {
+        return current.getLastModified().getTime();
+    }
+
+    @Override
+    public FileObjectX toFileObject() {
+        return new QcloudCOSListingFileObject(base.getFileSystem(), new S3FileName(base.getName(), current.getKey()), current);
+    }
+}
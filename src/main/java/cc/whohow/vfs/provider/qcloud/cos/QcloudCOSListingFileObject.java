@@ -3,6 +3,7 @@ package cc.whohow.vfs.provider.qcloud.cos;
 import cc.whohow.vfs.provider.s3.S3FileName;
 import com.qcloud.cos.Headers;
 import com.qcloud.cos.model.COSObjectSummary;
+import com.qcloud.cos.model.ObjectMetadata;
 import org.apache.commons.vfs2.FileSystemException;
 
 public class QcloudCOSListingFileObject extends QcloudCOSFileObject {
@@ -11,6 +12,14 @@ public class QcloudCOSListingFileObject extends QcloudCOSFileObject {
     public QcloudCOSListingFileObject(QcloudCOSFileSystem fileSystem, S3FileName name, COSObjectSummary objectSummary) {
         super(fileSystem, name);
         this.objectSummary = objectSummary;
+        // 列举结果预填充属性缓存
+        if (fileSystem != null && fileSystem.getAttributeCache().isEnabled()) {
+            ObjectMetadata objectMetadata = new ObjectMetadata();
+            objectMetadata.setContentLength(objectSummary.getSize());
+            objectMetadata.setLastModified(objectSummary.getLastModified());
+            objectMetadata.setHeader(Headers.ETAG, objectSummary.getETag());
+            fileSystem.getAttributeCache().putSummary(getKey(), objectMetadata);
+        }
     }
 
     @Override
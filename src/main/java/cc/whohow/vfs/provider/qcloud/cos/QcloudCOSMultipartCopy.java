@@ -0,0 +1,82 @@
+package cc.whohow.vfs.provider.qcloud.cos;
+
+import cc.whohow.vfs.operations.MultipartCopy;
+import com.qcloud.cos.COS;
+import com.qcloud.cos.model.*;
+
+import java.util.List;
+import java.util.concurrent.Executor;
+
+/**
+ * COS服务端复制，超过5GB通过分片复制（CopyPart）实现
+ */
+public class QcloudCOSMultipartCopy extends MultipartCopy<PartETag> {
+    public static final long MAX_COPY_SIZE = 5L * 1024 * 1024 * 1024;
+    public static final long DEFAULT_PART_SIZE = 128L * 1024 * 1024;
+
+    private final COS cos;
+    private final String sourceBucketName;
+    private final String sourceKey;
+    private final String bucketName;
+    private final String key;
+    private volatile String uploadId;
+
+    public QcloudCOSMultipartCopy(COS cos, String sourceBucketName, String sourceKey, String bucketName, String key) {
+        this(cos, sourceBucketName, sourceKey, bucketName, key, MAX_COPY_SIZE, DEFAULT_PART_SIZE, 1, null);
+    }
+
+    public QcloudCOSMultipartCopy(COS cos, String sourceBucketName, String sourceKey, String bucketName, String key,
+                                  long maxCopySize, long partSize, int maxInFlightParts, Executor executor) {
+        super(maxCopySize, partSize, maxInFlightParts, executor);
+        this.cos = cos;
+        this.sourceBucketName = sourceBucketName;
+        this.sourceKey = sourceKey;
+        this.bucketName = bucketName;
+        this.key = key;
+    }
+
+    public String getUploadId() {
+        return uploadId;
+    }
+
+    @Override
+    protected long getSize() {
+        return cos.getObjectMetadata(sourceBucketName, sourceKey).getContentLength();
+    }
+
+    @Override
+    protected void copyObject() {
+        cos.copyObject(sourceBucketName, sourceKey, bucketName, key);
+    }
+
+    @Override
+    protected void initiate() {
+        uploadId = cos.initiateMultipartUpload(new InitiateMultipartUploadRequest(bucketName, key))
+                .getUploadId();
+    }
+
+    @Override
+    protected PartETag copyPart(int partNumber, long first, long last) {
+        CopyPartResult result = cos.copyPart(new CopyPartRequest()
+                .withSourceBucketName(sourceBucketName)
+                .withSourceKey(sourceKey)
+                .withDestinationBucketName(bucketName)
+                .withDestinationKey(key)
+                .withUploadId(uploadId)
+                .withPartNumber(partNumber)
+                .withFirstByte(first)
+                .withLastByte(last)
+        );
+        return new PartETag(partNumber, result.getETag());
+    }
+
+    @Override
+    protected void complete(List<PartETag> partETags) {
+        cos.completeMultipartUpload(new CompleteMultipartUploadRequest(bucketName, key, uploadId, partETags));
+    }
+
+    @Override
+    protected void abort() {
+        cos.abortMultipartUpload(new AbortMultipartUploadRequest(bucketName, key, uploadId));
+    }
+}
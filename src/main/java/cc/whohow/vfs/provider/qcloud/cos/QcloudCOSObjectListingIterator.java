@@ -1,22 +1,27 @@
 package cc.whohow.vfs.provider.qcloud.cos;
 
+import cc.whohow.vfs.util.PrefetchingPageIterator;
 import com.qcloud.cos.COS;
 import com.qcloud.cos.model.ListObjectsRequest;
 import com.qcloud.cos.model.ObjectListing;
 
-import java.util.Iterator;
+import java.util.concurrent.Executor;
+
+/**
+ * COS原始对象遍历器，可后台预取后续页
+ */
+public class QcloudCOSObjectListingIterator extends PrefetchingPageIterator<ObjectListing> {
+    public static final int MAX_PAGE_SIZE = 1000;
 
-public class QcloudCOSObjectListingIterator implements Iterator<ObjectListing> {
     private final COS cos;
     private final ListObjectsRequest listObjectsRequest;
-    private ObjectListing objectListing;
 
     public QcloudCOSObjectListingIterator(COS cos, String bucketName, String prefix) {
-        this(cos, new ListObjectsRequest(bucketName, prefix, null, null, 1000));
+        this(cos, new ListObjectsRequest(bucketName, prefix, null, null, MAX_PAGE_SIZE));
     }
 
     public QcloudCOSObjectListingIterator(COS cos, String bucketName, String prefix, String delimiter) {
-        this(cos, new ListObjectsRequest(bucketName, prefix, null, delimiter, 1000));
+        this(cos, new ListObjectsRequest(bucketName, prefix, null, delimiter, MAX_PAGE_SIZE));
     }
 
     public QcloudCOSObjectListingIterator(COS cos, ListObjectsRequest listObjectsRequest) {
@@ -24,6 +29,15 @@ public class QcloudCOSObjectListingIterator implements Iterator<ObjectListing> {
         this.listObjectsRequest = listObjectsRequest;
     }
 
+    /**
+     * @param prefetch 预取页数
+     */
+    public QcloudCOSObjectListingIterator(COS cos, ListObjectsRequest listObjectsRequest, Executor executor, int prefetch) {
+        super(executor, prefetch);
+        this.cos = cos;
+        this.listObjectsRequest = listObjectsRequest;
+    }
+
     public COS getCOS() {
         return cos;
     }
@@ -37,20 +51,15 @@ public class QcloudCOSObjectListingIterator implements Iterator<ObjectListing> {
     }
 
     @Override
-    public boolean hasNext() {
-        if (objectListing == null) {
-            objectListing = cos.listObjects(listObjectsRequest);
-            return true;
-        }
-        if (objectListing.isTruncated()) {
-            objectListing = cos.listNextBatchOfObjects(objectListing);
-            return true;
-        }
-        return false;
+    protected ObjectListing first() {
+        return cos.listObjects(listObjectsRequest);
     }
 
     @Override
-    public ObjectListing next() {
-        return objectListing;
+    protected ObjectListing next(ObjectListing previous) {
+        if (!previous.isTruncated()) {
+            return null;
+        }
+        return cos.listNextBatchOfObjects(previous);
     }
 }
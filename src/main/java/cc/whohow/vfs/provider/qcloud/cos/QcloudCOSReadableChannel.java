@@ -0,0 +1,72 @@
+package cc.whohow.vfs.provider.qcloud.cos;
+
+import cc.whohow.vfs.io.ParallelRangeReadableChannel;
+import com.qcloud.cos.COS;
+import com.qcloud.cos.model.COSObjectInputStream;
+import com.qcloud.cos.model.GetObjectRequest;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.Executor;
+
+/**
+ * COS读取流，通过Range并行下载实现
+ */
+public class QcloudCOSReadableChannel extends ParallelRangeReadableChannel {
+    private final COS cos;
+    private final String bucketName;
+    private final String key;
+    private final String eTag;
+
+    public QcloudCOSReadableChannel(COS cos, String bucketName, String key, String eTag,
+                                    long size, int rangeSize, int parallelism, Executor executor) {
+        super(size, rangeSize, parallelism, executor);
+        this.cos = cos;
+        this.bucketName = bucketName;
+        this.key = key;
+        this.eTag = eTag;
+    }
+
+    public QcloudCOSReadableChannel(COS cos, String bucketName, String key, String eTag,
+                                    InputStream head, long headLength,
+                                    long size, int rangeSize, int parallelism, Executor executor) {
+        super(head, headLength, size, rangeSize, parallelism, executor);
+        this.cos = cos;
+        this.bucketName = bucketName;
+        this.key = key;
+        this.eTag = eTag;
+    }
+
+    public COS getCOS() {
+        return cos;
+    }
+
+    public String getBucketName() {
+        return bucketName;
+    }
+
+    public String getKey() {
+        return key;
+    }
+
+    @Override
+    protected InputStream openRange(long first, long last) {
+        GetObjectRequest getObjectRequest = new GetObjectRequest(bucketName, key);
+        getObjectRequest.setRange(first, last);
+        if (eTag != null) {
+            // 保证各分段来自同一版本
+            getObjectRequest.withMatchingETagConstraint(eTag);
+        }
+        return cos.getObject(getObjectRequest).getObjectContent();
+    }
+
+    @Override
+    protected void abortRange(InputStream stream) throws IOException {
+        if (stream instanceof COSObjectInputStream) {
+            // 断开连接，不读完剩余内容
+            ((COSObjectInputStream) stream).abort();
+        } else {
+            stream.close();
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package cc.whohow.vfs.provider.s3;
+
+import cc.whohow.vfs.FileObjectX;
+import cc.whohow.vfs.path.URIBuilder;
+import org.apache.commons.vfs2.FileSystemException;
+
+/**
+ * 列举游标，访问器直接读取当前列举项，不为每个键创建文件名及文件对象
+ * <p>
+ * 递归列举前缀下所有文件（不含目录及前缀自身），按键序；游标可变，advance() 后访问器指向下一项
+ */
+public interface ListingCursor extends AutoCloseable {
+    /**
+     * 移到下一项，没有返回 false
+     */
+    boolean advance();
+
+    /**
+     * 列举前缀
+     */
+    String prefix();
+
+    String key();
+
+    long size();
+
+    String etag();
+
+    long lastModified();
+
+    /**
+     * 当前项的文件对象，需要时再创建
+     */
+    FileObjectX toFileObject();
+
+    /**
+     * 相对列举前缀的路径，已按 URI 编码，可直接拼接在前缀目录 URI 之后
+     */
+    default String relativeURI() {
+        return URIBuilder.encodePath(key().substring(prefix().length()));
+    }
+
+    @Override
+    default void close() {
+    }
+
+    /**
+     * 支持列举游标的目录
+     */
+    interface Source {
+        ListingCursor newListingCursor() throws FileSystemException;
+    }
+}
@@ -5,25 +5,34 @@ import cc.whohow.vfs.FileOperationX;
 import cc.whohow.vfs.VirtualFileSystem;
 import cc.whohow.vfs.io.AppendableConsumer;
 import cc.whohow.vfs.io.IO;
+import cc.whohow.vfs.io.UncheckedCloseable;
 import cc.whohow.vfs.operations.Copy;
+import cc.whohow.vfs.util.URIPathComparator;
 import cc.whohow.vfs.version.FileVersion;
 import cc.whohow.vfs.version.FileVersionView;
+import cc.whohow.vfs.version.FileVersionViewSorter;
 import cc.whohow.vfs.version.FileVersionViewWriter;
 import cc.whohow.vfs.watch.FileDiffEntry;
-import cc.whohow.vfs.watch.FileDiffIterator;
 import cc.whohow.vfs.watch.FileDiffStatistics;
+import cc.whohow.vfs.watch.SortedFileDiffIterator;
 import org.apache.commons.vfs2.FileSystemException;
 
 import java.io.*;
 import java.nio.charset.StandardCharsets;
-import java.util.LinkedHashMap;
-import java.util.concurrent.Callable;
-import java.util.concurrent.Executor;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.BiConsumer;
 import java.util.function.Consumer;
 import java.util.function.Function;
 import java.util.function.Supplier;
 import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 public class S3FileSync implements
         Supplier<Stream<FileDiffEntry<String>>>,
@@ -34,12 +43,77 @@ public class S3FileSync implements
     protected FileObjectX source;
     protected FileObjectX target;
     protected int bufferSize = IO.BUFFER_SIZE;
+    protected int workers = 16;
+    protected int queueSize = 1024;
+    protected int maxRetries = 3;
+    protected long retryBackoff = 1000L;
+    protected Executor executor;
+    protected boolean audit = false;
+    protected Queue<FileDiffEntry<String>> failures = new ConcurrentLinkedQueue<>();
 
     public S3FileSync(VirtualFileSystem vfs, String context, String source, String target) throws FileSystemException {
+        this(vfs, vfs.resolveFile(context), vfs.resolveFile(source), vfs.resolveFile(target));
+    }
+
+    public S3FileSync(VirtualFileSystem vfs, FileObjectX context, FileObjectX source, FileObjectX target) {
         this.vfs = vfs;
-        this.context = vfs.resolveFile(context);
-        this.source = vfs.resolveFile(source);
-        this.target = vfs.resolveFile(target);
+        this.context = context;
+        this.source = source;
+        this.target = target;
+    }
+
+    /**
+     * 工作线程数
+     */
+    public S3FileSync setWorkers(int workers) {
+        if (workers <= 0) {
+            throw new IllegalArgumentException("Illegal workers: " + workers);
+        }
+        this.workers = workers;
+        return this;
+    }
+
+    /**
+     * 待执行队列长度，队列满时阻塞读取差异
+     */
+    public S3FileSync setQueueSize(int queueSize) {
+        if (queueSize <= 0) {
+            throw new IllegalArgumentException("Illegal queue size: " + queueSize);
+        }
+        this.queueSize = queueSize;
+        return this;
+    }
+
+    /**
+     * 失败重试次数，重试间隔retryBackoff毫秒，每次翻倍
+     */
+    public S3FileSync setRetry(int maxRetries, long retryBackoff) {
+        this.maxRetries = maxRetries;
+        this.retryBackoff = retryBackoff;
+        return this;
+    }
+
+    /**
+     * 工作线程池，默认每次同步新建
+     */
+    public S3FileSync setExecutor(Executor executor) {
+        this.executor = executor;
+        return this;
+    }
+
+    /**
+     * 是否将new.txt、old.txt、diff.txt写入context目录，用于审计
+     */
+    public S3FileSync setAudit(boolean audit) {
+        this.audit = audit;
+        return this;
+    }
+
+    /**
+     * 重试后仍失败的差异
+     */
+    public Queue<FileDiffEntry<String>> getFailures() {
+        return failures;
     }
 
     protected FileOperationX<?, ?> copy(String path) {
@@ -93,25 +167,75 @@ public class S3FileSync implements
         }
     }
 
+    /**
+     * 不支持列举游标的目录的文件版本，不要求有序
+     */
     protected Stream<FileVersion<String>> getVersions(FileObjectX folder) {
         return new S3FileVersionProvider().getVersions(folder);
     }
 
+    /**
+     * 列举文件版本，文件名为URI编码的相对路径，按原始键的UTF-8字节序（URIPathComparator）返回
+     * <p>
+     * 默认支持列举游标时直接按列举顺序读取，否则按 getVersions 列举后排序；自定义版本列举重写此方法
+     */
+    protected Stream<FileVersionView> listFileVersion(FileObjectX folder) {
+        if (folder instanceof ListingCursor.Source) {
+            ListingCursor cursor;
+            try {
+                cursor = ((ListingCursor.Source) folder).newListingCursor();
+            } catch (FileSystemException e) {
+                throw new UncheckedIOException(e);
+            }
+            // 直接读取列举项，不创建文件名及文件对象
+            return StreamSupport.stream(new Spliterators.AbstractSpliterator<FileVersionView>(Long.MAX_VALUE, Spliterator.ORDERED | Spliterator.NONNULL) {
+                @Override
+                public boolean tryAdvance(Consumer<? super FileVersionView> action) {
+                    if (!cursor.advance()) {
+                        return false;
+                    }
+                    action.accept(new FileVersionView(cursor.etag(), cursor.size(), cursor.lastModified(), cursor.relativeURI()));
+                    return true;
+                }
+            }, false).onClose(cursor::close);
+        }
+        return toFileVersionView(folder, getVersions(folder));
+    }
+
+    /**
+     * 文件版本转为相对路径并排序，文件版本不要求有序（如本地文件、KV列举）
+     */
+    protected Stream<FileVersionView> toFileVersionView(FileObjectX folder, Stream<FileVersion<String>> versions) {
+        String prefix = folder.getName().getURI();
+        try (Stream<FileVersion<String>> list = versions) {
+            return newFileVersionViewSorter().apply(list
+                    .map(FileVersionView::of)
+                    .map(v -> new FileVersionView(v.getVersion(), v.getSize(), v.getLastModifiedTime(), v.getName().substring(prefix.length()))));
+        }
+    }
+
+    protected FileVersionViewSorter newFileVersionViewSorter() {
+        return new FileVersionViewSorter(URIPathComparator.get());
+    }
+
     protected void listFileVersion(FileObjectX folder, String versionFile) throws IOException {
-        try (FileVersionViewWriter writer = newFileVersionViewWriter(versionFile, folder.getName().getURI())) {
-            try (Stream<FileVersion<String>> versions = getVersions(folder)) {
-                versions.map(FileVersionView::of)
-                        .forEach(writer);
+        try (FileVersionViewWriter writer = newFileVersionViewWriter(versionFile, "")) {
+            try (Stream<FileVersionView> versions = listFileVersion(folder)) {
+                versions.forEach(writer);
                 writer.flush();
             }
         }
     }
 
+    /**
+     * 版本文件外部排序后有序合并计算差异，版本文件不要求有序
+     */
     protected void diffFileVersion(String newVersionFile, String oldVersionFile, String diffFile) throws IOException {
+        FileVersionViewSorter sorter = newFileVersionViewSorter();
         try (Writer writer = newWriter(diffFile)) {
-            try (Stream<FileVersionView> newList = readFileVersionView(newVersionFile);
-                 Stream<FileVersionView> oldList = readFileVersionView(oldVersionFile)) {
-                newFileDiffIterator(newList, oldList).stream()
+            try (Stream<FileVersionView> newList = sortFileVersionView(sorter, newVersionFile);
+                 Stream<FileVersionView> oldList = sortFileVersionView(sorter, oldVersionFile)) {
+                newSortedFileDiffIterator(newList, oldList).stream()
                         .map(FileDiffEntry::toString)
                         .forEach(new AppendableConsumer(writer, "", "\n"));
                 writer.flush();
@@ -119,26 +243,51 @@ public class S3FileSync implements
         }
     }
 
-    protected FileDiffIterator<FileVersionView, String, ?> newFileDiffIterator(Stream<FileVersionView> newList,
-                                                                               Stream<FileVersionView> oldList) {
-        return new FileDiffIterator<>(
+    private Stream<FileVersionView> sortFileVersionView(FileVersionViewSorter sorter, String versionFile) throws IOException {
+        try (Stream<FileVersionView> list = readFileVersionView(versionFile)) {
+            return sorter.apply(list);
+        }
+    }
+
+    protected SortedFileDiffIterator<FileVersionView, String, ?> newSortedFileDiffIterator(Stream<FileVersionView> newList,
+                                                                                           Stream<FileVersionView> oldList) {
+        return new SortedFileDiffIterator<>(
                 FileVersionView::getName,
                 FileVersionView::getVersion,
                 String::equalsIgnoreCase,
-                new LinkedHashMap<>(),
+                URIPathComparator.get(),
                 newList.iterator(),
                 oldList.iterator());
     }
 
+    /**
+     * 同步遍历源、目标列举结果（均按原始键排序）计算差异，不落盘；审计模式同时写入new.txt、old.txt、diff.txt
+     */
     @Override
     public Stream<FileDiffEntry<String>> get() {
+        if (!audit) {
+            Stream<FileVersionView> newList = listFileVersion(source);
+            Stream<FileVersionView> oldList = listFileVersion(target);
+            return newSortedFileDiffIterator(newList, oldList).stream()
+                    .onClose(newList::close)
+                    .onClose(oldList::close);
+        }
         try {
             context.deleteAll();
 
-            listFileVersion(source, "new.txt");
-            listFileVersion(target, "old.txt");
-            diffFileVersion("new.txt", "old.txt", "diff.txt");
-            return readFileDiffEntry("diff.txt");
+            FileVersionViewWriter newWriter = newFileVersionViewWriter("new.txt", "");
+            FileVersionViewWriter oldWriter = newFileVersionViewWriter("old.txt", "");
+            Writer diffWriter = newWriter("diff.txt");
+            AppendableConsumer diffConsumer = new AppendableConsumer(diffWriter, "", "\n");
+            Stream<FileVersionView> newList = listFileVersion(source).peek(newWriter);
+            Stream<FileVersionView> oldList = listFileVersion(target).peek(oldWriter);
+            return newSortedFileDiffIterator(newList, oldList).stream()
+                    .peek(diff -> diffConsumer.accept(diff.toString()))
+                    .onClose(newList::close)
+                    .onClose(oldList::close)
+                    .onClose(new UncheckedCloseable(newWriter))
+                    .onClose(new UncheckedCloseable(oldWriter))
+                    .onClose(new UncheckedCloseable(diffWriter));
         } catch (IOException e) {
             throw new UncheckedIOException(e);
         }
@@ -146,12 +295,140 @@ public class S3FileSync implements
 
     @Override
     public FileDiffStatistics call() {
-        FileDiffStatistics statistics = new FileDiffStatistics();
         try (Stream<FileDiffEntry<String>> diff = get()) {
-            diff.peek(statistics)
-                    .filter(FileDiffEntry::isModified)
-                    .forEach(this);
-            return statistics;
+            return call(diff);
+        }
+    }
+
+    /**
+     * 并行同步：差异放入有界队列，多个工作线程执行，失败重试
+     * <p>
+     * 工作线程全部退出时停止读取差异；读取差异失败、中断或工作线程发生 Error 时丢弃队列中未执行的差异，异常抛给调用方
+     */
+    public FileDiffStatistics call(Stream<FileDiffEntry<String>> diff) {
+        failures.clear();
+        FileDiffStatistics statistics = new FileDiffStatistics();
+        statistics.start();
+        BlockingQueue<FileDiffEntry<String>> queue = new ArrayBlockingQueue<>(queueSize);
+        AtomicBoolean end = new AtomicBoolean();
+        AtomicReference<Error> error = new AtomicReference<>();
+        ExecutorService pool = (executor == null) ? Executors.newFixedThreadPool(workers) : null;
+        List<CompletableFuture<Void>> workerList = new ArrayList<>(workers);
+        try {
+            for (int i = 0; i < workers; i++) {
+                workerList.add(CompletableFuture.runAsync(() -> work(queue, end, error, statistics), pool == null ? executor : pool));
+            }
+            boolean completed = false;
+            try {
+                diff.peek(statistics)
+                        .filter(FileDiffEntry::isModified)
+                        .forEach(e -> put(queue, e, workerList, error));
+                completed = true;
+            } finally {
+                if (!completed) {
+                    queue.clear();
+                }
+                end.set(true);
+            }
+            // 等待工作线程执行完队列中的差异
+            try {
+                CompletableFuture.allOf(workerList.toArray(new CompletableFuture<?>[0])).join();
+            } catch (CompletionException e) {
+                if (error.get() == null) {
+                    throw e;
+                }
+            }
+            if (error.get() != null) {
+                throw error.get();
+            }
+        } finally {
+            end.set(true);
+            if (pool != null) {
+                pool.shutdown();
+            }
+            statistics.stop();
+        }
+        return statistics;
+    }
+
+    /**
+     * 队列满时等待，工作线程发生 Error 时抛出该 Error，工作线程全部退出时抛出异常，不无限阻塞
+     */
+    private void put(BlockingQueue<FileDiffEntry<String>> queue, FileDiffEntry<String> diff,
+                     List<CompletableFuture<Void>> workerList, AtomicReference<Error> error) {
+        try {
+            while (true) {
+                if (error.get() != null) {
+                    throw error.get();
+                }
+                if (queue.offer(diff, 100, TimeUnit.MILLISECONDS)) {
+                    return;
+                }
+                if (workerList.stream().allMatch(CompletableFuture::isDone)) {
+                    throw new IllegalStateException("all sync workers exited");
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CancellationException();
+        }
+    }
+
+    /**
+     * 取队列中的差异执行，队列为空且读取结束后退出；单个差异执行出错记为失败，不终止工作线程；
+     * 发生 Error 时记录并退出，其他工作线程随之退出，同步中止
+     */
+    private void work(BlockingQueue<FileDiffEntry<String>> queue, AtomicBoolean end, AtomicReference<Error> error,
+                      FileDiffStatistics statistics) {
+        try {
+            while (error.get() == null) {
+                FileDiffEntry<String> diff = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (diff == null) {
+                    if (end.get() && queue.isEmpty()) {
+                        return;
+                    }
+                    continue;
+                }
+                try {
+                    execute(diff, statistics);
+                } catch (InterruptedException e) {
+                    throw e;
+                } catch (Exception e) {
+                    statistics.addFailure();
+                    failures.add(diff);
+                } catch (Error e) {
+                    error.compareAndSet(null, e);
+                    queue.clear();
+                    throw e;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * 执行同步操作，失败按retryBackoff、2*retryBackoff...间隔重试
+     */
+    protected void execute(FileDiffEntry<String> diff, FileDiffStatistics statistics) throws InterruptedException {
+        for (int retries = 0; ; retries++) {
+            try {
+                FileOperationX<?, ?> o = apply(diff);
+                if (o != null) {
+                    Object result = o.call();
+                    if (result instanceof Copy.Result) {
+                        statistics.addBytes(((Copy.Result) result).getSize());
+                    }
+                }
+                return;
+            } catch (RuntimeException e) {
+                if (retries >= maxRetries) {
+                    statistics.addFailure();
+                    failures.add(diff);
+                    return;
+                }
+                Thread.sleep(retryBackoff << retries);
+            }
         }
     }
 
@@ -0,0 +1,333 @@
+package cc.whohow.vfs.provider.s3;
+
+import cc.whohow.vfs.FileObjectX;
+import cc.whohow.vfs.util.CodePointComparator;
+
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.nio.file.DirectoryStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 并行递归列举：先按分隔符逐层发现子目录作为分区，再并发列举各分区，合并为一个目录流
+ * <p>
+ * 分区是互不相交的连续键区间，有序模式按键序逐个输出分区即为全局键序，每个分区缓冲有界；
+ * 无序模式所有分区共用一个有界队列。消费慢时列举线程阻塞，不会无限缓冲
+ * <p>
+ * 使用后必须 close()，否则列举线程一直等待消费，直到 abandonTimeout 后放弃。
+ * 分区在列举线程中同步分页列举，不能再向同一线程池提交预取任务，否则线程池有界时互相等待
+ */
+public abstract class S3ParallelFileObjectList implements DirectoryStream<FileObjectX> {
+    public static final int DEFAULT_MAX_DEPTH = 2;
+    public static final int DEFAULT_BUFFER_SIZE = 1000;
+    public static final long DEFAULT_ABANDON_TIMEOUT = TimeUnit.MINUTES.toMillis(5);
+    private static final Object END = new Object();
+
+    protected final String prefix;
+    protected final Executor executor;
+    protected final int concurrency;
+    protected final boolean ordered;
+    protected int maxDepth = DEFAULT_MAX_DEPTH;
+    protected int bufferSize = DEFAULT_BUFFER_SIZE;
+    protected long abandonTimeout = DEFAULT_ABANDON_TIMEOUT;
+    private volatile boolean closed;
+    private volatile boolean abandoned;
+
+    /**
+     * @param prefix      目录键
+     * @param concurrency 最多同时列举的分区数
+     * @param ordered     是否按键序输出
+     */
+    protected S3ParallelFileObjectList(String prefix, Executor executor, int concurrency, boolean ordered) {
+        if (concurrency <= 0) {
+            throw new IllegalArgumentException("concurrency: " + concurrency);
+        }
+        this.prefix = prefix;
+        this.executor = executor;
+        this.concurrency = concurrency;
+        this.ordered = ordered;
+    }
+
+    /**
+     * 只请求一页，不超过一页时返回该页（不含目录自身），否则返回 null
+     */
+    protected abstract Iterator<FileObjectX> listSinglePage(String prefix);
+
+    /**
+     * 按分隔符列举一层，子目录前缀交给 folders，文件（不含列举的根目录自身）交给 files
+     */
+    protected abstract void listLevel(String prefix, List<String> folders, List<FileObjectX> files);
+
+    /**
+     * 递归列举前缀下所有键，在列举线程中执行，应同步分页，不使用列举线程池预取
+     */
+    protected abstract Iterator<FileObjectX> listAll(String prefix);
+
+    public void setMaxDepth(int maxDepth) {
+        this.maxDepth = maxDepth;
+    }
+
+    public void setBufferSize(int bufferSize) {
+        this.bufferSize = bufferSize;
+    }
+
+    /**
+     * 消费者超过此时间（毫秒）未取走数据，视为未关闭即丢弃，列举线程退出
+     */
+    public void setAbandonTimeout(long abandonTimeout) {
+        this.abandonTimeout = abandonTimeout;
+    }
+
+    @Override
+    public Iterator<FileObjectX> iterator() {
+        // 小目录不分区，避免额外请求
+        Iterator<FileObjectX> page = listSinglePage(prefix);
+        if (page != null) {
+            return page;
+        }
+
+        // 逐层发现子目录，直到分区数足够或达到最大深度
+        List<String> folders = Collections.singletonList(prefix);
+        List<FileObjectX> files = new ArrayList<>();
+        for (int depth = 0; depth < maxDepth; depth++) {
+            List<String> next = new ArrayList<>();
+            for (String folder : folders) {
+                listLevel(folder, next, files);
+            }
+            folders = next;
+            if (folders.size() >= concurrency) {
+                break;
+            }
+        }
+
+        List<Partition> partitions = new ArrayList<>(folders.size() + files.size());
+        for (String folder : folders) {
+            partitions.add(new Partition(folder, null));
+        }
+        if (ordered) {
+            for (FileObjectX file : files) {
+                partitions.add(new Partition(getKey(file), file));
+            }
+            partitions.sort(Comparator.comparing(p -> p.key, CodePointComparator.get()));
+        }
+
+        BlockingQueue<Object> shared = ordered ? null : new ArrayBlockingQueue<>(bufferSize);
+        List<Partition> tasks = new ArrayList<>(folders.size());
+        for (Partition partition : partitions) {
+            if (partition.file == null) {
+                partition.queue = ordered ? new ArrayBlockingQueue<>(bufferSize) : shared;
+                tasks.add(partition);
+            }
+        }
+        // 按分区顺序领取任务，有序模式下正在消费的分区总是已开始列举
+        AtomicInteger next = new AtomicInteger();
+        for (int i = 0; i < Integer.min(concurrency, tasks.size()); i++) {
+            executor.execute(() -> run(tasks, next));
+        }
+        if (ordered) {
+            return new OrderedIterator(partitions);
+        }
+        return new UnorderedIterator(files.iterator(), shared, tasks.size());
+    }
+
+    private void run(List<Partition> tasks, AtomicInteger next) {
+        for (int i = next.getAndIncrement(); i < tasks.size() && !closed; i = next.getAndIncrement()) {
+            Partition partition = tasks.get(i);
+            try {
+                Iterator<FileObjectX> iterator = listAll(partition.key);
+                while (iterator.hasNext()) {
+                    if (!put(partition.queue, iterator.next())) {
+                        return;
+                    }
+                }
+                put(partition.queue, END);
+            } catch (Throwable e) {
+                if (!put(partition.queue, e)) {
+                    return;
+                }
+            }
+        }
+    }
+
+    private boolean put(BlockingQueue<Object> queue, Object item) {
+        try {
+            long deadline = System.currentTimeMillis() + abandonTimeout;
+            while (!closed && !abandoned) {
+                if (queue.offer(item, 100, TimeUnit.MILLISECONDS)) {
+                    return true;
+                }
+                if (System.currentTimeMillis() > deadline) {
+                    // 消费者长时间未取数据，视为已丢弃
+                    abandoned = true;
+                }
+            }
+            return false;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    /**
+     * 取下一项，关闭后返回 null
+     */
+    private Object take(BlockingQueue<Object> queue) {
+        try {
+            while (!closed) {
+                Object item = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (item != null) {
+                    return item;
+                }
+                if (abandoned) {
+                    throw new IllegalStateException("listing abandoned after " + abandonTimeout + "ms without consumption");
+                }
+            }
+            return null;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new UncheckedIOException(new InterruptedIOException());
+        }
+    }
+
+    /**
+     * 文件键，用于有序模式排序
+     */
+    protected String getKey(FileObjectX fileObject) {
+        return ((S3FileName) fileObject.getName()).getKey();
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+    }
+
+    private static class Partition {
+        final String key;
+        final FileObjectX file;
+        BlockingQueue<Object> queue;
+
+        Partition(String key, FileObjectX file) {
+            this.key = key;
+            this.file = file;
+        }
+    }
+
+    private static abstract class QueueIterator implements Iterator<FileObjectX> {
+        private FileObjectX next;
+
+        /**
+         * 下一项，没有返回 null
+         */
+        protected abstract FileObjectX poll();
+
+        /**
+         * 队列项：文件、分区结束标记或列举异常
+         */
+        protected FileObjectX accept(Object item) {
+            if (item instanceof RuntimeException) {
+                throw (RuntimeException) item;
+            }
+            if (item instanceof Error) {
+                throw (Error) item;
+            }
+            if (item instanceof Throwable) {
+                throw new IllegalStateException((Throwable) item);
+            }
+            return (FileObjectX) item;
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (next == null) {
+                next = poll();
+            }
+            return next != null;
+        }
+
+        @Override
+        public FileObjectX next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            FileObjectX result = next;
+            next = null;
+            return result;
+        }
+    }
+
+    private class OrderedIterator extends QueueIterator {
+        private final Iterator<Partition> partitions;
+        private Partition partition;
+
+        OrderedIterator(List<Partition> partitions) {
+            this.partitions = partitions.iterator();
+        }
+
+        @Override
+        protected FileObjectX poll() {
+            while (true) {
+                if (partition == null) {
+                    if (!partitions.hasNext()) {
+                        return null;
+                    }
+                    partition = partitions.next();
+                    if (partition.file != null) {
+                        FileObjectX file = partition.file;
+                        partition = null;
+                        return file;
+                    }
+                }
+                Object item = take(partition.queue);
+                if (item == null) {
+                    return null;
+                }
+                if (item == END) {
+                    partition = null;
+                } else {
+                    return accept(item);
+                }
+            }
+        }
+    }
+
+    private class UnorderedIterator extends QueueIterator {
+        private final Iterator<FileObjectX> files;
+        private final BlockingQueue<Object> queue;
+        private int remaining;
+
+        UnorderedIterator(Iterator<FileObjectX> files, BlockingQueue<Object> queue, int partitions) {
+            this.files = files;
+            this.queue = queue;
+            this.remaining = partitions;
+        }
+
+        @Override
+        protected FileObjectX poll() {
+            if (files.hasNext()) {
+                return files.next();
+            }
+            while (remaining > 0) {
+                Object item = take(queue);
+                if (item == null) {
+                    return null;
+                }
+                if (item == END) {
+                    remaining--;
+                } else {
+                    return accept(item);
+                }
+            }
+            return null;
+        }
+    }
+}
@@ -68,6 +68,22 @@ public class UriFileName implements FileNameImpl {
         return new UriFileName(new URIBuilder().setURI(getURI()).setPath(parent).toString());
     }
 
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o instanceof UriFileName) {
+            return uri.equals(((UriFileName) o).uri);
+        }
+        return false;
+    }
+
+    @Override
+    public int hashCode() {
+        return uri.hashCode();
+    }
+
     @Override
     public String toString() {
         return uri.toString();
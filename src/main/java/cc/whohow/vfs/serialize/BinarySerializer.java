@@ -21,6 +21,9 @@ public class BinarySerializer implements Serializer<ByteBuffer> {
 
     @Override
     public ByteBuffer deserialize(InputStream stream) throws IOException {
+        if (stream instanceof ReadableChannel) {
+            return deserialize((ReadableChannel) stream);
+        }
         return IO.read(stream);
     }
 
@@ -39,6 +42,9 @@ public class BinarySerializer implements Serializer<ByteBuffer> {
         return value;
     }
 
+    /**
+     * 返回的缓冲区由调用方持有，同 readAll：默认堆内存快照，本地文件系统配置 mapOnReadAll 时大文件返回只读内存映射
+     */
     @Override
     public ByteBuffer deserialize(ReadableChannel channel) throws IOException {
         return channel.readAll();
@@ -25,7 +25,7 @@ public interface Serializer<T> {
     default ByteBuffer serialize(T value) throws IOException {
         ByteBufferWritableChannel buffer = new ByteBufferWritableChannel();
         serialize(buffer, value);
-        return buffer.getByteBuffer();
+        return buffer.toByteBuffer();
     }
 
     default T deserialize(ReadableChannel channel) throws IOException {
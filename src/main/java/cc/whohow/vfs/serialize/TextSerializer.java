@@ -35,6 +35,9 @@ public class TextSerializer implements Serializer<String> {
 
     @Override
     public String deserialize(InputStream stream) throws IOException {
+        if (stream instanceof ReadableChannel) {
+            return deserialize((ReadableChannel) stream);
+        }
         return deserialize(IO.read(stream));
     }
 
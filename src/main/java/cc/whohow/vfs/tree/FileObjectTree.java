@@ -1,23 +1,40 @@
 package cc.whohow.vfs.tree;
 
 import cc.whohow.vfs.FileObjectX;
+import cc.whohow.vfs.io.IO;
 
 import java.nio.file.DirectoryStream;
+import java.util.ArrayList;
 import java.util.Iterator;
+import java.util.List;
+import java.util.Spliterator;
 
+/**
+ * 目录树，迭代器顺序遍历，spliterator() 可用于并行流
+ */
 public class FileObjectTree implements DirectoryStream<FileObjectX> {
     private FileObjectX fileObject;
+    private final List<FileObjectTreeIterator> iterators = new ArrayList<>();
 
     public FileObjectTree(FileObjectX fileObject) {
         this.fileObject = fileObject;
     }
 
     @Override
-    public Iterator<FileObjectX> iterator() {
-        return new FileObjectTreeIterator(fileObject);
+    public synchronized Iterator<FileObjectX> iterator() {
+        FileObjectTreeIterator iterator = new FileObjectTreeIterator(fileObject);
+        iterators.add(iterator);
+        return iterator;
     }
 
     @Override
-    public void close() {
+    public Spliterator<FileObjectX> spliterator() {
+        return new FileObjectTreeSpliterator(fileObject);
+    }
+
+    @Override
+    public synchronized void close() {
+        IO.close(iterators);
+        iterators.clear();
     }
 }
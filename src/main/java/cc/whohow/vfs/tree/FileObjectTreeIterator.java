@@ -8,14 +8,21 @@ import org.apache.commons.vfs2.FileSystemException;
 import java.io.UncheckedIOException;
 import java.nio.file.DirectoryStream;
 import java.util.ArrayDeque;
-import java.util.Iterator;
+import java.util.NoSuchElementException;
 
-public class FileObjectTreeIterator implements Iterator<FileObjectX> {
+/**
+ * 深度优先遍历目录树，路径上每层目录流保持打开，关闭时全部关闭
+ */
+public class FileObjectTreeIterator implements CloseableIterator<FileObjectX> {
     private ArrayDeque<CloseableIterator<FileObjectX>> stack = new ArrayDeque<>();
 
     public FileObjectTreeIterator(FileObjectX fileObject) {
+        push(fileObject);
+    }
+
+    private void push(FileObjectX folder) {
         try {
-            DirectoryStream<FileObjectX> list = fileObject.list();
+            DirectoryStream<FileObjectX> list = folder.list();
             this.stack.push(new CloseableIterator.Adapter<>(list.iterator(), list));
         } catch (FileSystemException e) {
             throw new UncheckedIOException(e);
@@ -38,7 +45,24 @@ public class FileObjectTreeIterator implements Iterator<FileObjectX> {
 
     @Override
     public FileObjectX next() {
-        assert !stack.isEmpty();
-        return stack.peek().next();
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        FileObjectX fileObject = stack.peek().next();
+        try {
+            if (fileObject.isFolder()) {
+                push(fileObject);
+            }
+        } catch (FileSystemException e) {
+            throw new UncheckedIOException(e);
+        }
+        return fileObject;
+    }
+
+    @Override
+    public void close() {
+        while (!stack.isEmpty()) {
+            IO.close(stack.pop());
+        }
     }
 }
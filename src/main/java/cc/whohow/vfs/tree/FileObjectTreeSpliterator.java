@@ -0,0 +1,88 @@
+package cc.whohow.vfs.tree;
+
+import cc.whohow.vfs.FileObjectX;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.DirectoryStream;
+import java.util.ArrayDeque;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+
+/**
+ * 目录树可分割遍历器，未列举的子目录可拆分给其他线程，用于并行流
+ * <p>
+ * 目录列举结果一次读入后立即关闭目录流，不持有打开的流
+ */
+public class FileObjectTreeSpliterator implements Spliterator<FileObjectX> {
+    /**
+     * 待列举目录
+     */
+    private final ArrayDeque<FileObjectX> folders;
+    /**
+     * 已列举未返回的文件及目录
+     */
+    private final ArrayDeque<FileObjectX> entries = new ArrayDeque<>();
+
+    public FileObjectTreeSpliterator(FileObjectX fileObject) {
+        this.folders = new ArrayDeque<>();
+        this.folders.add(fileObject);
+    }
+
+    private FileObjectTreeSpliterator(ArrayDeque<FileObjectX> folders) {
+        this.folders = folders;
+    }
+
+    private void list() {
+        FileObjectX folder = folders.poll();
+        try (DirectoryStream<FileObjectX> list = folder.list()) {
+            for (FileObjectX fileObject : list) {
+                entries.add(fileObject);
+                if (fileObject.isFolder()) {
+                    folders.add(fileObject);
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public boolean tryAdvance(Consumer<? super FileObjectX> action) {
+        while (entries.isEmpty()) {
+            if (folders.isEmpty()) {
+                return false;
+            }
+            list();
+        }
+        action.accept(entries.poll());
+        return true;
+    }
+
+    @Override
+    public Spliterator<FileObjectX> trySplit() {
+        // 只剩一个目录时先列举，发现子目录才能继续拆分
+        if (entries.isEmpty() && folders.size() == 1) {
+            list();
+        }
+        int n = entries.isEmpty() ? folders.size() / 2 : (folders.size() + 1) / 2;
+        if (n == 0) {
+            return null;
+        }
+        ArrayDeque<FileObjectX> split = new ArrayDeque<>(n);
+        for (int i = 0; i < n; i++) {
+            split.add(folders.pollLast());
+        }
+        return new FileObjectTreeSpliterator(split);
+    }
+
+    @Override
+    public long estimateSize() {
+        return folders.isEmpty() ? entries.size() : Long.MAX_VALUE;
+    }
+
+    @Override
+    public int characteristics() {
+        return DISTINCT | NONNULL;
+    }
+}
@@ -0,0 +1,198 @@
+package cc.whohow.vfs.tree;
+
+import cc.whohow.vfs.FileObjectX;
+
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.nio.file.DirectoryStream;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 并行遍历目录树：Fork/Join 并发列举兄弟目录，结果经有界队列流式返回，不保证顺序
+ * <p>
+ * 并行度由线程池决定，消费慢时列举线程阻塞；关闭后列举任务尽快退出
+ */
+public class ParallelFileObjectTree implements DirectoryStream<FileObjectX> {
+    public static final int DEFAULT_BUFFER_SIZE = 1000;
+    private static final Object END = new Object();
+
+    private final FileObjectX fileObject;
+    private final ForkJoinPool pool;
+    private final boolean shutdown;
+    private final BlockingQueue<Object> queue;
+    private boolean started;
+    private volatile boolean closed;
+
+    /**
+     * @param parallelism 最多同时列举的目录数，使用独立线程池，关闭时释放
+     */
+    public ParallelFileObjectTree(FileObjectX fileObject, int parallelism) {
+        this(fileObject, new ForkJoinPool(parallelism), true, DEFAULT_BUFFER_SIZE);
+    }
+
+    public ParallelFileObjectTree(FileObjectX fileObject, ForkJoinPool pool, int bufferSize) {
+        this(fileObject, pool, false, bufferSize);
+    }
+
+    private ParallelFileObjectTree(FileObjectX fileObject, ForkJoinPool pool, boolean shutdown, int bufferSize) {
+        this.fileObject = fileObject;
+        this.pool = pool;
+        this.shutdown = shutdown;
+        this.queue = new ArrayBlockingQueue<>(bufferSize);
+    }
+
+    @Override
+    public synchronized Iterator<FileObjectX> iterator() {
+        if (started) {
+            throw new IllegalStateException();
+        }
+        started = true;
+        Spliterator<FileObjectX> spliterator = spliterator();
+        pool.execute(() -> {
+            try {
+                new Walk(spliterator).invoke();
+                offer(END);
+            } catch (Throwable e) {
+                // 包括 Error，消费者总能收到结束或异常，不会一直等待
+                offer(e);
+            } finally {
+                if (shutdown) {
+                    pool.shutdown();
+                }
+            }
+        });
+        return new QueueIterator();
+    }
+
+    @Override
+    public Spliterator<FileObjectX> spliterator() {
+        return new FileObjectTreeSpliterator(fileObject);
+    }
+
+    /**
+     * 取下一项，关闭后返回 null
+     */
+    private Object take() {
+        try {
+            while (!closed) {
+                Object item = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (item != null) {
+                    return item;
+                }
+            }
+            return null;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new UncheckedIOException(new InterruptedIOException());
+        }
+    }
+
+    private boolean offer(Object item) {
+        try {
+            while (!closed) {
+                if (queue.offer(item, 100, TimeUnit.MILLISECONDS)) {
+                    return true;
+                }
+            }
+            return false;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private void put(FileObjectX fileObject) {
+        if (!offer(fileObject)) {
+            throw new CancellationException();
+        }
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        if (shutdown) {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * 拆分出的子目录交给其他线程，剩余部分在当前线程遍历
+     */
+    private class Walk extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final Spliterator<FileObjectX> spliterator;
+
+        Walk(Spliterator<FileObjectX> spliterator) {
+            this.spliterator = spliterator;
+        }
+
+        @Override
+        protected void compute() {
+            List<Walk> forks = new ArrayList<>();
+            for (Spliterator<FileObjectX> split = spliterator.trySplit();
+                 split != null && !closed;
+                 split = spliterator.trySplit()) {
+                Walk walk = new Walk(split);
+                walk.fork();
+                forks.add(walk);
+            }
+            spliterator.forEachRemaining(ParallelFileObjectTree.this::put);
+            for (Walk walk : forks) {
+                walk.join();
+            }
+        }
+    }
+
+    private class QueueIterator implements Iterator<FileObjectX> {
+        private FileObjectX next;
+        private boolean end;
+
+        @Override
+        public boolean hasNext() {
+            if (next != null) {
+                return true;
+            }
+            if (end) {
+                return false;
+            }
+            Object item = take();
+            if (item == null || item == END) {
+                end = true;
+                return false;
+            }
+            if (item instanceof Throwable) {
+                end = true;
+                if (item instanceof RuntimeException) {
+                    throw (RuntimeException) item;
+                }
+                if (item instanceof Error) {
+                    throw (Error) item;
+                }
+                throw new IllegalStateException((Throwable) item);
+            }
+            next = (FileObjectX) item;
+            return true;
+        }
+
+        @Override
+        public FileObjectX next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            FileObjectX result = next;
+            next = null;
+            return result;
+        }
+    }
+}
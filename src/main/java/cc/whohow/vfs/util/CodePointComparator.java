@@ -0,0 +1,31 @@
+package cc.whohow.vfs.util;
+
+import java.util.Comparator;
+
+/**
+ * 按Unicode码点比较字符串，与UTF-8字节序一致（OSS/COS列举顺序）
+ */
+public class CodePointComparator implements Comparator<String> {
+    private static final CodePointComparator INSTANCE = new CodePointComparator();
+
+    public static CodePointComparator get() {
+        return INSTANCE;
+    }
+
+    @Override
+    public int compare(String a, String b) {
+        int n = Integer.min(a.length(), b.length());
+        for (int i = 0; i < n; i++) {
+            char c1 = a.charAt(i);
+            char c2 = b.charAt(i);
+            if (c1 != c2) {
+                // 代理对（U+10000以上）大于所有BMP字符
+                if (Character.isSurrogate(c1) != Character.isSurrogate(c2)) {
+                    return Character.isSurrogate(c1) ? 1 : -1;
+                }
+                return c1 - c2;
+            }
+        }
+        return a.length() - b.length();
+    }
+}
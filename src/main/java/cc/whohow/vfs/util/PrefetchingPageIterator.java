@@ -0,0 +1,110 @@
+package cc.whohow.vfs.util;
+
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+
+/**
+ * 分页遍历器，消费当前页时后台预取后续页
+ * <p>
+ * 后一页依赖前一页的标记，页请求按顺序串行执行；已请求未消费的页最多 prefetch 个，消费慢时暂停预取
+ *
+ * @param <P> 页
+ */
+public abstract class PrefetchingPageIterator<P> implements Iterator<P> {
+    protected final Executor executor;
+    protected final int prefetch;
+    private final ArrayDeque<CompletableFuture<P>> pages = new ArrayDeque<>();
+    private CompletableFuture<P> tail;
+    private P page;
+    private boolean end;
+
+    /**
+     * 同步分页，不预取
+     */
+    protected PrefetchingPageIterator() {
+        this(Runnable::run, 0);
+    }
+
+    /**
+     * @param prefetch 预取页数
+     */
+    protected PrefetchingPageIterator(Executor executor, int prefetch) {
+        if (prefetch < 0) {
+            throw new IllegalArgumentException("prefetch: " + prefetch);
+        }
+        this.executor = executor;
+        this.prefetch = prefetch;
+    }
+
+    /**
+     * 请求第一页
+     */
+    protected abstract P first();
+
+    /**
+     * 请求下一页，没有下一页返回 null
+     */
+    protected abstract P next(P previous);
+
+    /**
+     * 在最后一个已请求页之后再请求一页
+     */
+    private void request() {
+        if (tail == null) {
+            tail = CompletableFuture.supplyAsync(this::first, executor);
+        } else {
+            tail = tail.thenApplyAsync(p -> (p == null) ? null : next(p), executor);
+        }
+        pages.add(tail);
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (page != null) {
+            return true;
+        }
+        if (end) {
+            return false;
+        }
+        if (pages.isEmpty()) {
+            request();
+        }
+        CompletableFuture<P> head = pages.poll();
+        while (pages.size() < prefetch) {
+            request();
+        }
+        try {
+            page = head.join();
+        } catch (CompletionException e) {
+            end = true;
+            pages.clear();
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            if (e.getCause() instanceof Error) {
+                throw (Error) e.getCause();
+            }
+            throw e;
+        }
+        if (page == null) {
+            end = true;
+            pages.clear();
+            return false;
+        }
+        return true;
+    }
+
+    @Override
+    public P next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        P next = page;
+        page = null;
+        return next;
+    }
+}
@@ -0,0 +1,39 @@
+package cc.whohow.vfs.util;
+
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 线程池工具
+ */
+public class ThreadPools {
+    /**
+     * 有界线程池：最多 threads 个命名守护线程，超出排队，空闲 60 秒回收
+     * <p>
+     * 队列无界，任务不能等待同池其他任务完成，否则线程占满时互相等待；会阻塞等待外部消费的任务应使用单独的线程池
+     */
+    public static ThreadPoolExecutor newBoundedThreadPool(String name, int threads) {
+        if (threads <= 0) {
+            throw new IllegalArgumentException("Illegal threads: " + threads);
+        }
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads,
+                60L, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), daemon(name));
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    /**
+     * 命名守护线程，不阻止 JVM 退出
+     */
+    public static ThreadFactory daemon(String name) {
+        AtomicInteger counter = new AtomicInteger();
+        return r -> {
+            Thread thread = new Thread(r, name + "-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
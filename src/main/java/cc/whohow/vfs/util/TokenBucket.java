@@ -0,0 +1,58 @@
+package cc.whohow.vfs.util;
+
+/**
+ * 令牌桶限流
+ */
+public class TokenBucket {
+    private final double permitsPerSecond;
+    private final double capacity;
+    private double tokens;
+    private long lastTime;
+
+    /**
+     * @param permitsPerSecond 每秒令牌数
+     */
+    public TokenBucket(double permitsPerSecond) {
+        this(permitsPerSecond, Math.max(1.0, permitsPerSecond));
+    }
+
+    /**
+     * @param permitsPerSecond 每秒令牌数
+     * @param capacity         令牌桶容量（允许突发数）
+     */
+    public TokenBucket(double permitsPerSecond, double capacity) {
+        if (permitsPerSecond <= 0) {
+            throw new IllegalArgumentException("Illegal permits per second: " + permitsPerSecond);
+        }
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Illegal capacity: " + capacity);
+        }
+        this.permitsPerSecond = permitsPerSecond;
+        this.capacity = capacity;
+        this.tokens = capacity;
+        this.lastTime = System.nanoTime();
+    }
+
+    public double getPermitsPerSecond() {
+        return permitsPerSecond;
+    }
+
+    /**
+     * 获取一个令牌，无可用令牌立即返回false
+     */
+    public synchronized boolean tryAcquire() {
+        long now = System.nanoTime();
+        tokens = Math.min(capacity, tokens + (now - lastTime) * permitsPerSecond / 1e9);
+        lastTime = now;
+        if (tokens >= 1.0) {
+            tokens -= 1.0;
+            return true;
+        }
+        return false;
+    }
+
+    @Override
+    public String toString() {
+        return permitsPerSecond + "/s";
+    }
+}
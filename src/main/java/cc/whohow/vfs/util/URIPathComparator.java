@@ -0,0 +1,100 @@
+package cc.whohow.vfs.util;
+
+import java.util.Comparator;
+
+/**
+ * 按解码后的UTF-8字节序比较URI编码路径，与原始键的OSS/COS列举顺序一致（编码不保序，如"a%20b"解码后小于"a!b"）
+ */
+public class URIPathComparator implements Comparator<String> {
+    private static final URIPathComparator INSTANCE = new URIPathComparator();
+
+    public static URIPathComparator get() {
+        return INSTANCE;
+    }
+
+    @Override
+    public int compare(String a, String b) {
+        int i = 0;
+        int j = 0;
+        // 待比较的UTF-8字节，低位在前
+        int bytesA = 0;
+        int bytesB = 0;
+        int countA = 0;
+        int countB = 0;
+        while (true) {
+            if (countA == 0) {
+                if (i == a.length()) {
+                    return (countB > 0 || j < b.length()) ? -1 : 0;
+                }
+                int escaped = unescape(a, i);
+                if (escaped >= 0) {
+                    bytesA = escaped;
+                    countA = 1;
+                    i += 3;
+                } else {
+                    int codePoint = a.codePointAt(i);
+                    i += Character.charCount(codePoint);
+                    bytesA = utf8(codePoint);
+                    countA = utf8Length(codePoint);
+                }
+            }
+            if (countB == 0) {
+                if (j == b.length()) {
+                    return 1;
+                }
+                int escaped = unescape(b, j);
+                if (escaped >= 0) {
+                    bytesB = escaped;
+                    countB = 1;
+                    j += 3;
+                } else {
+                    int codePoint = b.codePointAt(j);
+                    j += Character.charCount(codePoint);
+                    bytesB = utf8(codePoint);
+                    countB = utf8Length(codePoint);
+                }
+            }
+            int c = (bytesA & 0xFF) - (bytesB & 0xFF);
+            if (c != 0) {
+                return c;
+            }
+            bytesA >>>= 8;
+            bytesB >>>= 8;
+            countA--;
+            countB--;
+        }
+    }
+
+    /**
+     * 百分号编码的字节，不是编码返回-1
+     */
+    private static int unescape(String s, int i) {
+        if (s.charAt(i) != '%' || i + 2 >= s.length()) {
+            return -1;
+        }
+        int high = Character.digit(s.charAt(i + 1), 16);
+        int low = Character.digit(s.charAt(i + 2), 16);
+        return (high < 0 || low < 0) ? -1 : (high << 4) | low;
+    }
+
+    private static int utf8Length(int codePoint) {
+        return codePoint < 0x80 ? 1 : codePoint < 0x800 ? 2 : codePoint < 0x10000 ? 3 : 4;
+    }
+
+    /**
+     * UTF-8编码，第一个字节在最低位
+     */
+    private static int utf8(int codePoint) {
+        if (codePoint < 0x80) {
+            return codePoint;
+        }
+        if (codePoint < 0x800) {
+            return (0xC0 | (codePoint >> 6)) | (0x80 | (codePoint & 0x3F)) << 8;
+        }
+        if (codePoint < 0x10000) {
+            return (0xE0 | (codePoint >> 12)) | (0x80 | ((codePoint >> 6) & 0x3F)) << 8 | (0x80 | (codePoint & 0x3F)) << 16;
+        }
+        return (0xF0 | (codePoint >> 18)) | (0x80 | ((codePoint >> 12) & 0x3F)) << 8 |
+                (0x80 | ((codePoint >> 6) & 0x3F)) << 16 | (0x80 | (codePoint & 0x3F)) << 24;
+    }
+}
@@ -21,4 +21,20 @@ public class FileAttributeVersionProvider<T> implements FileVersionProvider<T> {
             throw new UncheckedIOException(e);
         }
     }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        return attribute.equals(((FileAttributeVersionProvider<?>) o).attribute);
+    }
+
+    @Override
+    public int hashCode() {
+        return attribute.hashCode();
+    }
 }
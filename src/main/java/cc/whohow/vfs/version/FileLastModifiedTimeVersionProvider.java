@@ -20,4 +20,14 @@ public class FileLastModifiedTimeVersionProvider implements FileVersionProvider<
             throw new UncheckedIOException(e);
         }
     }
+
+    @Override
+    public boolean equals(Object o) {
+        return o != null && getClass() == o.getClass();
+    }
+
+    @Override
+    public int hashCode() {
+        return getClass().hashCode();
+    }
 }
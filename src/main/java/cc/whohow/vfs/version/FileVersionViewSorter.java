@@ -0,0 +1,173 @@
+package cc.whohow.vfs.version;
+
+import cc.whohow.vfs.util.CodePointComparator;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.*;
+import java.util.function.Function;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * 文件版本外部排序：按文件名分块排序写入本地临时文件，多路归并读取，内存占用与分块大小相关
+ */
+public class FileVersionViewSorter implements Function<Stream<FileVersionView>, Stream<FileVersionView>> {
+    public static final int DEFAULT_CHUNK_SIZE = 100_000;
+
+    private final Comparator<String> comparator;
+    private final int chunkSize;
+    private final Path directory;
+
+    public FileVersionViewSorter() {
+        this(CodePointComparator.get());
+    }
+
+    public FileVersionViewSorter(Comparator<String> comparator) {
+        this(comparator, DEFAULT_CHUNK_SIZE, Paths.get(System.getProperty("java.io.tmpdir")));
+    }
+
+    public FileVersionViewSorter(Comparator<String> comparator, int chunkSize, Path directory) {
+        if (chunkSize <= 0) {
+            throw new IllegalArgumentException("Illegal chunk size: " + chunkSize);
+        }
+        this.comparator = comparator;
+        this.chunkSize = chunkSize;
+        this.directory = directory;
+    }
+
+    /**
+     * 排序，返回流关闭时删除临时文件
+     */
+    @Override
+    public Stream<FileVersionView> apply(Stream<FileVersionView> stream) {
+        Comparator<FileVersionView> byName = Comparator.comparing(FileVersionView::getName, comparator);
+        List<Path> chunks = new ArrayList<>();
+        try {
+            List<FileVersionView> buffer = new ArrayList<>();
+            Iterator<FileVersionView> iterator = stream.iterator();
+            while (iterator.hasNext()) {
+                buffer.add(iterator.next());
+                if (buffer.size() >= chunkSize) {
+                    chunks.add(spill(buffer, byName));
+                    buffer.clear();
+                }
+            }
+            if (chunks.isEmpty()) {
+                // 不足一块，内存排序
+                buffer.sort(byName);
+                return buffer.stream();
+            }
+            if (!buffer.isEmpty()) {
+                chunks.add(spill(buffer, byName));
+                buffer.clear();
+            }
+            return merge(chunks, byName);
+        } catch (IOException e) {
+            delete(chunks, e);
+            throw new UncheckedIOException(e);
+        } catch (RuntimeException e) {
+            delete(chunks, e);
+            throw e;
+        }
+    }
+
+    private Path spill(List<FileVersionView> buffer, Comparator<FileVersionView> byName) throws IOException {
+        buffer.sort(byName);
+        Path chunk = Files.createTempFile(directory, "version-", ".txt");
+        try (FileVersionViewWriter writer = new FileVersionViewWriter(Files.newBufferedWriter(chunk, StandardCharsets.UTF_8))) {
+            for (FileVersionView fileVersionView : buffer) {
+                writer.write(fileVersionView);
+            }
+        }
+        return chunk;
+    }
+
+    private Stream<FileVersionView> merge(List<Path> chunks, Comparator<FileVersionView> byName) throws IOException {
+        PriorityQueue<Cursor> queue = new PriorityQueue<>(chunks.size(), (a, b) -> byName.compare(a.current, b.current));
+        List<Cursor> cursors = new ArrayList<>(chunks.size());
+        Runnable close = () -> {
+            for (Cursor cursor : cursors) {
+                cursor.close();
+            }
+            delete(chunks, null);
+        };
+        try {
+            for (Path chunk : chunks) {
+                Cursor cursor = new Cursor(Files.newBufferedReader(chunk, StandardCharsets.UTF_8));
+                cursors.add(cursor);
+                if (cursor.next()) {
+                    queue.offer(cursor);
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            close.run();
+            throw e;
+        }
+        Iterator<FileVersionView> iterator = new Iterator<FileVersionView>() {
+            @Override
+            public boolean hasNext() {
+                return !queue.isEmpty();
+            }
+
+            @Override
+            public FileVersionView next() {
+                Cursor cursor = queue.poll();
+                if (cursor == null) {
+                    throw new NoSuchElementException();
+                }
+                FileVersionView next = cursor.current;
+                try {
+                    if (cursor.next()) {
+                        queue.offer(cursor);
+                    }
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                return next;
+            }
+        };
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(iterator,
+                Spliterator.ORDERED | Spliterator.NONNULL), false)
+                .onClose(close);
+    }
+
+    private static void delete(List<Path> chunks, Exception cause) {
+        for (Path chunk : chunks) {
+            try {
+                Files.deleteIfExists(chunk);
+            } catch (IOException e) {
+                if (cause != null) {
+                    cause.addSuppressed(e);
+                }
+            }
+        }
+    }
+
+    private static class Cursor {
+        private final BufferedReader reader;
+        private FileVersionView current;
+
+        Cursor(BufferedReader reader) {
+            this.reader = reader;
+        }
+
+        boolean next() throws IOException {
+            String line = reader.readLine();
+            current = (line == null) ? null : FileVersionView.parse(line);
+            return current != null;
+        }
+
+        void close() {
+            try {
+                reader.close();
+            } catch (IOException ignore) {
+            }
+        }
+    }
+}
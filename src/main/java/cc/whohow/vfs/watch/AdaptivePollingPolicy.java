@@ -0,0 +1,86 @@
+package cc.whohow.vfs.watch;
+
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * 自适应轮询间隔：无变化时指数退避，有变化时恢复最小间隔，加随机抖动错开请求
+ */
+public class AdaptivePollingPolicy {
+    private final long minDelay;
+    private final long maxDelay;
+    private final double backoff;
+    private final double jitter;
+
+    /**
+     * 固定间隔，无退避、无抖动
+     */
+    public AdaptivePollingPolicy(Duration delay) {
+        this(delay, delay, 1.0, 0.0);
+    }
+
+    /**
+     * @param minDelay 最小间隔
+     * @param maxDelay 最大间隔
+     * @param backoff  无变化时间隔倍数
+     * @param jitter   抖动比例，0~1
+     */
+    public AdaptivePollingPolicy(Duration minDelay, Duration maxDelay, double backoff, double jitter) {
+        if (minDelay.isNegative() || maxDelay.compareTo(minDelay) < 0) {
+            throw new IllegalArgumentException("Illegal delay: " + minDelay + ", " + maxDelay);
+        }
+        if (backoff < 1.0) {
+            throw new IllegalArgumentException("Illegal backoff: " + backoff);
+        }
+        if (jitter < 0.0 || jitter > 1.0) {
+            throw new IllegalArgumentException("Illegal jitter: " + jitter);
+        }
+        this.minDelay = minDelay.toMillis();
+        this.maxDelay = maxDelay.toMillis();
+        this.backoff = backoff;
+        this.jitter = jitter;
+    }
+
+    /**
+     * 默认策略：最大间隔为最小间隔30倍，无变化时间隔翻倍，抖动20%
+     */
+    public static AdaptivePollingPolicy of(Duration delay) {
+        return new AdaptivePollingPolicy(delay, delay.multipliedBy(30), 2.0, 0.2);
+    }
+
+    public long getMinDelay() {
+        return minDelay;
+    }
+
+    public long getMaxDelay() {
+        return maxDelay;
+    }
+
+    /**
+     * 下次轮询间隔（毫秒，不含抖动）
+     *
+     * @param delay   当前间隔
+     * @param changed 本次轮询是否有变化
+     */
+    public long next(long delay, boolean changed) {
+        if (changed) {
+            return minDelay;
+        }
+        return (long) Math.min(maxDelay, Math.max(minDelay, delay * backoff));
+    }
+
+    /**
+     * 加随机抖动，[delay * (1 - jitter), delay * (1 + jitter)]
+     */
+    public long jitter(long delay) {
+        if (jitter == 0.0 || delay <= 0) {
+            return delay;
+        }
+        return (long) (delay * (1.0 + jitter * (ThreadLocalRandom.current().nextDouble() * 2.0 - 1.0)));
+    }
+
+    @Override
+    public String toString() {
+        return minDelay + "~" + maxDelay + "ms, x" + backoff + ", ±" + (int) (jitter * 100) + "%";
+    }
+}
@@ -0,0 +1,330 @@
+package cc.whohow.vfs.watch;
+
+import cc.whohow.vfs.FileObjectX;
+import org.apache.commons.vfs2.FileListener;
+import org.apache.commons.vfs2.FileName;
+import org.apache.commons.vfs2.FileSystemException;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.WatchKey;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+
+/**
+ * 事件驱动监听，消费通知源的变化通知，产生与轮询监听相同的事件
+ * <p>
+ * 低频对账轮询兜底：已收到通知的文件不重复产生事件，对账发现的事件计为丢失通知
+ */
+public class EventDrivenFileWatchService implements FileWatchService<PollingFileWatchable<?>> {
+    private static final WatchKey CLOSED = new PollingFileWatchKey<>((PollingFileWatchable<Object>) null);
+
+    private final Map<FileName, Watch> watches = new ConcurrentSkipListMap<>();
+    private final ScheduledExecutorService executor;
+    private final FileEventSource eventSource;
+    private final Duration reconcileInterval;
+    private final FileListenerDispatcher dispatcher;
+    private final BlockingQueue<WatchKey> signalled = new LinkedBlockingQueue<>();
+    private final LongAdder notifications = new LongAdder();
+    private final LongAdder ignored = new LongAdder();
+    private final LongAdder reconciles = new LongAdder();
+    private final LongAdder missed = new LongAdder();
+    private volatile boolean closed;
+    private boolean started;
+
+    /**
+     * 默认每5分钟对账
+     */
+    public EventDrivenFileWatchService(ScheduledExecutorService executor, FileEventSource eventSource) {
+        this(executor, eventSource, Duration.ofMinutes(5));
+    }
+
+    public EventDrivenFileWatchService(ScheduledExecutorService executor, FileEventSource eventSource,
+                                       Duration reconcileInterval) {
+        this(executor, eventSource, reconcileInterval, new FileListenerDispatcher());
+    }
+
+    /**
+     * @param reconcileInterval 对账轮询间隔
+     * @param dispatcher        监听事件分发器
+     */
+    public EventDrivenFileWatchService(ScheduledExecutorService executor, FileEventSource eventSource,
+                                       Duration reconcileInterval, FileListenerDispatcher dispatcher) {
+        this.executor = executor;
+        this.eventSource = eventSource;
+        this.reconcileInterval = reconcileInterval;
+        this.dispatcher = dispatcher;
+    }
+
+    /**
+     * 开始接收通知，构造完成后调用，重复调用无效
+     */
+    public synchronized EventDrivenFileWatchService start() throws IOException {
+        ensureOpen();
+        if (!started) {
+            eventSource.start(this::accept);
+            started = true;
+        }
+        return this;
+    }
+
+    public FileListenerDispatcher getDispatcher() {
+        return dispatcher;
+    }
+
+    /**
+     * 收到的通知数
+     */
+    public long getNotificationCount() {
+        return notifications.longValue();
+    }
+
+    /**
+     * 无监听的通知数
+     */
+    public long getIgnoredCount() {
+        return ignored.longValue();
+    }
+
+    /**
+     * 完成的对账数，含建立基线的首次对账
+     */
+    public long getReconcileCount() {
+        return reconciles.longValue();
+    }
+
+    /**
+     * 对账发现的事件数，即丢失的通知数
+     */
+    public long getMissedCount() {
+        return missed.longValue();
+    }
+
+    /**
+     * 处理变化通知
+     */
+    protected void accept(FileDiffEntry<String> notification) {
+        if (closed || notification.isNotModified()) {
+            return;
+        }
+        notifications.increment();
+        String uri = notification.getKey();
+        boolean matched = false;
+        for (Watch watch : watches.values()) {
+            if (PollingFileWatchService.contains(watch.uri, uri)) {
+                matched = true;
+                try {
+                    watch.notify(notification.getValue(), uri);
+                } catch (FileSystemException ignore) {
+                }
+            }
+        }
+        if (!matched) {
+            ignored.increment();
+        }
+    }
+
+    @Override
+    public synchronized void addListener(PollingFileWatchable<?> watchable, FileListener listener) {
+        ensureOpen();
+        FileName fileName = watchable.getFileObject().getName();
+        Watch watch = watches.get(fileName);
+        if (watch == null) {
+            watch = new Watch(watchable);
+            watch.start();
+            watches.put(fileName, watch);
+        }
+        watch.listeners.add(new FileWatchListener(fileName, listener));
+    }
+
+    @Override
+    public synchronized void removeListener(PollingFileWatchable<?> watchable, FileListener listener) {
+        FileName fileName = watchable.getFileObject().getName();
+        FileWatchListener fileWatchListener = new FileWatchListener(fileName, listener);
+        dispatcher.remove(fileWatchListener);
+        Watch watch = watches.get(fileName);
+        if (watch == null) {
+            return;
+        }
+        watch.listeners.remove(fileWatchListener);
+        if (watch.listeners.isEmpty()) {
+            watches.remove(fileName);
+            watch.cancel();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "notifications: " + getNotificationCount() +
+                ", ignored: " + getIgnoredCount() +
+                ", reconciles: " + getReconcileCount() +
+                ", missed: " + getMissedCount() + "\n" +
+                watches.keySet().stream()
+                        .map(FileName::toString)
+                        .collect(Collectors.joining("\n"));
+    }
+
+    /**
+     * 关闭服务，停止接收通知及对账，唤醒等待线程
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        for (Watch watch : watches.values()) {
+            watch.cancel();
+        }
+        watches.clear();
+        try {
+            eventSource.close();
+        } finally {
+            dispatcher.close();
+            signalled.clear();
+            signalled.offer(CLOSED);
+        }
+    }
+
+    @Override
+    public WatchKey poll() {
+        ensureOpen();
+        return checkClosed(signalled.poll());
+    }
+
+    @Override
+    public WatchKey poll(long timeout, TimeUnit unit) throws InterruptedException {
+        ensureOpen();
+        return checkClosed(signalled.poll(timeout, unit));
+    }
+
+    @Override
+    public WatchKey take() throws InterruptedException {
+        ensureOpen();
+        return checkClosed(signalled.take());
+    }
+
+    private void ensureOpen() {
+        if (closed) {
+            throw new ClosedWatchServiceException();
+        }
+    }
+
+    private WatchKey checkClosed(WatchKey watchKey) {
+        if (watchKey == CLOSED) {
+            // 唤醒其他等待线程
+            signalled.offer(CLOSED);
+            throw new ClosedWatchServiceException();
+        }
+        return watchKey;
+    }
+
+    private static FileWatchEvent newEvent(FileEventKind kind, FileObjectX fileObject) {
+        switch (kind) {
+            case CREATE:
+                return new FileWatchEvent.Create(fileObject);
+            case DELETE:
+                return new FileWatchEvent.Delete(fileObject);
+            case MODIFY:
+                return new FileWatchEvent.Modify(fileObject);
+            default:
+                throw new IllegalArgumentException(kind.toString());
+        }
+    }
+
+    /**
+     * 单个监听目录（文件）
+     */
+    private class Watch implements Runnable {
+        final PollingFileWatchKey<?> watchKey;
+        final String uri;
+        final List<FileWatchListener> listeners = new CopyOnWriteArrayList<>();
+        // 收到通知的文件及通知序号，对账后清除对账开始前的通知
+        final Map<String, Long> notified = new ConcurrentHashMap<>();
+        final AtomicLong sequence = new AtomicLong();
+        ScheduledFuture<?> future;
+
+        Watch(PollingFileWatchable<?> watchable) {
+            this.watchKey = new PollingFileWatchKey<>(watchable);
+            this.watchKey.setSignalQueue(signalled);
+            this.uri = watchable.getFileObject().getName().getURI();
+        }
+
+        /**
+         * 注册到通知源，立即执行首次对账，建立基线快照
+         */
+        void start() {
+            try {
+                eventSource.register(watchKey.watchable());
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            future = executor.scheduleWithFixedDelay(
+                    this, 0L, reconcileInterval.toMillis(), TimeUnit.MILLISECONDS);
+        }
+
+        void notify(FileEventKind kind, String fileURI) throws FileSystemException {
+            PollingFileWatchable<?> watchable = watchKey.watchable();
+            FileObjectX fileObject = watchable.resolve(fileURI.substring(uri.length()));
+            watchable.invalidate(fileObject);
+            FileWatchEvent event = newEvent(kind, fileObject);
+            notified.put(fileURI, sequence.incrementAndGet());
+            watchKey.signal(Collections.singletonList(event));
+            dispatch(event);
+        }
+
+        /**
+         * 对账
+         */
+        @Override
+        public void run() {
+            if (!watchKey.isValid()) {
+                return;
+            }
+            // 列举期间收到的通知可能已反映在列举结果中，同样跳过，保留到下次对账
+            long start = sequence.get();
+            for (FileWatchEvent event : watchKey.get(e -> !notified.containsKey(e.getFile().getName().getURI()))) {
+                missed.increment();
+                dispatch(event);
+            }
+            for (Map.Entry<String, Long> e : notified.entrySet()) {
+                if (e.getValue() <= start) {
+                    // 期间再次收到通知时序号已更新，不清除
+                    notified.remove(e.getKey(), e.getValue());
+                }
+            }
+            reconciles.increment();
+        }
+
+        void dispatch(FileWatchEvent event) {
+            for (FileWatchListener listener : listeners) {
+                if (listener.test(event)) {
+                    dispatcher.dispatch(listener, event);
+                }
+            }
+        }
+
+        void cancel() {
+            future.cancel(false);
+            watchKey.cancel();
+            try {
+                eventSource.unregister(watchKey.watchable());
+            } catch (IOException ignore) {
+            }
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package cc.whohow.vfs.watch;
+
+import cc.whohow.vfs.FileObjectX;
+import cc.whohow.vfs.FileSystemX;
+import cc.whohow.vfs.version.FileVersion;
+import cc.whohow.vfs.version.FileVersionProvider;
+import org.apache.commons.vfs2.FileSystemException;
+
+import java.util.Arrays;
+
+/**
+ * 低成本变化信号（如标记文件版本），信号不变时跳过列举及对比
+ * <p>
+ * 信号只应读取存储提供的 O(1) 变化标记，需要列举目录的信号与列举版本代价相当，没有意义
+ */
+@FunctionalInterface
+public interface FileChangeSignal {
+    /**
+     * 标记文件版本，目录内容发布后更新标记文件
+     *
+     * @param marker 标记文件相对路径
+     */
+    static FileChangeSignal marker(String marker, FileVersionProvider<?> fileVersionProvider) {
+        return fileObject -> {
+            FileObjectX markerFile = fileObject.resolveFile(marker);
+            FileSystemX fileSystem = markerFile.getFileSystem();
+            if (fileSystem != null) {
+                fileSystem.invalidate(markerFile);
+            }
+            if (!markerFile.exists()) {
+                return null;
+            }
+            FileVersion<?> version = fileVersionProvider.getVersion(markerFile);
+            return (version == null) ? null : version.getVersion();
+        };
+    }
+
+    /**
+     * 组合信号，任一信号变化即变化；任一信号不支持时不支持
+     */
+    static FileChangeSignal of(FileChangeSignal... signals) {
+        return fileObject -> {
+            Object[] values = new Object[signals.length];
+            for (int i = 0; i < signals.length; i++) {
+                values[i] = signals[i].get(fileObject);
+                if (values[i] == null) {
+                    return null;
+                }
+            }
+            return Arrays.asList(values);
+        };
+    }
+
+    /**
+     * 获取当前信号，不支持返回null
+     */
+    Object get(FileObjectX fileObject) throws FileSystemException;
+}
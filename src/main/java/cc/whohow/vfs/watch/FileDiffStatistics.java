@@ -8,6 +8,10 @@ public class FileDiffStatistics implements Consumer<FileDiffEntry<?>> {
     private LongAdder delete = new LongAdder();
     private LongAdder modify = new LongAdder();
     private LongAdder notModified = new LongAdder();
+    private LongAdder bytes = new LongAdder();
+    private LongAdder failures = new LongAdder();
+    private volatile long startTime = -1;
+    private volatile long stopTime = -1;
 
     @Override
     public void accept(FileDiffEntry<?> fileDiffEntry) {
@@ -34,6 +38,29 @@ public class FileDiffStatistics implements Consumer<FileDiffEntry<?>> {
         }
     }
 
+    /**
+     * 开始计时
+     */
+    public void start() {
+        startTime = System.currentTimeMillis();
+        stopTime = -1;
+    }
+
+    /**
+     * 结束计时
+     */
+    public void stop() {
+        stopTime = System.currentTimeMillis();
+    }
+
+    public void addBytes(long n) {
+        bytes.add(n);
+    }
+
+    public void addFailure() {
+        failures.increment();
+    }
+
     public long getCreate() {
         return create.longValue();
     }
@@ -57,12 +84,33 @@ public class FileDiffStatistics implements Consumer<FileDiffEntry<?>> {
                 getNotModified();
     }
 
+    public long getBytes() {
+        return bytes.longValue();
+    }
+
+    public long getFailures() {
+        return failures.longValue();
+    }
+
+    /**
+     * 耗时（毫秒），未开始返回0
+     */
+    public long getElapsed() {
+        if (startTime < 0) {
+            return 0L;
+        }
+        return (stopTime < 0 ? System.currentTimeMillis() : stopTime) - startTime;
+    }
+
     @Override
     public String toString() {
         return "Create: " + getCreate() + "\n" +
                 "Delete: " + getDelete() + "\n" +
                 "Modify: " + getModify() + "\n" +
                 "NotModified: " + getNotModified() + "\n" +
-                "Count: " + getCount() + "\n";
+                "Count: " + getCount() + "\n" +
+                "Bytes: " + getBytes() + "\n" +
+                "Failures: " + getFailures() + "\n" +
+                "Elapsed: " + getElapsed() + "ms\n";
     }
 }
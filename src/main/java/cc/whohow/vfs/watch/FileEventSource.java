@@ -0,0 +1,29 @@
+package cc.whohow.vfs.watch;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.function.Consumer;
+
+/**
+ * 文件变化通知源，如对象存储事件通知投递到的消息队列
+ * <p>
+ * 通知为变化类型及文件URI，如 "* oss://bucket/conf/application.yml"，见 FileDiffEntry.parse
+ */
+public interface FileEventSource extends Closeable {
+    /**
+     * 开始接收通知
+     */
+    void start(Consumer<? super FileDiffEntry<String>> consumer) throws IOException;
+
+    /**
+     * 开始监听目录（文件），默认无需注册（如对象存储事件通知在服务端配置）
+     */
+    default void register(FileWatchable watchable) throws IOException {
+    }
+
+    /**
+     * 停止监听目录（文件）
+     */
+    default void unregister(FileWatchable watchable) throws IOException {
+    }
+}
@@ -0,0 +1,309 @@
+package cc.whohow.vfs.watch;
+
+import cc.whohow.vfs.FileObjectX;
+import cc.whohow.vfs.util.ThreadPools;
+import org.apache.commons.vfs2.FileObject;
+
+import java.io.Closeable;
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 监听事件异步分发：每个监听器一个有序队列，在独立线程池执行，慢监听器不影响轮询及其他监听器
+ * <p>
+ * 队列容量有限，超出后丢弃新事件，合并为一个 OVERFLOW 事件（监听目录变化）通知监听器；同一文件未分发的创建、修改事件合并
+ */
+public class FileListenerDispatcher implements Closeable {
+    public static final int DEFAULT_MAX_BACKLOG = 1024;
+    public static final int DEFAULT_THREADS = Math.max(2, Runtime.getRuntime().availableProcessors());
+    // 每批分发事件数，分发后让出线程
+    private static final int BATCH_SIZE = 64;
+
+    private final Executor executor;
+    private final int maxBacklog;
+    private final boolean shutdownExecutor;
+    private final ConcurrentMap<FileWatchListener, ListenerQueue> queues = new ConcurrentHashMap<>();
+
+    /**
+     * 使用独立有界守护线程池
+     */
+    public FileListenerDispatcher() {
+        this(ThreadPools.newBoundedThreadPool("file-watch-listener", DEFAULT_THREADS), DEFAULT_MAX_BACKLOG, true);
+    }
+
+    /**
+     * @param executor   分发线程池
+     * @param maxBacklog 每个监听器最大积压事件数
+     */
+    public FileListenerDispatcher(Executor executor, int maxBacklog) {
+        this(executor, maxBacklog, false);
+    }
+
+    private FileListenerDispatcher(Executor executor, int maxBacklog, boolean shutdownExecutor) {
+        if (maxBacklog <= 0) {
+            throw new IllegalArgumentException("Illegal max backlog: " + maxBacklog);
+        }
+        this.executor = executor;
+        this.maxBacklog = maxBacklog;
+        this.shutdownExecutor = shutdownExecutor;
+    }
+
+    /**
+     * 分发事件到监听器队列
+     */
+    public void dispatch(FileWatchListener listener, FileWatchEvent event) {
+        queues.computeIfAbsent(listener, ListenerQueue::new).offer(event);
+    }
+
+    /**
+     * 移除监听器，丢弃未分发事件
+     */
+    public void remove(FileWatchListener listener) {
+        ListenerQueue queue = queues.remove(listener);
+        if (queue != null) {
+            queue.clear();
+        }
+    }
+
+    public ListenerQueue getQueue(FileWatchListener listener) {
+        return queues.get(listener);
+    }
+
+    /**
+     * 所有监听器队列，可查看积压、延迟、失败等统计
+     */
+    public Collection<ListenerQueue> getQueues() {
+        return Collections.unmodifiableCollection(queues.values());
+    }
+
+    @Override
+    public void close() {
+        for (ListenerQueue queue : queues.values()) {
+            queue.clear();
+        }
+        queues.clear();
+        if (shutdownExecutor) {
+            ((ExecutorService) executor).shutdown();
+        }
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder buffer = new StringBuilder();
+        for (ListenerQueue queue : queues.values()) {
+            buffer.append(queue).append("\n");
+        }
+        return buffer.toString();
+    }
+
+    /**
+     * 监听器事件队列，同一时间只有一个线程分发，保证顺序
+     */
+    public class ListenerQueue implements Runnable {
+        private final FileWatchListener listener;
+        private final ArrayDeque<Pending> queue = new ArrayDeque<>();
+        // 未分发的创建、修改事件文件，用于合并
+        private final Set<String> mergeable = new HashSet<>();
+        private final LongAdder delivered = new LongAdder();
+        private final LongAdder failures = new LongAdder();
+        private final LongAdder dropped = new LongAdder();
+        private final LongAdder merged = new LongAdder();
+        private final LongAdder totalLatency = new LongAdder();
+        private final LongAccumulator maxLatency = new LongAccumulator(Long::max, 0L);
+        private volatile Exception lastFailure;
+        // 队列中未分发的 OVERFLOW 事件，继续累积丢弃数
+        private FileWatchEvent.Overflow overflow;
+        private boolean running;
+
+        ListenerQueue(FileWatchListener listener) {
+            this.listener = listener;
+        }
+
+        public FileWatchListener getListener() {
+            return listener;
+        }
+
+        void offer(FileWatchEvent event) {
+            String uri = event.getFile().getName().getURI();
+            boolean mergeableEvent = isMergeable(event);
+            synchronized (this) {
+                if (event.kind() == FileEventKind.MODIFY && mergeable.contains(uri)) {
+                    // 已有未分发的创建、修改事件，监听器处理时读取最新内容
+                    merged.increment();
+                    return;
+                }
+                if (queue.size() >= maxBacklog) {
+                    dropped.increment();
+                    if (overflow == null) {
+                        overflow = new FileWatchEvent.Overflow(resolveListenerFile(event.getFile()));
+                        queue.add(new Pending(overflow, System.nanoTime()));
+                    }
+                    overflow.increment();
+                    return;
+                }
+                queue.add(new Pending(event, System.nanoTime()));
+                if (mergeableEvent) {
+                    mergeable.add(uri);
+                } else {
+                    // 删除事件之后的修改事件不能合并到之前的创建、修改事件
+                    mergeable.remove(uri);
+                }
+                if (running) {
+                    return;
+                }
+                running = true;
+            }
+            submit();
+        }
+
+        /**
+         * 监听文件，无法解析时使用事件文件
+         */
+        private FileObject resolveListenerFile(FileObject file) {
+            if (file instanceof FileObjectX) {
+                try {
+                    return ((FileObjectX) file).resolveFile(listener.getFileName().getURI());
+                } catch (Exception ignore) {
+                }
+            }
+            return file;
+        }
+
+        private boolean isMergeable(FileWatchEvent event) {
+            return event.kind() == FileEventKind.MODIFY || event.kind() == FileEventKind.CREATE;
+        }
+
+        private void submit() {
+            try {
+                executor.execute(this);
+            } catch (RejectedExecutionException e) {
+                synchronized (this) {
+                    dropped.add(queue.size());
+                    queue.clear();
+                    mergeable.clear();
+                    overflow = null;
+                    running = false;
+                }
+            }
+        }
+
+        synchronized void clear() {
+            queue.clear();
+            mergeable.clear();
+            overflow = null;
+        }
+
+        @Override
+        public void run() {
+            for (int i = 0; i < BATCH_SIZE; i++) {
+                Pending pending;
+                synchronized (this) {
+                    pending = queue.poll();
+                    if (pending == null) {
+                        running = false;
+                        return;
+                    }
+                    if (isMergeable(pending.event)) {
+                        mergeable.remove(pending.event.getFile().getName().getURI());
+                    } else if (pending.event == overflow) {
+                        overflow = null;
+                    }
+                }
+                deliver(pending);
+            }
+            // 让出线程，避免单个监听器占用线程池
+            submit();
+        }
+
+        private void deliver(Pending pending) {
+            try {
+                pending.event.notify(listener);
+                delivered.increment();
+            } catch (Exception e) {
+                failures.increment();
+                lastFailure = e;
+            } finally {
+                long latency = System.nanoTime() - pending.time;
+                totalLatency.add(latency);
+                maxLatency.accumulate(latency);
+            }
+        }
+
+        public synchronized int getBacklog() {
+            return queue.size();
+        }
+
+        public long getDeliveredCount() {
+            return delivered.longValue();
+        }
+
+        public long getFailureCount() {
+            return failures.longValue();
+        }
+
+        /**
+         * 因积压丢弃的事件数（已合并为 OVERFLOW 事件）
+         */
+        public long getDroppedCount() {
+            return dropped.longValue();
+        }
+
+        /**
+         * 合并的修改事件数
+         */
+        public long getMergedCount() {
+            return merged.longValue();
+        }
+
+        /**
+         * 平均延迟（毫秒），从入队到处理完成
+         */
+        public double getAverageLatency() {
+            long n = delivered.longValue() + failures.longValue();
+            return (n == 0) ? 0.0 : totalLatency.doubleValue() / n / TimeUnit.MILLISECONDS.toNanos(1);
+        }
+
+        /**
+         * 最大延迟（毫秒）
+         */
+        public double getMaxLatency() {
+            return maxLatency.doubleValue() / TimeUnit.MILLISECONDS.toNanos(1);
+        }
+
+        public Exception getLastFailure() {
+            return lastFailure;
+        }
+
+        @Override
+        public String toString() {
+            return listener.getFileName() + " " + listener +
+                    " (backlog: " + getBacklog() +
+                    ", delivered: " + getDeliveredCount() +
+                    ", failures: " + getFailureCount() +
+                    ", dropped: " + getDroppedCount() +
+                    ", merged: " + getMergedCount() +
+                    ", latency: " + String.format("%.1f/%.1fms", getAverageLatency(), getMaxLatency()) + ")";
+        }
+    }
+
+    private static class Pending {
+        final FileWatchEvent event;
+        final long time;
+
+        Pending(FileWatchEvent event, long time) {
+            this.event = event;
+            this.time = time;
+        }
+    }
+}
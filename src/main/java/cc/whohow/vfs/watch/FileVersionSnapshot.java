@@ -0,0 +1,150 @@
+package cc.whohow.vfs.watch;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * 紧凑文件版本快照：相对路径按UTF-8连续存储，路径哈希、版本哈希存储为long数组，开放寻址哈希表查找
+ * <p>
+ * 每个文件约占 28字节 + 路径长度，替代 FileName、FileVersion、FileObjectX 及 LinkedHashMap 节点
+ */
+public class FileVersionSnapshot {
+    private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private int size;
+    private long[] keys;
+    private long[] versions;
+    private int[] offsets;
+    private byte[] names;
+    private int namesLength;
+    // 位置+1，0表示空
+    private int[] table;
+
+    public FileVersionSnapshot() {
+        this(16);
+    }
+
+    /**
+     * @param expectedSize 预计文件数
+     */
+    public FileVersionSnapshot(int expectedSize) {
+        int capacity = Integer.max(expectedSize, 16);
+        this.keys = new long[capacity];
+        this.versions = new long[capacity];
+        this.offsets = new int[capacity + 1];
+        this.names = new byte[capacity * 32];
+        this.table = new int[tableSize(capacity)];
+    }
+
+    /**
+     * 64位FNV-1a哈希
+     */
+    public static long hash(CharSequence s) {
+        long h = FNV_OFFSET_BASIS;
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            h = (h ^ (c & 0xff)) * FNV_PRIME;
+            h = (h ^ (c >>> 8)) * FNV_PRIME;
+        }
+        return h;
+    }
+
+    public static long hash(Object version) {
+        return (version == null) ? 0L : hash(version.toString());
+    }
+
+    private static int tableSize(int capacity) {
+        int n = Integer.highestOneBit(capacity * 2 - 1) << 1;
+        return Integer.max(n, 32);
+    }
+
+    private static int slot(long key, int mask) {
+        return (int) (key ^ (key >>> 32)) & mask;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * 添加文件版本，路径重复返回false
+     */
+    public boolean add(long key, long version, String name) {
+        if (indexOf(key) >= 0) {
+            return false;
+        }
+        if (size == keys.length) {
+            grow();
+        }
+        byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+        if (namesLength + bytes.length > names.length) {
+            names = Arrays.copyOf(names, Integer.max(names.length * 2, namesLength + bytes.length));
+        }
+        System.arraycopy(bytes, 0, names, namesLength, bytes.length);
+        namesLength += bytes.length;
+        keys[size] = key;
+        versions[size] = version;
+        offsets[size + 1] = namesLength;
+        insert(key, size);
+        size++;
+        return true;
+    }
+
+    /**
+     * 查找路径哈希，不存在返回-1
+     */
+    public int indexOf(long key) {
+        int mask = table.length - 1;
+        for (int i = slot(key, mask); ; i = (i + 1) & mask) {
+            int index = table[i] - 1;
+            if (index < 0) {
+                return -1;
+            }
+            if (keys[index] == key) {
+                return index;
+            }
+        }
+    }
+
+    public long getKey(int index) {
+        return keys[index];
+    }
+
+    public long getVersion(int index) {
+        return versions[index];
+    }
+
+    public String getName(int index) {
+        return new String(names, offsets[index], offsets[index + 1] - offsets[index], StandardCharsets.UTF_8);
+    }
+
+    /**
+     * 估算内存占用（字节）
+     */
+    public long getMemoryUsage() {
+        return keys.length * 8L + versions.length * 8L + offsets.length * 4L + names.length + table.length * 4L;
+    }
+
+    private void insert(long key, int index) {
+        int mask = table.length - 1;
+        int i = slot(key, mask);
+        while (table[i] != 0) {
+            i = (i + 1) & mask;
+        }
+        table[i] = index + 1;
+    }
+
+    private void grow() {
+        int capacity = keys.length * 2;
+        keys = Arrays.copyOf(keys, capacity);
+        versions = Arrays.copyOf(versions, capacity);
+        offsets = Arrays.copyOf(offsets, capacity + 1);
+        if (table.length < capacity * 2) {
+            table = new int[tableSize(capacity)];
+            for (int i = 0; i < size; i++) {
+                insert(keys[i], i);
+            }
+        }
+    }
+}
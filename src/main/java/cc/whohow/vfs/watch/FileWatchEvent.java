@@ -4,6 +4,7 @@ import org.apache.commons.vfs2.FileListener;
 import org.apache.commons.vfs2.FileObject;
 import org.apache.commons.vfs2.events.AbstractFileChangeEvent;
 
+import java.nio.file.StandardWatchEventKinds;
 import java.nio.file.WatchEvent;
 
 public abstract class FileWatchEvent extends AbstractFileChangeEvent implements WatchEvent<FileObject> {
@@ -68,4 +69,38 @@ public abstract class FileWatchEvent extends AbstractFileChangeEvent implements
             listener.fileChanged(this);
         }
     }
+
+    /**
+     * 积压超出后丢弃的事件，以监听目录变化通知监听器，监听器应重新读取
+     */
+    public static class Overflow extends FileWatchEvent {
+        private int count;
+
+        public Overflow(FileObject context) {
+            super(context);
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public Kind<FileObject> kind() {
+            return (Kind<FileObject>) (Kind<?>) StandardWatchEventKinds.OVERFLOW;
+        }
+
+        /**
+         * 丢弃的事件数
+         */
+        @Override
+        public int count() {
+            return count;
+        }
+
+        void increment() {
+            count++;
+        }
+
+        @Override
+        public void notify(FileListener listener) throws Exception {
+            listener.fileChanged(this);
+        }
+    }
 }
@@ -23,11 +23,18 @@ public class FileWatchListener implements FileListener, Predicate<FileChangeEven
         return fileListener;
     }
 
+    /**
+     * 事件文件是否为监听文件或监听目录下的文件
+     */
     @Override
     public boolean test(FileChangeEvent event) {
         FileName eventFileName = event.getFile().getName();
-        return fileName.equals(eventFileName) ||
-                fileName.isDescendent(eventFileName);
+        if (fileName.equals(eventFileName)) {
+            return true;
+        }
+        String root = fileName.getURI();
+        String uri = eventFileName.getURI();
+        return uri.startsWith(root) && (uri.length() == root.length() || root.endsWith("/"));
     }
 
     @Override
@@ -0,0 +1,71 @@
+package cc.whohow.vfs.watch;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.function.Consumer;
+
+/**
+ * 进程内通知源，基于本地阻塞队列，用于测试及单机部署
+ */
+public class LocalFileEventSource implements FileEventSource, Runnable {
+    private final BlockingQueue<FileDiffEntry<String>> queue;
+    private volatile Consumer<? super FileDiffEntry<String>> consumer;
+    private volatile boolean closed;
+    private Thread thread;
+
+    public LocalFileEventSource() {
+        this(new LinkedBlockingQueue<>());
+    }
+
+    public LocalFileEventSource(BlockingQueue<FileDiffEntry<String>> queue) {
+        this.queue = queue;
+    }
+
+    /**
+     * 发布通知
+     */
+    public boolean publish(FileEventKind kind, String uri) {
+        return publish(FileDiffEntry.create(kind, uri));
+    }
+
+    public boolean publish(FileDiffEntry<String> event) {
+        if (closed) {
+            return false;
+        }
+        return queue.offer(event);
+    }
+
+    @Override
+    public synchronized void start(Consumer<? super FileDiffEntry<String>> consumer) {
+        if (thread != null) {
+            throw new IllegalStateException();
+        }
+        this.consumer = consumer;
+        this.thread = new Thread(this, "local-file-event-source");
+        this.thread.setDaemon(true);
+        this.thread.start();
+    }
+
+    @Override
+    public void run() {
+        try {
+            while (!closed) {
+                FileDiffEntry<String> event = queue.take();
+                try {
+                    consumer.accept(event);
+                } catch (RuntimeException ignore) {
+                }
+            }
+        } catch (InterruptedException ignore) {
+        }
+    }
+
+    @Override
+    public synchronized void close() {
+        closed = true;
+        if (thread != null) {
+            thread.interrupt();
+        }
+        queue.clear();
+    }
+}
@@ -4,17 +4,46 @@ import cc.whohow.vfs.FileObjectX;
 import cc.whohow.vfs.version.FileLastModifiedTimeVersionProvider;
 import cc.whohow.vfs.version.FileVersion;
 import cc.whohow.vfs.version.FileVersionProvider;
-import org.apache.commons.vfs2.FileName;
 
+import java.lang.ref.WeakReference;
+import java.nio.file.StandardWatchEventKinds;
 import java.nio.file.WatchEvent;
 import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Iterator;
 import java.util.List;
-import java.util.Map;
-import java.util.Objects;
+import java.util.Queue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
 
+/**
+ * 轮询监听，保存紧凑版本快照，流式对比列举结果，变化信号不变时跳过列举
+ * <p>
+ * 注册到监听服务后，与 java.nio.file.WatchKey 语义一致：检测到事件后进入信号队列，事件累积到 pollEvents() 取出，reset() 后重新就绪
+ */
 public class PollingFileWatchKey<T> implements FileWatchKey {
+    /**
+     * 最大累积事件数，超出后丢弃并产生 OVERFLOW 事件
+     */
+    public static final int MAX_PENDING_EVENTS = 512;
+
     private final PollingFileWatchable<T> watchable;
-    private volatile Map<FileName, FileVersion<T>> versions;
+    private final List<WatchEvent<?>> pending = new ArrayList<>();
+    // 合并、拆分前的监听，调用方可能仍持有，保持有效，本监听的事件按路径转发给它们；不再被引用时自动回收
+    private final List<WeakReference<PollingFileWatchKey<?>>> views = new CopyOnWriteArrayList<>();
+    private volatile FileVersionSnapshot snapshot;
+    private volatile Object signal;
+    private volatile Queue<? super PollingFileWatchKey<?>> signalQueue;
+    private volatile Runnable cancelCallback;
+    // 继承快照覆盖的相对路径，首次轮询时其他文件只建立基线，不产生创建事件
+    private List<String> inherited;
+    private volatile boolean valid = true;
+    // 快照代数，每次轮询确认快照为最新后递增
+    private volatile long generation;
+    private int overflow;
+    private boolean signalled;
 
     public PollingFileWatchKey(FileObjectX fileObject, FileVersionProvider<T> fileVersionProvider) {
         this(new PollingFileWatchable<>(fileObject, fileVersionProvider));
@@ -28,60 +57,332 @@ public class PollingFileWatchKey<T> implements FileWatchKey {
         return new PollingFileWatchKey<>(fileObject, new FileLastModifiedTimeVersionProvider());
     }
 
+    /**
+     * 设置信号队列，检测到事件时进入队列
+     */
+    public void setSignalQueue(Queue<? super PollingFileWatchKey<?>> signalQueue) {
+        this.signalQueue = signalQueue;
+    }
+
+    /**
+     * 设置取消回调，cancel() 后通知监听服务移除轮询任务
+     */
+    void setCancelCallback(Runnable cancelCallback) {
+        this.cancelCallback = cancelCallback;
+    }
+
+    /**
+     * 合并、拆分轮询任务时，在首次轮询前继承原监听的快照，切换期间的变化不丢失；
+     * 原监听不取消，已累积的事件保留，之后的事件由本监听转发
+     */
+    synchronized void inherit(Collection<? extends PollingFileWatchKey<?>> watchKeys) {
+        String root = watchable.getFileObject().getName().getURI();
+        for (PollingFileWatchKey<?> watchKey : watchKeys) {
+            adopt(watchKey, root);
+            for (WeakReference<PollingFileWatchKey<?>> view : watchKey.views) {
+                adopt(view.get(), root);
+            }
+        }
+        FileVersionSnapshot newSnapshot = new FileVersionSnapshot();
+        List<String> covered = new ArrayList<>();
+        for (PollingFileWatchKey<?> watchKey : watchKeys) {
+            FileVersionSnapshot oldSnapshot = watchKey.getSnapshot();
+            if (oldSnapshot == null) {
+                continue;
+            }
+            String oldRoot = watchKey.watchable().getFileObject().getName().getURI();
+            if (PollingFileWatchService.contains(root, oldRoot)) {
+                covered.add(oldRoot.substring(root.length()));
+            } else if (PollingFileWatchService.contains(oldRoot, root)) {
+                covered.add("");
+            } else {
+                continue;
+            }
+            for (int i = 0; i < oldSnapshot.size(); i++) {
+                String uri = oldRoot + oldSnapshot.getName(i);
+                // 原监听目录自身不一定出现在祖先目录的列举中，不继承，避免误报删除
+                if (uri.equals(oldRoot) && !oldRoot.equals(root)) {
+                    continue;
+                }
+                if (PollingFileWatchService.contains(root, uri)) {
+                    String name = uri.substring(root.length());
+                    newSnapshot.add(FileVersionSnapshot.hash(name), oldSnapshot.getVersion(i), name);
+                }
+            }
+        }
+        if (!covered.isEmpty()) {
+            snapshot = newSnapshot;
+            signal = null;
+            inherited = covered;
+        }
+    }
+
+    /**
+     * 与本监听范围重叠的原监听，之后的事件由本监听转发
+     */
+    private void adopt(PollingFileWatchKey<?> watchKey, String root) {
+        if (watchKey == null || watchKey == this || !watchKey.isValid() || getView(watchKey) != null) {
+            return;
+        }
+        String oldRoot = watchKey.watchable().getFileObject().getName().getURI();
+        if (PollingFileWatchService.contains(root, oldRoot) || PollingFileWatchService.contains(oldRoot, root)) {
+            views.add(new WeakReference<>(watchKey));
+        }
+    }
+
+    /**
+     * 停止轮询，转发的原监听已由新监听继承，本监听取消时不再随之失效
+     */
+    void retire() {
+        views.clear();
+    }
+
+    private WeakReference<PollingFileWatchKey<?>> getView(PollingFileWatchKey<?> watchKey) {
+        for (WeakReference<PollingFileWatchKey<?>> view : views) {
+            if (view.get() == watchKey) {
+                return view;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 事件转发给覆盖其路径的原监听
+     */
+    private void route(List<FileWatchEvent> events) {
+        for (WeakReference<PollingFileWatchKey<?>> view : views) {
+            PollingFileWatchKey<?> watchKey = view.get();
+            if (watchKey == null || !watchKey.isValid()) {
+                views.remove(view);
+                continue;
+            }
+            String root = watchKey.watchable().getFileObject().getName().getURI();
+            List<FileWatchEvent> list = new ArrayList<>();
+            for (FileWatchEvent event : events) {
+                if (PollingFileWatchService.contains(root, event.getFile().getName().getURI())) {
+                    list.add(event);
+                }
+            }
+            if (!list.isEmpty()) {
+                watchKey.signal(list);
+            }
+        }
+    }
+
+    private static boolean isCovered(List<String> covered, String name) {
+        if (covered == null) {
+            return true;
+        }
+        if (name.isEmpty()) {
+            // 监听目录自身只建立基线
+            return false;
+        }
+        for (String prefix : covered) {
+            if (prefix.isEmpty()) {
+                return true;
+            }
+            // 原监听目录自身不在原快照中
+            if (prefix.endsWith("/") ? name.length() > prefix.length() && name.startsWith(prefix) : name.equals(prefix)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 轮询检测变化，返回本次事件
+     */
     @Override
     public Iterable<FileWatchEvent> get() {
+        return get(e -> true);
+    }
+
+    /**
+     * 轮询检测变化，返回本次事件，过滤掉的事件不进入信号队列
+     */
+    Iterable<FileWatchEvent> get(Predicate<? super FileWatchEvent> filter) {
         List<FileWatchEvent> list = new ArrayList<>();
         pollEvents(list);
+        list.removeIf(e -> !filter.test(e));
+        if (!list.isEmpty()) {
+            signal(list);
+            route(list);
+        }
         return list;
     }
 
     @Override
     public boolean isValid() {
-        return true;
+        return valid;
     }
 
+    /**
+     * 取出累积事件；未注册到监听服务时，直接轮询检测变化
+     */
     @Override
     public List<WatchEvent<?>> pollEvents() {
-        List<WatchEvent<?>> list = new ArrayList<>();
-        pollEvents(list);
-        return list;
+        if (signalQueue == null) {
+            List<WatchEvent<?>> list = new ArrayList<>();
+            pollEvents(list);
+            return list;
+        }
+        synchronized (pending) {
+            List<WatchEvent<?>> list = new ArrayList<>(pending.size() + 1);
+            if (overflow > 0) {
+                list.add(new Overflow(overflow));
+                overflow = 0;
+            }
+            list.addAll(pending);
+            pending.clear();
+            return list;
+        }
+    }
+
+    /**
+     * 累积事件并进入信号队列
+     */
+    void signal(List<FileWatchEvent> events) {
+        Queue<? super PollingFileWatchKey<?>> queue = signalQueue;
+        if (queue == null) {
+            return;
+        }
+        boolean enqueue;
+        synchronized (pending) {
+            for (FileWatchEvent event : events) {
+                if (pending.size() < MAX_PENDING_EVENTS) {
+                    pending.add(event);
+                } else {
+                    overflow++;
+                }
+            }
+            enqueue = !signalled;
+            signalled = true;
+        }
+        if (enqueue) {
+            queue.offer(this);
+        }
     }
 
     private synchronized void pollEvents(List<? super FileWatchEvent> list) {
         try {
-            Map<FileName, FileVersion<T>> oldVersions = versions;
-            Map<FileName, FileVersion<T>> newVersions = watchable.get();
-            versions = newVersions;
-
-            if (oldVersions == null) {
-                // first run
+            FileVersionSnapshot oldSnapshot = snapshot;
+            Object newSignal = watchable.getSignal();
+            if (oldSnapshot != null && newSignal != null && newSignal.equals(signal)) {
+                // 变化信号不变，跳过列举
+                generation++;
                 return;
             }
-
-            for (Map.Entry<FileName, FileVersion<T>> e : newVersions.entrySet()) {
-                FileVersion<T> newVersion = e.getValue();
-                FileVersion<T> oldVersion = oldVersions.remove(e.getKey());
-                if (oldVersion == null) {
-                    list.add(new FileWatchEvent.Create(newVersion.getFileObject()));
-                } else if (!Objects.equals(oldVersion.getVersion(), newVersion.getVersion())) {
-                    list.add(new FileWatchEvent.Modify(newVersion.getFileObject()));
+            FileVersionSnapshot newSnapshot = new FileVersionSnapshot(
+                    (oldSnapshot == null) ? 16 : oldSnapshot.size());
+            BitSet found = (oldSnapshot == null) ? null : new BitSet(oldSnapshot.size());
+            List<FileWatchEvent> events = new ArrayList<>();
+            try (Stream<FileVersion<T>> stream = watchable.getVersions()) {
+                Iterator<FileVersion<T>> iterator = stream.iterator();
+                while (iterator.hasNext()) {
+                    FileVersion<T> newVersion = iterator.next();
+                    String name = watchable.getRelativeName(newVersion.getFileObject());
+                    long key = FileVersionSnapshot.hash(name);
+                    long version = FileVersionSnapshot.hash(newVersion.getVersion());
+                    if (!newSnapshot.add(key, version, name) || oldSnapshot == null) {
+                        continue;
+                    }
+                    int index = oldSnapshot.indexOf(key);
+                    if (index < 0) {
+                        if (isCovered(inherited, name)) {
+                            events.add(new FileWatchEvent.Create(newVersion.getFileObject()));
+                        }
+                    } else {
+                        found.set(index);
+                        if (oldSnapshot.getVersion(index) != version) {
+                            watchable.invalidate(newVersion.getFileObject());
+                            events.add(new FileWatchEvent.Modify(newVersion.getFileObject()));
+                        }
+                    }
                 }
             }
-            for (FileVersion<?> oldVersion : oldVersions.values()) {
-                list.add(new FileWatchEvent.Delete(oldVersion.getFileObject()));
+            if (oldSnapshot != null) {
+                for (int i = found.nextClearBit(0); i < oldSnapshot.size(); i = found.nextClearBit(i + 1)) {
+                    FileObjectX fileObject = watchable.resolve(oldSnapshot.getName(i));
+                    watchable.invalidate(fileObject);
+                    events.add(new FileWatchEvent.Delete(fileObject));
+                }
             }
+            snapshot = newSnapshot;
+            signal = newSignal;
+            inherited = null;
+            generation++;
+            list.addAll(events);
         } catch (Exception ignore) {
         }
     }
 
+    /**
+     * 快照代数，轮询失败时不变
+     */
+    long getGeneration() {
+        return generation;
+    }
+
+    /**
+     * 快照代数，正在轮询时等待本次轮询结束；监听在列举中途加入时，以本次轮询后的快照为基线
+     */
+    synchronized long getSettledGeneration() {
+        return generation;
+    }
+
+    /**
+     * 当前快照
+     */
+    public FileVersionSnapshot getSnapshot() {
+        return snapshot;
+    }
+
+    /**
+     * 重新就绪，仍有累积事件时重新进入信号队列
+     */
     @Override
     public boolean reset() {
+        if (!valid) {
+            return false;
+        }
+        Queue<? super PollingFileWatchKey<?>> queue = signalQueue;
+        boolean enqueue;
+        synchronized (pending) {
+            enqueue = signalled && (!pending.isEmpty() || overflow > 0);
+            signalled = enqueue;
+        }
+        if (enqueue && queue != null) {
+            queue.offer(this);
+        }
         return true;
     }
 
     @Override
-    public synchronized void cancel() {
-        versions = null;
+    public void cancel() {
+        boolean cancelled;
+        synchronized (this) {
+            cancelled = valid;
+            valid = false;
+            snapshot = null;
+            signal = null;
+            synchronized (pending) {
+                pending.clear();
+                overflow = 0;
+            }
+        }
+        // 回调在锁外执行，避免与监听服务互相等待
+        Runnable callback = cancelCallback;
+        if (cancelled && callback != null) {
+            callback.run();
+        }
+        // 转发的原监听随之失效
+        for (WeakReference<PollingFileWatchKey<?>> view : views) {
+            PollingFileWatchKey<?> watchKey = view.get();
+            if (watchKey != null) {
+                watchKey.cancel();
+            }
+        }
+        views.clear();
     }
 
     @Override
@@ -93,4 +394,30 @@ public class PollingFileWatchKey<T> implements FileWatchKey {
     public String toString() {
         return watchable.toString();
     }
+
+    /**
+     * 事件丢失
+     */
+    private static class Overflow implements WatchEvent<Object> {
+        private final int count;
+
+        Overflow(int count) {
+            this.count = count;
+        }
+
+        @Override
+        public Kind<Object> kind() {
+            return StandardWatchEventKinds.OVERFLOW;
+        }
+
+        @Override
+        public int count() {
+            return count;
+        }
+
+        @Override
+        public Object context() {
+            return null;
+        }
+    }
 }
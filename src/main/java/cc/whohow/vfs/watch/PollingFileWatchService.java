@@ -1,72 +1,373 @@
 package cc.whohow.vfs.watch;
 
+import cc.whohow.vfs.util.TokenBucket;
 import org.apache.commons.vfs2.FileListener;
 import org.apache.commons.vfs2.FileName;
+import org.apache.commons.vfs2.FileSystemException;
 
 import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
 import java.nio.file.WatchKey;
 import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
-import java.util.NavigableMap;
-import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
 import java.util.stream.Collectors;
 
 public class PollingFileWatchService implements FileWatchService<PollingFileWatchable<?>> {
-    private final NavigableMap<FileName, PollingFileWatchTask> tasks = new ConcurrentSkipListMap<>();
+    /**
+     * 默认不合并兄弟监听，只合并相互覆盖的监听：合并到公共祖先会列举祖先目录下未监听的文件，大目录中代价更高
+     */
+    public static final int DEFAULT_COALESCE_DEPTH = Integer.MAX_VALUE;
+    private static final WatchKey CLOSED = new PollingFileWatchKey<>((PollingFileWatchable<Object>) null);
+
+    // 同一目录可有多个轮询任务（版本提供者或变化信号不同）
+    private final Set<PollingFileWatchTask> tasks = ConcurrentHashMap.newKeySet();
     private final ScheduledExecutorService executor;
-    private final Duration delay;
+    private final Map<String, TokenBucket> rateLimits = new ConcurrentHashMap<>();
+    private final BlockingQueue<WatchKey> signalled = new LinkedBlockingQueue<>();
+    private final Map<FileWatchListener, PollingFileWatchable<?>> watchables = new ConcurrentHashMap<>();
+    private final FileListenerDispatcher dispatcher;
+    private volatile boolean closed;
+    private volatile int coalesceDepth = DEFAULT_COALESCE_DEPTH;
+    private volatile AdaptivePollingPolicy policy;
 
     public PollingFileWatchService(ScheduledExecutorService executor) {
         this(executor, Duration.ofSeconds(1));
     }
 
+    /**
+     * @param delay 最小轮询间隔，无变化时指数退避
+     */
     public PollingFileWatchService(ScheduledExecutorService executor, Duration delay) {
+        this(executor, AdaptivePollingPolicy.of(delay));
+    }
+
+    public PollingFileWatchService(ScheduledExecutorService executor, AdaptivePollingPolicy policy) {
+        this(executor, policy, new FileListenerDispatcher());
+    }
+
+    /**
+     * @param dispatcher 监听事件分发器，监听器在独立线程池中执行
+     */
+    public PollingFileWatchService(ScheduledExecutorService executor, AdaptivePollingPolicy policy,
+                                   FileListenerDispatcher dispatcher) {
         this.executor = executor;
-        this.delay = delay;
+        this.policy = policy;
+        this.dispatcher = dispatcher;
+    }
+
+    public AdaptivePollingPolicy getPollingPolicy() {
+        return policy;
+    }
+
+    /**
+     * 设置轮询策略，对新增监听生效
+     */
+    public void setPollingPolicy(AdaptivePollingPolicy policy) {
+        this.policy = policy;
+    }
+
+    /**
+     * 设置每秒轮询次数上限（按协议）
+     */
+    public void setRateLimit(String scheme, double permitsPerSecond) {
+        rateLimits.put(scheme, new TokenBucket(permitsPerSecond));
+    }
+
+    public void removeRateLimit(String scheme) {
+        rateLimits.remove(scheme);
+    }
+
+    /**
+     * 监听事件分发器，可查看监听器积压、延迟、失败次数
+     */
+    public FileListenerDispatcher getDispatcher() {
+        return dispatcher;
+    }
+
+    /**
+     * 所有轮询任务，可查看轮询间隔、变化率、跳过次数
+     */
+    public Collection<PollingFileWatchTask> getTasks() {
+        return Collections.unmodifiableCollection(tasks);
+    }
+
+    /**
+     * 公共祖先目录深度不小于coalesceDepth的兄弟监听合并为一个轮询，默认 Integer.MAX_VALUE 表示不合并兄弟监听；
+     * 祖先目录下未监听的文件较少时可开启，如 1 表示合并到一级目录及以下，不合并到根目录（Bucket）
+     */
+    public int getCoalesceDepth() {
+        return coalesceDepth;
+    }
+
+    public void setCoalesceDepth(int coalesceDepth) {
+        this.coalesceDepth = coalesceDepth;
+    }
+
+    /**
+     * 是否包含（相同或子孙）
+     */
+    static boolean contains(String root, String uri) {
+        return uri.startsWith(root) && (uri.length() == root.length() || root.endsWith("/"));
+    }
+
+    /**
+     * 公共祖先目录
+     */
+    private static String commonAncestor(String a, String b) {
+        int n = Integer.min(a.length(), b.length());
+        int i = 0;
+        while (i < n && a.charAt(i) == b.charAt(i)) {
+            i++;
+        }
+        if (i == a.length() && i == b.length()) {
+            return a;
+        }
+        int slash = a.lastIndexOf('/', i - 1);
+        return (slash < 0) ? "" : a.substring(0, slash + 1);
+    }
+
+    /**
+     * 是否可合并到公共祖先目录
+     */
+    private boolean isCoalescible(String ancestor, FileName fileName) {
+        String rootURI = fileName.getRootURI();
+        if (!ancestor.startsWith(rootURI)) {
+            return false;
+        }
+        int depth = 0;
+        for (int i = rootURI.length(); i < ancestor.length(); i++) {
+            if (ancestor.charAt(i) == '/') {
+                depth++;
+            }
+        }
+        return depth >= coalesceDepth;
+    }
+
+    /**
+     * 是否可共用轮询：版本提供者、变化信号相同；变化信号按监听目录计算，有信号时只共用同一目录的轮询
+     */
+    private static boolean isShareable(PollingFileWatchable<?> watchable, PollingFileWatchTask task) {
+        PollingFileWatchable<?> taskWatchable = task.getWatchKey().watchable();
+        if (!Objects.equals(watchable.getFileVersionProvider(), taskWatchable.getFileVersionProvider()) ||
+                !Objects.equals(watchable.getChangeSignal(), taskWatchable.getChangeSignal())) {
+            return false;
+        }
+        return watchable.getChangeSignal() == null ||
+                watchable.getFileObject().getName().equals(task.getFileName());
+    }
+
+    private static <T> PollingFileWatchable<T> resolve(PollingFileWatchable<T> watchable, String uri) throws FileSystemException {
+        return new PollingFileWatchable<>(watchable.getFileObject().resolveFile(uri), watchable.getFileVersionProvider());
     }
 
+    /**
+     * 获取覆盖文件的轮询任务
+     */
     public synchronized PollingFileWatchTask getTask(FileName fileName) {
-        PollingFileWatchTask task = tasks.get(fileName);
-        if (task != null) {
-            return task;
+        return getTask(fileName, task -> true);
+    }
+
+    private PollingFileWatchTask getTask(FileName fileName, Predicate<PollingFileWatchTask> filter) {
+        for (PollingFileWatchTask task : tasks) {
+            if (task.getFileName().equals(fileName) && filter.test(task)) {
+                return task;
+            }
         }
-        for (Map.Entry<FileName, PollingFileWatchTask> e : tasks.tailMap(fileName).entrySet()) {
-            if (e.getKey().isDescendent(fileName)) {
-                return e.getValue();
+        String uri = fileName.getURI();
+        for (PollingFileWatchTask task : tasks) {
+            if (contains(task.getFileName().getURI(), uri) && filter.test(task)) {
+                return task;
             }
         }
         return null;
     }
 
+    /**
+     * 获取覆盖文件的轮询任务，没有则新建，并合并被覆盖的轮询任务
+     */
     public synchronized PollingFileWatchTask getOrScheduledTask(PollingFileWatchable<?> watchable) {
+        return getOrScheduledTask(watchable, Collections.emptyList(), null, false);
+    }
+
+    /**
+     * @param previous 已移除的原轮询任务，新建任务时继承其快照
+     * @param listener 监听，新建任务时在首次轮询前加入
+     * @param baseline 监听是否以下次轮询为基线（新增监听）
+     */
+    private PollingFileWatchTask getOrScheduledTask(PollingFileWatchable<?> watchable, List<PollingFileWatchTask> previous,
+                                                    FileWatchListener listener, boolean baseline) {
         FileName fileName = watchable.getFileObject().getName();
-        PollingFileWatchTask scheduledTask = getTask(fileName);
+        PollingFileWatchTask scheduledTask = getTask(fileName, task -> isShareable(watchable, task));
         if (scheduledTask != null) {
+            if (listener != null) {
+                scheduledTask.addListener(listener, baseline);
+            }
             return scheduledTask;
         }
-        PollingFileWatchTask task = new PollingFileWatchTask(new PollingFileWatchKey<>(watchable));
-        task.scheduled(executor.scheduleWithFixedDelay(task, 0L, delay.toMillis(), TimeUnit.MILLISECONDS));
-        tasks.put(fileName, task);
+        ensureOpen();
+        // 选择最近的可合并公共祖先目录
+        String uri = fileName.getURI();
+        String root = uri;
+        for (PollingFileWatchTask task : tasks) {
+            if (!isShareable(watchable, task)) {
+                continue;
+            }
+            String ancestor = commonAncestor(uri, task.getFileName().getURI());
+            if (ancestor.length() > 0 && (root.equals(uri) || ancestor.length() > root.length()) &&
+                    isCoalescible(ancestor, fileName)) {
+                root = ancestor;
+            }
+        }
+        PollingFileWatchable<?> rootWatchable = watchable;
+        if (!root.equals(uri)) {
+            try {
+                rootWatchable = resolve(watchable, root);
+            } catch (FileSystemException e) {
+                rootWatchable = watchable;
+                root = uri;
+            }
+        }
+        // 合并被覆盖的轮询任务，继承其快照后停止轮询
+        Map<FileWatchListener, Boolean> listeners = new LinkedHashMap<>();
+        List<PollingFileWatchTask> merged = new ArrayList<>(previous);
+        Iterator<PollingFileWatchTask> iterator = tasks.iterator();
+        while (iterator.hasNext()) {
+            PollingFileWatchTask task = iterator.next();
+            if (contains(root, task.getFileName().getURI()) && isShareable(watchable, task)) {
+                iterator.remove();
+                merged.add(task);
+                for (FileWatchListener mergedListener : task.getListeners()) {
+                    listeners.put(mergedListener, task.isBaseline(mergedListener));
+                }
+            }
+        }
+        if (listener != null) {
+            listeners.put(listener, baseline);
+        }
+        PollingFileWatchTask task = newTask(rootWatchable, merged, listeners);
+        for (PollingFileWatchTask mergedTask : merged) {
+            if (!previous.contains(mergedTask)) {
+                retire(mergedTask);
+            }
+        }
+        return task;
+    }
+
+    /**
+     * 新建轮询任务，先加入监听再调度，首次轮询即建立基线
+     */
+    private PollingFileWatchTask newTask(PollingFileWatchable<?> watchable, List<PollingFileWatchTask> previous,
+                                         Map<FileWatchListener, Boolean> listeners) {
+        FileName fileName = watchable.getFileObject().getName();
+        PollingFileWatchKey<?> watchKey = new PollingFileWatchKey<>(watchable);
+        watchKey.inherit(previous.stream().map(PollingFileWatchTask::getWatchKey).collect(Collectors.toList()));
+        watchKey.setSignalQueue(signalled);
+        PollingFileWatchTask task = new PollingFileWatchTask(watchKey);
+        listeners.forEach(task::addListener);
+        watchKey.setCancelCallback(() -> onCancel(task));
+        String scheme = fileName.getScheme();
+        task.schedule(executor, policy, () -> (scheme == null) ? null : rateLimits.get(scheme), dispatcher);
+        tasks.add(task);
         return task;
     }
 
+    private void cancel(PollingFileWatchTask task) {
+        task.cancel(true);
+        task.getWatchKey().cancel();
+    }
+
+    /**
+     * 合并、拆分后停止原轮询任务，原 WatchKey 保持有效，由新任务转发事件
+     */
+    private void retire(PollingFileWatchTask task) {
+        task.cancel(true);
+        task.getWatchKey().retire();
+    }
+
+    /**
+     * WatchKey 被外部取消，移除轮询任务及其监听；合并、拆分后的原 WatchKey 被取消时任务已移除
+     */
+    private synchronized void onCancel(PollingFileWatchTask task) {
+        if (!tasks.remove(task)) {
+            return;
+        }
+        task.cancel(true);
+        for (FileWatchListener listener : task.getListeners()) {
+            watchables.remove(listener);
+            dispatcher.remove(listener);
+        }
+    }
+
     public synchronized void removeListener(FileWatchListener listener) {
-        PollingFileWatchTask task = getTask(listener.getFileName());
+        watchables.remove(listener);
+        dispatcher.remove(listener);
+        PollingFileWatchTask task = null;
+        for (PollingFileWatchTask t : tasks) {
+            if (t.getListeners().contains(listener)) {
+                task = t;
+                break;
+            }
+        }
         if (task == null) {
             return;
         }
         task.removeListener(listener);
         if (!task.hasListener()) {
-            task.cancel(true);
+            tasks.remove(task);
+            cancel(task);
+            return;
         }
+        shrink(task);
+    }
+
+    /**
+     * 监听减少后，缩小或拆分合并的轮询任务
+     */
+    private void shrink(PollingFileWatchTask task) {
+        FileName fileName = task.getFileName();
+        String root = fileName.getURI();
+        String ancestor = null;
+        for (FileWatchListener listener : task.getListeners()) {
+            String uri = listener.getFileName().getURI();
+            if (uri.equals(root)) {
+                return;
+            }
+            ancestor = (ancestor == null) ? uri : commonAncestor(ancestor, uri);
+        }
+        if (root.equals(ancestor) && isCoalescible(root, fileName)) {
+            return;
+        }
+        tasks.remove(task);
+        List<PollingFileWatchTask> previous = Collections.singletonList(task);
+        for (FileWatchListener listener : task.getListeners()) {
+            PollingFileWatchable<?> watchable = watchables.get(listener);
+            if (watchable != null) {
+                getOrScheduledTask(watchable, previous, listener, task.isBaseline(listener));
+            }
+        }
+        retire(task);
     }
 
     @Override
     public synchronized void addListener(PollingFileWatchable<?> watchable, FileListener listener) {
-        getOrScheduledTask(watchable).addListener(new FileWatchListener(
-                watchable.getFileObject().getName(), listener));
+        FileWatchListener fileWatchListener = new FileWatchListener(watchable.getFileObject().getName(), listener);
+        watchables.put(fileWatchListener, watchable);
+        getOrScheduledTask(watchable, Collections.emptyList(), fileWatchListener, true);
     }
 
     @Override
@@ -77,54 +378,61 @@ public class PollingFileWatchService implements FileWatchService<PollingFileWatc
 
     @Override
     public String toString() {
-        return tasks.values().stream()
+        return tasks.stream()
+                .sorted(Comparator.comparing(PollingFileWatchTask::getFileName))
                 .map(PollingFileWatchTask::toString)
                 .collect(Collectors.joining("\n"));
     }
 
+    /**
+     * 关闭服务，取消所有轮询，唤醒等待线程
+     */
     @Override
-    public void close() throws IOException {
-
+    public synchronized void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        for (PollingFileWatchTask task : tasks) {
+            task.cancel(true);
+        }
+        tasks.clear();
+        watchables.clear();
+        dispatcher.close();
+        signalled.clear();
+        signalled.offer(CLOSED);
     }
 
     @Override
     public WatchKey poll() {
-        for (PollingFileWatchTask task : tasks.values()) {
-            if (task.poll()) {
-                return task.getWatchKey();
-            }
-        }
-        return null;
+        ensureOpen();
+        return checkClosed(signalled.poll());
     }
 
     @Override
     public WatchKey poll(long timeout, TimeUnit unit) throws InterruptedException {
-        long millis = unit.toMillis(timeout);
-        long t = System.currentTimeMillis() + millis;
-        long ts = delay.toMillis();
-        if (ts > millis) {
-            ts = millis;
-        }
-        if (ts < millis / 10) {
-            ts = millis / 10;
-        }
-        do {
-            WatchKey watchKey = poll();
-            if (watchKey != null) {
-                return watchKey;
-            }
-            Thread.sleep(ts);
-        } while (System.currentTimeMillis() < t);
-        return null;
+        ensureOpen();
+        return checkClosed(signalled.poll(timeout, unit));
     }
 
     @Override
     public WatchKey take() throws InterruptedException {
-        while (true) {
-            WatchKey watchKey = poll();
-            if (watchKey != null) {
-                return watchKey;
-            }
+        ensureOpen();
+        return checkClosed(signalled.take());
+    }
+
+    private void ensureOpen() {
+        if (closed) {
+            throw new ClosedWatchServiceException();
+        }
+    }
+
+    private WatchKey checkClosed(WatchKey watchKey) {
+        if (watchKey == CLOSED) {
+            // 唤醒其他等待线程
+            signalled.offer(CLOSED);
+            throw new ClosedWatchServiceException();
         }
+        return watchKey;
     }
 }
@@ -1,77 +1,235 @@
 package cc.whohow.vfs.watch;
 
-import org.apache.commons.vfs2.FileListener;
+import cc.whohow.vfs.util.TokenBucket;
+import org.apache.commons.vfs2.FileName;
 
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.RunnableFuture;
+import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
-import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
 
+/**
+ * 轮询任务，每次执行后按轮询策略重新调度
+ */
 public class PollingFileWatchTask implements RunnableFuture<Void> {
-    private final AtomicBoolean polled = new AtomicBoolean(false);
     private final List<FileWatchListener> listeners = new CopyOnWriteArrayList<>();
+    // 新加入的监听及加入时的快照代数，以加入后的首次轮询为基线，不通知加入前的变化
+    private final Map<FileWatchListener, Long> baseline = new ConcurrentHashMap<>();
     private final PollingFileWatchKey<?> watchKey;
+    private final LongAdder polls = new LongAdder();
+    private final LongAdder changes = new LongAdder();
+    private final LongAdder events = new LongAdder();
+    private final LongAdder skips = new LongAdder();
+    private ScheduledExecutorService executor;
+    private AdaptivePollingPolicy policy;
+    private Supplier<TokenBucket> rateLimit;
+    private FileListenerDispatcher dispatcher;
     private volatile ScheduledFuture<?> future;
+    private volatile boolean cancelled;
+    private volatile long delay;
 
     public PollingFileWatchTask(PollingFileWatchKey<?> watchKey) {
         this.watchKey = watchKey;
     }
 
-    public PollingFileWatchKey getWatchKey() {
+    public PollingFileWatchKey<?> getWatchKey() {
         return watchKey;
     }
 
+    /**
+     * 轮询目录（文件）
+     */
+    public FileName getFileName() {
+        return watchKey.watchable().getFileObject().getName();
+    }
+
     public List<FileWatchListener> getListeners() {
         return Collections.unmodifiableList(listeners);
     }
 
+    /**
+     * 新增监听，加入后的首次轮询只建立基线
+     */
     public void addListener(FileWatchListener listener) {
+        addListener(listener, true);
+    }
+
+    /**
+     * @param baseline 是否以下次轮询为基线，合并、拆分任务时沿用原任务的状态
+     */
+    void addListener(FileWatchListener listener, boolean baseline) {
+        if (baseline) {
+            this.baseline.put(listener, watchKey.getSettledGeneration());
+        }
         this.listeners.add(listener);
     }
 
+    /**
+     * 监听是否还未经过基线轮询
+     */
+    boolean isBaseline(FileWatchListener listener) {
+        return isBaseline(listener, watchKey.getGeneration());
+    }
+
+    /**
+     * 监听加入后快照是否还未更新，基线与快照一致，合并任务时不受轮询进度影响
+     */
+    private boolean isBaseline(FileWatchListener listener, long generation) {
+        Long added = baseline.get(listener);
+        return added != null && added >= generation;
+    }
+
     public void removeListener(FileWatchListener listener) {
         this.listeners.remove(listener);
+        this.baseline.remove(listener);
     }
 
     public boolean hasListener() {
         return !listeners.isEmpty();
     }
 
+    /**
+     * 开始调度，立即执行第一次轮询
+     *
+     * @param rateLimit  限流令牌桶，null表示不限流
+     * @param dispatcher 监听事件分发器，null表示在轮询线程中同步通知
+     */
+    public synchronized void schedule(ScheduledExecutorService executor, AdaptivePollingPolicy policy,
+                                      Supplier<TokenBucket> rateLimit, FileListenerDispatcher dispatcher) {
+        if (this.executor != null) {
+            throw new IllegalStateException();
+        }
+        this.executor = executor;
+        this.policy = policy;
+        this.rateLimit = rateLimit;
+        this.dispatcher = dispatcher;
+        this.delay = policy.getMinDelay();
+        this.future = executor.schedule(this, 0L, TimeUnit.MILLISECONDS);
+    }
+
     @Override
     public void run() {
-        if (listeners.isEmpty()) {
+        if (cancelled || !watchKey.isValid()) {
             return;
         }
-        for (FileWatchEvent e : watchKey.get()) {
-            for (FileListener listener : listeners) {
-                try {
-                    e.notify(listener);
-                } catch (Exception ignore) {
+        try {
+            if (listeners.isEmpty()) {
+                return;
+            }
+            TokenBucket tokenBucket = (rateLimit == null) ? null : rateLimit.get();
+            if (tokenBucket != null && !tokenBucket.tryAcquire()) {
+                // 超出限流，跳过本次轮询，间隔不变
+                skips.increment();
+                return;
+            }
+            polls.increment();
+            long generation = watchKey.getGeneration();
+            long n = 0;
+            for (FileWatchEvent e : watchKey.get()) {
+                n++;
+                for (FileWatchListener listener : listeners) {
+                    if (!isBaseline(listener, generation)) {
+                        notify(listener, e);
+                    }
                 }
             }
+            long polled = watchKey.getGeneration();
+            baseline.values().removeIf(added -> added < polled);
+            if (n > 0) {
+                changes.increment();
+                events.add(n);
+            }
+            delay = policy.next(delay, n > 0);
+        } finally {
+            reschedule();
         }
     }
 
-    @Override
-    public String toString() {
-        return watchKey.toString();
+    private void notify(FileWatchListener listener, FileWatchEvent event) {
+        if (!listener.test(event)) {
+            return;
+        }
+        if (dispatcher != null) {
+            dispatcher.dispatch(listener, event);
+            return;
+        }
+        try {
+            event.notify(listener);
+        } catch (Exception ignore) {
+        }
     }
 
-    public void scheduled(ScheduledFuture<?> future) {
-        if (this.future != null) {
-            throw new IllegalStateException();
+    private synchronized void reschedule() {
+        if (cancelled) {
+            return;
+        }
+        try {
+            future = executor.schedule(this, policy.jitter(delay), TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            // 线程池已关闭
+            cancelled = true;
         }
-        this.future = future;
+    }
+
+    /**
+     * 当前轮询间隔（毫秒，不含抖动）
+     */
+    public long getDelay() {
+        return delay;
+    }
+
+    public long getPollCount() {
+        return polls.longValue();
+    }
+
+    /**
+     * 有变化的轮询次数
+     */
+    public long getChangeCount() {
+        return changes.longValue();
+    }
+
+    public long getEventCount() {
+        return events.longValue();
+    }
+
+    /**
+     * 因限流跳过的轮询次数
+     */
+    public long getSkipCount() {
+        return skips.longValue();
+    }
+
+    /**
+     * 变化率：有变化的轮询次数 / 轮询次数
+     */
+    public double getChangeRate() {
+        long n = getPollCount();
+        return (n == 0) ? 0.0 : (double) getChangeCount() / n;
     }
 
     @Override
-    public boolean cancel(boolean mayInterruptIfRunning) {
+    public String toString() {
+        return watchKey + " (delay: " + getDelay() + "ms" +
+                ", polls: " + getPollCount() +
+                ", changes: " + getChangeCount() +
+                ", skips: " + getSkipCount() + ")";
+    }
+
+    @Override
+    public synchronized boolean cancel(boolean mayInterruptIfRunning) {
         if (future == null) {
             throw new IllegalStateException();
         }
+        cancelled = true;
         return future.cancel(mayInterruptIfRunning);
     }
 
@@ -80,7 +238,7 @@ public class PollingFileWatchTask implements RunnableFuture<Void> {
         if (future == null) {
             throw new IllegalStateException();
         }
-        return future.isCancelled();
+        return cancelled;
     }
 
     @Override
@@ -88,7 +246,7 @@ public class PollingFileWatchTask implements RunnableFuture<Void> {
         if (future == null) {
             throw new IllegalStateException();
         }
-        return future.isDone();
+        return cancelled;
     }
 
     @Override
@@ -100,12 +258,4 @@ public class PollingFileWatchTask implements RunnableFuture<Void> {
     public Void get(long timeout, TimeUnit unit) {
         throw new UnsupportedOperationException();
     }
-
-    public boolean poll() {
-        return polled.compareAndSet(false, true);
-    }
-
-    public boolean isPolled() {
-        return polled.get();
-    }
 }
@@ -1,9 +1,12 @@
 package cc.whohow.vfs.watch;
 
 import cc.whohow.vfs.FileObjectX;
+import cc.whohow.vfs.FileObjects;
+import cc.whohow.vfs.FileSystemX;
 import cc.whohow.vfs.version.FileVersion;
 import cc.whohow.vfs.version.FileVersionProvider;
 import org.apache.commons.vfs2.FileName;
+import org.apache.commons.vfs2.FileSystemException;
 
 import java.io.IOException;
 import java.nio.file.WatchEvent;
@@ -19,19 +22,79 @@ import java.util.stream.Stream;
 public class PollingFileWatchable<T> implements FileWatchable, Supplier<Map<FileName, FileVersion<T>>> {
     private final FileObjectX fileObject;
     private final FileVersionProvider<T> fileVersionProvider;
+    private final String uri;
+    private volatile FileChangeSignal changeSignal;
 
     public PollingFileWatchable(FileObjectX fileObject, FileVersionProvider<T> fileVersionProvider) {
         this.fileObject = fileObject;
         this.fileVersionProvider = fileVersionProvider;
+        this.uri = fileObject.getName().getURI();
     }
 
     public FileObjectX getFileObject() {
         return fileObject;
     }
 
+    public FileVersionProvider<T> getFileVersionProvider() {
+        return fileVersionProvider;
+    }
+
+    public FileChangeSignal getChangeSignal() {
+        return changeSignal;
+    }
+
+    public PollingFileWatchable<T> setChangeSignal(FileChangeSignal changeSignal) {
+        this.changeSignal = changeSignal;
+        return this;
+    }
+
+    /**
+     * 获取变化信号，不支持返回null
+     */
+    public Object getSignal() throws FileSystemException {
+        FileChangeSignal signal = changeSignal;
+        return (signal == null) ? null : signal.get(fileObject);
+    }
+
+    /**
+     * 相对路径
+     */
+    public String getRelativeName(FileObjectX file) {
+        String name = file.getName().getURI();
+        return name.startsWith(uri) ? name.substring(uri.length()) : name;
+    }
+
+    /**
+     * 根据相对路径获取文件
+     */
+    public FileObjectX resolve(String relativeName) throws FileSystemException {
+        return relativeName.isEmpty() ? fileObject : fileObject.resolveFile(relativeName);
+    }
+
+    /**
+     * 文件变化，使属性缓存失效
+     */
+    public void invalidate(FileObjectX fileObject) {
+        FileSystemX fileSystem = fileObject.getFileSystem();
+        if (fileSystem != null) {
+            fileSystem.invalidate(fileObject);
+        }
+    }
+
+    /**
+     * 流式获取文件版本，需关闭
+     */
+    public Stream<FileVersion<T>> getVersions() {
+        if (FileObjects.isFile(fileObject)) {
+            // 单个文件不经过列举，读取最新属性
+            invalidate(fileObject);
+        }
+        return fileVersionProvider.getVersions(fileObject);
+    }
+
     @Override
     public Map<FileName, FileVersion<T>> get() {
-        try (Stream<FileVersion<T>> stream = fileVersionProvider.getVersions(fileObject)) {
+        try (Stream<FileVersion<T>> stream = getVersions()) {
             return stream.collect(Collectors.toMap(
                     f -> f.getFileObject().getName(), Function.identity(), (a, b) -> a, LinkedHashMap::new));
         }
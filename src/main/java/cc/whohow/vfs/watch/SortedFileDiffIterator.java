@@ -0,0 +1,107 @@
+package cc.whohow.vfs.watch;
+
+import java.util.*;
+import java.util.function.BiPredicate;
+import java.util.function.Function;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * 有序列表差异，新旧列表均按key排序，同步遍历，内存占用与列表长度无关
+ */
+public class SortedFileDiffIterator<T, K, V> implements Iterator<FileDiffEntry<K>> {
+    private final Function<T, K> key;
+    private final Function<T, V> value;
+    private final BiPredicate<V, V> equals;
+    private final Comparator<? super K> comparator;
+    private final Iterator<T> newList;
+    private final Iterator<T> oldList;
+    private boolean hasNew;
+    private K newKey;
+    private V newValue;
+    private boolean hasOld;
+    private K oldKey;
+    private V oldValue;
+
+    public SortedFileDiffIterator(Function<T, K> key, Function<T, V> value, Comparator<? super K> comparator,
+                                  Iterator<T> newList, Iterator<T> oldList) {
+        this(key, value, Objects::equals, comparator, newList, oldList);
+    }
+
+    public SortedFileDiffIterator(Function<T, K> key, Function<T, V> value, BiPredicate<V, V> equals, Comparator<? super K> comparator,
+                                  Iterator<T> newList, Iterator<T> oldList) {
+        this.key = key;
+        this.value = value;
+        this.equals = equals;
+        this.comparator = comparator;
+        this.newList = newList;
+        this.oldList = oldList;
+        nextNew();
+        nextOld();
+    }
+
+    @Override
+    public boolean hasNext() {
+        return hasNew || hasOld;
+    }
+
+    @Override
+    public FileDiffEntry<K> next() {
+        if (!hasNew && !hasOld) {
+            throw new NoSuchElementException();
+        }
+        int c = !hasNew ? 1 : !hasOld ? -1 : comparator.compare(newKey, oldKey);
+        if (c < 0) {
+            K k = newKey;
+            nextNew();
+            return new FileDiffEntry.Create<>(k);
+        }
+        if (c > 0) {
+            K k = oldKey;
+            nextOld();
+            return new FileDiffEntry.Delete<>(k);
+        }
+        K k = newKey;
+        boolean notModified = (oldValue == null) ? newValue == null : newValue != null && equals.test(oldValue, newValue);
+        nextNew();
+        nextOld();
+        if (notModified) {
+            return new FileDiffEntry.NotModified<>(k);
+        } else {
+            return new FileDiffEntry.Modify<>(k);
+        }
+    }
+
+    private void nextNew() {
+        K previous = newKey;
+        hasNew = newList.hasNext();
+        if (hasNew) {
+            T next = newList.next();
+            newKey = key.apply(next);
+            newValue = value.apply(next);
+            checkOrder(previous, newKey);
+        }
+    }
+
+    private void nextOld() {
+        K previous = oldKey;
+        hasOld = oldList.hasNext();
+        if (hasOld) {
+            T next = oldList.next();
+            oldKey = key.apply(next);
+            oldValue = value.apply(next);
+            checkOrder(previous, oldKey);
+        }
+    }
+
+    private void checkOrder(K previous, K next) {
+        if (previous != null && comparator.compare(previous, next) >= 0) {
+            throw new IllegalStateException("not sorted: " + previous + ", " + next);
+        }
+    }
+
+    public Stream<FileDiffEntry<K>> stream() {
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(this,
+                Spliterator.ORDERED | Spliterator.NONNULL), false);
+    }
+}
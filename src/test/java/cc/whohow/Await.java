@@ -0,0 +1,47 @@
+package cc.whohow;
+
+import cc.whohow.vfs.watch.PollingFileWatchService;
+import cc.whohow.vfs.watch.PollingFileWatchTask;
+import org.junit.Assert;
+
+import java.util.Map;
+import java.util.function.BooleanSupplier;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * 测试等待异步结果：轮询条件直到满足，超时失败
+ */
+class Await {
+    private static final long TIMEOUT = 5000;
+
+    static void until(BooleanSupplier condition) throws InterruptedException {
+        until(condition, TIMEOUT);
+    }
+
+    static void until(BooleanSupplier condition, long timeoutMillis) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + timeoutMillis;
+        while (!condition.getAsBoolean()) {
+            if (System.currentTimeMillis() > deadline) {
+                Assert.fail("timeout after " + timeoutMillis + "ms");
+            }
+            Thread.sleep(5);
+        }
+    }
+
+    /**
+     * 等待所有轮询任务建立基线
+     */
+    static void baseline(PollingFileWatchService watchService) throws InterruptedException {
+        until(() -> watchService.getTasks().stream().allMatch(t -> t.getWatchKey().getSnapshot() != null));
+    }
+
+    /**
+     * 等待所有轮询任务完成至少一次完整轮询
+     */
+    static void polled(PollingFileWatchService watchService) throws InterruptedException {
+        Map<PollingFileWatchTask, Long> polls = watchService.getTasks().stream()
+                .collect(Collectors.toMap(Function.identity(), PollingFileWatchTask::getPollCount));
+        until(() -> polls.entrySet().stream().allMatch(e -> e.getKey().getPollCount() >= e.getValue() + 2));
+    }
+}
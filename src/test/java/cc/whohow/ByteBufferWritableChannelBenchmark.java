@@ -0,0 +1,50 @@
+package cc.whohow;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 内存写入流序列化、反序列化往返的耗时、分配，分配量使用 -prof gc 查看
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ByteBufferWritableChannelBenchmark {
+    @Param({"16", "1024", "1048576", "16777216"})
+    private int size;
+    private byte[] data;
+
+    @Setup
+    public void setUp() {
+        data = TestByteBufferWritableChannel.random(size);
+    }
+
+    @Benchmark
+    public ByteBuffer roundTrip() throws Exception {
+        return TestByteBufferWritableChannel.roundTrip(data);
+    }
+
+    public static void main(String[] args) throws Exception {
+        new Runner(new OptionsBuilder()
+                .include(ByteBufferWritableChannelBenchmark.class.getSimpleName())
+                .addProfiler("gc")
+                .build()).run();
+    }
+}
@@ -0,0 +1,109 @@
+package cc.whohow;
+
+import cc.whohow.vfs.io.IO;
+import com.aliyun.oss.OSS;
+import com.aliyun.oss.model.*;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.nio.ByteBuffer;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 内存OSS，记录分片上传顺序、并发数
+ */
+public class InMemoryOSS implements InvocationHandler {
+    public final Map<String, byte[]> objects = new ConcurrentHashMap<>();
+    public final Map<String, Map<Integer, byte[]>> uploads = new ConcurrentHashMap<>();
+    public final List<Integer> uploadedParts = new CopyOnWriteArrayList<>();
+    public final List<String> aborted = new CopyOnWriteArrayList<>();
+    public final AtomicInteger concurrency = new AtomicInteger();
+    public final AtomicInteger maxConcurrency = new AtomicInteger();
+    public final AtomicInteger putObjects = new AtomicInteger();
+    public volatile long latency = 0;
+    public volatile int failPartNumber = -1;
+
+    public OSS newProxyInstance() {
+        return (OSS) Proxy.newProxyInstance(OSS.class.getClassLoader(), new Class[]{OSS.class}, this);
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+        switch (method.getName()) {
+            case "initiateMultipartUpload":
+                return initiateMultipartUpload((InitiateMultipartUploadRequest) args[0]);
+            case "uploadPart":
+                return uploadPart((UploadPartRequest) args[0]);
+            case "completeMultipartUpload":
+                return completeMultipartUpload((CompleteMultipartUploadRequest) args[0]);
+            case "abortMultipartUpload":
+                aborted.add(((AbortMultipartUploadRequest) args[0]).getUploadId());
+                uploads.remove(((AbortMultipartUploadRequest) args[0]).getUploadId());
+                return null;
+            case "putObject":
+                putObjects.incrementAndGet();
+                objects.put((String) args[1], read((InputStream) args[2]));
+                return new PutObjectResult();
+            case "toString":
+                return "InMemoryOSS";
+            default:
+                throw new UnsupportedOperationException(method.toString());
+        }
+    }
+
+    private InitiateMultipartUploadResult initiateMultipartUpload(InitiateMultipartUploadRequest request) {
+        String uploadId = UUID.randomUUID().toString();
+        uploads.put(uploadId, new ConcurrentHashMap<>());
+        InitiateMultipartUploadResult result = new InitiateMultipartUploadResult();
+        result.setUploadId(uploadId);
+        return result;
+    }
+
+    private UploadPartResult uploadPart(UploadPartRequest request) throws Exception {
+        int n = concurrency.incrementAndGet();
+        maxConcurrency.accumulateAndGet(n, Math::max);
+        try {
+            uploadedParts.add(request.getPartNumber());
+            byte[] data = read(request.getInputStream());
+            if (data.length != request.getPartSize()) {
+                throw new IllegalArgumentException("part size: " + data.length);
+            }
+            Thread.sleep(latency);
+            if (request.getPartNumber() == failPartNumber) {
+                throw new IllegalStateException("part " + failPartNumber);
+            }
+            uploads.get(request.getUploadId()).put(request.getPartNumber(), data);
+            UploadPartResult result = new UploadPartResult();
+            result.setPartNumber(request.getPartNumber());
+            result.setETag(request.getUploadId() + "-" + request.getPartNumber());
+            return result;
+        } finally {
+            concurrency.decrementAndGet();
+        }
+    }
+
+    private CompleteMultipartUploadResult completeMultipartUpload(CompleteMultipartUploadRequest request) throws IOException {
+        Map<Integer, byte[]> parts = uploads.remove(request.getUploadId());
+        ByteBuffer object = ByteBuffer.allocate(parts.values().stream().mapToInt(b -> b.length).sum());
+        int partNumber = 0;
+        for (PartETag partETag : request.getPartETags()) {
+            if (partETag.getPartNumber() != ++partNumber ||
+                    !partETag.getETag().equals(request.getUploadId() + "-" + partNumber)) {
+                throw new IllegalArgumentException(partETag.getPartNumber() + ": " + partETag.getETag());
+            }
+            object.put(parts.get(partNumber));
+        }
+        objects.put(request.getKey(), object.array());
+        return new CompleteMultipartUploadResult();
+    }
+
+    private static byte[] read(InputStream stream) throws IOException {
+        return IO.getByteArray(IO.read(stream));
+    }
+}
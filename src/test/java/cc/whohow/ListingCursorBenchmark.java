@@ -0,0 +1,54 @@
+package cc.whohow;
+
+import cc.whohow.vfs.version.FileVersionView;
+import com.aliyun.oss.model.ObjectListing;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 列举游标与逐项创建文件对象的耗时、分配对比，分配量使用 -prof gc 查看
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ListingCursorBenchmark {
+    private List<ObjectListing> pages;
+
+    @Setup
+    public void setUp() {
+        pages = TestListingCursor.pages(100, 1000);
+    }
+
+    @Benchmark
+    public List<FileVersionView> fileObject() throws Exception {
+        return TestListingCursor.listByFileObject(pages);
+    }
+
+    @Benchmark
+    public List<FileVersionView> cursor() {
+        return TestListingCursor.listByCursor(pages);
+    }
+
+    public static void main(String[] args) throws Exception {
+        new Runner(new OptionsBuilder()
+                .include(ListingCursorBenchmark.class.getSimpleName())
+                .addProfiler("gc")
+                .build()).run();
+    }
+}
@@ -0,0 +1,67 @@
+package cc.whohow;
+
+import cc.whohow.vfs.path.PrefixIndex;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 挂载点前缀索引与线性扫描的耗时对比
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class PrefixIndexBenchmark {
+    @Param({"10", "100", "1000"})
+    private int junctionCount;
+    private NavigableMap<String, String> junctions;
+    private PrefixIndex<String> index;
+    private List<String> uris;
+
+    @Setup
+    public void setUp() {
+        junctions = TestPrefixIndex.junctions(junctionCount);
+        index = new PrefixIndex<>(junctions);
+        uris = TestPrefixIndex.uris(junctionCount, 10000);
+    }
+
+    @Benchmark
+    public void scan(Blackhole blackhole) {
+        for (String uri : uris) {
+            blackhole.consume(TestPrefixIndex.scan(junctions, uri));
+        }
+    }
+
+    @Benchmark
+    public void index(Blackhole blackhole) {
+        for (String uri : uris) {
+            Map.Entry<String, String> matched = index.match(uri);
+            blackhole.consume(matched == null ? null : matched.getValue());
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        new Runner(new OptionsBuilder()
+                .include(PrefixIndexBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
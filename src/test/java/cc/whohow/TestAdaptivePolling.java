@@ -0,0 +1,125 @@
+package cc.whohow;
+
+import cc.whohow.vfs.FileObjectX;
+import cc.whohow.vfs.provider.kv.KeyValueFileObject;
+import cc.whohow.vfs.provider.uri.UriFileName;
+import cc.whohow.vfs.serialize.TextSerializer;
+import cc.whohow.vfs.util.TokenBucket;
+import cc.whohow.vfs.version.FileVersion;
+import cc.whohow.vfs.version.FileVersionProvider;
+import cc.whohow.vfs.watch.AdaptivePollingPolicy;
+import cc.whohow.vfs.watch.PollingFileWatchService;
+import cc.whohow.vfs.watch.PollingFileWatchTask;
+import cc.whohow.vfs.watch.PollingFileWatchable;
+import org.apache.commons.vfs2.FileChangeEvent;
+import org.apache.commons.vfs2.FileListener;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.time.Duration;
+import java.util.NavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.ToLongFunction;
+
+public class TestAdaptivePolling {
+    private final NavigableMap<String, String> data = new ConcurrentSkipListMap<>();
+    private final ScheduledExecutorService executor = Executors.newScheduledThreadPool(2);
+    private final AtomicInteger changed = new AtomicInteger();
+    private final FileVersionProvider<String> versionProvider = new FileVersionProvider<String>() {
+        @Override
+        @SuppressWarnings("unchecked")
+        public FileVersion<String> getVersion(FileObjectX fileObject) {
+            return new FileVersion<>(fileObject, ((KeyValueFileObject<String>) fileObject).get());
+        }
+    };
+    private final FileListener listener = new FileListener() {
+        @Override
+        public void fileCreated(FileChangeEvent event) {
+        }
+
+        @Override
+        public void fileDeleted(FileChangeEvent event) {
+        }
+
+        @Override
+        public void fileChanged(FileChangeEvent event) {
+            changed.incrementAndGet();
+        }
+    };
+
+    @After
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private PollingFileWatchable<String> watchable(String uri) {
+        return new PollingFileWatchable<>(new KeyValueFileObject<>(
+                null, TextSerializer.utf8(), data, new UriFileName(uri)), versionProvider);
+    }
+
+    @Test
+    public void testPolicy() {
+        AdaptivePollingPolicy policy = new AdaptivePollingPolicy(
+                Duration.ofMillis(100), Duration.ofMillis(1000), 2.0, 0.2);
+        Assert.assertEquals(200, policy.next(100, false));
+        Assert.assertEquals(1000, policy.next(800, false));
+        Assert.assertEquals(100, policy.next(800, true));
+        for (int i = 0; i < 1000; i++) {
+            long delay = policy.jitter(1000);
+            Assert.assertTrue(delay >= 800 && delay <= 1200);
+        }
+        Assert.assertEquals(100, new AdaptivePollingPolicy(Duration.ofMillis(100)).jitter(100));
+    }
+
+    @Test
+    public void testTokenBucket() throws Exception {
+        TokenBucket tokenBucket = new TokenBucket(10, 2);
+        Assert.assertTrue(tokenBucket.tryAcquire());
+        Assert.assertTrue(tokenBucket.tryAcquire());
+        Assert.assertFalse(tokenBucket.tryAcquire());
+        // 每100毫秒补充1个
+        Await.until(tokenBucket::tryAcquire, 500);
+    }
+
+    @Test
+    public void testBackoff() throws Exception {
+        data.put("/dir/a", "1");
+        PollingFileWatchService watchService = new PollingFileWatchService(executor,
+                new AdaptivePollingPolicy(Duration.ofMillis(10), Duration.ofMillis(80), 2.0, 0.0));
+        watchService.addListener(watchable("kv:/dir/"), listener);
+        PollingFileWatchTask task = watchService.getTasks().iterator().next();
+        // 10, 20, 40, 80
+        Await.until(() -> task.getDelay() == 80);
+        Assert.assertTrue(task.getPollCount() < 15);
+
+        data.put("/dir/a", "2");
+        Await.until(() -> changed.get() == 1);
+        Assert.assertEquals(1, task.getChangeCount());
+        Assert.assertTrue(task.getChangeRate() > 0);
+    }
+
+    @Test
+    public void testRateLimit() throws Exception {
+        data.put("/a/x", "1");
+        data.put("/b/x", "1");
+        PollingFileWatchService watchService = new PollingFileWatchService(executor,
+                new AdaptivePollingPolicy(Duration.ofMillis(10)));
+        watchService.setRateLimit("kv", 10);
+        watchService.addListener(watchable("kv:/a/"), listener);
+        watchService.addListener(watchable("kv:/b/"), listener);
+        long start = System.nanoTime();
+        // 两个任务每10毫秒轮询，限流每秒10次（容量10）
+        Await.until(() -> count(watchService, PollingFileWatchTask::getSkipCount) >= 20);
+        long polls = count(watchService, PollingFileWatchTask::getPollCount);
+        double seconds = (System.nanoTime() - start) / 1e9;
+        Assert.assertTrue(polls <= 10 + 10 * seconds + 1);
+    }
+
+    private static long count(PollingFileWatchService watchService, ToLongFunction<PollingFileWatchTask> counter) {
+        return watchService.getTasks().stream().mapToLong(counter).sum();
+    }
+}
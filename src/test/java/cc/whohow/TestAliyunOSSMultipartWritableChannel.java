@@ -0,0 +1,104 @@
+package cc.whohow;
+
+import cc.whohow.vfs.provider.aliyun.oss.AliyunOSSMultipartWritableChannel;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.TreeSet;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+public class TestAliyunOSSMultipartWritableChannel {
+    private static final int PART_SIZE = AliyunOSSMultipartWritableChannel.MIN_PART_SIZE;
+
+    private final InMemoryOSS oss = new InMemoryOSS();
+    private final ExecutorService executor = Executors.newFixedThreadPool(8);
+
+    @After
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private static byte[] random(int size) {
+        byte[] data = new byte[size];
+        new Random(size).nextBytes(data);
+        return data;
+    }
+
+    @Test
+    public void testParallelUpload() throws Exception {
+        oss.latency = 50;
+        byte[] data = random(10 * PART_SIZE + PART_SIZE / 2);
+        try (AliyunOSSMultipartWritableChannel channel = new AliyunOSSMultipartWritableChannel(
+                oss.newProxyInstance(), "bucket", "key", PART_SIZE, 4, executor)) {
+            for (int i = 0; i < data.length; i += 8 * 1024) {
+                channel.write(data, i, Integer.min(8 * 1024, data.length - i));
+            }
+        }
+        Assert.assertArrayEquals(data, oss.objects.get("key"));
+        Assert.assertEquals(11, oss.uploadedParts.size());
+        Assert.assertTrue(oss.maxConcurrency.get() > 1);
+        Assert.assertTrue(oss.maxConcurrency.get() <= 4);
+        Assert.assertTrue(oss.uploads.isEmpty());
+    }
+
+    @Test
+    public void testTransferFrom() throws Exception {
+        byte[] data = random(3 * PART_SIZE + 1);
+        try (AliyunOSSMultipartWritableChannel channel = new AliyunOSSMultipartWritableChannel(
+                oss.newProxyInstance(), "bucket", "key", PART_SIZE, 2, executor)) {
+            Assert.assertEquals(data.length, channel.transferFrom(new ByteArrayInputStream(data)));
+        }
+        Assert.assertArrayEquals(data, oss.objects.get("key"));
+        // 分片并行上传，完成顺序不确定
+        Assert.assertEquals(new TreeSet<>(Arrays.asList(1, 2, 3, 4)), new TreeSet<>(oss.uploadedParts));
+        Assert.assertEquals(4, oss.uploadedParts.size());
+    }
+
+    @Test
+    public void testSynchronousUpload() throws Exception {
+        byte[] data = random(2 * PART_SIZE + 100);
+        try (AliyunOSSMultipartWritableChannel channel = new AliyunOSSMultipartWritableChannel(
+                oss.newProxyInstance(), "bucket", "key", PART_SIZE)) {
+            channel.write(data);
+        }
+        Assert.assertArrayEquals(data, oss.objects.get("key"));
+        Assert.assertEquals(Arrays.asList(1, 2, 3), oss.uploadedParts);
+        Assert.assertEquals(1, oss.maxConcurrency.get());
+    }
+
+    @Test
+    public void testSmallObject() throws Exception {
+        byte[] data = random(100);
+        try (AliyunOSSMultipartWritableChannel channel = new AliyunOSSMultipartWritableChannel(
+                oss.newProxyInstance(), "bucket", "key", PART_SIZE, 4, executor)) {
+            channel.write(data);
+        }
+        Assert.assertArrayEquals(data, oss.objects.get("key"));
+        Assert.assertEquals(1, oss.putObjects.get());
+        Assert.assertTrue(oss.uploadedParts.isEmpty());
+    }
+
+    @Test
+    public void testAbortOnFailure() throws Exception {
+        oss.failPartNumber = 2;
+        byte[] data = random(6 * PART_SIZE);
+        boolean failed = false;
+        try (AliyunOSSMultipartWritableChannel channel = new AliyunOSSMultipartWritableChannel(
+                oss.newProxyInstance(), "bucket", "key", PART_SIZE, 2, executor)) {
+            channel.write(data);
+        } catch (IOException e) {
+            // 失败的分片可能在 write 或 close 时报告
+            failed = true;
+        }
+        Assert.assertTrue(failed);
+        Assert.assertFalse(oss.objects.containsKey("key"));
+        Assert.assertEquals(1, oss.aborted.size());
+        Assert.assertTrue(oss.uploads.isEmpty());
+    }
+}
@@ -0,0 +1,141 @@
+package cc.whohow;
+
+import cc.whohow.vfs.operations.BatchRemove;
+import cc.whohow.vfs.operations.Remove;
+import cc.whohow.vfs.provider.kv.KeyValueFileObject;
+import cc.whohow.vfs.provider.uri.UriFileName;
+import cc.whohow.vfs.serialize.TextSerializer;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class TestBatchRemove {
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * 模拟批量删除接口：每批耗时 latency 毫秒，"7" 结尾的键第一次删除失败，"bad" 总是失败
+     */
+    private class SimulatedRemove extends BatchRemove<String> {
+        final List<String> keys;
+        final long latency;
+        final Set<String> attempted = ConcurrentHashMap.newKeySet();
+        final AtomicInteger concurrency = new AtomicInteger();
+        final AtomicInteger maxConcurrency = new AtomicInteger();
+        // 批次在此汇合，全部到达才继续
+        volatile CountDownLatch overlap;
+
+        SimulatedRemove(List<String> keys, ExecutorService executor, int maxInFlightBatches, long latency) {
+            super(100, maxInFlightBatches, 3, executor);
+            this.keys = keys;
+            this.latency = latency;
+            this.retryInterval = 1;
+        }
+
+        @Override
+        protected Iterator<String> list() {
+            return keys.iterator();
+        }
+
+        @Override
+        protected int delete(List<String> batch, List<String> failed) throws Exception {
+            maxConcurrency.accumulateAndGet(concurrency.incrementAndGet(), Math::max);
+            try {
+                Thread.sleep(latency);
+                CountDownLatch latch = overlap;
+                if (latch != null) {
+                    latch.countDown();
+                    if (!latch.await(5, TimeUnit.SECONDS)) {
+                        throw new IllegalStateException("batches not deleted concurrently");
+                    }
+                }
+                if (batch.contains("k500") && attempted.add("k500")) {
+                    throw new IllegalStateException("batch");
+                }
+                for (String key : batch) {
+                    if (key.equals("bad") || (key.endsWith("7") && attempted.add(key))) {
+                        failed.add(key);
+                    }
+                }
+                return batch.size() - failed.size();
+            } finally {
+                concurrency.decrementAndGet();
+            }
+        }
+    }
+
+    private static List<String> keys(int n) {
+        List<String> keys = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            keys.add("k" + i);
+        }
+        return keys;
+    }
+
+    @Test
+    public void testRetry() throws Exception {
+        List<String> keys = keys(2500);
+        keys.add("bad");
+        SimulatedRemove remove = new SimulatedRemove(keys, executor, 4, 5);
+        Remove.Result result = remove.get();
+        Assert.assertEquals(2500, result.getDeleted());
+        Assert.assertEquals(1, result.getFailed());
+        Assert.assertTrue(remove.maxConcurrency.get() > 1);
+        Assert.assertTrue(remove.maxConcurrency.get() <= 4);
+    }
+
+    @Test
+    public void testParallel() throws Exception {
+        List<String> keys = keys(2000);
+        SimulatedRemove serial = new SimulatedRemove(keys, executor, 1, 0);
+        Remove.Result serialResult = serial.get();
+        Assert.assertEquals(1, serial.maxConcurrency.get());
+
+        // 8 个批次同时删除才能通过汇合点
+        SimulatedRemove parallel = new SimulatedRemove(keys, executor, 8, 0);
+        parallel.overlap = new CountDownLatch(8);
+        Remove.Result parallelResult = parallel.get();
+        Assert.assertEquals(serialResult.getDeleted(), parallelResult.getDeleted());
+        Assert.assertEquals(0, parallel.overlap.getCount());
+        Assert.assertEquals(8, parallel.maxConcurrency.get());
+    }
+
+    @Test
+    public void testFileObject() throws Exception {
+        NavigableMap<String, String> data = new ConcurrentSkipListMap<>();
+        for (int i = 0; i < 250; i++) {
+            data.put("/root/d" + (i % 5) + "/f" + i, "f" + i);
+        }
+        data.put("/other", "other");
+        KeyValueFileObject<String> root = new KeyValueFileObject<>(null, TextSerializer.utf8(), data, new UriFileName("kv:/root/"));
+        Remove.Result result = root.removeAll();
+        Assert.assertEquals(250, result.getDeleted());
+        Assert.assertEquals(0, result.getFailed());
+        Assert.assertEquals(1, data.size());
+
+        // 指定线程池并行删除
+        for (int i = 0; i < 250; i++) {
+            data.put("/root/d" + (i % 5) + "/f" + i, "f" + i);
+        }
+        result = root.removeAll(executor, 4);
+        Assert.assertEquals(250, result.getDeleted());
+        Assert.assertEquals(1, data.size());
+    }
+}
@@ -0,0 +1,136 @@
+package cc.whohow;
+
+import cc.whohow.vfs.io.ByteBufferPool;
+import cc.whohow.vfs.io.ByteBufferWritableChannel;
+import cc.whohow.vfs.io.IO;
+import cc.whohow.vfs.io.ReadableChannel;
+import cc.whohow.vfs.io.ReadableChannelAdapter;
+import cc.whohow.vfs.io.WritableChannel;
+import cc.whohow.vfs.io.WritableChannelAdapter;
+import cc.whohow.vfs.serialize.BinarySerializer;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+
+public class TestByteBufferWritableChannel {
+    /**
+     * available() 为 0 的流，模拟网络流
+     */
+    private static InputStream unknownSize(byte[] data) {
+        return new ByteArrayInputStream(data) {
+            @Override
+            public synchronized int available() {
+                return 0;
+            }
+        };
+    }
+
+    @Test
+    public void testChunks() throws Exception {
+        ByteBufferPool pool = new ByteBufferPool(16, 4);
+        byte[] data = random(100);
+        ByteBufferWritableChannel channel = new ByteBufferWritableChannel(ByteBuffer.allocate(10), pool);
+        channel.write(data, 0, 3);
+        channel.write(ByteBuffer.wrap(data, 3, 40));
+        channel.write(data[43]);
+        channel.transferFrom(new ByteArrayInputStream(data, 44, 56));
+        Assert.assertEquals(100, channel.size());
+        Assert.assertEquals(ByteBuffer.wrap(data), channel.toByteBuffer());
+        // 合并后池化块归还
+        Assert.assertEquals(4, pool.size());
+        Assert.assertEquals(100, channel.getByteBuffer().position());
+
+        channel.write(data, 0, 20);
+        Assert.assertEquals(120, channel.toByteBuffer().remaining());
+        Assert.assertTrue(pool.getHitCount() > 0);
+    }
+
+    @Test
+    public void testRead() throws Exception {
+        for (int size : new int[]{0, 1, 1024, IO.BUFFER_SIZE, IO.BUFFER_SIZE + 1, 1024 * 1024}) {
+            byte[] data = random(size);
+            Assert.assertEquals(ByteBuffer.wrap(data), IO.read(new ByteArrayInputStream(data)));
+            Assert.assertEquals(ByteBuffer.wrap(data), IO.read(unknownSize(data)));
+            // 预估偏小、偏大
+            Assert.assertEquals(ByteBuffer.wrap(data), IO.read(unknownSize(data), size / 3));
+            Assert.assertEquals(ByteBuffer.wrap(data), new ReadableChannelAdapter(unknownSize(data), size).readAll());
+            Assert.assertEquals(ByteBuffer.wrap(data), new ReadableChannelAdapter(unknownSize(data), size * 2L).readAll());
+        }
+    }
+
+    @Test
+    public void testScatterGather() throws Exception {
+        byte[] data = random(IO.BUFFER_SIZE * 3 + 1);
+        ByteBuffer header = ByteBuffer.allocateDirect(10);
+        header.put(data, 0, 10).flip();
+        ByteBuffer body = ByteBuffer.allocateDirect(data.length - 10);
+        body.put(data, 10, data.length - 10).flip();
+
+        // 默认实现：堆外缓冲区批量复制
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        WritableChannel channel = new WritableChannelAdapter(output);
+        Assert.assertEquals(data.length, channel.write(new ByteBuffer[]{header, body}));
+        Assert.assertFalse(body.hasRemaining());
+        Assert.assertArrayEquals(data, output.toByteArray());
+
+        header.clear();
+        body.clear();
+        ReadableChannel input = new ReadableChannelAdapter(new ByteArrayInputStream(data));
+        long n = 0L;
+        while (body.hasRemaining()) {
+            n += input.read(new ByteBuffer[]{header, body});
+        }
+        Assert.assertEquals(data.length, n);
+        Assert.assertEquals(-1L, input.read(new ByteBuffer[]{ByteBuffer.allocateDirect(1)}));
+        header.flip();
+        body.flip();
+        Assert.assertEquals(ByteBuffer.wrap(data, 0, 10), header);
+        Assert.assertEquals(ByteBuffer.wrap(data, 10, data.length - 10), body);
+    }
+
+    @Test
+    public void testSmallWrite() throws Exception {
+        ByteBufferPool pool = new ByteBufferPool(16, 4);
+        byte[] data = random(ByteBufferWritableChannel.DEFAULT_INITIAL_SIZE + 1);
+        ByteBufferWritableChannel channel = new ByteBufferWritableChannel(
+                ByteBuffer.allocate(ByteBufferWritableChannel.DEFAULT_INITIAL_SIZE), pool);
+        // 首块内不取池化块
+        channel.write(data, 0, ByteBufferWritableChannel.DEFAULT_INITIAL_SIZE);
+        Assert.assertEquals(0L, pool.getHitCount() + pool.getMissCount());
+        Assert.assertEquals(ByteBuffer.wrap(data, 0, ByteBufferWritableChannel.DEFAULT_INITIAL_SIZE), channel.toByteBuffer());
+        // 超出首块后取池化块
+        channel.write(data[data.length - 1]);
+        Assert.assertEquals(1L, pool.getHitCount() + pool.getMissCount());
+        Assert.assertEquals(ByteBuffer.wrap(data), channel.toByteBuffer());
+    }
+
+    /**
+     * 序列化再反序列化，分配量见 ByteBufferWritableChannelBenchmark
+     */
+    @Test
+    public void testRoundTrip() throws Exception {
+        for (int size : new int[]{0, 1, 1024, 1024 * 1024}) {
+            byte[] data = random(size);
+            Assert.assertEquals(ByteBuffer.wrap(data), roundTrip(data));
+        }
+    }
+
+    static byte[] random(int size) {
+        byte[] data = new byte[size];
+        for (int i = 0; i < data.length; i++) {
+            data[i] = (byte) (i * 31 + 7);
+        }
+        return data;
+    }
+
+    static ByteBuffer roundTrip(byte[] data) throws Exception {
+        ByteBufferWritableChannel channel = new ByteBufferWritableChannel();
+        BinarySerializer.get().serialize(channel, ByteBuffer.wrap(data));
+        ByteBuffer serialized = channel.toByteBuffer();
+        return BinarySerializer.get().deserialize(new ByteArrayInputStream(IO.getByteArray(serialized)));
+    }
+}
@@ -0,0 +1,164 @@
+package cc.whohow;
+
+import cc.whohow.vfs.FileObjectX;
+import cc.whohow.vfs.provider.kv.KeyValueFileObject;
+import cc.whohow.vfs.provider.uri.UriFileName;
+import cc.whohow.vfs.serialize.TextSerializer;
+import cc.whohow.vfs.version.FileVersion;
+import cc.whohow.vfs.version.FileVersionProvider;
+import cc.whohow.vfs.watch.EventDrivenFileWatchService;
+import cc.whohow.vfs.watch.FileEventKind;
+import cc.whohow.vfs.watch.LocalFileEventSource;
+import cc.whohow.vfs.watch.PollingFileWatchable;
+import org.apache.commons.vfs2.FileChangeEvent;
+import org.apache.commons.vfs2.FileListener;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.time.Duration;
+import java.util.List;
+import java.util.NavigableMap;
+import java.util.Queue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+public class TestEventDrivenFileWatchService {
+    private final NavigableMap<String, String> data = new ConcurrentSkipListMap<>();
+    private final ScheduledExecutorService executor = Executors.newScheduledThreadPool(2);
+    private final LocalFileEventSource eventSource = new LocalFileEventSource();
+    private final AtomicInteger listings = new AtomicInteger();
+    private final Queue<String> events = new ConcurrentLinkedQueue<>();
+    // 下一次列举开始时执行一次
+    private volatile Callable<?> onListing;
+    private final FileVersionProvider<String> versionProvider = new FileVersionProvider<String>() {
+        @Override
+        @SuppressWarnings("unchecked")
+        public FileVersion<String> getVersion(FileObjectX fileObject) {
+            return new FileVersion<>(fileObject, ((KeyValueFileObject<String>) fileObject).get());
+        }
+
+        @Override
+        public Stream<FileVersion<String>> getVersions(FileObjectX fileObject) {
+            listings.incrementAndGet();
+            Callable<?> hook = onListing;
+            if (hook != null) {
+                onListing = null;
+                try {
+                    hook.call();
+                } catch (Exception e) {
+                    throw new IllegalStateException(e);
+                }
+            }
+            return FileVersionProvider.super.getVersions(fileObject);
+        }
+    };
+    private final FileListener listener = new FileListener() {
+        @Override
+        public void fileCreated(FileChangeEvent event) {
+            events.add("+ " + event.getFile().getName().getURI());
+        }
+
+        @Override
+        public void fileDeleted(FileChangeEvent event) {
+            events.add("- " + event.getFile().getName().getURI());
+        }
+
+        @Override
+        public void fileChanged(FileChangeEvent event) {
+            events.add("* " + event.getFile().getName().getURI());
+        }
+    };
+    private EventDrivenFileWatchService watchService;
+
+    @After
+    public void shutdown() throws Exception {
+        if (watchService != null) {
+            watchService.close();
+        }
+        executor.shutdownNow();
+    }
+
+    private PollingFileWatchable<String> watchable(String uri) {
+        return new PollingFileWatchable<>(new KeyValueFileObject<>(
+                null, TextSerializer.utf8(), data, new UriFileName(uri)), versionProvider);
+    }
+
+    @Test
+    public void testNotification() throws Exception {
+        watchService = new EventDrivenFileWatchService(executor, eventSource, Duration.ofHours(1)).start();
+        data.put("/dir/a", "1");
+        watchService.addListener(watchable("kv:/dir/"), listener);
+        Await.until(() -> watchService.getReconcileCount() == 1);
+
+        data.put("/dir/a", "2");
+        eventSource.publish(FileEventKind.MODIFY, "kv:/dir/a");
+        WatchKey watchKey = watchService.poll(1, TimeUnit.SECONDS);
+        Assert.assertNotNull(watchKey);
+        List<WatchEvent<?>> watchEvents = watchKey.pollEvents();
+        Assert.assertEquals(1, watchEvents.size());
+        Assert.assertEquals(FileEventKind.MODIFY, watchEvents.get(0).kind());
+        Assert.assertTrue(watchKey.reset());
+
+        data.put("/dir/b", "1");
+        eventSource.publish(FileEventKind.CREATE, "kv:/dir/b");
+        eventSource.publish(FileEventKind.CREATE, "kv:/other/c");
+        Await.until(() -> events.size() == 2 && watchService.getNotificationCount() == 3);
+        Assert.assertEquals("[* kv:/dir/a, + kv:/dir/b]", events.toString());
+        Assert.assertEquals(3, watchService.getNotificationCount());
+        Assert.assertEquals(1, watchService.getIgnoredCount());
+        // 仅基线对账列举
+        Assert.assertEquals(1, listings.get());
+    }
+
+    @Test
+    public void testReconcile() throws Exception {
+        watchService = new EventDrivenFileWatchService(executor, eventSource, Duration.ofMillis(100)).start();
+        data.put("/dir/a", "1");
+        data.put("/dir/b", "1");
+        watchService.addListener(watchable("kv:/dir/"), listener);
+        Await.until(() -> watchService.getReconcileCount() == 1);
+
+        // 已通知的变化，对账不重复
+        data.put("/dir/a", "2");
+        eventSource.publish(FileEventKind.MODIFY, "kv:/dir/a");
+        Await.until(() -> events.size() == 1);
+        // 丢失通知的变化，对账发现
+        data.remove("/dir/b");
+        Await.until(() -> events.size() == 2);
+        long reconciles = watchService.getReconcileCount();
+        Await.until(() -> watchService.getReconcileCount() > reconciles);
+        Assert.assertEquals("[* kv:/dir/a, - kv:/dir/b]", events.toString());
+        Assert.assertEquals(1, watchService.getMissedCount());
+        Assert.assertTrue(watchService.getReconcileCount() >= 2);
+    }
+
+    @Test
+    public void testNotifiedDuringReconcile() throws Exception {
+        watchService = new EventDrivenFileWatchService(executor, eventSource, Duration.ofMillis(100)).start();
+        data.put("/dir/a", "1");
+        watchService.addListener(watchable("kv:/dir/"), listener);
+        Await.until(() -> watchService.getReconcileCount() == 1);
+
+        // 对账列举期间收到通知，列举结果已包含该变化，不重复报告
+        onListing = () -> {
+            data.put("/dir/a", "2");
+            eventSource.publish(FileEventKind.MODIFY, "kv:/dir/a");
+            Await.until(() -> watchService.getNotificationCount() == 1);
+            return null;
+        };
+        Await.until(() -> onListing == null);
+        long reconciles = watchService.getReconcileCount();
+        Await.until(() -> watchService.getReconcileCount() > reconciles + 1);
+        Assert.assertEquals("[* kv:/dir/a]", events.toString());
+        Assert.assertEquals(0, watchService.getMissedCount());
+    }
+}
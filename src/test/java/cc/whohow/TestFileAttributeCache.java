@@ -0,0 +1,139 @@
+package cc.whohow;
+
+import cc.whohow.vfs.cache.FileAttributeCache;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+public class TestFileAttributeCache {
+    private final Map<String, String> store = new ConcurrentHashMap<>();
+    private final AtomicInteger loads = new AtomicInteger();
+    private final Function<String, String> loader = key -> {
+        loads.incrementAndGet();
+        return store.get(key);
+    };
+
+    @Test
+    public void testHitMiss() {
+        FileAttributeCache<String> cache = new FileAttributeCache<>(100, 60_000, 60_000);
+        store.put("a", "1");
+        Assert.assertEquals("1", cache.get("a", loader));
+        Assert.assertEquals("1", cache.get("a", loader));
+        Assert.assertEquals("1", cache.getSummary("a", loader));
+        Assert.assertEquals(1, loads.get());
+        Assert.assertEquals(2, cache.getHitCount());
+        Assert.assertEquals(1, cache.getMissCount());
+    }
+
+    @Test
+    public void testNegative() {
+        FileAttributeCache<String> cache = new FileAttributeCache<>(100, 60_000, 60_000);
+        Assert.assertNull(cache.get("a", loader));
+        store.put("a", "1");
+        Assert.assertNull(cache.get("a", loader));
+        Assert.assertEquals(1, loads.get());
+        cache.invalidate("a");
+        Assert.assertEquals("1", cache.get("a", loader));
+    }
+
+    @Test
+    public void testTtl() throws Exception {
+        FileAttributeCache<String> cache = new FileAttributeCache<>(100, 50, 0);
+        store.put("a", "1");
+        cache.get("a", loader);
+        store.put("a", "2");
+        Assert.assertEquals("1", cache.get("a", loader));
+        // 过期后重新加载
+        Await.until(() -> "2".equals(cache.get("a", loader)), 1000);
+        // 不缓存不存在的文件
+        cache.get("b", loader);
+        cache.get("b", loader);
+        Assert.assertEquals(4, loads.get());
+    }
+
+    @Test
+    public void testPutNegativeWithoutNegativeTtl() {
+        FileAttributeCache<String> cache = new FileAttributeCache<>(100, 60_000, 0);
+        store.put("a", "1");
+        Assert.assertEquals("1", cache.get("a", loader));
+        // 删除文件，不缓存不存在的文件时移除旧属性
+        store.remove("a");
+        cache.put("a", null);
+        Assert.assertEquals(0, cache.size());
+        Assert.assertNull(cache.get("a", loader));
+        Assert.assertEquals(2, loads.get());
+    }
+
+    @Test
+    public void testLru() {
+        FileAttributeCache<String> cache = new FileAttributeCache<>(2, 60_000, 60_000);
+        store.put("a", "1");
+        store.put("b", "2");
+        store.put("c", "3");
+        cache.get("a", loader);
+        cache.get("b", loader);
+        cache.get("a", loader);
+        cache.get("c", loader);
+        Assert.assertEquals(2, cache.size());
+        Assert.assertEquals(1, cache.getEvictionCount());
+        cache.get("a", loader);
+        Assert.assertEquals(3, loads.get());
+        cache.get("b", loader);
+        Assert.assertEquals(4, loads.get());
+    }
+
+    @Test
+    public void testSummary() {
+        FileAttributeCache<String> cache = new FileAttributeCache<>(100, 60_000, 60_000);
+        store.put("dir/a", "full");
+        cache.putSummary("dir/a", "summary");
+        Assert.assertEquals("summary", cache.getSummary("dir/a", loader));
+        Assert.assertEquals(0, loads.get());
+        Assert.assertEquals("full", cache.get("dir/a", loader));
+        Assert.assertEquals("full", cache.getSummary("dir/a", loader));
+        Assert.assertEquals(1, loads.get());
+        cache.invalidatePrefix("dir/");
+        Assert.assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void testInvalidateWhileLoading() {
+        FileAttributeCache<String> cache = new FileAttributeCache<>(100, 60_000, 60_000);
+        store.put("a", "old");
+        Assert.assertEquals("old", cache.get("a", key -> {
+            // 加载期间文件被修改
+            store.put("a", "new");
+            cache.invalidate("a");
+            return "old";
+        }));
+        Assert.assertEquals("new", cache.get("a", loader));
+    }
+
+    @Test
+    public void testInvalidateOtherWhileLoading() {
+        FileAttributeCache<String> cache = new FileAttributeCache<>(100, 60_000, 60_000);
+        store.put("a", "1");
+        // 加载期间其他文件失效，不影响本次加载结果缓存
+        cache.get("a", key -> {
+            cache.invalidate("b");
+            return loader.apply(key);
+        });
+        cache.get("a", loader);
+        Assert.assertEquals(1, loads.get());
+    }
+
+    @Test
+    public void testDisabled() {
+        FileAttributeCache<String> cache = FileAttributeCache.disabled();
+        store.put("a", "1");
+        cache.get("a", loader);
+        cache.get("a", loader);
+        cache.putSummary("a", "summary");
+        Assert.assertEquals(2, loads.get());
+        Assert.assertEquals(0, cache.size());
+    }
+}
@@ -0,0 +1,159 @@
+package cc.whohow;
+
+import cc.whohow.vfs.FileObjectX;
+import cc.whohow.vfs.cache.FileContentCache;
+import cc.whohow.vfs.io.ReadableChannel;
+import cc.whohow.vfs.provider.kv.KeyValueFileObject;
+import cc.whohow.vfs.provider.uri.UriFileName;
+import cc.whohow.vfs.serialize.TextSerializer;
+import org.apache.commons.vfs2.FileSystemException;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class TestFileContentCache {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final NavigableMap<String, String> data = new ConcurrentSkipListMap<>();
+    private final AtomicInteger downloads = new AtomicInteger();
+
+    private FileObjectX remote(String key, long latency) {
+        return new RemoteFileObject(data, downloads, key, latency);
+    }
+
+    private static String read(FileContentCache cache, FileObjectX fileObject, String version) throws Exception {
+        try (ReadableChannel channel = cache.open(fileObject, version)) {
+            return StandardCharsets.UTF_8.decode(channel.readAll()).toString();
+        }
+    }
+
+    @Test
+    public void testHitMiss() throws Exception {
+        FileContentCache cache = new FileContentCache(folder.getRoot().toPath(), 1024);
+        data.put("/a", "a1");
+        FileObjectX a = remote("/a", 0);
+        Assert.assertEquals("a1", read(cache, a, "v1"));
+        Assert.assertEquals("a1", read(cache, a, "v1"));
+        Assert.assertEquals(1, downloads.get());
+        Assert.assertEquals(1, cache.getHitCount());
+        Assert.assertEquals(1, cache.getMissCount());
+
+        // 版本变化，重新下载
+        data.put("/a", "a2");
+        Assert.assertEquals("a2", read(cache, a, "v2"));
+        Assert.assertEquals(2, downloads.get());
+        Assert.assertEquals(1, cache.size());
+        Assert.assertEquals(2, cache.getBytes());
+
+        cache.invalidate(a.getName().getURI());
+        Assert.assertEquals(0, cache.size());
+        Assert.assertEquals(0, cache.getBytes());
+    }
+
+    @Test
+    public void testEviction() throws Exception {
+        FileContentCache cache = new FileContentCache(folder.getRoot().toPath(), 10);
+        data.put("/a", "aaaa");
+        data.put("/b", "bbbb");
+        data.put("/c", "cccc");
+        data.put("/big", "0123456789A");
+        FileObjectX a = remote("/a", 0);
+        FileObjectX b = remote("/b", 0);
+        FileObjectX c = remote("/c", 0);
+        read(cache, a, "v");
+        read(cache, b, "v");
+        read(cache, a, "v");
+        read(cache, c, "v");
+        Assert.assertEquals(2, cache.size());
+        Assert.assertEquals(8, cache.getBytes());
+        Assert.assertEquals(1, cache.getEvictionCount());
+        read(cache, a, "v");
+        Assert.assertEquals(3, downloads.get());
+        read(cache, b, "v");
+        Assert.assertEquals(4, downloads.get());
+
+        // 超出容量不缓存
+        Assert.assertEquals("0123456789A", read(cache, remote("/big", 0), "v"));
+        Assert.assertEquals(8, cache.getBytes());
+    }
+
+    @Test
+    public void testCollapse() throws Exception {
+        FileContentCache cache = new FileContentCache(folder.getRoot().toPath(), 1024);
+        data.put("/a", "hello");
+        FileObjectX a = remote("/a", 200);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<String>> results = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                results.add(executor.submit(() -> read(cache, a, "v1")));
+            }
+            for (Future<String> result : results) {
+                Assert.assertEquals("hello", result.get());
+            }
+        } finally {
+            executor.shutdown();
+        }
+        Assert.assertEquals(1, downloads.get());
+    }
+
+    @Test
+    public void testUpdatedDuringDownload() throws Exception {
+        FileContentCache cache = new FileContentCache(folder.getRoot().toPath(), 1024);
+        data.put("/a", "a1");
+        FileObjectX a = remote("/a", 0);
+        // 下载完成时版本已变化，不缓存，直接读取
+        try (ReadableChannel channel = cache.open(a, "v1", () -> "v2")) {
+            Assert.assertEquals("a1", StandardCharsets.UTF_8.decode(channel.readAll()).toString());
+        }
+        Assert.assertEquals(0, cache.size());
+        Assert.assertEquals(0, cache.getBytes());
+        Assert.assertEquals(2, downloads.get());
+
+        Assert.assertEquals("a1", read(cache, a, "v1"));
+        Assert.assertEquals(1, cache.size());
+        Assert.assertEquals(3, downloads.get());
+    }
+
+    /**
+     * 模拟下载延迟的远程文件
+     */
+    private static class RemoteFileObject extends KeyValueFileObject<String> {
+        final AtomicInteger downloads;
+        final long latency;
+
+        RemoteFileObject(NavigableMap<String, String> data, AtomicInteger downloads, String key, long latency) {
+            super(null, TextSerializer.utf8(), data, new UriFileName("kv:" + key));
+            this.downloads = downloads;
+            this.latency = latency;
+        }
+
+        @Override
+        public long getSize() throws FileSystemException {
+            return get().getBytes(StandardCharsets.UTF_8).length;
+        }
+
+        @Override
+        public ReadableChannel getReadableChannel() throws FileSystemException {
+            downloads.incrementAndGet();
+            try {
+                Thread.sleep(latency);
+            } catch (InterruptedException e) {
+                throw new FileSystemException(e);
+            }
+            return super.getReadableChannel();
+        }
+    }
+}
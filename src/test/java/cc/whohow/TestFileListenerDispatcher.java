@@ -0,0 +1,190 @@
+package cc.whohow;
+
+import cc.whohow.vfs.FileObjectX;
+import cc.whohow.vfs.provider.kv.KeyValueFileObject;
+import cc.whohow.vfs.provider.uri.UriFileName;
+import cc.whohow.vfs.serialize.TextSerializer;
+import cc.whohow.vfs.watch.FileListenerDispatcher;
+import cc.whohow.vfs.watch.FileWatchEvent;
+import cc.whohow.vfs.watch.FileWatchListener;
+import org.apache.commons.vfs2.FileChangeEvent;
+import org.apache.commons.vfs2.FileListener;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.nio.file.StandardWatchEventKinds;
+import java.util.NavigableMap;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+public class TestFileListenerDispatcher {
+    private final NavigableMap<String, String> data = new ConcurrentSkipListMap<>();
+    private final ExecutorService executor = Executors.newFixedThreadPool(4);
+    private final FileListenerDispatcher dispatcher = new FileListenerDispatcher(executor, 100);
+
+    @After
+    public void shutdown() {
+        dispatcher.close();
+        executor.shutdownNow();
+    }
+
+    private FileObjectX file(String uri) {
+        return new KeyValueFileObject<>(null, TextSerializer.utf8(), data, new UriFileName(uri));
+    }
+
+    private FileWatchListener listener(FileListener listener) {
+        return new FileWatchListener(new UriFileName("kv:/dir/"), listener);
+    }
+
+    private static void awaitEmpty(FileListenerDispatcher.ListenerQueue queue) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(1);
+        while (queue.getBacklog() > 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+    }
+
+    @Test
+    public void testOrderAndIsolation() throws Exception {
+        CountDownLatch blocked = new CountDownLatch(1);
+        RecordingListener slow = new RecordingListener() {
+            @Override
+            public void fileChanged(FileChangeEvent event) throws Exception {
+                blocked.await();
+                super.fileChanged(event);
+            }
+        };
+        RecordingListener fast = new RecordingListener();
+        FileWatchListener slowListener = listener(slow);
+        FileWatchListener fastListener = listener(fast);
+        dispatcher.dispatch(slowListener, new FileWatchEvent.Modify(file("kv:/dir/slow")));
+        awaitEmpty(dispatcher.getQueue(slowListener));
+        for (int i = 0; i < 10; i++) {
+            FileWatchEvent event = new FileWatchEvent.Create(file("kv:/dir/" + i));
+            dispatcher.dispatch(slowListener, new FileWatchEvent.Modify(file("kv:/dir/slow")));
+            dispatcher.dispatch(slowListener, event);
+            dispatcher.dispatch(fastListener, event);
+        }
+        // 慢监听器阻塞不影响其他监听器
+        Thread.sleep(100);
+        Assert.assertEquals(10, fast.events.size());
+        Assert.assertEquals("kv:/dir/0", fast.events.peek());
+        Assert.assertTrue(slow.events.isEmpty());
+
+        blocked.countDown();
+        Thread.sleep(100);
+        // 未分发的重复修改事件合并
+        Assert.assertEquals("[kv:/dir/slow, kv:/dir/slow, kv:/dir/0, kv:/dir/1, kv:/dir/2, kv:/dir/3, " +
+                "kv:/dir/4, kv:/dir/5, kv:/dir/6, kv:/dir/7, kv:/dir/8, kv:/dir/9]", slow.events.toString());
+        FileListenerDispatcher.ListenerQueue queue = dispatcher.getQueue(slowListener);
+        Assert.assertEquals(9, queue.getMergedCount());
+        Assert.assertEquals(12, queue.getDeliveredCount());
+        Assert.assertTrue(queue.getMaxLatency() >= 50);
+    }
+
+    @Test
+    public void testBacklogAndFailure() throws Exception {
+        CountDownLatch blocked = new CountDownLatch(1);
+        Queue<FileChangeEvent> overflows = new ConcurrentLinkedQueue<>();
+        RecordingListener failing = new RecordingListener() {
+            @Override
+            public void fileCreated(FileChangeEvent event) throws Exception {
+                blocked.await();
+                throw new IllegalStateException();
+            }
+
+            @Override
+            public void fileChanged(FileChangeEvent event) throws Exception {
+                overflows.add(event);
+            }
+        };
+        FileWatchListener listener = listener(failing);
+        dispatcher.dispatch(listener, new FileWatchEvent.Create(file("kv:/dir/0")));
+        FileListenerDispatcher.ListenerQueue queue = dispatcher.getQueue(listener);
+        awaitEmpty(queue);
+        for (int i = 1; i < 150; i++) {
+            dispatcher.dispatch(listener, new FileWatchEvent.Create(file("kv:/dir/" + i)));
+        }
+        dispatcher.dispatch(listener, new FileWatchEvent.Delete(file("kv:/dir/x")));
+        // 1个正在处理，100个积压，丢弃的事件合并为1个 OVERFLOW 事件
+        Assert.assertEquals(101, queue.getBacklog());
+        Assert.assertEquals(50, queue.getDroppedCount());
+        blocked.countDown();
+        awaitEmpty(queue);
+        long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(1);
+        while (queue.getDeliveredCount() + queue.getFailureCount() < 102 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        Assert.assertEquals(101, queue.getFailureCount());
+        Assert.assertEquals(1, queue.getDeliveredCount());
+        Assert.assertTrue(queue.getLastFailure() instanceof IllegalStateException);
+        FileWatchEvent overflow = (FileWatchEvent) overflows.poll();
+        Assert.assertNotNull(overflow);
+        Assert.assertEquals(StandardWatchEventKinds.OVERFLOW, overflow.kind());
+        Assert.assertEquals(50, overflow.count());
+        Assert.assertEquals("kv:/dir/", overflow.getFile().getName().getURI());
+    }
+
+    @Test
+    public void testDeleteBarrier() throws Exception {
+        CountDownLatch blocked = new CountDownLatch(1);
+        Queue<String> kinds = new ConcurrentLinkedQueue<>();
+        FileWatchListener listener = listener(new FileListener() {
+            @Override
+            public void fileCreated(FileChangeEvent event) throws Exception {
+                blocked.await();
+                kinds.add("CREATE");
+            }
+
+            @Override
+            public void fileDeleted(FileChangeEvent event) throws Exception {
+                kinds.add("DELETE");
+            }
+
+            @Override
+            public void fileChanged(FileChangeEvent event) throws Exception {
+                kinds.add("MODIFY");
+            }
+        });
+        dispatcher.dispatch(listener, new FileWatchEvent.Create(file("kv:/dir/0")));
+        FileListenerDispatcher.ListenerQueue queue = dispatcher.getQueue(listener);
+        awaitEmpty(queue);
+        dispatcher.dispatch(listener, new FileWatchEvent.Create(file("kv:/dir/x")));
+        dispatcher.dispatch(listener, new FileWatchEvent.Delete(file("kv:/dir/x")));
+        dispatcher.dispatch(listener, new FileWatchEvent.Modify(file("kv:/dir/x")));
+        dispatcher.dispatch(listener, new FileWatchEvent.Modify(file("kv:/dir/x")));
+        // 删除之后的修改事件不合并到删除之前的创建事件，只与删除之后的修改事件合并
+        Assert.assertEquals(3, queue.getBacklog());
+        Assert.assertEquals(1, queue.getMergedCount());
+        blocked.countDown();
+        long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(1);
+        while (queue.getDeliveredCount() < 4 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        Assert.assertEquals("[CREATE, CREATE, DELETE, MODIFY]", kinds.toString());
+    }
+
+    private static class RecordingListener implements FileListener {
+        final Queue<String> events = new ConcurrentLinkedQueue<>();
+
+        @Override
+        public void fileCreated(FileChangeEvent event) throws Exception {
+            events.add(event.getFile().getName().getURI());
+        }
+
+        @Override
+        public void fileDeleted(FileChangeEvent event) throws Exception {
+            events.add(event.getFile().getName().getURI());
+        }
+
+        @Override
+        public void fileChanged(FileChangeEvent event) throws Exception {
+            events.add(event.getFile().getName().getURI());
+        }
+    }
+}
@@ -0,0 +1,187 @@
+package cc.whohow;
+
+import cc.whohow.vfs.FileObjectX;
+import cc.whohow.vfs.FileObjects;
+import cc.whohow.vfs.provider.kv.KeyValueFileObject;
+import cc.whohow.vfs.provider.uri.UriFileName;
+import cc.whohow.vfs.serialize.TextSerializer;
+import cc.whohow.vfs.tree.FileObjectTree;
+import cc.whohow.vfs.tree.ParallelFileObjectTree;
+import org.apache.commons.vfs2.FileSystemException;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.nio.file.DirectoryStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.StreamSupport;
+
+public class TestFileObjectTree {
+    private final NavigableMap<String, String> data = new ConcurrentSkipListMap<>();
+    private final Listing listing = new Listing();
+
+    /**
+     * 列举并发统计
+     */
+    private static class Listing {
+        final AtomicInteger concurrency = new AtomicInteger();
+        final AtomicInteger maxConcurrency = new AtomicInteger();
+        // 子目录列举在此汇合，全部到达才继续
+        volatile CountDownLatch overlap;
+        // 列举此目录时抛出 Error
+        volatile String errorPath;
+    }
+
+    /**
+     * 只支持逐层列举，每次列举耗时 latency 毫秒
+     */
+    private static class SlowFileObject extends KeyValueFileObject<String> {
+        final Listing listing;
+        final long latency;
+
+        SlowFileObject(NavigableMap<String, String> data, String uri, Listing listing, long latency) {
+            super(null, TextSerializer.utf8(), data, new UriFileName(uri));
+            this.listing = listing;
+            this.latency = latency;
+        }
+
+        @Override
+        public DirectoryStream<FileObjectX> list() throws FileSystemException {
+            if (getName().getPath().equals(listing.errorPath)) {
+                throw new AssertionError(listing.errorPath);
+            }
+            listing.maxConcurrency.accumulateAndGet(listing.concurrency.incrementAndGet(), Math::max);
+            try {
+                Thread.sleep(latency);
+                CountDownLatch latch = listing.overlap;
+                if (latch != null && !getName().getPath().equals("/root/")) {
+                    latch.countDown();
+                    if (!latch.await(5, TimeUnit.SECONDS)) {
+                        throw new FileSystemException("directories not listed concurrently");
+                    }
+                }
+            } catch (InterruptedException e) {
+                throw new FileSystemException(e);
+            } finally {
+                listing.concurrency.decrementAndGet();
+            }
+            List<FileObjectX> list = new ArrayList<>();
+            try (DirectoryStream<FileObjectX> children = super.list()) {
+                for (FileObjectX child : children) {
+                    list.add(new SlowFileObject(data, child.getName().getURI(), listing, latency));
+                }
+            } catch (FileSystemException e) {
+                throw e;
+            } catch (Exception e) {
+                throw new FileSystemException(e);
+            }
+            return new DirectoryStream<FileObjectX>() {
+                @Override
+                public java.util.Iterator<FileObjectX> iterator() {
+                    return list.iterator();
+                }
+
+                @Override
+                public void close() {
+                }
+            };
+        }
+
+        @Override
+        public DirectoryStream<FileObjectX> listRecursively() throws FileSystemException {
+            return new FileObjectTree(this);
+        }
+    }
+
+    @Before
+    public void setUp() {
+        for (int i = 0; i < 4; i++) {
+            data.put("/root/f" + i, "f" + i);
+            for (int j = 0; j < 4; j++) {
+                data.put("/root/d" + i + "/f" + j, "f" + j);
+                for (int k = 0; k < 4; k++) {
+                    data.put("/root/d" + i + "/e" + j + "/f" + k, "f" + k);
+                }
+            }
+        }
+    }
+
+    private static Set<String> files(Iterable<FileObjectX> list) {
+        Set<String> files = new TreeSet<>();
+        for (FileObjectX fileObject : list) {
+            if (FileObjects.isFile(fileObject)) {
+                files.add(fileObject.getName().getPath());
+            }
+        }
+        return files;
+    }
+
+    @Test
+    public void testWalk() throws Exception {
+        SlowFileObject root = new SlowFileObject(data, "kv:/root/", listing, 0);
+        try (DirectoryStream<FileObjectX> tree = root.listRecursively()) {
+            Assert.assertEquals(data.keySet(), files(tree));
+        }
+        try (DirectoryStream<FileObjectX> tree = root.listRecursively()) {
+            Assert.assertEquals(data.keySet(), StreamSupport.stream(tree.spliterator(), true)
+                    .filter(FileObjects::isFile)
+                    .map(f -> f.getName().getPath())
+                    .collect(Collectors.toCollection(TreeSet::new)));
+        }
+        try (DirectoryStream<FileObjectX> tree = new ParallelFileObjectTree(root, 4)) {
+            Assert.assertEquals(data.keySet(), files(tree));
+        }
+    }
+
+    @Test
+    public void testParallel() throws Exception {
+        SlowFileObject root = new SlowFileObject(data, "kv:/root/", listing, 0);
+        try (DirectoryStream<FileObjectX> tree = root.listRecursively()) {
+            Assert.assertEquals(data.size(), files(tree).size());
+        }
+        Assert.assertEquals(1, listing.maxConcurrency.get());
+
+        // 至少两个子目录同时列举才能通过汇合点
+        listing.maxConcurrency.set(0);
+        listing.overlap = new CountDownLatch(2);
+        try (DirectoryStream<FileObjectX> tree = new ParallelFileObjectTree(root, 8)) {
+            Assert.assertEquals(data.size(), files(tree).size());
+        }
+        Assert.assertTrue(listing.maxConcurrency.get() > 1);
+    }
+
+    @Test(timeout = 10000)
+    public void testParallelError() throws Exception {
+        // 列举抛出 Error 时消费者收到该 Error，不会一直等待
+        SlowFileObject root = new SlowFileObject(data, "kv:/root/", listing, 0);
+        listing.errorPath = "/root/d2/e1/";
+        Throwable error = null;
+        try (DirectoryStream<FileObjectX> tree = new ParallelFileObjectTree(root, 4)) {
+            files(tree);
+        } catch (AssertionError e) {
+            error = e;
+        }
+        // Fork/Join 跨线程重新抛出时可能以原异常为 cause 包装
+        while (error != null && error.getMessage() == null) {
+            error = error.getCause();
+        }
+        Assert.assertNotNull(error);
+        Assert.assertEquals("/root/d2/e1/", error.getMessage());
+    }
+
+    @Test
+    public void testDeleteAll() throws Exception {
+        SlowFileObject root = new SlowFileObject(data, "kv:/root/", listing, 0);
+        Assert.assertEquals(data.size(), root.deleteAll());
+        Assert.assertTrue(data.isEmpty());
+    }
+}
@@ -0,0 +1,84 @@
+package cc.whohow;
+
+import cc.whohow.vfs.util.CodePointComparator;
+import cc.whohow.vfs.version.FileVersionView;
+import cc.whohow.vfs.version.FileVersionViewSorter;
+import cc.whohow.vfs.watch.FileDiffEntry;
+import cc.whohow.vfs.watch.FileDiffIterator;
+import cc.whohow.vfs.watch.SortedFileDiffIterator;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.util.*;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+public class TestFileVersionViewSorter {
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private static List<FileVersionView> random(Random random, int n) {
+        Map<String, FileVersionView> map = new LinkedHashMap<>();
+        for (int i = 0; i < n; i++) {
+            String name = "dir-" + random.nextInt(10) + "/file-" + random.nextInt(2 * n);
+            map.put(name, new FileVersionView(Integer.toString(random.nextInt(3)), random.nextInt(1000), -1, name));
+        }
+        List<FileVersionView> list = new ArrayList<>(map.values());
+        Collections.shuffle(list, random);
+        return list;
+    }
+
+    private FileVersionViewSorter newSorter(int chunkSize) {
+        return new FileVersionViewSorter(CodePointComparator.get(), chunkSize, temporaryFolder.getRoot().toPath());
+    }
+
+    @Test
+    public void testSort() {
+        List<FileVersionView> list = random(new Random(0), 10000);
+        List<String> expected = list.stream()
+                .map(FileVersionView::toString)
+                .sorted(Comparator.comparing((String s) -> s.substring(s.lastIndexOf('\t') + 1), CodePointComparator.get()))
+                .collect(Collectors.toList());
+        try (Stream<FileVersionView> sorted = newSorter(1000).apply(list.stream())) {
+            Assert.assertEquals(10, temporaryFolder.getRoot().list().length);
+            Assert.assertEquals(expected, sorted.map(FileVersionView::toString).collect(Collectors.toList()));
+        }
+        Assert.assertEquals(0, temporaryFolder.getRoot().list().length);
+    }
+
+    @Test
+    public void testSortInMemory() {
+        List<FileVersionView> list = random(new Random(1), 100);
+        try (Stream<FileVersionView> sorted = newSorter(1000).apply(list.stream())) {
+            List<String> names = sorted.map(FileVersionView::getName).collect(Collectors.toList());
+            List<String> expected = new ArrayList<>(names);
+            expected.sort(CodePointComparator.get());
+            Assert.assertEquals(expected, names);
+            Assert.assertEquals(list.size(), names.size());
+        }
+        Assert.assertArrayEquals(new File[0], temporaryFolder.getRoot().listFiles());
+    }
+
+    @Test
+    public void testSortedDiff() {
+        Random random = new Random(2);
+        List<FileVersionView> newList = random(random, 5000);
+        List<FileVersionView> oldList = random(random, 5000);
+        Set<String> expected = new TreeSet<>();
+        new FileDiffIterator<>(FileVersionView::getName, FileVersionView::getVersion, newList.iterator(), oldList.iterator())
+                .forEachRemaining(e -> expected.add(e.toString()));
+
+        FileVersionViewSorter sorter = newSorter(500);
+        try (Stream<FileVersionView> newSorted = sorter.apply(newList.stream());
+             Stream<FileVersionView> oldSorted = sorter.apply(oldList.stream())) {
+            Set<String> actual = new SortedFileDiffIterator<>(FileVersionView::getName, FileVersionView::getVersion,
+                    CodePointComparator.get(), newSorted.iterator(), oldSorted.iterator()).stream()
+                    .map(FileDiffEntry::toString)
+                    .collect(Collectors.toCollection(TreeSet::new));
+            Assert.assertEquals(expected, actual);
+        }
+    }
+}
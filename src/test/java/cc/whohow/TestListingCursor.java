@@ -0,0 +1,103 @@
+package cc.whohow;
+
+import cc.whohow.vfs.FileObjectX;
+import cc.whohow.vfs.provider.aliyun.oss.AliyunOSSFileObject;
+import cc.whohow.vfs.provider.aliyun.oss.AliyunOSSListingCursor;
+import cc.whohow.vfs.provider.aliyun.oss.AliyunOSSListingFileObject;
+import cc.whohow.vfs.provider.s3.ListingCursor;
+import cc.whohow.vfs.provider.s3.S3FileName;
+import cc.whohow.vfs.version.FileVersion;
+import cc.whohow.vfs.version.FileVersionView;
+import com.aliyun.oss.internal.OSSHeaders;
+import com.aliyun.oss.model.OSSObjectSummary;
+import com.aliyun.oss.model.ObjectListing;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+public class TestListingCursor {
+    static final AliyunOSSFileObject BASE = new AliyunOSSFileObject(null, new S3FileName("oss://ak:sk@bucket.oss-cn-hangzhou.aliyuncs.com/prefix/"));
+
+    /**
+     * 模拟列举页：含前缀自身、目录占位及需要 URI 编码的键
+     */
+    static List<ObjectListing> pages(int pageCount, int pageSize) {
+        List<ObjectListing> pages = new ArrayList<>(pageCount);
+        int n = 0;
+        for (int p = 0; p < pageCount; p++) {
+            ObjectListing page = new ObjectListing();
+            for (int i = 0; i < pageSize; i++, n++) {
+                String key;
+                if (n == 0) {
+                    key = "prefix/";
+                } else if (n % 100 == 1) {
+                    key = "prefix/dir" + (n % 10) + "/";
+                } else if (n % 100 == 2) {
+                    key = "prefix/dir" + (n % 10) + "/文件 " + n + ".txt";
+                } else {
+                    key = "prefix/dir" + (n % 10) + "/file-" + n + ".txt";
+                }
+                OSSObjectSummary objectSummary = new OSSObjectSummary();
+                objectSummary.setBucketName("bucket");
+                objectSummary.setKey(key);
+                objectSummary.setSize(n);
+                objectSummary.setETag("\"" + Integer.toHexString(n * 31) + "\"");
+                objectSummary.setLastModified(new Date(1500000000000L + n));
+                page.addObjectSummary(objectSummary);
+            }
+            pages.add(page);
+        }
+        return pages;
+    }
+
+    /**
+     * 原方式：每个键创建文件名及文件对象
+     */
+    static List<FileVersionView> listByFileObject(List<ObjectListing> pages) throws Exception {
+        String prefix = BASE.getName().getURI();
+        List<FileVersionView> list = new ArrayList<>();
+        for (ObjectListing page : pages) {
+            for (OSSObjectSummary objectSummary : page.getObjectSummaries()) {
+                FileObjectX fileObject = new AliyunOSSListingFileObject(null, new S3FileName(BASE.getName(), objectSummary.getKey()), objectSummary);
+                if (fileObject.isFile()) {
+                    FileVersionView v = FileVersionView.of(new FileVersion<>(fileObject, (String) fileObject.getAttribute(OSSHeaders.ETAG)));
+                    list.add(new FileVersionView(v.getVersion(), v.getSize(), v.getLastModifiedTime(), v.getName().substring(prefix.length())));
+                }
+            }
+        }
+        return list;
+    }
+
+    static List<FileVersionView> listByCursor(List<ObjectListing> pages) {
+        List<FileVersionView> list = new ArrayList<>();
+        try (ListingCursor cursor = new AliyunOSSListingCursor(BASE, pages.iterator())) {
+            while (cursor.advance()) {
+                list.add(new FileVersionView(cursor.etag(), cursor.size(), cursor.lastModified(), cursor.relativeURI()));
+            }
+        }
+        return list;
+    }
+
+    @Test
+    public void testEquivalent() throws Exception {
+        List<ObjectListing> pages = pages(3, 1000);
+        List<FileVersionView> expected = listByFileObject(pages);
+        List<FileVersionView> actual = listByCursor(pages);
+        Assert.assertEquals(3000 - 1 - 30, actual.size());
+        Assert.assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            Assert.assertEquals(expected.get(i).toString(), actual.get(i).toString());
+        }
+
+        ListingCursor cursor = new AliyunOSSListingCursor(BASE, pages.iterator());
+        Assert.assertTrue(cursor.advance());
+        Assert.assertTrue(cursor.advance());
+        FileObjectX fileObject = cursor.toFileObject();
+        Assert.assertEquals(cursor.key(), ((S3FileName) fileObject.getName()).getKey());
+        Assert.assertEquals(BASE.getName().getURI() + cursor.relativeURI(), fileObject.getName().getURI());
+        Assert.assertEquals(cursor.size(), fileObject.getSize());
+    }
+}
@@ -0,0 +1,277 @@
+package cc.whohow;
+
+import cc.whohow.vfs.FileObjectX;
+import cc.whohow.vfs.FileObjects;
+import cc.whohow.vfs.io.ReadableChannel;
+import cc.whohow.vfs.io.WritableChannel;
+import cc.whohow.vfs.operations.Copy;
+import cc.whohow.vfs.provider.local.LocalFileObject;
+import cc.whohow.vfs.provider.local.LocalFileSystemProvider;
+import cc.whohow.vfs.provider.local.LocalReadableChannel;
+import cc.whohow.vfs.serialize.BinarySerializer;
+import cc.whohow.vfs.serialize.TextSerializer;
+import cc.whohow.vfs.version.FileLastModifiedTimeVersionProvider;
+import cc.whohow.vfs.watch.PollingFileWatchable;
+import org.apache.commons.vfs2.FileChangeEvent;
+import org.apache.commons.vfs2.FileListener;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+public class TestLocalFileSystem {
+    private final LocalFileSystemProvider provider = new LocalFileSystemProvider();
+    private Path directory;
+
+    @Before
+    public void setUp() throws Exception {
+        directory = Files.createTempDirectory("vfs-local");
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        provider.close();
+        provider.getFileObject(directory.toUri().toString()).deleteAll();
+    }
+
+    private FileObjectX file(String name) throws Exception {
+        return provider.getFileObject(directory.resolve(name).toUri().toString());
+    }
+
+    private static void write(FileObjectX fileObject, String text) throws Exception {
+        try (WritableChannel channel = fileObject.getWritableChannel()) {
+            channel.write(ByteBuffer.wrap(text.getBytes(StandardCharsets.UTF_8)));
+        }
+    }
+
+    private static String read(FileObjectX fileObject) throws Exception {
+        try (ReadableChannel channel = fileObject.getReadableChannel()) {
+            return StandardCharsets.UTF_8.decode(channel.readAll()).toString();
+        }
+    }
+
+    @Test
+    public void testReadWrite() throws Exception {
+        FileObjectX a = file("a/b/c.txt");
+        write(a, "hello");
+        Assert.assertTrue(a.exists());
+        Assert.assertEquals(5, a.getSize());
+        Assert.assertEquals("hello", read(a));
+        try (OutputStream stream = a.getOutputStream(true)) {
+            stream.write(" world".getBytes(StandardCharsets.UTF_8));
+        }
+        Assert.assertEquals("hello world", read(a));
+
+        FileObjectX folder = provider.getFileObject(directory.toUri().toString());
+        Assert.assertTrue(folder.isFolder());
+        Assert.assertEquals(directory.toUri().toString(), folder.getName().getURI());
+        List<String> names = new ArrayList<>();
+        try (DirectoryStream<FileObjectX> list = folder.list()) {
+            for (FileObjectX fileObject : list) {
+                names.add(folder.getName().getRelativeName(fileObject.getName()));
+            }
+        }
+        Assert.assertEquals("[a/]", names.toString());
+        names.clear();
+        try (DirectoryStream<FileObjectX> list = folder.listRecursively()) {
+            for (FileObjectX fileObject : list) {
+                names.add(folder.getName().getRelativeName(fileObject.getName()));
+            }
+        }
+        Assert.assertEquals("[a/b/c.txt]", names.toString());
+
+        Assert.assertEquals(3, file("a/").deleteAll());
+        Assert.assertFalse(a.exists());
+    }
+
+    @Test
+    public void testZeroCopy() throws Exception {
+        byte[] data = new byte[1024 * 1024 + 7];
+        for (int i = 0; i < data.length; i++) {
+            data[i] = (byte) i;
+        }
+        Files.write(directory.resolve("src.bin"), data);
+        LocalFileObject source = (LocalFileObject) file("src.bin");
+        Copy.Result result = source.copyTo(file("dst/dst.bin"));
+        Assert.assertEquals(Copy.Method.ZERO_COPY, result.getMethod());
+        Assert.assertEquals(data.length, result.getSize());
+        Assert.assertArrayEquals(data, Files.readAllBytes(directory.resolve("dst/dst.bin")));
+
+        // 通道之间直接传输
+        try (ReadableChannel src = source.getReadableChannel();
+             WritableChannel dst = file("dst/dst2.bin").getWritableChannel()) {
+            Assert.assertEquals(data.length, dst.transferFrom(src));
+        }
+        Assert.assertArrayEquals(data, Files.readAllBytes(directory.resolve("dst/dst2.bin")));
+    }
+
+    @Test
+    public void testMap() throws Exception {
+        byte[] data = new byte[LocalReadableChannel.MAP_THRESHOLD * 3 + 5];
+        for (int i = 0; i < data.length; i++) {
+            data[i] = (byte) ('a' + i % 26);
+        }
+        Files.write(directory.resolve("big.txt"), data);
+        FileObjectX fileObject = file("big.txt");
+
+        // readAll 返回堆内存快照，不随文件修改而变化
+        ByteBuffer buffer = FileObjects.read(fileObject);
+        Assert.assertFalse(buffer instanceof MappedByteBuffer);
+        Assert.assertEquals(data.length, buffer.remaining());
+        Files.write(directory.resolve("big.txt"), new byte[data.length]);
+        Assert.assertEquals(ByteBuffer.wrap(data), buffer);
+        Files.write(directory.resolve("big.txt"), data);
+
+        // 显式映射
+        try (LocalReadableChannel channel = (LocalReadableChannel) fileObject.getReadableChannel()) {
+            MappedByteBuffer mapped = channel.map();
+            Assert.assertTrue(mapped.isReadOnly());
+            Assert.assertEquals(ByteBuffer.wrap(data), mapped);
+        }
+        Assert.assertEquals(new String(data, StandardCharsets.US_ASCII), TextSerializer.utf8().deserialize(fileObject));
+        try (InputStream stream = fileObject.getInputStream()) {
+            Assert.assertEquals(ByteBuffer.wrap(data), BinarySerializer.get().deserialize(stream));
+        }
+
+        // 分块映射
+        try (LocalReadableChannel channel = (LocalReadableChannel) fileObject.getReadableChannel()) {
+            Assert.assertEquals(2, channel.skip(2));
+            MappedByteBuffer[] buffers = channel.map(LocalReadableChannel.MAP_THRESHOLD);
+            Assert.assertEquals(4, buffers.length);
+            Assert.assertEquals(3, buffers[3].remaining());
+            Assert.assertEquals('c', buffers[0].get(0));
+            Assert.assertEquals(-1, channel.read());
+        }
+
+        // 小文件读入堆内存
+        write(file("small.txt"), "hello");
+        Assert.assertFalse(FileObjects.read(file("small.txt")).isDirect());
+        Assert.assertEquals("hello", FileObjects.read(file("small.txt"), StandardCharsets.UTF_8));
+
+        // 解码读取堆内存，不产生无人释放的映射
+        Assert.assertEquals(new String(data, StandardCharsets.US_ASCII), FileObjects.read(fileObject, StandardCharsets.US_ASCII));
+
+        // 配置 mapOnReadAll 后 readAll 大文件返回内存映射
+        provider.setMapOnReadAll(true);
+        Assert.assertTrue(FileObjects.read(fileObject) instanceof MappedByteBuffer);
+        try (InputStream stream = fileObject.getInputStream()) {
+            Assert.assertTrue(BinarySerializer.get().deserialize(stream) instanceof MappedByteBuffer);
+        }
+        Assert.assertFalse(FileObjects.read(file("small.txt")).isDirect());
+    }
+
+    @Test
+    public void testScatterGather() throws Exception {
+        ByteBuffer header = StandardCharsets.UTF_8.encode("header:");
+        ByteBuffer body = ByteBuffer.allocateDirect(5);
+        body.put("hello".getBytes(StandardCharsets.UTF_8)).flip();
+        try (WritableChannel channel = file("a.txt").getWritableChannel()) {
+            Assert.assertEquals(12, channel.write(new ByteBuffer[]{header, body}));
+        }
+        Assert.assertEquals("header:hello", read(file("a.txt")));
+
+        header = ByteBuffer.allocate(7);
+        body = ByteBuffer.allocateDirect(5);
+        try (ReadableChannel channel = file("a.txt").getReadableChannel()) {
+            Assert.assertEquals(12, channel.read(new ByteBuffer[]{header, body}));
+        }
+        header.flip();
+        body.flip();
+        Assert.assertEquals("header:", StandardCharsets.UTF_8.decode(header).toString());
+        Assert.assertEquals("hello", StandardCharsets.UTF_8.decode(body).toString());
+    }
+
+    @Test
+    public void testWatch() throws Exception {
+        BlockingQueue<String> events = new LinkedBlockingQueue<>();
+        FileListener listener = new FileListener() {
+            @Override
+            public void fileCreated(FileChangeEvent event) {
+                events.add("+ " + event.getFile().getName().getBaseName());
+            }
+
+            @Override
+            public void fileDeleted(FileChangeEvent event) {
+                events.add("- " + event.getFile().getName().getBaseName());
+            }
+
+            @Override
+            public void fileChanged(FileChangeEvent event) {
+                events.add("* " + event.getFile().getName().getBaseName());
+            }
+        };
+        FileObjectX folder = provider.getFileObject(directory.toUri().toString());
+        provider.getWatchService().addListener(
+                new PollingFileWatchable<>(folder, FileLastModifiedTimeVersionProvider.get()), listener);
+        Thread.sleep(100);
+
+        // 新建子目录自动注册
+        Files.createDirectory(directory.resolve("sub"));
+        Thread.sleep(200);
+        write(file("sub/x.txt"), "1");
+        Assert.assertEquals("+ x.txt", events.poll(10, TimeUnit.SECONDS));
+        Files.delete(directory.resolve("sub/x.txt"));
+        String event = events.poll(10, TimeUnit.SECONDS);
+        while ("* x.txt".equals(event) || "+ x.txt".equals(event)) {
+            event = events.poll(10, TimeUnit.SECONDS);
+        }
+        Assert.assertEquals("- x.txt", event);
+        Assert.assertEquals(0, provider.getWatchService().getIgnoredCount());
+    }
+
+    @Test
+    public void testWatchMoveDirectory() throws Exception {
+        BlockingQueue<String> events = new LinkedBlockingQueue<>();
+        FileListener listener = new FileListener() {
+            @Override
+            public void fileCreated(FileChangeEvent event) {
+            }
+
+            @Override
+            public void fileDeleted(FileChangeEvent event) {
+                events.add("- " + event.getFile().getName().getBaseName());
+            }
+
+            @Override
+            public void fileChanged(FileChangeEvent event) {
+            }
+        };
+        write(file("sub/y.txt"), "1");
+        write(file("sub/deep/z.txt"), "1");
+        FileObjectX folder = provider.getFileObject(directory.toUri().toString());
+        provider.getWatchService().addListener(
+                new PollingFileWatchable<>(folder, FileLastModifiedTimeVersionProvider.get()), listener);
+        Thread.sleep(100);
+
+        // 子目录整体移走，只有上级目录收到通知，补发其下所有文件的删除通知
+        Path other = Files.createTempDirectory("vfs-local");
+        try {
+            Files.move(directory.resolve("sub"), other.resolve("sub"));
+            Set<String> deleted = new TreeSet<>();
+            while (deleted.size() < 2) {
+                String event = events.poll(10, TimeUnit.SECONDS);
+                Assert.assertNotNull(event);
+                deleted.add(event);
+            }
+            Assert.assertEquals("[- y.txt, - z.txt]", deleted.toString());
+        } finally {
+            provider.getFileObject(other.toUri().toString()).deleteAll();
+        }
+    }
+}
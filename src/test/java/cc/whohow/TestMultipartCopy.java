@@ -0,0 +1,102 @@
+package cc.whohow;
+
+import cc.whohow.vfs.operations.MultipartCopy;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+public class TestMultipartCopy {
+    private final ExecutorService executor = Executors.newFixedThreadPool(4);
+
+    @After
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * 模拟分片复制：failPartNumber 分片失败
+     */
+    private static class SimulatedCopy extends MultipartCopy<Integer> {
+        final int failPartNumber;
+        final AtomicInteger copiedParts = new AtomicInteger();
+        final AtomicInteger aborted = new AtomicInteger();
+
+        SimulatedCopy(int maxInFlightParts, int failPartNumber, ExecutorService executor) {
+            super(0, 1, maxInFlightParts, executor);
+            this.failPartNumber = failPartNumber;
+        }
+
+        @Override
+        protected long getSize() {
+            return 100;
+        }
+
+        @Override
+        protected void copyObject() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        protected void initiate() {
+        }
+
+        @Override
+        protected Integer copyPart(int partNumber, long first, long last) {
+            copiedParts.incrementAndGet();
+            if (partNumber == failPartNumber) {
+                throw new IllegalStateException("part " + partNumber);
+            }
+            if (failPartNumber > 0 && partNumber > failPartNumber) {
+                // 后续分片慢于失败分片，占住并发许可，失败后提交循环必然先看到失败标记
+                LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(100));
+            }
+            return partNumber;
+        }
+
+        @Override
+        protected void complete(List<Integer> parts) {
+            Assert.assertEquals(100, parts.size());
+        }
+
+        @Override
+        protected void abort() {
+            aborted.incrementAndGet();
+        }
+    }
+
+    @Test
+    public void testStopOnFailure() {
+        // 分片失败后不再提交新分片，只取消一次
+        SimulatedCopy copy = new SimulatedCopy(1, 2, executor);
+        try {
+            copy.get();
+            Assert.fail();
+        } catch (IllegalStateException e) {
+            Assert.assertEquals("part 2", e.getMessage());
+        }
+        Assert.assertEquals(2, copy.copiedParts.get());
+        Assert.assertEquals(1, copy.aborted.get());
+
+        copy = new SimulatedCopy(4, 2, executor);
+        try {
+            copy.get();
+            Assert.fail();
+        } catch (IllegalStateException e) {
+            Assert.assertEquals("part 2", e.getMessage());
+        }
+        Assert.assertTrue(copy.copiedParts.get() < 100);
+        Assert.assertEquals(1, copy.aborted.get());
+
+        copy = new SimulatedCopy(4, 0, executor);
+        copy.get();
+        Assert.assertEquals(100, copy.copiedParts.get());
+        Assert.assertEquals(0, copy.aborted.get());
+    }
+}
@@ -0,0 +1,217 @@
+package cc.whohow;
+
+import cc.whohow.vfs.io.IO;
+import cc.whohow.vfs.io.ParallelRangeReadableChannel;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class TestParallelRangeReadableChannel {
+    private static final int RANGE_SIZE = 64 * 1024;
+
+    private final ExecutorService executor = Executors.newFixedThreadPool(8);
+
+    @After
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private static byte[] random(int size) {
+        byte[] data = new byte[size];
+        new Random(size).nextBytes(data);
+        return data;
+    }
+
+    @Test
+    public void testRead() throws Exception {
+        byte[] data = random(10 * RANGE_SIZE + 123);
+        RangeServer server = new RangeServer(data, 20);
+        try (ParallelRangeReadableChannel channel = server.open(0, 4)) {
+            ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+            byte[] b = new byte[1000];
+            while (true) {
+                int n = channel.read(b);
+                if (n < 0) {
+                    break;
+                }
+                buffer.write(b, 0, n);
+            }
+            Assert.assertArrayEquals(data, buffer.toByteArray());
+        }
+        Assert.assertEquals(11, server.ranges.size());
+        Assert.assertTrue(server.maxConcurrency.get() > 1);
+        Assert.assertTrue(server.maxConcurrency.get() <= 4);
+    }
+
+    @Test
+    public void testTransferToWithHead() throws Exception {
+        byte[] data = random(5 * RANGE_SIZE + 7);
+        RangeServer server = new RangeServer(data, 0);
+        try (ParallelRangeReadableChannel channel = server.open(RANGE_SIZE, 2)) {
+            ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+            Assert.assertEquals(data.length, channel.transferTo(buffer));
+            Assert.assertArrayEquals(data, buffer.toByteArray());
+        }
+        Assert.assertEquals(5, server.ranges.size());
+        Assert.assertFalse(server.ranges.contains(0L));
+    }
+
+    @Test
+    public void testReadAll() throws Exception {
+        byte[] data = random(3 * RANGE_SIZE);
+        RangeServer server = new RangeServer(data, 0);
+        try (ParallelRangeReadableChannel channel = server.open(0, 3)) {
+            Assert.assertArrayEquals(data, IO.getByteArray(channel.readAll()));
+            Assert.assertEquals(-1, channel.read());
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void testRangeFailure() throws Exception {
+        byte[] data = random(4 * RANGE_SIZE);
+        RangeServer server = new RangeServer(data, 0);
+        server.failRange = 2 * RANGE_SIZE;
+        try (ParallelRangeReadableChannel channel = server.open(0, 2)) {
+            channel.readAll();
+        }
+    }
+
+    @Test
+    public void testDeferredOpen() throws Exception {
+        byte[] data = random(3 * RANGE_SIZE);
+        try (KeyedChannel channel = new KeyedChannel(data, executor)) {
+            // 读取前不提交Range请求
+            Assert.assertEquals(0, ((ThreadPoolExecutor) executor).getTaskCount());
+            Assert.assertEquals(0, channel.opened.get());
+            Assert.assertArrayEquals(data, IO.getByteArray(channel.readAll()));
+            Assert.assertEquals(3, channel.opened.get());
+        }
+    }
+
+    @Test
+    public void testCloseAbortsRange() throws Exception {
+        byte[] data = random(2 * RANGE_SIZE);
+        CountDownLatch reading = new CountDownLatch(1);
+        CountDownLatch aborted = new CountDownLatch(1);
+        InputStream head = new ByteArrayInputStream(data, 0, RANGE_SIZE);
+        ParallelRangeReadableChannel channel = new ParallelRangeReadableChannel(head, RANGE_SIZE, data.length, RANGE_SIZE, 1, executor) {
+            @Override
+            protected InputStream openRange(long first, long last) {
+                return new InputStream() {
+                    @Override
+                    public int read() throws IOException {
+                        reading.countDown();
+                        try {
+                            aborted.await();
+                        } catch (InterruptedException e) {
+                            throw new IOException(e);
+                        }
+                        throw new IOException("aborted");
+                    }
+                };
+            }
+
+            @Override
+            protected void abortRange(InputStream stream) throws IOException {
+                aborted.countDown();
+                stream.close();
+            }
+        };
+        Assert.assertTrue(channel.read(new byte[10]) > 0);
+        Assert.assertTrue(reading.await(5, TimeUnit.SECONDS));
+        channel.close();
+        Assert.assertEquals(0, aborted.getCount());
+    }
+
+    @Test(expected = IOException.class)
+    public void testReadAfterClose() throws Exception {
+        byte[] data = random(2 * RANGE_SIZE);
+        ParallelRangeReadableChannel channel = new RangeServer(data, 0).open(0, 2);
+        Assert.assertEquals(data[0] & 0xff, channel.read());
+        channel.close();
+        channel.read();
+    }
+
+    @Test
+    public void testInstanceLength() {
+        Assert.assertEquals(1000L, ParallelRangeReadableChannel.getInstanceLength(
+                Collections.singletonMap("content-range", "bytes 0-99/1000")));
+        Assert.assertEquals(-1L, ParallelRangeReadableChannel.getInstanceLength(
+                Collections.singletonMap("Content-Range", "bytes 0-99/*")));
+        Assert.assertEquals(-1L, ParallelRangeReadableChannel.getInstanceLength(Collections.emptyMap()));
+    }
+
+    /**
+     * 构造完成后才赋值的字段，构造中提前 openRange 会 NPE
+     */
+    private static class KeyedChannel extends ParallelRangeReadableChannel {
+        final AtomicInteger opened = new AtomicInteger();
+        private final byte[] data;
+
+        KeyedChannel(byte[] data, ExecutorService executor) {
+            super(data.length, RANGE_SIZE, 2, executor);
+            this.data = data;
+        }
+
+        @Override
+        protected InputStream openRange(long first, long last) {
+            opened.incrementAndGet();
+            return new ByteArrayInputStream(data, (int) first, (int) (last - first + 1));
+        }
+    }
+
+    /**
+     * 本地Range服务，记录请求范围、并发数
+     */
+    private class RangeServer {
+        final byte[] data;
+        final long latency;
+        final List<Long> ranges = new CopyOnWriteArrayList<>();
+        final AtomicInteger concurrency = new AtomicInteger();
+        final AtomicInteger maxConcurrency = new AtomicInteger();
+        volatile long failRange = -1;
+
+        RangeServer(byte[] data, long latency) {
+            this.data = data;
+            this.latency = latency;
+        }
+
+        ParallelRangeReadableChannel open(int headLength, int parallelism) {
+            InputStream head = headLength == 0 ? null : new ByteArrayInputStream(data, 0, headLength);
+            return new ParallelRangeReadableChannel(head, headLength, data.length, RANGE_SIZE, parallelism, executor) {
+                @Override
+                protected InputStream openRange(long first, long last) throws IOException {
+                    int n = concurrency.incrementAndGet();
+                    maxConcurrency.accumulateAndGet(n, Math::max);
+                    try {
+                        ranges.add(first);
+                        Thread.sleep(latency);
+                        if (first == failRange) {
+                            throw new IOException("range " + first);
+                        }
+                        return new ByteArrayInputStream(data, (int) first, (int) (last - first + 1));
+                    } catch (InterruptedException e) {
+                        throw new IOException(e);
+                    } finally {
+                        concurrency.decrementAndGet();
+                    }
+                }
+            };
+        }
+    }
+}
@@ -0,0 +1,135 @@
+package cc.whohow;
+
+import cc.whohow.vfs.FileObjectX;
+import cc.whohow.vfs.provider.kv.KeyValueFileObject;
+import cc.whohow.vfs.provider.uri.UriFileName;
+import cc.whohow.vfs.serialize.TextSerializer;
+import cc.whohow.vfs.version.FileVersion;
+import cc.whohow.vfs.version.FileVersionProvider;
+import cc.whohow.vfs.watch.FileChangeSignal;
+import cc.whohow.vfs.watch.FileVersionSnapshot;
+import cc.whohow.vfs.watch.FileWatchEvent;
+import cc.whohow.vfs.watch.PollingFileWatchKey;
+import cc.whohow.vfs.watch.PollingFileWatchable;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Stream;
+
+public class TestPollingFileWatchKey {
+    private final NavigableMap<String, String> data = new ConcurrentSkipListMap<>();
+    private final AtomicInteger listings = new AtomicInteger();
+    private final FileVersionProvider<String> versionProvider = new FileVersionProvider<String>() {
+        @Override
+        @SuppressWarnings("unchecked")
+        public FileVersion<String> getVersion(FileObjectX fileObject) {
+            return new FileVersion<>(fileObject, ((KeyValueFileObject<String>) fileObject).get());
+        }
+
+        @Override
+        public Stream<FileVersion<String>> getVersions(FileObjectX fileObject) {
+            listings.incrementAndGet();
+            return FileVersionProvider.super.getVersions(fileObject);
+        }
+    };
+
+    private static TreeMap<String, String> events(PollingFileWatchKey<?> watchKey) {
+        TreeMap<String, String> events = new TreeMap<>();
+        for (FileWatchEvent e : watchKey.get()) {
+            events.put(e.getFile().getName().getURI(), e.kind().name());
+        }
+        return events;
+    }
+
+    private FileObjectX folder() {
+        return new KeyValueFileObject<>(null, TextSerializer.utf8(), data, new UriFileName("kv:/dir/"));
+    }
+
+    @Test
+    public void testEvents() {
+        data.put("/dir/a", "1");
+        data.put("/dir/b", "1");
+        data.put("/dir/sub/c", "1");
+        PollingFileWatchKey<String> watchKey = new PollingFileWatchKey<>(folder(), versionProvider);
+        Assert.assertTrue(events(watchKey).isEmpty());
+        Assert.assertTrue(events(watchKey).isEmpty());
+
+        data.put("/dir/a", "2");
+        data.remove("/dir/b");
+        data.put("/dir/sub/d", "1");
+        TreeMap<String, String> events = events(watchKey);
+        Assert.assertEquals(3, events.size());
+        Assert.assertEquals("MODIFY", events.get("kv:/dir/a"));
+        Assert.assertEquals("DELETE", events.get("kv:/dir/b"));
+        Assert.assertEquals("CREATE", events.get("kv:/dir/sub/d"));
+        Assert.assertTrue(events(watchKey).isEmpty());
+    }
+
+    @Test
+    public void testChangeSignal() {
+        data.put("/dir/a", "1");
+        AtomicReference<Object> signal = new AtomicReference<>("s1");
+        PollingFileWatchable<String> watchable = new PollingFileWatchable<>(folder(), versionProvider)
+                .setChangeSignal(fileObject -> signal.get());
+        PollingFileWatchKey<String> watchKey = new PollingFileWatchKey<>(watchable);
+        events(watchKey);
+        data.put("/dir/a", "2");
+        Assert.assertTrue(events(watchKey).isEmpty());
+        Assert.assertEquals(1, listings.get());
+
+        signal.set("s2");
+        Assert.assertEquals("MODIFY", events(watchKey).get("kv:/dir/a"));
+        Assert.assertEquals(2, listings.get());
+    }
+
+    @Test
+    public void testMarkerSignal() {
+        data.put("/dir/a", "1");
+        data.put("/dir/_SUCCESS", "1");
+        PollingFileWatchable<String> watchable = new PollingFileWatchable<>(folder(), versionProvider)
+                .setChangeSignal(FileChangeSignal.marker("_SUCCESS", versionProvider));
+        PollingFileWatchKey<String> watchKey = new PollingFileWatchKey<>(watchable);
+        events(watchKey);
+        // 标记文件不变，跳过版本列举
+        data.put("/dir/a", "2");
+        data.put("/dir/b", "1");
+        Assert.assertTrue(events(watchKey).isEmpty());
+        Assert.assertEquals(1, listings.get());
+
+        data.put("/dir/_SUCCESS", "2");
+        TreeMap<String, String> events = events(watchKey);
+        Assert.assertEquals("MODIFY", events.get("kv:/dir/a"));
+        Assert.assertEquals("CREATE", events.get("kv:/dir/b"));
+        Assert.assertEquals(2, listings.get());
+    }
+
+    @Test
+    public void testSnapshot() {
+        FileVersionSnapshot snapshot = new FileVersionSnapshot();
+        int n = 100_000;
+        long nameBytes = 0;
+        for (int i = 0; i < n; i++) {
+            String name = "logs/2019/app-" + i + ".log";
+            Assert.assertTrue(snapshot.add(FileVersionSnapshot.hash(name), i, name));
+            nameBytes += name.length();
+        }
+        Assert.assertFalse(snapshot.add(FileVersionSnapshot.hash("logs/2019/app-0.log"), 0, "logs/2019/app-0.log"));
+        Assert.assertEquals(n, snapshot.size());
+        for (int i = 0; i < n; i += 997) {
+            String name = "logs/2019/app-" + i + ".log";
+            int index = snapshot.indexOf(FileVersionSnapshot.hash(name));
+            Assert.assertEquals(i, snapshot.getVersion(index));
+            Assert.assertEquals(name, snapshot.getName(index));
+        }
+        Assert.assertEquals(-1, snapshot.indexOf(FileVersionSnapshot.hash("logs/2019/app-" + n + ".log")));
+        // 每项键、版本、偏移 20 字节，哈希表至少 2 个槽 8 字节，加上文件名字节；按倍数扩容，不超过紧凑存储的 2 倍
+        long packed = nameBytes + n * 28L;
+        Assert.assertTrue(snapshot.getMemoryUsage() >= packed);
+        Assert.assertTrue(snapshot.getMemoryUsage() <= packed * 2);
+    }
+}
@@ -0,0 +1,159 @@
+package cc.whohow;
+
+import cc.whohow.vfs.FileObjectX;
+import cc.whohow.vfs.provider.kv.KeyValueFileObject;
+import cc.whohow.vfs.provider.uri.UriFileName;
+import cc.whohow.vfs.serialize.TextSerializer;
+import cc.whohow.vfs.version.FileVersion;
+import cc.whohow.vfs.version.FileVersionProvider;
+import cc.whohow.vfs.watch.AdaptivePollingPolicy;
+import cc.whohow.vfs.watch.FileEventKind;
+import cc.whohow.vfs.watch.PollingFileWatchService;
+import cc.whohow.vfs.watch.PollingFileWatchable;
+import org.apache.commons.vfs2.FileChangeEvent;
+import org.apache.commons.vfs2.FileListener;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.time.Duration;
+import java.util.List;
+import java.util.NavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+public class TestPollingFileWatchService {
+    private final NavigableMap<String, String> data = new ConcurrentSkipListMap<>();
+    private final ScheduledExecutorService executor = Executors.newScheduledThreadPool(2);
+    private final PollingFileWatchService watchService = new PollingFileWatchService(executor,
+            new AdaptivePollingPolicy(Duration.ofMillis(20)));
+    private final FileVersionProvider<String> versionProvider = new FileVersionProvider<String>() {
+        @Override
+        @SuppressWarnings("unchecked")
+        public FileVersion<String> getVersion(FileObjectX fileObject) {
+            return new FileVersion<>(fileObject, ((KeyValueFileObject<String>) fileObject).get());
+        }
+    };
+    private final FileListener listener = new FileListener() {
+        @Override
+        public void fileCreated(FileChangeEvent event) {
+        }
+
+        @Override
+        public void fileDeleted(FileChangeEvent event) {
+        }
+
+        @Override
+        public void fileChanged(FileChangeEvent event) {
+        }
+    };
+
+    @After
+    public void shutdown() throws Exception {
+        watchService.close();
+        executor.shutdownNow();
+    }
+
+    private void watch(String uri) {
+        watchService.addListener(new PollingFileWatchable<>(new KeyValueFileObject<>(
+                null, TextSerializer.utf8(), data, new UriFileName(uri)), versionProvider), listener);
+    }
+
+    @Test
+    public void testTake() throws Exception {
+        data.put("/dir/a", "1");
+        watch("kv:/dir/");
+        Await.baseline(watchService);
+        Assert.assertNull(watchService.poll());
+
+        data.put("/dir/a", "2");
+        WatchKey watchKey = watchService.poll(1, TimeUnit.SECONDS);
+        Assert.assertNotNull(watchKey);
+
+        // 未reset前事件累积，不重复入队
+        data.put("/dir/b", "1");
+        Await.polled(watchService);
+        Assert.assertNull(watchService.poll());
+        List<WatchEvent<?>> events = watchKey.pollEvents();
+        Assert.assertEquals(2, events.size());
+        Assert.assertEquals(FileEventKind.MODIFY, events.get(0).kind());
+        Assert.assertEquals(FileEventKind.CREATE, events.get(1).kind());
+        Assert.assertTrue(watchKey.reset());
+        Assert.assertNull(watchService.poll());
+
+        // reset前有新事件，reset后重新入队
+        data.put("/dir/a", "3");
+        Assert.assertSame(watchKey, watchService.take());
+        Assert.assertEquals(1, watchKey.pollEvents().size());
+        data.remove("/dir/b");
+        Await.polled(watchService);
+        Assert.assertTrue(watchKey.reset());
+        Assert.assertSame(watchKey, watchService.poll());
+        Assert.assertEquals(FileEventKind.DELETE, watchKey.pollEvents().get(0).kind());
+    }
+
+    @Test
+    public void testCancel() throws Exception {
+        data.put("/dir/a", "1");
+        watch("kv:/dir/");
+        Await.baseline(watchService);
+        data.put("/dir/a", "2");
+        WatchKey watchKey = watchService.poll(1, TimeUnit.SECONDS);
+        Assert.assertNotNull(watchKey);
+
+        // 取消后移除轮询任务，重新监听时新建
+        watchKey.cancel();
+        Assert.assertFalse(watchKey.isValid());
+        Assert.assertFalse(watchKey.reset());
+        Assert.assertTrue(watchService.getTasks().isEmpty());
+
+        watch("kv:/dir/");
+        Assert.assertEquals(1, watchService.getTasks().size());
+        Await.baseline(watchService);
+        data.put("/dir/a", "3");
+        WatchKey newWatchKey = watchService.poll(1, TimeUnit.SECONDS);
+        Assert.assertNotNull(newWatchKey);
+        Assert.assertNotSame(watchKey, newWatchKey);
+        Assert.assertTrue(newWatchKey.isValid());
+        Assert.assertEquals(FileEventKind.MODIFY, newWatchKey.pollEvents().get(0).kind());
+    }
+
+    @Test
+    public void testIdleWaiter() throws Exception {
+        data.put("/dir/a", "1");
+        watch("kv:/dir/");
+        ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+        AtomicLong cpuTime = new AtomicLong();
+        AtomicReference<Throwable> error = new AtomicReference<>();
+        CountDownLatch started = new CountDownLatch(1);
+        Thread waiter = new Thread(() -> {
+            long t0 = threadMXBean.getCurrentThreadCpuTime();
+            started.countDown();
+            try {
+                watchService.take();
+            } catch (Throwable e) {
+                error.set(e);
+            }
+            cpuTime.set(threadMXBean.getCurrentThreadCpuTime() - t0);
+        });
+        waiter.start();
+        started.await();
+        // 阻塞等待，不自旋
+        Await.until(() -> waiter.getState() == Thread.State.WAITING);
+        watchService.close();
+        waiter.join(1000);
+        Assert.assertFalse(waiter.isAlive());
+        Assert.assertTrue(error.get() instanceof ClosedWatchServiceException);
+        Assert.assertTrue(cpuTime.get() < TimeUnit.MILLISECONDS.toNanos(100));
+    }
+}
@@ -0,0 +1,120 @@
+package cc.whohow;
+
+import cc.whohow.vfs.util.PrefetchingPageIterator;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class TestPrefetchingPageIterator {
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * 模拟分页接口：页号即页内容，每次请求耗时 latency 毫秒
+     */
+    private static class Pages extends PrefetchingPageIterator<Integer> {
+        final int count;
+        final long latency;
+        final AtomicInteger requested = new AtomicInteger();
+        // 每请求一页释放一个许可
+        final Semaphore requests = new Semaphore(0);
+
+        Pages(int count, long latency) {
+            this.count = count;
+            this.latency = latency;
+        }
+
+        Pages(int count, long latency, ExecutorService executor, int prefetch) {
+            super(executor, prefetch);
+            this.count = count;
+            this.latency = latency;
+        }
+
+        @Override
+        protected Integer first() {
+            return request(0);
+        }
+
+        @Override
+        protected Integer next(Integer previous) {
+            return (previous + 1 < count) ? request(previous + 1) : null;
+        }
+
+        private Integer request(int page) {
+            if (page == 3 && latency < 0) {
+                throw new IllegalStateException("page " + page);
+            }
+            requested.incrementAndGet();
+            try {
+                Thread.sleep(Math.abs(latency));
+            } catch (InterruptedException e) {
+                throw new IllegalStateException(e);
+            }
+            requests.release();
+            return page;
+        }
+    }
+
+    private static List<Integer> drain(Pages pages, long work) throws Exception {
+        List<Integer> list = new ArrayList<>();
+        while (pages.hasNext()) {
+            Assert.assertTrue(pages.hasNext());
+            list.add(pages.next());
+            Thread.sleep(work);
+        }
+        return list;
+    }
+
+    @Test
+    public void testOrder() throws Exception {
+        Assert.assertEquals("[0, 1, 2, 3, 4]", drain(new Pages(5, 0), 0).toString());
+        Assert.assertEquals("[0, 1, 2, 3, 4]", drain(new Pages(5, 1, executor, 2), 0).toString());
+        Assert.assertEquals("[0]", drain(new Pages(1, 1, executor, 2), 0).toString());
+    }
+
+    @Test
+    public void testBackPressure() throws Exception {
+        Pages pages = new Pages(100, 0, executor, 2);
+        Assert.assertEquals(0, pages.next().intValue());
+        // 当前页 + 最多2页预取
+        Assert.assertTrue(pages.requests.tryAcquire(3, 5, TimeUnit.SECONDS));
+        Assert.assertFalse(pages.requests.tryAcquire(100, TimeUnit.MILLISECONDS));
+        Assert.assertEquals(3, pages.requested.get());
+    }
+
+    @Test
+    public void testOverlap() throws Exception {
+        // 同步分页：持有当前页时不请求下一页
+        Pages sync = new Pages(10, 0);
+        for (int i = 0; i < 10; i++) {
+            Assert.assertEquals(i, sync.next().intValue());
+            Assert.assertEquals(i + 1, sync.requested.get());
+        }
+
+        // 预取：持有当前页时下一页已在后台请求
+        Pages prefetch = new Pages(10, 0, executor, 1);
+        for (int i = 0; i < 10; i++) {
+            Assert.assertEquals(i, prefetch.next().intValue());
+            if (i + 1 < 10) {
+                Assert.assertTrue(prefetch.requests.tryAcquire(i == 0 ? 2 : 1, 5, TimeUnit.SECONDS));
+            }
+        }
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testFailure() throws Exception {
+        drain(new Pages(10, -1, executor, 2), 0);
+    }
+}
@@ -0,0 +1,132 @@
+package cc.whohow;
+
+import cc.whohow.vfs.FileObjectX;
+import cc.whohow.vfs.VirtualFileSystemManager;
+import cc.whohow.vfs.path.PrefixIndex;
+import cc.whohow.vfs.provider.kv.KeyValueFileObject;
+import cc.whohow.vfs.provider.uri.UriFileName;
+import cc.whohow.vfs.serialize.TextSerializer;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Random;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+public class TestPrefixIndex {
+    static String scan(NavigableMap<String, String> junctions, String s) {
+        for (Map.Entry<String, String> e : junctions.entrySet()) {
+            if (s.startsWith(e.getKey())) {
+                return e.getValue();
+            }
+        }
+        return null;
+    }
+
+    static NavigableMap<String, String> junctions(int n) {
+        NavigableMap<String, String> junctions = new ConcurrentSkipListMap<>(Comparator.reverseOrder());
+        junctions.put("/", "/");
+        junctions.put("vfs:/", "vfs:/");
+        for (int i = 0; i < n; i++) {
+            String junction = "cos://bucket-" + (i % 10) + "/app-" + i + "/";
+            junctions.put(junction, junction);
+            if (i % 3 == 0) {
+                junctions.put(junction + "conf/", junction + "conf/");
+            }
+        }
+        return junctions;
+    }
+
+    static List<String> uris(int n, int count) {
+        Random random = new Random(n);
+        List<String> uris = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            int app = random.nextInt(n + n / 10 + 1);
+            switch (i % 4) {
+                case 0:
+                    uris.add("cos://bucket-" + (app % 10) + "/app-" + app + "/conf/application.yml");
+                    break;
+                case 1:
+                    uris.add("cos://bucket-" + (app % 10) + "/app-" + app + "/data/" + i + ".json");
+                    break;
+                case 2:
+                    uris.add("/tmp/" + i);
+                    break;
+                default:
+                    uris.add("oss://bucket/" + i);
+                    break;
+            }
+        }
+        return uris;
+    }
+
+    @Test
+    public void testMatch() {
+        Map<String, String> prefixes = new ConcurrentSkipListMap<>();
+        prefixes.put("vfs:/", "vfs");
+        prefixes.put("cos://a/", "a");
+        prefixes.put("cos://a/b/", "ab");
+        PrefixIndex<String> index = new PrefixIndex<>(prefixes);
+        Assert.assertEquals("ab", index.match("cos://a/b/c").getValue());
+        Assert.assertEquals("cos://a/b/", index.match("cos://a/b/").getKey());
+        Assert.assertEquals("a", index.match("cos://a/bc").getValue());
+        Assert.assertEquals("a", index.match("cos://a/").getValue());
+        Assert.assertNull(index.match("cos://a"));
+        Assert.assertNull(index.match("oss://a/"));
+        Assert.assertNull(index.match(""));
+
+        prefixes.put("", "root");
+        Assert.assertEquals("root", new PrefixIndex<>(prefixes).match("oss://a/").getValue());
+    }
+
+    /**
+     * 与线性扫描对比，结果一致；耗时对比见 PrefixIndexBenchmark
+     */
+    @Test
+    public void testCompareWithScan() {
+        for (int n : new int[]{10, 100, 1000}) {
+            NavigableMap<String, String> junctions = junctions(n);
+            PrefixIndex<String> index = new PrefixIndex<>(junctions);
+            List<String> uris = uris(n, 10000);
+            for (String uri : uris) {
+                Map.Entry<String, String> matched = index.match(uri);
+                Assert.assertEquals(uri, scan(junctions, uri), matched == null ? null : matched.getValue());
+            }
+        }
+    }
+
+    @Test
+    public void testResolveFile() throws Exception {
+        VirtualFileSystemManager vfs = new VirtualFileSystemManager();
+        try {
+            NavigableMap<String, String> a = new ConcurrentSkipListMap<>();
+            NavigableMap<String, String> b = new ConcurrentSkipListMap<>();
+            vfs.addJunction("kv:/a/", new KeyValueFileObject<>(vfs, TextSerializer.utf8(), a, new UriFileName("kv:/a/")));
+            a.put("/a/b/c", "a");
+            b.put("/a/b/c", "b");
+
+            FileObjectX file = vfs.resolveFile("kv:/a/b/c");
+            Assert.assertEquals("kv:/a/b/c", file.getName().getURI());
+            Assert.assertEquals("a", ((KeyValueFileObject<?>) file).get());
+            // 不共享可变文件对象
+            FileObjectX again = vfs.resolveFile("kv:/a/b/c");
+            Assert.assertNotSame(file, again);
+            Assert.assertEquals(file.getName().getURI(), again.getName().getURI());
+            Assert.assertEquals("kv:/a/b/c", vfs.resolveFile(URI.create("kv:/a/./b/c")).getName().getURI());
+
+            // 挂载点变化，缓存失效
+            vfs.addJunction("kv:/a/b/", new KeyValueFileObject<>(vfs, TextSerializer.utf8(), b, new UriFileName("kv:/a/b/")));
+            file = vfs.resolveFile("kv:/a/b/c");
+            Assert.assertEquals("kv:/a/b/c", file.getName().getURI());
+            Assert.assertEquals("b", ((KeyValueFileObject<?>) file).get());
+            Assert.assertEquals("b", ((KeyValueFileObject<?>) vfs.resolveFile(URI.create("kv:/a/b/c"))).get());
+        } finally {
+            vfs.getExecutor().shutdown();
+        }
+    }
+}
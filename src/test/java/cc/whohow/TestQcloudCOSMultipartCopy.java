@@ -0,0 +1,72 @@
+package cc.whohow;
+
+import cc.whohow.vfs.operations.Copy;
+import cc.whohow.vfs.provider.qcloud.cos.QcloudCOSMultipartCopy;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+public class TestQcloudCOSMultipartCopy {
+    private static final long MAX_COPY_SIZE = 64 * 1024;
+    private static final long PART_SIZE = 16 * 1024;
+
+    private final InMemoryCOS cos = new InMemoryCOS();
+    private final ExecutorService executor = Executors.newFixedThreadPool(8);
+
+    @After
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private static byte[] random(int size) {
+        byte[] data = new byte[size];
+        new Random(size).nextBytes(data);
+        return data;
+    }
+
+    private QcloudCOSMultipartCopy copy(String source, String destination) {
+        return new QcloudCOSMultipartCopy(cos.newProxyInstance(), "bucket", source, "bucket", destination,
+                MAX_COPY_SIZE, PART_SIZE, 4, executor);
+    }
+
+    @Test
+    public void testCopyObject() {
+        byte[] data = random((int) MAX_COPY_SIZE);
+        cos.objects.put("src", data);
+        Assert.assertEquals(Copy.Method.SERVER_SIDE, copy("src", "dst").get().getMethod());
+        Assert.assertArrayEquals(data, cos.objects.get("dst"));
+        Assert.assertEquals(1, cos.copyObjects.get());
+        Assert.assertTrue(cos.uploadedParts.isEmpty());
+    }
+
+    @Test
+    public void testMultipartCopy() {
+        cos.latency = 20;
+        byte[] data = random((int) (10 * PART_SIZE + 123));
+        cos.objects.put("src", data);
+        Assert.assertEquals(Copy.Method.SERVER_SIDE_MULTIPART, copy("src", "dst").get().getMethod());
+        Assert.assertArrayEquals(data, cos.objects.get("dst"));
+        Assert.assertEquals(0, cos.copyObjects.get());
+        Assert.assertEquals(11, cos.uploadedParts.size());
+        Assert.assertTrue(cos.maxConcurrency.get() > 1);
+        Assert.assertTrue(cos.maxConcurrency.get() <= 4);
+    }
+
+    @Test
+    public void testAbortOnFailure() {
+        cos.failPartNumber = 3;
+        cos.objects.put("src", random((int) (10 * PART_SIZE)));
+        try {
+            copy("src", "dst").get();
+            Assert.fail();
+        } catch (IllegalStateException e) {
+            Assert.assertEquals("part 3", e.getMessage());
+        }
+        Assert.assertEquals(1, cos.aborted.size());
+        Assert.assertFalse(cos.objects.containsKey("dst"));
+    }
+}
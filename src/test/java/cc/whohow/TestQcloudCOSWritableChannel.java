@@ -0,0 +1,104 @@
+package cc.whohow;
+
+import cc.whohow.vfs.provider.qcloud.cos.QcloudCOSWritableChannel;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.TreeSet;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+public class TestQcloudCOSWritableChannel {
+    private static final int PART_SIZE = QcloudCOSWritableChannel.MIN_PART_SIZE;
+
+    private final InMemoryCOS cos = new InMemoryCOS();
+    private final ExecutorService executor = Executors.newFixedThreadPool(8);
+
+    @After
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private static byte[] random(int size) {
+        byte[] data = new byte[size];
+        new Random(size).nextBytes(data);
+        return data;
+    }
+
+    @Test
+    public void testParallelUpload() throws Exception {
+        cos.latency = 50;
+        byte[] data = random(10 * PART_SIZE + PART_SIZE / 2);
+        try (QcloudCOSWritableChannel channel = new QcloudCOSWritableChannel(
+                cos.newProxyInstance(), "bucket", "key", PART_SIZE, 4, executor)) {
+            for (int i = 0; i < data.length; i += 8 * 1024) {
+                channel.write(data, i, Integer.min(8 * 1024, data.length - i));
+            }
+        }
+        Assert.assertArrayEquals(data, cos.objects.get("key"));
+        Assert.assertEquals(11, cos.uploadedParts.size());
+        Assert.assertTrue(cos.maxConcurrency.get() > 1);
+        Assert.assertTrue(cos.maxConcurrency.get() <= 4);
+        Assert.assertTrue(cos.uploads.isEmpty());
+    }
+
+    @Test
+    public void testTransferFrom() throws Exception {
+        byte[] data = random(3 * PART_SIZE + 1);
+        try (QcloudCOSWritableChannel channel = new QcloudCOSWritableChannel(
+                cos.newProxyInstance(), "bucket", "key", PART_SIZE, 2, executor)) {
+            Assert.assertEquals(data.length, channel.transferFrom(new ByteArrayInputStream(data)));
+        }
+        Assert.assertArrayEquals(data, cos.objects.get("key"));
+        // 分片并行上传，完成顺序不确定
+        Assert.assertEquals(new TreeSet<>(Arrays.asList(1, 2, 3, 4)), new TreeSet<>(cos.uploadedParts));
+        Assert.assertEquals(4, cos.uploadedParts.size());
+    }
+
+    @Test
+    public void testSynchronousUpload() throws Exception {
+        byte[] data = random(2 * PART_SIZE + 100);
+        try (QcloudCOSWritableChannel channel = new QcloudCOSWritableChannel(
+                cos.newProxyInstance(), "bucket", "key", PART_SIZE)) {
+            channel.write(data);
+        }
+        Assert.assertArrayEquals(data, cos.objects.get("key"));
+        Assert.assertEquals(Arrays.asList(1, 2, 3), cos.uploadedParts);
+        Assert.assertEquals(1, cos.maxConcurrency.get());
+    }
+
+    @Test
+    public void testSmallObject() throws Exception {
+        byte[] data = random(100);
+        try (QcloudCOSWritableChannel channel = new QcloudCOSWritableChannel(
+                cos.newProxyInstance(), "bucket", "key", PART_SIZE, 4, executor)) {
+            channel.write(data);
+        }
+        Assert.assertArrayEquals(data, cos.objects.get("key"));
+        Assert.assertEquals(1, cos.putObjects.get());
+        Assert.assertTrue(cos.uploadedParts.isEmpty());
+    }
+
+    @Test
+    public void testAbortOnFailure() throws Exception {
+        cos.failPartNumber = 2;
+        byte[] data = random(6 * PART_SIZE);
+        boolean failed = false;
+        try (QcloudCOSWritableChannel channel = new QcloudCOSWritableChannel(
+                cos.newProxyInstance(), "bucket", "key", PART_SIZE, 2, executor)) {
+            channel.write(data);
+        } catch (IOException e) {
+            // 失败的分片可能在 write 或 close 时报告
+            failed = true;
+        }
+        Assert.assertTrue(failed);
+        Assert.assertFalse(cos.objects.containsKey("key"));
+        Assert.assertEquals(1, cos.aborted.size());
+        Assert.assertTrue(cos.uploads.isEmpty());
+    }
+}
@@ -0,0 +1,313 @@
+package cc.whohow;
+
+import cc.whohow.vfs.FileObjectX;
+import cc.whohow.vfs.FileOperationX;
+import cc.whohow.vfs.operations.AbstractFileOperation;
+import cc.whohow.vfs.operations.Copy;
+import cc.whohow.vfs.provider.aliyun.oss.AliyunOSSListingFileObject;
+import cc.whohow.vfs.provider.kv.KeyValueFileObject;
+import cc.whohow.vfs.provider.s3.S3FileName;
+import cc.whohow.vfs.provider.s3.S3FileSync;
+import cc.whohow.vfs.provider.uri.UriFileName;
+import cc.whohow.vfs.serialize.TextSerializer;
+import cc.whohow.vfs.version.FileVersion;
+import cc.whohow.vfs.version.FileVersionView;
+import cc.whohow.vfs.watch.FileDiffEntry;
+import cc.whohow.vfs.watch.FileDiffStatistics;
+import com.aliyun.oss.model.OSSObjectSummary;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.nio.file.DirectoryStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+public class TestS3FileSync {
+    private static Stream<FileDiffEntry<String>> diff(int n) {
+        return IntStream.range(0, n)
+                .mapToObj(i -> i % 4 == 0 ?
+                        new FileDiffEntry.NotModified<>("file-" + i) :
+                        new FileDiffEntry.Create<>("file-" + i));
+    }
+
+    @Test
+    public void testParallel() {
+        SimulatedSync serial = new SimulatedSync(0);
+        serial.setWorkers(1);
+        FileDiffStatistics s1 = serial.call(diff(200));
+        Assert.assertEquals(150, s1.getCreate());
+        Assert.assertEquals(50, s1.getNotModified());
+        Assert.assertEquals(1, serial.maxConcurrency.get());
+
+        // 8 个同步同时执行才能通过汇合点
+        SimulatedSync parallel = new SimulatedSync(0);
+        parallel.setWorkers(8).setQueueSize(16);
+        parallel.overlap = new CountDownLatch(8);
+        FileDiffStatistics s8 = parallel.call(diff(200));
+        Assert.assertEquals(150, s8.getCreate());
+        Assert.assertEquals(150 * 100, s8.getBytes());
+        Assert.assertEquals(0, s8.getFailures());
+        Assert.assertEquals(150, parallel.calls.size());
+        Assert.assertEquals(8, parallel.maxConcurrency.get());
+    }
+
+    @Test
+    public void testRetry() {
+        SimulatedSync sync = new SimulatedSync(0);
+        sync.failTimes = 2;
+        sync.setWorkers(4).setRetry(3, 1);
+        FileDiffStatistics statistics = sync.call(diff(20));
+        Assert.assertEquals(0, statistics.getFailures());
+        Assert.assertEquals(15 * 100, statistics.getBytes());
+        sync.calls.values().forEach(n -> Assert.assertEquals(3, n.get()));
+    }
+
+    @Test
+    public void testFailure() {
+        SimulatedSync sync = new SimulatedSync(0);
+        sync.failTimes = Integer.MAX_VALUE;
+        sync.setWorkers(4).setRetry(2, 1);
+        FileDiffStatistics statistics = sync.call(diff(20));
+        Assert.assertEquals(15, statistics.getFailures());
+        Assert.assertEquals(15, sync.getFailures().size());
+        Assert.assertEquals(0, statistics.getBytes());
+        sync.calls.values().forEach(n -> Assert.assertEquals(3, n.get()));
+    }
+
+    @Test
+    public void testLatency() {
+        // 存储有延迟时，多个工作线程重叠等待，耗时明显少于单线程
+        SimulatedSync serial = new SimulatedSync(20);
+        serial.setWorkers(1);
+        long start = System.nanoTime();
+        Assert.assertEquals(30, serial.call(diff(40)).getCreate());
+        long serialTime = System.nanoTime() - start;
+        Assert.assertTrue(serialTime >= TimeUnit.MILLISECONDS.toNanos(30 * 20));
+
+        SimulatedSync parallel = new SimulatedSync(20);
+        parallel.setWorkers(8);
+        start = System.nanoTime();
+        Assert.assertEquals(30, parallel.call(diff(40)).getCreate());
+        long parallelTime = System.nanoTime() - start;
+        Assert.assertTrue(parallelTime < serialTime / 2);
+    }
+
+    @Test
+    public void testError() {
+        // 工作线程发生 Error 时丢弃剩余差异，中止同步，Error 抛给调用方；下次同步不受影响
+        SimulatedSync sync = new SimulatedSync(0);
+        sync.errorKey = "file-1";
+        sync.setWorkers(2).setQueueSize(1);
+        try {
+            sync.call(diff(100));
+            Assert.fail();
+        } catch (AssertionError e) {
+            Assert.assertEquals("file-1", e.getMessage());
+        }
+        Assert.assertTrue(sync.calls.size() < 75);
+
+        sync.errorKey = null;
+        FileDiffStatistics statistics = sync.call(diff(20));
+        Assert.assertEquals(0, statistics.getFailures());
+        Assert.assertTrue(sync.getFailures().isEmpty());
+    }
+
+    @Test
+    public void testAbort() {
+        // 读取差异失败时丢弃队列中剩余差异，工作线程退出，异常抛给调用方
+        SimulatedSync sync = new SimulatedSync(0);
+        sync.setWorkers(2).setQueueSize(1);
+        try {
+            sync.call(diff(100).peek(e -> {
+                if (e.getKey().equals("file-50")) {
+                    throw new IllegalStateException(e.getKey());
+                }
+            }));
+            Assert.fail();
+        } catch (IllegalStateException e) {
+            Assert.assertEquals("file-50", e.getMessage());
+        }
+    }
+
+    @Test
+    public void testOverrideListFileVersion() {
+        // 目录支持列举游标，子类重写 listFileVersion 后不走游标，按自定义版本列举
+        OSSObjectSummary objectSummary = new OSSObjectSummary();
+        objectSummary.setKey("prefix/a.txt");
+        objectSummary.setSize(1);
+        objectSummary.setETag("v1");
+        objectSummary.setLastModified(new Date(0));
+        FileObjectX file = new AliyunOSSListingFileObject(null,
+                new S3FileName(TestListingCursor.BASE.getName(), objectSummary.getKey()), objectSummary);
+        VersionSync sync = new VersionSync(new FileVersion<>(file, "v2"));
+        try (Stream<FileVersionView> list = sync.listFileVersion(TestListingCursor.BASE)) {
+            List<FileVersionView> versions = list.collect(Collectors.toList());
+            Assert.assertEquals(1, versions.size());
+            Assert.assertEquals("v2", versions.get(0).getVersion());
+            Assert.assertEquals("a.txt", versions.get(0).getName());
+        }
+    }
+
+    @Test
+    public void testUnsortedEncodedKeys() {
+        // 键含需编码的字符，列举无序，排序后按原始键序合并
+        NavigableMap<String, String> data = new ConcurrentSkipListMap<>();
+        data.put("/new/a b", "1");
+        data.put("/new/a!b", "2");
+        data.put("/new/a%b", "1");
+        data.put("/new/中 文", "1");
+        data.put("/old/a b", "1");
+        data.put("/old/a!b", "1");
+        data.put("/old/z", "1");
+        UnsortedSync sync = new UnsortedSync(data, kv(data, "kv:/new/"), kv(data, "kv:/old/"));
+        try (Stream<FileDiffEntry<String>> diff = sync.get()) {
+            Map<String, String> kinds = diff.filter(FileDiffEntry::isModified)
+                    .collect(Collectors.toMap(e -> decode(e.getKey()), e -> e.getValue().name()));
+            Map<String, String> expected = new TreeMap<>();
+            expected.put("a!b", "MODIFY");
+            expected.put("a%b", "CREATE");
+            expected.put("中 文", "CREATE");
+            expected.put("z", "DELETE");
+            Assert.assertEquals(expected, new TreeMap<>(kinds));
+        }
+    }
+
+    private static FileObjectX kv(NavigableMap<String, String> data, String uri) {
+        return new KeyValueFileObject<>(null, TextSerializer.utf8(), data, new UriFileName(uri));
+    }
+
+    private static String decode(String path) {
+        return URI.create(path).getPath();
+    }
+
+    /**
+     * 按内容作为版本，乱序列举
+     */
+    private static class UnsortedSync extends S3FileSync {
+        final NavigableMap<String, String> data;
+
+        UnsortedSync(NavigableMap<String, String> data, FileObjectX source, FileObjectX target) {
+            super(null, null, source, target);
+            this.data = data;
+        }
+
+        @Override
+        protected Stream<FileVersion<String>> getVersions(FileObjectX folder) {
+            List<FileVersion<String>> versions = new ArrayList<>();
+            try (DirectoryStream<FileObjectX> list = folder.listRecursively()) {
+                for (FileObjectX file : list) {
+                    SizedFileObject sized = new SizedFileObject(data, file);
+                    versions.add(new FileVersion<>(sized, sized.get()));
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            Collections.shuffle(versions, new Random(0));
+            return versions.stream();
+        }
+    }
+
+    /**
+     * 支持大小、修改时间的键值文件
+     */
+    private static class SizedFileObject extends KeyValueFileObject<String> {
+        SizedFileObject(NavigableMap<String, String> data, FileObjectX file) {
+            super(null, TextSerializer.utf8(), data, new UriFileName(file.getName().getURI()));
+        }
+
+        @Override
+        public long getSize() {
+            return get().length();
+        }
+
+        @Override
+        public long getLastModifiedTime() {
+            return 0;
+        }
+    }
+
+    private static class VersionSync extends S3FileSync {
+        final FileVersion<String> version;
+
+        VersionSync(FileVersion<String> version) {
+            super(null, (FileObjectX) null, null, null);
+            this.version = version;
+        }
+
+        @Override
+        protected Stream<FileVersionView> listFileVersion(FileObjectX folder) {
+            return toFileVersionView(folder, Stream.of(version));
+        }
+    }
+
+    /**
+     * 模拟存储延迟的同步
+     */
+    private static class SimulatedSync extends S3FileSync {
+        final Map<String, AtomicInteger> calls = new ConcurrentHashMap<>();
+        final AtomicInteger concurrency = new AtomicInteger();
+        final AtomicInteger maxConcurrency = new AtomicInteger();
+        final long latency;
+        volatile int failTimes = 0;
+        volatile String errorKey;
+        // 同步在此汇合，全部到达才继续
+        volatile CountDownLatch overlap;
+
+        SimulatedSync(long latency) {
+            super(null, (FileObjectX) null, null, null);
+            this.latency = latency;
+        }
+
+        @Override
+        public FileOperationX<?, ?> apply(FileDiffEntry<String> diff) {
+            if (diff.isNotModified()) {
+                return null;
+            }
+            if (diff.getKey().equals(errorKey)) {
+                throw new AssertionError(diff.getKey());
+            }
+            return new AbstractFileOperation<String, Object>() {
+                @Override
+                public Object apply(String key) {
+                    int n = concurrency.incrementAndGet();
+                    maxConcurrency.accumulateAndGet(n, Math::max);
+                    try {
+                        Thread.sleep(latency);
+                        CountDownLatch latch = overlap;
+                        if (latch != null) {
+                            latch.countDown();
+                            if (!latch.await(5, TimeUnit.SECONDS)) {
+                                throw new IllegalStateException("not synced concurrently");
+                            }
+                        }
+                        if (calls.computeIfAbsent(key, k -> new AtomicInteger()).incrementAndGet() <= failTimes) {
+                            throw new IllegalStateException(key);
+                        }
+                        return new Copy.Result(Copy.Method.STREAMING, 100);
+                    } catch (InterruptedException e) {
+                        throw new IllegalStateException(e);
+                    } finally {
+                        concurrency.decrementAndGet();
+                    }
+                }
+            }.with(diff.getKey());
+        }
+    }
+}
@@ -0,0 +1,294 @@
+package cc.whohow;
+
+import cc.whohow.vfs.FileObjectX;
+import cc.whohow.vfs.provider.kv.KeyValueFileObject;
+import cc.whohow.vfs.provider.s3.S3ParallelFileObjectList;
+import cc.whohow.vfs.provider.uri.UriFileName;
+import cc.whohow.vfs.serialize.TextSerializer;
+import cc.whohow.vfs.util.MapIterator;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class TestS3ParallelFileObjectList {
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+    private final NavigableMap<String, String> data = new ConcurrentSkipListMap<>();
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * 模拟对象存储列举：每页 PAGE_SIZE 个键，每次请求耗时 latency 毫秒
+     */
+    private class SimulatedList extends S3ParallelFileObjectList {
+        static final int PAGE_SIZE = 10;
+        final long latency;
+        final AtomicInteger requests = new AtomicInteger();
+        final AtomicInteger concurrency = new AtomicInteger();
+        final AtomicInteger maxConcurrency = new AtomicInteger();
+        final AtomicInteger partitions = new AtomicInteger();
+        final AtomicInteger maxPartitions = new AtomicInteger();
+        volatile String failPrefix;
+        // 分区列举在此汇合，全部到达才继续
+        volatile CountDownLatch overlap;
+
+        SimulatedList(String prefix, ExecutorService executor, int concurrency, boolean ordered, long latency) {
+            super(prefix, executor, concurrency, ordered);
+            this.latency = latency;
+        }
+
+        private void request() {
+            requests.incrementAndGet();
+            maxConcurrency.accumulateAndGet(concurrency.incrementAndGet(), Math::max);
+            try {
+                Thread.sleep(latency);
+            } catch (InterruptedException e) {
+                throw new IllegalStateException(e);
+            } finally {
+                concurrency.decrementAndGet();
+            }
+        }
+
+        private FileObjectX newFile(String key) {
+            return new KeyValueFileObject<>(null, TextSerializer.utf8(), data, new UriFileName("kv:/" + key));
+        }
+
+        @Override
+        protected Iterator<FileObjectX> listSinglePage(String prefix) {
+            request();
+            List<FileObjectX> files = new ArrayList<>();
+            for (String key : data.tailMap(prefix, false).keySet()) {
+                if (!key.startsWith(prefix)) {
+                    break;
+                }
+                if (files.size() == PAGE_SIZE) {
+                    return null;
+                }
+                files.add(newFile(key));
+            }
+            return files.iterator();
+        }
+
+        @Override
+        protected void listLevel(String prefix, List<String> folders, List<FileObjectX> files) {
+            request();
+            for (String key : data.tailMap(prefix, true).keySet()) {
+                if (!key.startsWith(prefix)) {
+                    break;
+                }
+                int i = key.indexOf('/', prefix.length());
+                if (i < 0) {
+                    if (!key.equals(this.prefix)) {
+                        files.add(newFile(key));
+                    }
+                } else {
+                    String folder = key.substring(0, i + 1);
+                    if (folders.isEmpty() || !folders.get(folders.size() - 1).equals(folder)) {
+                        folders.add(folder);
+                    }
+                }
+            }
+        }
+
+        @Override
+        protected Iterator<FileObjectX> listAll(String prefix) {
+            if (prefix.equals(failPrefix)) {
+                throw new AssertionError(prefix);
+            }
+            maxPartitions.accumulateAndGet(partitions.incrementAndGet(), Math::max);
+            try {
+                CountDownLatch latch = overlap;
+                if (latch != null) {
+                    latch.countDown();
+                    if (!latch.await(5, TimeUnit.SECONDS)) {
+                        throw new IllegalStateException("partitions not listed concurrently");
+                    }
+                }
+            } catch (InterruptedException e) {
+                throw new IllegalStateException(e);
+            } finally {
+                partitions.decrementAndGet();
+            }
+            List<String> keys = new ArrayList<>();
+            for (String key : data.tailMap(prefix, true).keySet()) {
+                if (!key.startsWith(prefix)) {
+                    break;
+                }
+                keys.add(key);
+            }
+            // 按页请求
+            for (int i = 0; i < keys.size(); i += PAGE_SIZE) {
+                request();
+            }
+            return new MapIterator<>(keys.iterator(), this::newFile);
+        }
+
+        @Override
+        protected String getKey(FileObjectX fileObject) {
+            return fileObject.getName().getPath().substring(1);
+        }
+    }
+
+    private static List<String> keys(Iterable<FileObjectX> list) {
+        List<String> keys = new ArrayList<>();
+        for (FileObjectX fileObject : list) {
+            keys.add(fileObject.getName().getPath().substring(1));
+        }
+        return keys;
+    }
+
+    private List<String> expected(String prefix) {
+        List<String> keys = new ArrayList<>();
+        for (String key : data.tailMap(prefix, false).keySet()) {
+            if (key.startsWith(prefix)) {
+                keys.add(key);
+            }
+        }
+        return keys;
+    }
+
+    private void put(String key) {
+        data.put(key, key);
+    }
+
+    @Test
+    public void testSmall() throws Exception {
+        put("root/");
+        put("root/a");
+        put("root/b/c");
+        SimulatedList list = new SimulatedList("root/", executor, 4, true, 0);
+        Assert.assertEquals(expected("root/"), keys(list));
+        Assert.assertEquals(1, list.requests.get());
+    }
+
+    @Test
+    public void testOrdered() throws Exception {
+        put("root/");
+        put("root/0");
+        for (int i = 0; i < 8; i++) {
+            put("root/d" + i + "/");
+            for (int j = 0; j < 25; j++) {
+                put("root/d" + i + "/f" + j);
+            }
+            put("root/x" + i);
+        }
+        // 深层子目录
+        for (int j = 0; j < 30; j++) {
+            put("root/e/g/" + j);
+        }
+        put("root/e.txt");
+        put("root/e/h");
+        put("other/a");
+
+        try (SimulatedList list = new SimulatedList("root/", executor, 4, true, 5)) {
+            Assert.assertEquals(expected("root/"), keys(list));
+            Assert.assertTrue(list.maxConcurrency.get() > 1);
+            Assert.assertTrue(list.maxConcurrency.get() <= 4);
+        }
+        try (SimulatedList list = new SimulatedList("root/", executor, 4, false, 5)) {
+            List<String> keys = keys(list);
+            Assert.assertEquals(expected("root/").size(), keys.size());
+            Assert.assertEquals(new HashSet<>(expected("root/")), new HashSet<>(keys));
+        }
+    }
+
+    private void putTree(int folders, int files) {
+        for (int i = 0; i < folders; i++) {
+            for (int j = 0; j < files; j++) {
+                put("root/d" + i + "/f" + j);
+            }
+        }
+    }
+
+    @Test
+    public void testError() throws Exception {
+        putTree(4, 20);
+        try (SimulatedList list = new SimulatedList("root/", executor, 4, true, 0)) {
+            list.failPrefix = "root/d2/";
+            Iterator<FileObjectX> iterator = list.iterator();
+            int n = 0;
+            try {
+                while (iterator.hasNext()) {
+                    iterator.next();
+                    n++;
+                }
+                Assert.fail();
+            } catch (AssertionError e) {
+                Assert.assertEquals("root/d2/", e.getMessage());
+            }
+            Assert.assertEquals(40, n);
+        }
+    }
+
+    @Test
+    public void testClose() throws Exception {
+        putTree(4, 50);
+        ThreadPoolExecutor pool = (ThreadPoolExecutor) executor;
+        // 关闭后 4 个列举线程退出，迭代结束
+        SimulatedList list = new SimulatedList("root/", executor, 4, false, 0);
+        list.setBufferSize(1);
+        Iterator<FileObjectX> iterator = list.iterator();
+        Assert.assertTrue(iterator.hasNext());
+        iterator.next();
+        list.close();
+        awaitCompleted(pool, 4);
+        while (iterator.hasNext()) {
+            iterator.next();
+        }
+
+        // 未关闭也未消费，超时后放弃
+        list = new SimulatedList("root/", executor, 4, false, 0);
+        list.setBufferSize(1);
+        list.setAbandonTimeout(200);
+        iterator = list.iterator();
+        awaitCompleted(pool, 8);
+        try {
+            while (iterator.hasNext()) {
+                iterator.next();
+            }
+            Assert.fail();
+        } catch (IllegalStateException ignore) {
+        }
+    }
+
+    /**
+     * 等待线程池累计完成 n 个任务
+     */
+    private static void awaitCompleted(ThreadPoolExecutor pool, long n) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (pool.getCompletedTaskCount() < n && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        Assert.assertEquals(n, pool.getCompletedTaskCount());
+    }
+
+    @Test
+    public void testParallel() throws Exception {
+        putTree(16, 50);
+        try (SimulatedList list = new SimulatedList("root/", executor, 1, true, 0)) {
+            Assert.assertEquals(800, keys(list).size());
+            Assert.assertEquals(1, list.maxPartitions.get());
+        }
+        // 8 个分区同时列举才能通过汇合点
+        try (SimulatedList list = new SimulatedList("root/", executor, 8, true, 0)) {
+            list.overlap = new CountDownLatch(8);
+            Assert.assertEquals(800, keys(list).size());
+            Assert.assertEquals(8, list.maxPartitions.get());
+        }
+    }
+}
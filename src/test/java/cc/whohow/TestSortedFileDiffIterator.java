@@ -0,0 +1,99 @@
+package cc.whohow;
+
+import cc.whohow.vfs.path.URIBuilder;
+import cc.whohow.vfs.util.CodePointComparator;
+import cc.whohow.vfs.util.URIPathComparator;
+import cc.whohow.vfs.watch.FileDiffEntry;
+import cc.whohow.vfs.watch.FileDiffIterator;
+import cc.whohow.vfs.watch.SortedFileDiffIterator;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+public class TestSortedFileDiffIterator {
+    private static TreeMap<String, String> random(Random random, int n) {
+        TreeMap<String, String> map = new TreeMap<>(CodePointComparator.get());
+        for (int i = 0; i < n; i++) {
+            map.put("key-" + random.nextInt(2 * n), Integer.toString(random.nextInt(3)));
+        }
+        return map;
+    }
+
+    private static Set<String> toStrings(Iterator<FileDiffEntry<String>> iterator) {
+        Set<String> set = new TreeSet<>();
+        iterator.forEachRemaining(e -> set.add(e.toString()));
+        return set;
+    }
+
+    @Test
+    public void testSameAsFileDiffIterator() {
+        Random random = new Random(0);
+        for (int i = 0; i < 20; i++) {
+            TreeMap<String, String> newList = random(random, 1000);
+            TreeMap<String, String> oldList = random(random, 1000);
+            Function<Map.Entry<String, String>, String> key = Map.Entry::getKey;
+            Function<Map.Entry<String, String>, String> value = Map.Entry::getValue;
+            Set<String> expected = toStrings(new FileDiffIterator<>(key, value,
+                    newList.entrySet().iterator(), oldList.entrySet().iterator()));
+            List<FileDiffEntry<String>> actual = new ArrayList<>();
+            new SortedFileDiffIterator<>(key, value, CodePointComparator.get(),
+                    newList.entrySet().iterator(), oldList.entrySet().iterator()).forEachRemaining(actual::add);
+            Assert.assertEquals(expected, toStrings(actual.iterator()));
+            // 按key有序输出
+            List<String> keys = actual.stream().map(FileDiffEntry::getKey).collect(Collectors.toList());
+            List<String> sorted = new ArrayList<>(keys);
+            sorted.sort(CodePointComparator.get());
+            Assert.assertEquals(sorted, keys);
+        }
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testNotSorted() {
+        List<String> newList = Arrays.asList("a", "c", "b");
+        new SortedFileDiffIterator<>(Function.identity(), Function.identity(), CodePointComparator.get(),
+                newList.iterator(), Collections.<String>emptyIterator()).forEachRemaining(e -> {
+        });
+    }
+
+    @Test
+    public void testCodePointOrder() {
+        List<String> keys = Arrays.asList("a", "ab", "b", "Ａ", "😀", "é", "A", "");
+        List<String> byBytes = new ArrayList<>(keys);
+        byBytes.sort((a, b) -> {
+            byte[] x = a.getBytes(StandardCharsets.UTF_8);
+            byte[] y = b.getBytes(StandardCharsets.UTF_8);
+            for (int i = 0; i < Integer.min(x.length, y.length); i++) {
+                if (x[i] != y[i]) {
+                    return (x[i] & 0xff) - (y[i] & 0xff);
+                }
+            }
+            return x.length - y.length;
+        });
+        List<String> byCodePoints = new ArrayList<>(keys);
+        byCodePoints.sort(CodePointComparator.get());
+        Assert.assertEquals(byBytes, byCodePoints);
+    }
+
+    @Test
+    public void testEncodedKeys() {
+        // 原始键 "a b" < "a!b"，编码后 "a%20b" > "a!b"，按解码后字节序比较
+        List<String> keys = Arrays.asList("a b", "a!b", "a%b", "a+b", "a", "中 文", "中文", "😀 x", "é", "A~", "a\tb", "");
+        List<String> raw = new ArrayList<>(keys);
+        raw.sort(CodePointComparator.get());
+        List<String> encoded = keys.stream().map(URIBuilder::encodePath).collect(Collectors.toList());
+        encoded.sort(URIPathComparator.get());
+        Assert.assertEquals(raw.stream().map(URIBuilder::encodePath).collect(Collectors.toList()), encoded);
+
+        // 按原始键有序列举，编码后合并不报错
+        List<String> newList = raw.stream().map(URIBuilder::encodePath).collect(Collectors.toList());
+        List<String> oldList = newList.subList(1, newList.size() - 1);
+        Set<String> actual = toStrings(new SortedFileDiffIterator<>(Function.identity(), Function.identity(),
+                URIPathComparator.get(), newList.iterator(), oldList.iterator()));
+        Assert.assertEquals(toStrings(new FileDiffIterator<>(Function.identity(), Function.identity(),
+                newList.iterator(), oldList.iterator())), actual);
+    }
+}
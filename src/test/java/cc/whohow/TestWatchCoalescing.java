@@ -0,0 +1,264 @@
+package cc.whohow;
+
+import cc.whohow.vfs.FileObjectX;
+import cc.whohow.vfs.provider.kv.KeyValueFileObject;
+import cc.whohow.vfs.provider.uri.UriFileName;
+import cc.whohow.vfs.serialize.TextSerializer;
+import cc.whohow.vfs.version.FileVersion;
+import cc.whohow.vfs.version.FileVersionProvider;
+import cc.whohow.vfs.watch.AdaptivePollingPolicy;
+import cc.whohow.vfs.watch.FileChangeSignal;
+import cc.whohow.vfs.watch.FileEventKind;
+import cc.whohow.vfs.watch.PollingFileWatchService;
+import cc.whohow.vfs.watch.PollingFileWatchTask;
+import cc.whohow.vfs.watch.PollingFileWatchable;
+import org.apache.commons.vfs2.FileChangeEvent;
+import org.apache.commons.vfs2.FileListener;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NavigableMap;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+public class TestWatchCoalescing {
+    private final NavigableMap<String, String> data = new ConcurrentSkipListMap<>();
+    private final ScheduledExecutorService executor = Executors.newScheduledThreadPool(2);
+    private final PollingFileWatchService watchService = new PollingFileWatchService(executor,
+            new AdaptivePollingPolicy(Duration.ofMillis(20)));
+    private final AtomicInteger listings = new AtomicInteger();
+    private final FileVersionProvider<String> versionProvider = new FileVersionProvider<String>() {
+        @Override
+        @SuppressWarnings("unchecked")
+        public FileVersion<String> getVersion(FileObjectX fileObject) {
+            return new FileVersion<>(fileObject, ((KeyValueFileObject<String>) fileObject).get());
+        }
+
+        @Override
+        public Stream<FileVersion<String>> getVersions(FileObjectX fileObject) {
+            listings.incrementAndGet();
+            return FileVersionProvider.super.getVersions(fileObject);
+        }
+    };
+
+    @After
+    public void shutdown() throws Exception {
+        watchService.close();
+        executor.shutdownNow();
+    }
+
+    private PollingFileWatchable<String> watchable(String uri) {
+        return new PollingFileWatchable<>(new KeyValueFileObject<>(
+                null, TextSerializer.utf8(), data, new UriFileName(uri)), versionProvider);
+    }
+
+    private List<String> roots() {
+        return watchService.getTasks().stream()
+                .map(PollingFileWatchTask::getFileName)
+                .map(Object::toString)
+                .sorted()
+                .collect(Collectors.toList());
+    }
+
+    @Test
+    public void testOverlapping() throws Exception {
+        // 只合并相互覆盖的监听
+        watchService.setCoalesceDepth(Integer.MAX_VALUE);
+        data.put("/cfg/a/x", "1");
+        data.put("/cfg/b/x", "1");
+        RecordingListener a = new RecordingListener();
+        RecordingListener b = new RecordingListener();
+        RecordingListener root = new RecordingListener();
+        watchService.addListener(watchable("kv:/cfg/a/"), a);
+        watchService.addListener(watchable("kv:/cfg/b/"), b);
+        Assert.assertEquals(2, watchService.getTasks().size());
+
+        watchService.addListener(watchable("kv:/cfg/"), root);
+        Assert.assertEquals(1, watchService.getTasks().size());
+        Assert.assertEquals("[kv:/cfg/]", roots().toString());
+
+        Await.polled(watchService);
+        data.put("/cfg/a/x", "2");
+        Await.until(() -> !a.events.isEmpty() && !root.events.isEmpty());
+        Await.polled(watchService);
+        Assert.assertEquals("[kv:/cfg/a/x]", a.events.toString());
+        Assert.assertTrue(b.events.isEmpty());
+        Assert.assertEquals("[kv:/cfg/a/x]", root.events.toString());
+
+        // 移除祖先监听，拆分为原监听
+        watchService.removeListener(watchable("kv:/cfg/"), root);
+        Assert.assertEquals("[kv:/cfg/a/, kv:/cfg/b/]", roots().toString());
+        Await.polled(watchService);
+        data.put("/cfg/b/x", "2");
+        Await.until(() -> !b.events.isEmpty());
+        Assert.assertEquals("[kv:/cfg/b/x]", b.events.toString());
+    }
+
+    @Test
+    public void testSiblings() throws Exception {
+        // 默认不合并兄弟监听
+        Assert.assertEquals(Integer.MAX_VALUE, watchService.getCoalesceDepth());
+        watchService.setCoalesceDepth(1);
+        List<RecordingListener> listeners = new ArrayList<>();
+        for (int i = 0; i < 30; i++) {
+            data.put("/cfg/app-" + i + "/application.yml", "1");
+            RecordingListener listener = new RecordingListener();
+            watchService.addListener(watchable("kv:/cfg/app-" + i + "/"), listener);
+            listeners.add(listener);
+        }
+        data.put("/other/x", "1");
+        watchService.addListener(watchable("kv:/other/"), new RecordingListener());
+        Assert.assertEquals("[kv:/cfg/, kv:/other/]", roots().toString());
+
+        Await.polled(watchService);
+        int before = listings.get();
+        data.put("/cfg/app-7/application.yml", "2");
+        Await.until(() -> !listeners.get(7).events.isEmpty());
+        Await.polled(watchService);
+        Assert.assertEquals("[kv:/cfg/app-7/application.yml]", listeners.get(7).events.toString());
+        Assert.assertTrue(listeners.get(8).events.isEmpty());
+        // 两个轮询任务，每轮2次列举
+        Assert.assertTrue(listings.get() - before < 30);
+
+        // 监听减少，缩小轮询范围
+        for (int i = 1; i < 30; i++) {
+            watchService.removeListener(watchable("kv:/cfg/app-" + i + "/"), listeners.get(i));
+        }
+        Assert.assertEquals("[kv:/cfg/app-0/, kv:/other/]", roots().toString());
+    }
+
+    @Test
+    public void testIncompatible() throws Exception {
+        // 版本提供者或变化信号不同，不合并
+        data.put("/cfg/a/x", "1");
+        data.put("/cfg/b/x", "1");
+        FileVersionProvider<String> otherProvider = new FileVersionProvider<String>() {
+            @Override
+            @SuppressWarnings("unchecked")
+            public FileVersion<String> getVersion(FileObjectX fileObject) {
+                return new FileVersion<>(fileObject, ((KeyValueFileObject<String>) fileObject).get());
+            }
+        };
+        watchService.addListener(watchable("kv:/cfg/a/"), new RecordingListener());
+        watchService.addListener(new PollingFileWatchable<>(new KeyValueFileObject<>(
+                null, TextSerializer.utf8(), data, new UriFileName("kv:/cfg/b/")), otherProvider), new RecordingListener());
+        Assert.assertEquals("[kv:/cfg/a/, kv:/cfg/b/]", roots().toString());
+
+        FileChangeSignal signal = FileChangeSignal.marker("x", versionProvider);
+        watchService.addListener(watchable("kv:/cfg/a/").setChangeSignal(signal), new RecordingListener());
+        watchService.addListener(watchable("kv:/cfg/a/y/").setChangeSignal(signal), new RecordingListener());
+        Assert.assertEquals("[kv:/cfg/a/, kv:/cfg/a/, kv:/cfg/a/y/, kv:/cfg/b/]", roots().toString());
+
+        // 相同信号的同一目录共用轮询
+        watchService.addListener(watchable("kv:/cfg/a/").setChangeSignal(signal), new RecordingListener());
+        Assert.assertEquals(4, watchService.getTasks().size());
+    }
+
+    @Test
+    public void testInheritSnapshot() throws Exception {
+        PollingFileWatchService slowWatchService = new PollingFileWatchService(executor,
+                new AdaptivePollingPolicy(Duration.ofHours(1)));
+        slowWatchService.setCoalesceDepth(1);
+        try {
+            data.put("/cfg/a/x", "1");
+            data.put("/cfg/b/y", "1");
+            RecordingListener a = new RecordingListener();
+            RecordingListener b = new RecordingListener();
+            slowWatchService.addListener(watchable("kv:/cfg/a/"), a);
+            Await.baseline(slowWatchService);
+
+            // 原任务不再轮询，合并后的任务继承快照，发现合并前的变化；新覆盖的文件只建立基线
+            data.put("/cfg/a/x", "2");
+            slowWatchService.addListener(watchable("kv:/cfg/b/"), b);
+            Assert.assertEquals("[kv:/cfg/]", slowWatchService.getTasks().stream()
+                    .map(PollingFileWatchTask::getFileName).map(Object::toString).collect(Collectors.toList()).toString());
+            // 合并后的任务完成首次轮询
+            PollingFileWatchTask task = slowWatchService.getTasks().iterator().next();
+            Await.until(() -> task.getChangeCount() == 1 && !a.events.isEmpty());
+            Assert.assertEquals(1, slowWatchService.getDispatcher().getQueues().size());
+            Assert.assertEquals("[kv:/cfg/a/x]", a.events.toString());
+            Assert.assertTrue(b.events.isEmpty());
+        } finally {
+            slowWatchService.close();
+        }
+    }
+
+    @Test
+    public void testRetainedWatchKey() throws Exception {
+        // 合并后调用方持有的原 WatchKey 仍有效，已累积的事件不丢失，之后的事件经合并任务转发
+        watchService.setCoalesceDepth(1);
+        data.put("/cfg/a/x", "1");
+        data.put("/cfg/b/y", "1");
+        watchService.addListener(watchable("kv:/cfg/a/"), new RecordingListener());
+        WatchKey a = watchService.getOrScheduledTask(watchable("kv:/cfg/a/")).getWatchKey();
+        Await.polled(watchService);
+        data.put("/cfg/a/x", "2");
+        Assert.assertSame(a, watchService.take());
+
+        watchService.addListener(watchable("kv:/cfg/b/"), new RecordingListener());
+        Assert.assertEquals("[kv:/cfg/]", roots().toString());
+        Assert.assertTrue(a.isValid());
+        Assert.assertEquals(1, a.pollEvents().size());
+        Assert.assertTrue(a.reset());
+
+        Await.polled(watchService);
+        data.put("/cfg/a/x", "3");
+        data.put("/cfg/b/y", "2");
+        List<WatchEvent<?>> events = take(a);
+        Assert.assertEquals(1, events.size());
+        Assert.assertEquals(FileEventKind.MODIFY, events.get(0).kind());
+        Assert.assertTrue(a.reset());
+
+        // 取消原 WatchKey 不影响合并任务
+        a.cancel();
+        Assert.assertFalse(a.isValid());
+        Assert.assertEquals("[kv:/cfg/]", roots().toString());
+    }
+
+    /**
+     * 从服务取出指定 WatchKey 的事件，跳过其他 WatchKey
+     */
+    private List<WatchEvent<?>> take(WatchKey watchKey) throws Exception {
+        while (true) {
+            WatchKey key = watchService.poll(5, TimeUnit.SECONDS);
+            Assert.assertNotNull(key);
+            if (key == watchKey) {
+                return key.pollEvents();
+            }
+            key.pollEvents();
+            key.reset();
+        }
+    }
+
+    private static class RecordingListener implements FileListener {
+        final Queue<String> events = new ConcurrentLinkedQueue<>();
+
+        @Override
+        public void fileCreated(FileChangeEvent event) {
+            events.add(event.getFile().getName().getURI());
+        }
+
+        @Override
+        public void fileDeleted(FileChangeEvent event) {
+            events.add(event.getFile().getName().getURI());
+        }
+
+        @Override
+        public void fileChanged(FileChangeEvent event) {
+            events.add(event.getFile().getName().getURI());
+        }
+    }
+}